@@ -0,0 +1,51 @@
+package com.streamingplatform.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Shared setup for the storage benchmarks.
+ */
+final class BenchSupport {
+
+    private BenchSupport() {
+    }
+
+    /**
+     * Point DatabaseManager at the requested H2 backend. Must run before
+     * DatabaseManager is first touched (JMH forks a fresh JVM per trial).
+     */
+    static void selectBackend(String backend) throws Exception {
+        System.setProperty("streaming.h2.url", backendUrl(backend));
+    }
+
+    /**
+     * As selectBackend, but H2 runs a repeated query again instead of
+     * returning its last result while no table has changed. For benchmarks
+     * that read the same rows on every call, as a live broker would not.
+     */
+    static void selectUncachedBackend(String backend) throws Exception {
+        System.setProperty("streaming.h2.url", backendUrl(backend) + ";OPTIMIZE_REUSE_RESULTS=FALSE");
+    }
+
+    private static String backendUrl(String backend) throws Exception {
+        return switch (backend) {
+            case "mem" -> "jdbc:h2:mem:bench_db;DB_CLOSE_DELAY=-1";
+            case "file" -> {
+                Path dir = Files.createTempDirectory("streaming-bench");
+                yield "jdbc:h2:" + dir.resolve("bench_db").toAbsolutePath() + ";DB_CLOSE_DELAY=-1";
+            }
+            default -> throw new IllegalArgumentException("Unknown backend: " + backend);
+        };
+    }
+
+    /**
+     * BrokerService logs every publish; keep JMH's output readable while
+     * still paying for the println call.
+     */
+    static void silenceStdout() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+}
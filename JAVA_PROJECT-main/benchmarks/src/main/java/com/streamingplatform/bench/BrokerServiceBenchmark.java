@@ -0,0 +1,66 @@
+package com.streamingplatform.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.streamingplatform.persistence.DatabaseManager;
+import com.streamingplatform.persistence.MessageDAO;
+import com.streamingplatform.persistence.MessageRecord;
+import com.streamingplatform.service.BrokerService;
+
+/**
+ * BrokerService.publish / consume against the H2 store, in memory and on disk.
+ * MySQL and Neo4j only receive aggregates from the sync services, so they
+ * are not message stores and are not benchmarked here.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BrokerServiceBenchmark {
+
+    @Param({ "mem", "file" })
+    public String backend;
+
+    // Messages already stored in the topic that consume() reads back
+    @Param({ "100", "1000" })
+    public int topicSize;
+
+    private BrokerService broker;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchSupport.selectBackend(backend);
+        BenchSupport.silenceStdout();
+        DatabaseManager.initializeDatabase();
+        broker = new BrokerService(new MessageDAO());
+
+        for (int i = 0; i < topicSize; i++) {
+            broker.publish("ReadTopic", "Bench-Producer", "Event_ID_" + i + "_Value_" + (i * 31 % 1000));
+        }
+    }
+
+    @Benchmark
+    public void publish() {
+        broker.publish("WriteTopic", "Bench-Producer", "Event_ID_42_Value_917");
+    }
+
+    @Benchmark
+    public List<MessageRecord> consume() {
+        return broker.consume("ReadTopic");
+    }
+}
@@ -0,0 +1,123 @@
+package com.streamingplatform.bench;
+
+import java.io.BufferedReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.streamingplatform.analysis.ColumnarReader;
+import com.streamingplatform.analysis.ColumnarReader.Column;
+import com.streamingplatform.analysis.ColumnarReader.Filter;
+import com.streamingplatform.analysis.DataExporter;
+import com.streamingplatform.persistence.DatabaseManager;
+import com.streamingplatform.persistence.MessageDAO;
+import com.streamingplatform.persistence.MessageRecord;
+
+/**
+ * Offline analysis of an export: count one topic's messages, and read every
+ * message back, from the CSV export (parse each line) against the columnar
+ * snapshot (topic column only with a pushed-down topic filter / all columns).
+ * The setup prints both file sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColumnarExportBenchmark {
+
+    private static final String[] TOPICS = { "ErrorLogs", "SystemLogs", "Clicks", "Orders", "Payments" };
+
+    @Param({ "200000" })
+    public int rows;
+
+    private Path csv;
+    private Path columnar;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchSupport.selectBackend("mem");
+        DatabaseManager.initializeDatabase();
+        MessageDAO dao = new MessageDAO();
+        List<MessageRecord> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            batch.add(MessageRecord.of(TOPICS[i % TOPICS.length], "Producer-" + (i % 50),
+                    "Event_ID_" + i + " status=" + (i % 7 == 0 ? "error" : "ok") + " latency_ms=" + (i * 31 % 1000)));
+            if (batch.size() == 10_000) {
+                dao.saveMessages(batch);
+                batch.clear();
+            }
+        }
+        dao.saveMessages(batch);
+
+        Path dir = Files.createTempDirectory("columnar-bench");
+        csv = dir.resolve("messages.csv");
+        columnar = dir.resolve("messages.cols");
+        DataExporter.exportCSV(csv.toString());
+        DataExporter.exportColumnar(columnar.toString());
+        System.out.printf("CSV %d KB, columnar %d KB%n", Files.size(csv) / 1024, Files.size(columnar) / 1024);
+    }
+
+    @Benchmark
+    public long csvCountTopic() throws Exception {
+        long count = 0;
+        try (BufferedReader in = Files.newBufferedReader(csv)) {
+            in.readLine(); // Header
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.split(",", -1)[1].equals("ErrorLogs")) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long columnarCountTopic() throws Exception {
+        try (ColumnarReader reader = ColumnarReader.open(columnar)) {
+            return reader.scan(Filter.all().topics("ErrorLogs"), EnumSet.noneOf(Column.class), row -> { });
+        }
+    }
+
+    @Benchmark
+    public long csvReadAll() throws Exception {
+        long bytes = 0;
+        try (BufferedReader in = Files.newBufferedReader(csv)) {
+            in.readLine();
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split(",", -1);
+                bytes += Long.parseLong(fields[0]) + fields[3].length() + Timestamp.valueOf(fields[4]).getTime();
+            }
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public long columnarReadAll() throws Exception {
+        long[] bytes = { 0 };
+        try (ColumnarReader reader = ColumnarReader.open(columnar)) {
+            reader.scan(Filter.all(), ColumnarReader.allColumns(),
+                    row -> bytes[0] += row.id() + row.content().length + row.timestampMs());
+        }
+        return bytes[0];
+    }
+}
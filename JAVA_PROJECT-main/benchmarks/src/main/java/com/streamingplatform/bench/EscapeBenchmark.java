@@ -0,0 +1,51 @@
+package com.streamingplatform.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.streamingplatform.analysis.DataExporter;
+
+/**
+ * DataExporter escaping, called once per column per exported row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EscapeBenchmark {
+
+    @Param({ "plain", "special" })
+    public String kind;
+
+    private String value;
+
+    @Setup
+    public void setup() {
+        value = kind.equals("plain")
+                ? "Event_ID_42_Value_917 user logged in from web client"
+                : "Error: \"timeout\", retrying\n\tat Service.call(C:\\app\\Service.java)";
+    }
+
+    @Benchmark
+    public String escapeCSV() {
+        return DataExporter.escapeCSV(value);
+    }
+
+    @Benchmark
+    public String escapeJSON() {
+        return DataExporter.escapeJSON(value);
+    }
+}
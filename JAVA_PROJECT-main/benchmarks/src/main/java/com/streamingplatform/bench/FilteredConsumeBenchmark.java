@@ -0,0 +1,89 @@
+package com.streamingplatform.bench;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.streamingplatform.net.ResponseBuffer;
+import com.streamingplatform.persistence.DatabaseManager;
+import com.streamingplatform.persistence.MessageDAO;
+import com.streamingplatform.persistence.MessageFilter;
+import com.streamingplatform.persistence.MessageRecord;
+import com.streamingplatform.service.BrokerService;
+
+/**
+ * An alerting consumer that wants the 1% of a topic containing "error": the
+ * whole topic sent and filtered by the client, against a filter evaluated in
+ * the broker. Both include writing the MSG lines (the network side), and
+ * the client-side variant decoding each line it receives.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilteredConsumeBenchmark {
+
+    private static final byte[] MSG = "MSG ".getBytes(StandardCharsets.US_ASCII);
+
+    @Param({ "10000" })
+    public int topicSize;
+
+    private MessageDAO dao;
+    private BrokerService broker;
+    private final MessageFilter filter = MessageFilter.parse("icontains=error");
+    private final ResponseBuffer out = new ResponseBuffer(OutputStream.nullOutputStream(), 8192);
+
+    @Setup
+    public void setup() throws Exception {
+        BenchSupport.selectUncachedBackend("mem");
+        DatabaseManager.initializeDatabase();
+        dao = new MessageDAO();
+        broker = new BrokerService(dao);
+
+        List<MessageRecord> batch = new ArrayList<>();
+        for (int i = 0; i < topicSize; i++) {
+            String content = (i % 100 == 0 ? "Disk_Error_" : "Event_ID_") + i + "_Value_" + (i * 31 % 1000);
+            batch.add(MessageRecord.of("Alerts", "Producer-" + (i % 8), content));
+        }
+        dao.saveMessages(batch);
+    }
+
+    @Benchmark
+    public int clientSide() throws Exception {
+        int matches = 0;
+        for (MessageRecord msg : broker.consume("Alerts")) {
+            out.write(MSG).write(msg.payload(), msg.offset(), msg.length()).newLine();
+            if (msg.payloadAsString().toLowerCase().contains("error")) {
+                matches++;
+            }
+        }
+        out.flush();
+        return matches;
+    }
+
+    @Benchmark
+    public int brokerSide() throws Exception {
+        List<MessageRecord> messages = broker.consume("Alerts", filter);
+        for (MessageRecord msg : messages) {
+            out.write(MSG).write(msg.payload(), msg.offset(), msg.length()).newLine();
+        }
+        out.flush();
+        return messages.size();
+    }
+}
@@ -0,0 +1,66 @@
+package com.streamingplatform.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.streamingplatform.persistence.DatabaseManager;
+import com.streamingplatform.persistence.MessageDAO;
+import com.streamingplatform.persistence.MessageRecord;
+
+/**
+ * Per-message cost of saveMessage in a loop vs one saveMessages batch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageDAOBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({ "mem", "file" })
+    public String backend;
+
+    private MessageDAO dao;
+    private final List<MessageRecord> batch = new ArrayList<>();
+
+    @Setup
+    public void setup() throws Exception {
+        BenchSupport.selectBackend(backend);
+        DatabaseManager.initializeDatabase();
+        dao = new MessageDAO();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(MessageRecord.of("BatchTopic", "Bench-Producer-" + (i % 8), "Event_ID_" + i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void singleInserts() {
+        for (MessageRecord m : batch) {
+            dao.saveMessage(m);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int batchedInsert() {
+        return dao.saveMessages(batch);
+    }
+}
@@ -0,0 +1,109 @@
+package com.streamingplatform.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.streamingplatform.analysis.ParallelScan;
+import com.streamingplatform.analysis.StreamAnalytics;
+import com.streamingplatform.persistence.DatabaseManager;
+import com.streamingplatform.persistence.MessageDAO;
+import com.streamingplatform.persistence.MessageRecord;
+
+/**
+ * Per-topic stats over every stored message: one JDBC scan on the shared
+ * connection against the fork/join scan at a given parallelism.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelScanBenchmark {
+
+    @Param({ "100000" })
+    public int storedMessages;
+
+    @Param({ "1", "4" })
+    public int parallelism;
+
+    private MessageDAO dao;
+    private ForkJoinPool pool;
+    private ParallelScan scan;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchSupport.selectUncachedBackend("mem");
+        DatabaseManager.initializeDatabase();
+        dao = new MessageDAO();
+
+        List<MessageRecord> batch = new ArrayList<>();
+        for (int i = 0; i < storedMessages; i++) {
+            String content = (i % 10 == 0 ? "Error_" : "Event_ID_") + i;
+            batch.add(MessageRecord.of("Topic-" + (i % 13), "Producer-" + (i % 8), content));
+            if (batch.size() == 1000) {
+                dao.saveMessages(batch);
+                batch.clear();
+            }
+        }
+        dao.saveMessages(batch);
+        pool = new ForkJoinPool(parallelism);
+        scan = new ParallelScan(pool, 10_000);
+    }
+
+    @TearDown
+    public void tearDown() {
+        scan.close();
+        pool.shutdown();
+    }
+
+    // The same stats from one JDBC pass on the shared connection
+    @Benchmark
+    public Map<String, long[]> sequential() throws Exception {
+        Map<String, long[]> totals = new HashMap<>();
+        try (PreparedStatement ps = DatabaseManager.getConnection()
+                .prepareStatement("SELECT topic, content, timestamp FROM messages");
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String content = new String(rs.getBytes(2), StandardCharsets.UTF_8);
+                long timestamp = rs.getTimestamp(3).getTime();
+                // count, errors, bytes, min length, max length, first, last
+                long[] t = totals.computeIfAbsent(rs.getString(1),
+                        k -> new long[] { 0, 0, 0, Long.MAX_VALUE, 0, Long.MAX_VALUE, Long.MIN_VALUE });
+                t[0]++;
+                t[1] += content.toLowerCase().contains("error") ? 1 : 0;
+                t[2] += content.length();
+                t[3] = Math.min(t[3], content.length());
+                t[4] = Math.max(t[4], content.length());
+                t[5] = Math.min(t[5], timestamp);
+                t[6] = Math.max(t[6], timestamp);
+            }
+        }
+        return totals;
+    }
+
+    @Benchmark
+    public Map<String, StreamAnalytics.WindowStats> parallel() throws Exception {
+        return StreamAnalytics.history(scan, ParallelScan.Range.all());
+    }
+}
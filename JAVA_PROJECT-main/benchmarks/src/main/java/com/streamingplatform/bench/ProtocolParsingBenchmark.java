@@ -0,0 +1,117 @@
+package com.streamingplatform.bench;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.streamingplatform.net.RequestReader;
+
+/**
+ * Cost of turning one request line into a command + arguments.
+ *
+ * The split* benchmarks are the previous String path (trim, regex split,
+ * toUpperCase), kept as a baseline; the tokenize* ones are what ClientWorker
+ * does now. Compare gc.alloc.rate.norm (bytes/op) as well as time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProtocolParsingBenchmark {
+
+    private static final byte[] PUBLISH = "PUBLISH".getBytes(StandardCharsets.US_ASCII);
+
+    private final String publishLine = "PUBLISH PaymentEvents Payment-Gateway-A Event_ID_42_Value_917 amount=12.50";
+    private final String consumeLine = "consume   PaymentEvents";
+
+    private RequestReader publishReader;
+    private RequestReader consumeReader;
+
+    @Setup
+    public void setUp() {
+        publishReader = new RequestReader(new RepeatingInputStream(publishLine), 8192);
+        consumeReader = new RequestReader(new RepeatingInputStream(consumeLine), 8192);
+    }
+
+    @Benchmark
+    public String[] splitPublish() {
+        return split(publishLine);
+    }
+
+    @Benchmark
+    public String[] splitConsume() {
+        return split(consumeLine);
+    }
+
+    /**
+     * Command match plus the interned topic and producer id. The content is
+     * left out: it is still turned into a String for the store.
+     */
+    @Benchmark
+    public void tokenizePublish(Blackhole bh) throws Exception {
+        publishReader.nextLine();
+        publishReader.tokenize(6);
+        bh.consume(publishReader.tokenEqualsIgnoreCase(0, PUBLISH));
+        publishReader.tokenize(4);
+        bh.consume(publishReader.internedToken(1));
+        bh.consume(publishReader.internedToken(2));
+    }
+
+    @Benchmark
+    public String tokenizeConsume() throws Exception {
+        consumeReader.nextLine();
+        consumeReader.tokenize(4);
+        return consumeReader.internedToken(1);
+    }
+
+    // The pre-tokenizer ClientWorker.parseLine
+    private static String[] split(String line) {
+        String trimmedLine = line.trim();
+        if (trimmedLine.isEmpty()) return null;
+        String[] parts = trimmedLine.split("\\s+", 4);
+        parts[0] = parts[0].toUpperCase();
+        return parts;
+    }
+
+    /**
+     * Endless stream of the same request line, standing in for a socket.
+     */
+    static final class RepeatingInputStream extends InputStream {
+        private final byte[] line;
+        private int pos;
+
+        RepeatingInputStream(String line) {
+            this.line = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int read() {
+            int b = line[pos];
+            pos = (pos + 1) % line.length;
+            return b;
+        }
+
+        // At most the rest of one line per call, like a socket read of a small request
+        @Override
+        public int read(byte[] b, int off, int len) {
+            int n = Math.min(len, line.length - pos);
+            System.arraycopy(line, pos, b, off, n);
+            pos = (pos + n) % line.length;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.streamingplatform.bench;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.streamingplatform.net.ResponseBuffer;
+
+/**
+ * Cost of writing one "MSG <content>" line of a CONSUME batch, and one ACK:
+ * the previous PrintWriter.println path against ResponseBuffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseEncodingBenchmark {
+
+    private static final byte[] MSG = "MSG ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ACK = "ACK\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final String content = "Event_ID_42_Value_917 amount=12.50 currency=EUR";
+
+    private PrintWriter printWriter;
+    private ResponseBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        // Autoflush, as ClientWorker used it
+        printWriter = new PrintWriter(new OutputStreamWriter(OutputStream.nullOutputStream()), true);
+        buffer = new ResponseBuffer(OutputStream.nullOutputStream(), 8192);
+    }
+
+    @Benchmark
+    public void printWriterMessage() {
+        printWriter.println("MSG " + content);
+    }
+
+    @Benchmark
+    public void bufferMessage() throws Exception {
+        buffer.write(MSG).write(content).newLine();
+    }
+
+    @Benchmark
+    public void printWriterAck() {
+        printWriter.println("ACK");
+    }
+
+    @Benchmark
+    public void bufferAck() throws Exception {
+        buffer.write(ACK).flush();
+    }
+}
@@ -0,0 +1,116 @@
+package com.streamingplatform.bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.streamingplatform.persistence.DatabaseManager;
+import com.streamingplatform.persistence.MessageDAO;
+import com.streamingplatform.persistence.MessageRecord;
+import com.streamingplatform.service.RollupService;
+import com.streamingplatform.service.RollupService.Resolution;
+
+/**
+ * A trend question: one topic's messages and bytes per day over 30 days,
+ * from the compacted rollups against a GROUP BY over the stored messages
+ * (what a trend cost before). The messages are spread evenly over the
+ * month, with the same times recorded in the rollups.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RollupBenchmark {
+
+    private static final String[] TOPICS = { "ErrorLogs", "SystemLogs", "Clicks", "Orders", "Payments" };
+    private static final long DAY_MS = 86_400_000L;
+
+    @Param({ "1000000" })
+    public int rows;
+
+    private MessageDAO dao;
+    private RollupService rollups;
+    private Connection connection;
+    private long fromMs;
+    private long toMs;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchSupport.selectUncachedBackend("mem");
+        BenchSupport.silenceStdout();
+        DatabaseManager.initializeDatabase();
+        dao = new MessageDAO();
+        rollups = new RollupService();
+        toMs = System.currentTimeMillis();
+        fromMs = Resolution.DAY.floor(toMs - 30 * DAY_MS);
+
+        List<MessageRecord> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            MessageRecord record = MessageRecord.of(TOPICS[i % TOPICS.length], "Producer-" + (i % 10),
+                    "Event_ID_" + i + " status=ok");
+            rollups.record(record.topic(), record.key(), record.length(), timeOf(i));
+            batch.add(record);
+            if (batch.size() == 10_000) {
+                dao.saveMessages(batch);
+                batch.clear();
+                rollups.flush(); // As the flush job would
+            }
+        }
+        dao.saveMessages(batch);
+        connection = DatabaseManager.getConnection();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE messages SET timestamp = DATEADD(MILLISECOND, (id - 1) * ?, CAST(? AS TIMESTAMP))")) {
+            ps.setLong(1, (toMs - fromMs) / rows);
+            ps.setTimestamp(2, new Timestamp(fromMs));
+            ps.executeUpdate();
+        }
+        rollups.flush();
+        rollups.compact(toMs);
+    }
+
+    // Matches the timestamps the UPDATE above gives the i-th stored message
+    private long timeOf(int i) {
+        return fromMs + i * ((toMs - fromMs) / rows);
+    }
+
+    @Benchmark
+    public List<RollupService.Bucket> rollupSeries() throws Exception {
+        return rollups.series("Orders", null, fromMs, toMs, Resolution.DAY);
+    }
+
+    @Benchmark
+    public long groupByMessages() throws Exception {
+        long total = 0;
+        try (PreparedStatement ps = connection.prepareStatement("SELECT CAST(timestamp AS DATE), COUNT(*), "
+                + "SUM(OCTET_LENGTH(content)) FROM messages WHERE topic = ? AND timestamp >= ? AND timestamp < ? "
+                + "GROUP BY CAST(timestamp AS DATE)")) {
+            ps.setString(1, "Orders");
+            ps.setTimestamp(2, new Timestamp(fromMs));
+            ps.setTimestamp(3, new Timestamp(toMs));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    total += rs.getLong(2);
+                }
+            }
+        }
+        return total;
+    }
+}
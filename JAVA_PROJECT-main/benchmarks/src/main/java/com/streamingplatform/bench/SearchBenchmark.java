@@ -0,0 +1,88 @@
+package com.streamingplatform.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.streamingplatform.analysis.StreamAnalytics;
+import com.streamingplatform.persistence.DatabaseManager;
+import com.streamingplatform.persistence.MessageDAO;
+import com.streamingplatform.persistence.MessageFilter;
+import com.streamingplatform.persistence.MessageRecord;
+import com.streamingplatform.search.SearchIndex;
+import com.streamingplatform.search.SearchQuery;
+import com.streamingplatform.service.BrokerService;
+import com.streamingplatform.service.ConsumerRegistry;
+import com.streamingplatform.service.RollupService;
+import com.streamingplatform.service.StreamAggregator;
+
+/**
+ * An incident search over an error log topic: the 20 newest messages
+ * mentioning a phrase, through the inverted index against a filtered scan
+ * of the topic (what a search cost before). "outofmemory" is in 0.1% of
+ * the messages, "disk full" in 10%.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    @Param({ "100000" })
+    public int topicSize;
+
+    @Param({ "outofmemory", "disk full" })
+    public String phrase;
+
+    private MessageDAO dao;
+    private BrokerService broker;
+    private SearchQuery query;
+    private MessageFilter filter;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchSupport.selectUncachedBackend("mem");
+        BenchSupport.silenceStdout();
+        DatabaseManager.initializeDatabase();
+        dao = new MessageDAO();
+        SearchIndex index = new SearchIndex(List.of("ErrorLogs"));
+        broker = new BrokerService(dao, new StreamAggregator(), new ConsumerRegistry(), new StreamAnalytics(), index,
+                new RollupService());
+
+        for (int i = 0; i < topicSize; i++) {
+            String detail = i % 1000 == 0 ? "java.lang.OutOfMemory error in worker"
+                    : i % 10 == 0 ? "disk full on /var/data" : "request timeout after " + (i % 500) + " ms";
+            broker.publish(MessageRecord.of("ErrorLogs", "node-" + (i % 16), "ERROR host-" + (i % 64) + " " + detail));
+            if (i % 10_000 == 0) {
+                index.maintain();
+            }
+        }
+        index.maintain();
+        query = SearchQuery.parse(phrase);
+        filter = MessageFilter.parse("icontains=" + phrase);
+    }
+
+    @Benchmark
+    public List<MessageRecord> indexed() {
+        return broker.search("ErrorLogs", query);
+    }
+
+    @Benchmark
+    public List<MessageRecord> scan() {
+        List<MessageRecord> matches = broker.consume("ErrorLogs", filter);
+        return matches.subList(Math.max(0, matches.size() - SearchQuery.DEFAULT_LIMIT), matches.size());
+    }
+}
@@ -0,0 +1,79 @@
+package com.streamingplatform.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.streamingplatform.analysis.StreamAnalytics;
+import com.streamingplatform.persistence.DatabaseManager;
+import com.streamingplatform.persistence.MessageDAO;
+import com.streamingplatform.persistence.MessageRecord;
+
+/**
+ * Topic stats (count, errors, average length): the old full reload of the
+ * topic from H2 against a windowed read, and the cost recording adds to publish.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamAnalyticsBenchmark {
+
+    @Param({ "1000", "10000" })
+    public int topicSize;
+
+    private MessageDAO dao;
+    private final StreamAnalytics analytics = new StreamAnalytics();
+    private final byte[] payload = "Event_ID_42_Value_917".getBytes(StandardCharsets.UTF_8);
+
+    @Setup
+    public void setup() throws Exception {
+        BenchSupport.selectBackend("mem");
+        DatabaseManager.initializeDatabase();
+        dao = new MessageDAO();
+
+        List<MessageRecord> batch = new ArrayList<>();
+        for (int i = 0; i < topicSize; i++) {
+            String content = (i % 10 == 0 ? "Error_" : "Event_ID_") + i;
+            batch.add(MessageRecord.of("ReadTopic", "Bench-Producer", content));
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            analytics.record("ReadTopic", "Bench-Producer", bytes, 0, bytes.length, System.currentTimeMillis());
+        }
+        dao.saveMessages(batch);
+    }
+
+    // What StreamAnalytics.printStats used to do
+    @Benchmark
+    public double fullReload() {
+        List<String> messages = dao.getMessagesByTopic("ReadTopic");
+        long total = messages.stream().count();
+        long errors = messages.stream().filter(msg -> msg.toLowerCase().contains("error")).count();
+        double avgLength = messages.stream().mapToInt(String::length).average().orElse(0.0);
+        return total + errors + avgLength;
+    }
+
+    @Benchmark
+    public StreamAnalytics.WindowStats slidingWindow() {
+        return analytics.sliding(StreamAnalytics.Scope.TOPIC, "ReadTopic", StreamAnalytics.MINUTE_MS);
+    }
+
+    @Benchmark
+    public void record() {
+        analytics.record("WriteTopic", "Bench-Producer", payload, 0, payload.length, System.currentTimeMillis());
+    }
+}
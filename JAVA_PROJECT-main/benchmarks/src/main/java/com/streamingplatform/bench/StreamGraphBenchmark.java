@@ -0,0 +1,128 @@
+package com.streamingplatform.bench;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.streamingplatform.graph.StreamGraph;
+
+/**
+ * Graph questions answered in process: the 10 producers publishing to the
+ * most topics, and the topics sharing the most traffic with one topic
+ * through its producers, from StreamGraph's int adjacency arrays against
+ * the same questions over nested HashMaps of names. Also the cost of
+ * counting a publish on a known edge, alone and from 4 threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamGraphBenchmark {
+
+    @Param({ "10000" })
+    public int producers;
+
+    private static final int TOPICS = 200;
+
+    private final StreamGraph graph = new StreamGraph();
+    // producer -> topic -> messages
+    private final Map<String, Map<String, Long>> maps = new HashMap<>();
+    private String[] producerNames;
+    private String[] firstTopics;
+    private int next;
+
+    @Setup
+    public void setup() {
+        producerNames = new String[producers];
+        firstTopics = new String[producers];
+        for (int p = 0; p < producers; p++) {
+            String producer = "Producer-" + p;
+            producerNames[p] = producer;
+            firstTopics[p] = "Topic-" + (p * 7) % TOPICS;
+            // Producers publish to 1..20 topics
+            for (int i = 0; i <= p % 20; i++) {
+                String topic = "Topic-" + (p * 7 + i * 13) % TOPICS;
+                for (int m = 0; m <= (p + i) % 5; m++) {
+                    graph.recordPublish(topic, producer);
+                    maps.computeIfAbsent(producer, k -> new HashMap<>()).merge(topic, 1L, Long::sum);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public List<StreamGraph.Node> graphTopProducers() {
+        return graph.top(StreamGraph.Kind.PRODUCER, 10);
+    }
+
+    private record Ranked(String producer, int topics, long messages) {
+    }
+
+    @Benchmark
+    public List<Ranked> mapTopProducers() {
+        List<Ranked> ranked = new ArrayList<>(maps.size());
+        maps.forEach((producer, topics) -> {
+            long messages = 0;
+            for (long count : topics.values()) {
+                messages += count;
+            }
+            ranked.add(new Ranked(producer, topics.size(), messages));
+        });
+        ranked.sort(Comparator.comparingInt(Ranked::topics).thenComparingLong(Ranked::messages).reversed());
+        return ranked.subList(0, Math.min(10, ranked.size()));
+    }
+
+    @Benchmark
+    public List<StreamGraph.Neighbor> graphRelatedTopics() {
+        return graph.relatedTopics("Topic-42", 10);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Long>> mapRelatedTopics() {
+        Map<String, Long> scores = new HashMap<>();
+        for (Map<String, Long> topics : maps.values()) {
+            if (topics.containsKey("Topic-42")) {
+                topics.forEach((topic, count) -> {
+                    if (!topic.equals("Topic-42")) {
+                        scores.merge(topic, count, Long::sum);
+                    }
+                });
+            }
+        }
+        List<Map.Entry<String, Long>> related = new ArrayList<>(scores.entrySet());
+        related.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return related.subList(0, Math.min(10, related.size()));
+    }
+
+    @Benchmark
+    public void graphRecordPublish() {
+        int p = next++ % producers;
+        graph.recordPublish(firstTopics[p], producerNames[p]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void graphRecordPublishContended() {
+        int p = ThreadLocalRandom.current().nextInt(producers);
+        graph.recordPublish(firstTopics[p], producerNames[p]);
+    }
+}
@@ -0,0 +1,95 @@
+package com.streamingplatform.bench;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.streamingplatform.persistence.DatabaseManager;
+import com.streamingplatform.persistence.MessageDAO;
+import com.streamingplatform.persistence.MessageRecord;
+
+/**
+ * The H2 aggregation queries run on every MySQLSyncService / Neo4jSyncService
+ * tick, as a function of how many messages are stored.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SyncAggregationBenchmark {
+
+    // Same queries as the sync services
+    private static final String PRODUCER_TOPIC_COUNTS = """
+            SELECT producer_id, topic, COUNT(*) as msg_count
+            FROM messages
+            WHERE producer_id IS NOT NULL
+            GROUP BY producer_id, topic
+            """;
+    private static final String TOPIC_COUNTS = "SELECT topic, COUNT(*) as cnt FROM messages GROUP BY topic";
+    private static final String DISTINCT_PRODUCERS = "SELECT DISTINCT producer_id FROM messages WHERE producer_id IS NOT NULL";
+
+    @Param({ "10000", "100000" })
+    public int storedMessages;
+
+    private Connection conn;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchSupport.selectBackend("mem");
+        DatabaseManager.initializeDatabase();
+        MessageDAO dao = new MessageDAO();
+
+        List<MessageRecord> batch = new ArrayList<>();
+        for (int i = 0; i < storedMessages; i++) {
+            batch.add(MessageRecord.of("Topic-" + (i % 13), "Producer-" + (i % 8), "Event_ID_" + i));
+            if (batch.size() == 1000) {
+                dao.saveMessages(batch);
+                batch.clear();
+            }
+        }
+        dao.saveMessages(batch);
+        conn = DatabaseManager.getConnection();
+    }
+
+    @Benchmark
+    public long producerTopicCounts() throws Exception {
+        return drain(PRODUCER_TOPIC_COUNTS);
+    }
+
+    @Benchmark
+    public long topicCounts() throws Exception {
+        return drain(TOPIC_COUNTS);
+    }
+
+    @Benchmark
+    public long distinctProducers() throws Exception {
+        return drain(DISTINCT_PRODUCERS);
+    }
+
+    private long drain(String sql) throws Exception {
+        long rows = 0;
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
@@ -14,6 +14,7 @@ public class InteractiveClient {
         System.out.println("Connects to Broker at localhost:8080");
         System.out.println("Format: PUBLISH <TOPIC> <PRODUCER_ID> <CONTENT>");
         System.out.println("Example: PUBLISH news reporter1 Breaking News!");
+        System.out.println("Idempotent: INIT_PRODUCER <PRODUCER_ID>, then IPUBLISH <TOPIC> <PRODUCER_ID> <EPOCH> <SEQ> <CONTENT>");
         System.out.println("Type 'exit' to quit.");
         System.out.println("------------------------------------------------");
 
@@ -0,0 +1,334 @@
+package com.streamingplatform;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.streamingplatform.metrics.LatencyHistogram;
+
+/**
+ * Load generator for the broker (replaces the old 1,000-message TestProducer).
+ *
+ * Producers run open-loop: message i of a thread is due at start + i * interval
+ * and its latency is measured from that due time, not from when it was
+ * actually sent. A stalled broker therefore shows up in the percentiles
+ * instead of silently slowing the generator down (coordinated omission).
+ *
+ * Usage (all options optional):
+ * <pre>
+ *   --host=localhost --port=8080
+ *   --producers=4 --consumers=2      threads
+ *   --rate=2000                      total msgs/s, 0 = as fast as possible
+ *   --duration=30 --warmup=5         seconds
+ *   --topics=13 --producer-ids=8     cardinality
+ *   --size=64 --max-size=64          payload bytes
+ *   --size-dist=fixed|uniform|exponential
+ *   --poll-ms=100                    consumer poll interval
+ * </pre>
+ */
+public class LoadGenerator {
+
+    private static final String MARKER = "lg";
+
+    private final Map<String, String> options;
+    private final String host;
+    private final int port;
+    private final int producerThreads;
+    private final int consumerThreads;
+    private final long rate;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final int topicCount;
+    private final int producerIdCount;
+    private final int minSize;
+    private final int maxSize;
+    private final String sizeDistribution;
+    private final long pollMillis;
+
+    // Topic names carry the run id so consumers only ever see this run's messages
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private volatile boolean measuring = false;
+
+    private final LatencyHistogram ackLatency = new LatencyHistogram();
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+    private final LatencyHistogram endToEndLatency = new LatencyHistogram();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+
+    public LoadGenerator(Map<String, String> options) {
+        this.options = options;
+        this.host = option("host", "localhost");
+        this.port = (int) longOption("port", 8080);
+        this.producerThreads = (int) longOption("producers", 4);
+        this.consumerThreads = (int) longOption("consumers", 1);
+        this.rate = longOption("rate", 1000);
+        this.durationNanos = longOption("duration", 30) * 1_000_000_000L;
+        this.warmupNanos = longOption("warmup", 5) * 1_000_000_000L;
+        this.topicCount = (int) longOption("topics", 13);
+        this.producerIdCount = (int) longOption("producer-ids", 8);
+        this.minSize = (int) longOption("size", 64);
+        this.maxSize = Math.max(minSize, (int) longOption("max-size", minSize));
+        this.sizeDistribution = option("size-dist", minSize == maxSize ? "fixed" : "uniform");
+        this.pollMillis = longOption("poll-ms", 100);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int eq = arg.indexOf('=');
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            } else {
+                System.err.println("Ignoring argument: " + arg + " (expected --name=value)");
+            }
+        }
+        new LoadGenerator(options).run();
+    }
+
+    public void run() throws InterruptedException {
+        System.out.printf("--> [LoadGenerator] run=%s producers=%d consumers=%d rate=%s msg/s duration=%ds warmup=%ds%n",
+                runId, producerThreads, consumerThreads, rate == 0 ? "max" : Long.toString(rate),
+                durationNanos / 1_000_000_000L, warmupNanos / 1_000_000_000L);
+        System.out.printf("    topics=%d producer-ids=%d size=%d..%d (%s)%n",
+                topicCount, producerIdCount, minSize, maxSize, sizeDistribution);
+
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < producerThreads; i++) {
+            int index = i;
+            threads.add(startThread("lg-producer-" + i, () -> produce(index, start)));
+        }
+        for (int i = 0; i < consumerThreads; i++) {
+            int index = i;
+            threads.add(startThread("lg-consumer-" + i, () -> consume(index)));
+        }
+
+        // Warmup, then reset and measure
+        sleepUntil(start + warmupNanos);
+        ackLatency.reset();
+        serviceTime.reset();
+        endToEndLatency.reset();
+        sent.reset();
+        acked.reset();
+        errors.reset();
+        received.reset();
+        bytesSent.reset();
+        measuring = true;
+
+        long measureStart = System.nanoTime();
+        long end = measureStart + durationNanos;
+        while (System.nanoTime() < end) {
+            sleepUntil(Math.min(end, System.nanoTime() + 1_000_000_000L));
+            double elapsed = (System.nanoTime() - measureStart) / 1e9;
+            System.out.printf("Progress: %.0fs sent=%d acked=%d received=%d errors=%d (%.0f msg/s)%n",
+                    elapsed, sent.sum(), acked.sum(), received.sum(), errors.sum(), acked.sum() / elapsed);
+        }
+        long measureEnd = System.nanoTime();
+        running.set(false);
+        for (Thread t : threads) {
+            t.join(5000);
+        }
+
+        report((measureEnd - measureStart) / 1e9);
+    }
+
+    // =========================================================================
+    // PRODUCERS
+    // =========================================================================
+
+    private void produce(int index, long start) {
+        // Each thread owns an equal share of the target rate
+        long intervalNanos = rate == 0 ? 0 : 1_000_000_000L * producerThreads / rate;
+        // Stagger threads so they don't all fire on the same tick
+        long due = start + (intervalNanos * index) / Math.max(1, producerThreads);
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+
+        try (Socket socket = new Socket(host, port);
+                PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+
+            while (running.get()) {
+                if (intervalNanos > 0) {
+                    sleepUntil(due);
+                } else {
+                    due = System.nanoTime();
+                }
+
+                String topic = topicName(rand.nextInt(topicCount));
+                String producerId = "LoadGen-Producer-" + rand.nextInt(producerIdCount);
+                String content = payload(due, nextSize(rand));
+
+                long sendTime = System.nanoTime();
+                out.println("PUBLISH " + topic + " " + producerId + " " + content);
+                String response = in.readLine();
+                long now = System.nanoTime();
+
+                if (measuring) {
+                    sent.increment();
+                    bytesSent.add(content.length());
+                    if (response != null && response.startsWith("ACK")) {
+                        acked.increment();
+                        ackLatency.record(now - due);
+                        serviceTime.record(now - sendTime);
+                    } else {
+                        errors.increment();
+                    }
+                }
+                if (response == null) {
+                    break;
+                }
+                due += intervalNanos;
+            }
+        } catch (Exception e) {
+            errors.increment();
+            System.err.println("[LoadGenerator] Producer " + index + " failed: " + e.getMessage());
+        }
+    }
+
+    private String payload(long dueNanos, int size) {
+        StringBuilder sb = new StringBuilder(size + 32);
+        sb.append(MARKER).append(':').append(dueNanos).append(':');
+        while (sb.length() < size) {
+            sb.append('x');
+        }
+        return sb.toString();
+    }
+
+    private int nextSize(ThreadLocalRandom rand) {
+        return switch (sizeDistribution) {
+            case "uniform" -> minSize + rand.nextInt(maxSize - minSize + 1);
+            case "exponential" -> {
+                double mean = (maxSize - minSize) / 4.0 + 1;
+                yield (int) Math.min(maxSize, minSize - mean * Math.log(1 - rand.nextDouble()));
+            }
+            default -> minSize;
+        };
+    }
+
+    // =========================================================================
+    // CONSUMERS
+    // =========================================================================
+
+    private void consume(int index) {
+        // CONSUME returns the whole topic every time, so remember how many
+        // messages of each topic were already seen and only time the new ones
+        Map<String, Integer> seenPerTopic = new HashMap<>();
+
+        try (Socket socket = new Socket(host, port);
+                PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+
+            while (running.get()) {
+                for (int t = index; t < topicCount; t += consumerThreads) {
+                    String topic = topicName(t);
+                    out.println("CONSUME " + topic);
+
+                    int position = 0;
+                    int alreadySeen = seenPerTopic.getOrDefault(topic, 0);
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        if (line.equals("END_OF_BATCH") || line.equals("EMPTY") || line.startsWith("ERROR")) {
+                            break;
+                        }
+                        if (line.startsWith("MSG ") && position++ >= alreadySeen) {
+                            long now = System.nanoTime();
+                            long due = parseDue(line.substring(4));
+                            if (measuring && due > 0) {
+                                received.increment();
+                                endToEndLatency.record(now - due);
+                            }
+                        }
+                    }
+                    seenPerTopic.put(topic, Math.max(alreadySeen, position));
+                    if (line == null) {
+                        return;
+                    }
+                }
+                Thread.sleep(pollMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("[LoadGenerator] Consumer " + index + " failed: " + e.getMessage());
+        }
+    }
+
+    private static long parseDue(String content) {
+        int first = content.indexOf(':');
+        int second = content.indexOf(':', first + 1);
+        if (first < 0 || second < 0 || !content.startsWith(MARKER)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(content.substring(first + 1, second));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // =========================================================================
+    // REPORT
+    // =========================================================================
+
+    private void report(double seconds) {
+        System.out.println("\n=== Load Generator Report ===");
+        System.out.printf("Duration:        %.1f s%n", seconds);
+        System.out.printf("Sent:            %d (%.0f msg/s, %.2f MB/s)%n",
+                sent.sum(), sent.sum() / seconds, bytesSent.sum() / seconds / (1024 * 1024));
+        System.out.printf("Acked:           %d (%.0f msg/s)%n", acked.sum(), acked.sum() / seconds);
+        System.out.printf("Errors:          %d%n", errors.sum());
+        System.out.printf("Received:        %d%n", received.sum());
+        System.out.println("Publish->ACK latency (from scheduled send time):");
+        System.out.println("  " + ackLatency.summary(1_000_000.0, "ms"));
+        System.out.println("Service time (from actual send):");
+        System.out.println("  " + serviceTime.summary(1_000_000.0, "ms"));
+        if (consumerThreads > 0) {
+            System.out.println("End-to-end latency (scheduled send -> consumer receive, includes poll interval):");
+            System.out.println("  " + endToEndLatency.summary(1_000_000.0, "ms"));
+        }
+    }
+
+    // =========================================================================
+    // HELPERS
+    // =========================================================================
+
+    private String topicName(int index) {
+        return "LoadGen-" + runId + "-" + index;
+    }
+
+    private static Thread startThread(String name, Runnable body) {
+        Thread t = new Thread(body, name);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private static void sleepUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private long longOption(String name, long defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+}
@@ -1,17 +1,37 @@
 package com.streamingplatform;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
 
 import com.streamingplatform.analysis.DataExporter;
+import com.streamingplatform.analysis.ParallelScan;
+import com.streamingplatform.analysis.StreamAnalytics;
+import com.streamingplatform.analysis.StreamSketches;
+import com.streamingplatform.graph.StreamGraph;
+import com.streamingplatform.metrics.MetricsRegistry;
+import com.streamingplatform.net.AdminHttpServer;
 import com.streamingplatform.net.SocketServer;
+import com.streamingplatform.outbox.ChangeOutbox;
+import com.streamingplatform.outbox.FileSink;
 import com.streamingplatform.persistence.DatabaseManager;
 import com.streamingplatform.persistence.MessageDAO;
 import com.streamingplatform.persistence.MySQLManager;
 import com.streamingplatform.persistence.Neo4jManager;
+import com.streamingplatform.search.SearchIndex;
 import com.streamingplatform.service.BrokerService;
+import com.streamingplatform.service.ChangeCaptureService;
+import com.streamingplatform.service.ConsumerRegistry;
 import com.streamingplatform.service.MySQLSyncService;
 import com.streamingplatform.service.Neo4jSyncService;
 import com.streamingplatform.service.Neo4jToMySQLSync;
+import com.streamingplatform.service.RollupService;
+import com.streamingplatform.service.StreamAggregator;
+import com.streamingplatform.service.SyncScheduler;
 import com.streamingplatform.ui.Dashboard;
 
 public class Main {
@@ -30,23 +50,71 @@ public class Main {
 
         // 2. WIRE DEPENDENCIES (This was the missing part)
         MessageDAO messageDAO = new MessageDAO();
-        BrokerService brokerService = new BrokerService(messageDAO);
+        // Producer -> topic <- consumer graph, kept up to date by the aggregator and the registry
+        StreamGraph graph = new StreamGraph();
+        // Live producer x topic counts, shared by the broker and the sync services
+        StreamAggregator aggregator = new StreamAggregator(graph);
+        // Live consumer sessions, from CONSUME / SUBSCRIBE with a consumer id
+        ConsumerRegistry consumerRegistry = new ConsumerRegistry(graph);
+        // Windowed topic / producer stats, updated on publish
+        StreamAnalytics analytics = new StreamAnalytics();
+        // Fork/join scans of the stored messages for historical questions
+        ParallelScan historyScan = new ParallelScan();
+        // Full-text index for SEARCH, on the topics listed in -Dstreaming.search.topics
+        SearchIndex searchIndex = new SearchIndex(searchTopics());
+        // Per-minute message / byte counts in message_stats, compacted to hours and days
+        RollupService rollups = new RollupService();
+        BrokerService brokerService = new BrokerService(messageDAO, aggregator, consumerRegistry, analytics,
+                searchIndex, rollups);
 
         // 3. Start Broker Server (Pass the service!)
         new SocketServer(8080, brokerService).start();
 
-        // 4. Start Background Services
-        MySQLSyncService mysqlSyncService = new MySQLSyncService();
+        // Optional HTTP admin endpoint (/metrics, /health, /topics, /windows)
+        AdminHttpServer adminServer = startAdminServer(analytics, graph);
+
+        // 4. Start Background Services (one scheduler runs all periodic jobs)
+        SyncScheduler scheduler = new SyncScheduler(2);
+        // Drop analytics for topics / producers idle for an hour, once a minute
+        long minute = StreamAnalytics.MINUTE_MS;
+        scheduler.schedule("analytics-evict", SyncScheduler.Policy.fixed(minute, minute),
+                () -> analytics.evictIdle(System.currentTimeMillis()));
+        // Forget idempotent producers that stopped publishing, once a minute
+        scheduler.schedule("producer-expire", SyncScheduler.Policy.fixed(minute, minute),
+                () -> brokerService.expireProducers(System.currentTimeMillis()));
+        // Seal freshly indexed messages into compressed segments and merge small ones
+        if (searchIndex.isEnabled()) {
+            scheduler.schedule("search-index", SyncScheduler.Policy.adaptive(1000, 1000, 500, 5000),
+                    searchIndex::maintain);
+        }
+        rollups.start(scheduler);
+
+        // Change outbox: counts are captured from the aggregator, each store reads them as a sink
+        ChangeOutbox outbox = openOutbox();
+        ChangeCaptureService captureService = new ChangeCaptureService(aggregator, consumerRegistry, outbox, scheduler);
+        captureService.start();
+
+        MySQLSyncService mysqlSyncService = new MySQLSyncService(outbox, scheduler);
         mysqlSyncService.start();
 
-        Neo4jSyncService neo4jSyncService = new Neo4jSyncService();
-        neo4jSyncService.start();
+        // Neo4j is a mirror of the in-memory graph; -Dstreaming.neo4j.mirror=false turns it off
+        Neo4jSyncService neo4jSyncService = null;
+        if (Boolean.parseBoolean(System.getProperty("streaming.neo4j.mirror", "true"))) {
+            neo4jSyncService = new Neo4jSyncService(outbox, scheduler);
+            neo4jSyncService.start();
+        }
+
+        // Optional change log file, enabled with -Dstreaming.sink.file=<path>
+        String sinkFile = System.getProperty("streaming.sink.file");
+        if (sinkFile != null) {
+            outbox.attach(new FileSink(Path.of(sinkFile)), scheduler, SyncScheduler.Policy.adaptive(0, 1000, 200, 10_000));
+        }
 
-        // ArchiveService archiveService = new ArchiveService(DEFAULT_RETENTION_MINUTES);
+        // ArchiveService archiveService = new ArchiveService(DEFAULT_RETENTION_MINUTES, scheduler);
         // archiveService.start();
 
         // 5. Launch Dashboard UI
-        new Thread(() -> Dashboard.launchApp()).start();
+        new Thread(() -> Dashboard.launchApp(scheduler)).start();
 
         // 6. Console Commands
         printHelp();
@@ -58,16 +126,28 @@ public class Main {
                 switch (input) {
                     case "export" -> DataExporter.exportCSV();
                     case "json" -> DataExporter.exportJSON();
-                    case "neo4j-topics" -> DataExporter.exportNeo4jTopicsCSV();
-                    case "neo4j-producers" -> DataExporter.exportNeo4jProducersCSV();
-                    case "neo4j-consumers" -> DataExporter.exportNeo4jConsumersCSV();
-                    case "neo4j-json" -> DataExporter.exportNeo4jJSON();
-                    case "backup" -> DataExporter.exportBackup();
+                    case "columnar" -> DataExporter.exportColumnar();
+                    case "neo4j-topics" -> DataExporter.exportNeo4jTopicsCSV(graph);
+                    case "neo4j-producers" -> DataExporter.exportNeo4jProducersCSV(graph);
+                    case "neo4j-consumers" -> DataExporter.exportNeo4jConsumersCSV(graph);
+                    case "neo4j-json" -> DataExporter.exportNeo4jJSON(graph);
+                    case "backup" -> DataExporter.exportBackup(graph);
+                    case "stats-json" -> DataExporter.exportStats(aggregator, graph);
                     case "stats" -> System.out.println(mysqlSyncService.getTopProducerByTopicCount());
-                    case "neo4j" -> System.out.println(neo4jSyncService.getNeo4jStats());
-                    case "topics" -> System.out.println(neo4jSyncService.getTopics());
+                    case "neo4j" -> System.out.println(neo4jSyncService != null ? neo4jSyncService.getNeo4jStats()
+                            : "Neo4j mirror is off (-Dstreaming.neo4j.mirror=false)");
+                    case "graph" -> graph.describe(10).forEach(System.out::println);
+                    case "topics" -> printTopics(graph);
                     case "sync-neo4j" -> Neo4jToMySQLSync.syncAll();
                     case "preview-neo4j" -> System.out.println(Neo4jToMySQLSync.previewNeo4jData());
+                    case "metrics" -> MetricsRegistry.snapshot().toLines().forEach(System.out::println);
+                    case "jobs" -> scheduler.status().forEach(System.out::println);
+                    case "consumers" -> consumerRegistry.describe().forEach(System.out::println);
+                    case "analytics" -> analytics.keys(StreamAnalytics.Scope.TOPIC).forEach(analytics::printStats);
+                    case "sketches" -> System.out.println(StreamSketches.format(analytics.sketches().snapshot()));
+                    case "history" -> printHistory(historyScan);
+                    case "search-index" -> searchIndex.describe().forEach(System.out::println);
+                    case "trend" -> printTrend(rollups);
                     
                     /* DISABLED FOR ANALYSIS IN NEO4J
                     case "cleanup" -> {
@@ -78,8 +158,18 @@ public class Main {
                     case "help" -> printHelp();
                     case "exit" -> {
                         System.out.println("Shutting down...");
+                        captureService.stop();
                         mysqlSyncService.stop();
-                        neo4jSyncService.stop();
+                        if (neo4jSyncService != null) {
+                            neo4jSyncService.stop();
+                        }
+                        scheduler.shutdown();
+                        rollups.stop();
+                        outbox.close();
+                        historyScan.close();
+                        if (adminServer != null) {
+                            adminServer.stop();
+                        }
                         //archiveService.stop();
                         MySQLManager.closeConnection();
                         Neo4jManager.closeConnection();
@@ -91,11 +181,90 @@ public class Main {
         }
     }
 
+    private static void printHistory(ParallelScan scan) {
+        try {
+            StreamAnalytics.printHistory(StreamAnalytics.history(scan, ParallelScan.Range.all()));
+        } catch (SQLException e) {
+            System.err.println("[Scan] History scan failed: " + e.getMessage());
+        }
+    }
+
+    // Every topic with its message, producer and consumer counts, from the graph
+    private static void printTopics(StreamGraph graph) {
+        System.out.printf("%-20s | %-12s | %-10s | %-10s%n", "Topic", "Messages", "Producers", "Consumers");
+        System.out.println("-".repeat(59));
+        for (StreamGraph.Node topic : graph.nodes(StreamGraph.Kind.TOPIC)) {
+            System.out.printf("%-20s | %-12d | %-10d | %-10d%n", topic.name(), topic.messages(), topic.publishes(),
+                    topic.subscriptions());
+        }
+    }
+
+    // Messages and bytes per hour over the last day, from the rollups
+    private static void printTrend(RollupService rollups) {
+        long to = System.currentTimeMillis();
+        long from = RollupService.Resolution.HOUR.floor(to - 24 * 60 * StreamAnalytics.MINUTE_MS);
+        try {
+            for (RollupService.Bucket bucket : rollups.series(null, null, from, to, RollupService.Resolution.HOUR)) {
+                System.out.printf("%s  %8d msgs  %10d bytes%n", Instant.ofEpochMilli(bucket.startMs()),
+                        bucket.messages(), bucket.bytes());
+            }
+        } catch (SQLException e) {
+            System.err.println("[Rollup] Trend query failed: " + e.getMessage());
+        }
+    }
+
+    // Comma-separated, "*" for every topic; none by default
+    private static List<String> searchTopics() {
+        String topics = System.getProperty("streaming.search.topics", "");
+        return Arrays.stream(topics.split(",")).map(String::trim).filter(t -> !t.isEmpty()).toList();
+    }
+
+    // Directory set with -Dstreaming.outbox.dir (default ./outbox)
+    private static ChangeOutbox openOutbox() {
+        Path dir = Path.of(System.getProperty("streaming.outbox.dir", "outbox"));
+        try {
+            return ChangeOutbox.open(dir);
+        } catch (IOException e) {
+            System.err.println("[Outbox] Cannot open " + dir + ": " + e.getMessage());
+            System.exit(1);
+            return null;
+        }
+    }
+
+    // Enabled with -Dstreaming.admin.port=<port>
+    private static AdminHttpServer startAdminServer(StreamAnalytics analytics, StreamGraph graph) {
+        String port = System.getProperty("streaming.admin.port");
+        if (port == null) {
+            return null;
+        }
+        try {
+            AdminHttpServer server = new AdminHttpServer(Integer.parseInt(port), analytics, graph);
+            server.start();
+            return server;
+        } catch (Exception e) {
+            System.err.println("[Admin] Failed to start HTTP admin endpoint: " + e.getMessage());
+            return null;
+        }
+    }
+
     private static void printHelp() {
         System.out.println("\n=== Available Commands ===");
+        System.out.println("  columnar        - Export messages to messages.cols (columnar, for offline analysis)");
         System.out.println("  backup          - Full backup (H2 + Neo4j)");
+        System.out.println("  stats-json      - Export message / node counts to stats.json");
         System.out.println("  sync-neo4j      - Sync Neo4j to MySQL");
         System.out.println("  stats           - Show stats");
+        System.out.println("  graph           - Producer / topic / consumer graph: counts, top producers and topics");
+        System.out.println("  topics          - Every topic with its message, producer and consumer counts");
+        System.out.println("  neo4j           - Top producers by topic count, from the Neo4j mirror");
+        System.out.println("  metrics         - Broker metrics snapshot");
+        System.out.println("  jobs            - Background job intervals and failures");
+        System.out.println("  consumers       - Live consumers and their topics");
+        System.out.println("  analytics       - Per-topic stats for the last minute / hour");
+        System.out.println("  sketches        - Approximate distinct producers, top topics / producers, sizes");
+        System.out.println("  history         - Per-topic stats over all stored messages (parallel scan)");
+        System.out.println("  search-index    - Full-text index size per topic (SEARCH over the socket)");
+        System.out.println("  trend           - Messages and bytes per hour over the last day (rollups)");
         System.out.println("  exit            - Shutdown");
     }
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+package com.streamingplatform.analysis;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Layout and codecs shared by {@link ColumnarWriter} and {@link ColumnarReader}.
+ *
+ * <pre>
+ *   header   int MAGIC, byte VERSION
+ *   blocks   per block, one deflated chunk per column, in Column order
+ *   footer   topic dictionary, producer dictionary (int count, then strings),
+ *            int blocks, per block: int rows, per column:
+ *            long offset, int stored length, int raw length, long min, long max
+ *   trailer  long footer offset, int MAGIC
+ * </pre>
+ * Chunk encodings before deflate:
+ * - id, timestamp: first value, then zig-zag varint deltas
+ * - topic, producer: varint dictionary codes (producer 0 = none, else index + 1)
+ * - content: varint lengths of every row, then the bytes back to back
+ * Min / max: values for id and timestamp (epoch ms), the codes of the
+ * alphabetically lowest / highest string for topic and producer, lengths for
+ * content.
+ */
+final class ColumnarFormat {
+
+    static final int MAGIC = 0x53434F4C; // "SCOL"
+    static final byte VERSION = 1;
+    static final int COLUMNS = ColumnarReader.Column.values().length;
+    static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES;
+
+    private ColumnarFormat() {
+    }
+
+    static byte[] deflate(byte[] raw, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw, 0, length);
+            deflater.finish();
+            byte[] out = new byte[Math.max(64, length / 2)];
+            int n = 0;
+            while (!deflater.finished()) {
+                if (n == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                n += deflater.deflate(out, n, out.length - n);
+            }
+            return Arrays.copyOf(out, n);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] inflate(byte[] stored, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            byte[] raw = new byte[rawLength];
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(raw, n, rawLength - n);
+                if (read == 0 && inflater.needsInput()) {
+                    break;
+                }
+                n += read;
+            }
+            if (n != rawLength) {
+                throw new IOException("Truncated column chunk: " + n + " of " + rawLength + " bytes");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt column chunk: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Growable byte array for encoding a chunk.
+     */
+    static final class Buffer {
+        byte[] bytes = new byte[1024];
+        int size;
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeZigZag(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        void write(byte[] data, int offset, int length) {
+            ensure(length);
+            System.arraycopy(data, offset, bytes, size, length);
+            size += length;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        private void ensure(int extra) {
+            if (bytes.length - size < extra) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+
+    /**
+     * Sequential reader over a decoded chunk.
+     */
+    static final class Cursor {
+        final byte[] bytes;
+        int pos;
+
+        Cursor(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        long readVarint() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        long readZigZag() {
+            long v = readVarint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+    }
+}
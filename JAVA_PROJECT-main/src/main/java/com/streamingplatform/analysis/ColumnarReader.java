@@ -0,0 +1,378 @@
+package com.streamingplatform.analysis;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Reads a columnar snapshot written by {@link ColumnarWriter}, doing only
+ * the work a query needs:
+ *
+ * - blocks whose min / max cannot match the filter are skipped unread
+ * - topic and producer filters are turned into dictionary codes once, so
+ *   rows are tested on ints; a name not in the file matches nothing
+ * - of each remaining block, the filter's columns are read first, and the
+ *   other requested columns only if some row passed
+ * - columns that are neither filtered on nor requested are never read
+ *
+ * Not thread-safe; open one reader per thread.
+ */
+public class ColumnarReader implements Closeable {
+
+    /**
+     * The stored columns, in chunk order.
+     */
+    public enum Column {
+        ID, TIMESTAMP, TOPIC, PRODUCER, CONTENT
+    }
+
+    /**
+     * One message; fields of columns not requested are 0 / null.
+     */
+    public record Row(long id, long timestampMs, String topic, String producerId, byte[] content) {
+
+        public String contentAsString() {
+            return content == null ? null : new String(content, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Which rows to read: topics and producers (null for any), ids in
+     * [fromId, toId) and stored time in [fromMs, toMs).
+     */
+    public record Filter(Set<String> topics, Set<String> producers, long fromId, long toId, long fromMs, long toMs) {
+
+        public static Filter all() {
+            return new Filter(null, null, Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+        public Filter topics(String... topics) {
+            return new Filter(Set.of(topics), producers, fromId, toId, fromMs, toMs);
+        }
+
+        public Filter producers(String... producers) {
+            return new Filter(topics, Set.of(producers), fromId, toId, fromMs, toMs);
+        }
+
+        public Filter ids(long fromId, long toId) {
+            return new Filter(topics, producers, fromId, toId, fromMs, toMs);
+        }
+
+        public Filter between(long fromMs, long toMs) {
+            return new Filter(topics, producers, fromId, toId, fromMs, toMs);
+        }
+
+        boolean hasIds() {
+            return fromId != Long.MIN_VALUE || toId != Long.MAX_VALUE;
+        }
+
+        boolean hasTime() {
+            return fromMs != Long.MIN_VALUE || toMs != Long.MAX_VALUE;
+        }
+    }
+
+    // Chunk location and stats, per block and column
+    private record Chunk(long offset, int storedLength, int rawLength, long min, long max) {
+    }
+
+    private record Block(int rows, Chunk[] chunks) {
+    }
+
+    private final FileChannel channel;
+    private final List<String> topics;
+    private final List<String> producers;
+    private final List<Block> blocks;
+    private final long rowCount;
+    private long bytesRead;
+    private int blocksRead;
+
+    private ColumnarReader(FileChannel channel, List<String> topics, List<String> producers, List<Block> blocks) {
+        this.channel = channel;
+        this.topics = topics;
+        this.producers = producers;
+        this.blocks = blocks;
+        this.rowCount = blocks.stream().mapToLong(Block::rows).sum();
+    }
+
+    /**
+     * Open a snapshot and read its footer.
+     *
+     * @throws IOException if the file is not a columnar snapshot or is truncated
+     */
+    public static ColumnarReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < Integer.BYTES + 1 + ColumnarFormat.TRAILER_BYTES) {
+                throw new IOException("Not a columnar snapshot: " + path);
+            }
+            ByteBuffer header = read(channel, 0, Integer.BYTES + 1);
+            ByteBuffer trailer = read(channel, size - ColumnarFormat.TRAILER_BYTES, ColumnarFormat.TRAILER_BYTES);
+            long footerOffset = trailer.getLong();
+            if (header.getInt() != ColumnarFormat.MAGIC || trailer.getInt() != ColumnarFormat.MAGIC) {
+                throw new IOException("Not a columnar snapshot: " + path);
+            }
+            if (header.get() != ColumnarFormat.VERSION) {
+                throw new IOException("Unsupported columnar snapshot version: " + path);
+            }
+            int footerLength = (int) (size - ColumnarFormat.TRAILER_BYTES - footerOffset);
+            ByteBuffer footer = read(channel, footerOffset, footerLength);
+            try (DataInputStream in = new DataInputStream(
+                    new ByteArrayInputStream(footer.array(), 0, footerLength))) {
+                List<String> topics = readDictionary(in);
+                List<String> producers = readDictionary(in);
+                int count = in.readInt();
+                List<Block> blocks = new ArrayList<>(count);
+                for (int b = 0; b < count; b++) {
+                    int rows = in.readInt();
+                    Chunk[] chunks = new Chunk[ColumnarFormat.COLUMNS];
+                    for (int c = 0; c < chunks.length; c++) {
+                        chunks[c] = new Chunk(in.readLong(), in.readInt(), in.readInt(), in.readLong(), in.readLong());
+                    }
+                    blocks.add(new Block(rows, chunks));
+                }
+                return new ColumnarReader(channel, topics, producers, blocks);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * All columns.
+     */
+    public static Set<Column> allColumns() {
+        return EnumSet.allOf(Column.class);
+    }
+
+    public long rowCount() {
+        return rowCount;
+    }
+
+    public int blockCount() {
+        return blocks.size();
+    }
+
+    public List<String> topics() {
+        return List.copyOf(topics);
+    }
+
+    public List<String> producers() {
+        return List.copyOf(producers);
+    }
+
+    /**
+     * Compressed bytes and blocks read by scans so far.
+     */
+    public long bytesRead() {
+        return bytesRead;
+    }
+
+    public int blocksRead() {
+        return blocksRead;
+    }
+
+    /**
+     * Rows passing filter, in file order, with the requested columns filled in.
+     *
+     * @return rows passed to sink
+     */
+    public long scan(Filter filter, Set<Column> columns, Consumer<? super Row> sink) throws IOException {
+        boolean[] topicCodes = codes(filter.topics(), topics, 0);
+        boolean[] producerCodes = codes(filter.producers(), producers, 1);
+        if ((topicCodes != null && !any(topicCodes)) || (producerCodes != null && !any(producerCodes))) {
+            return 0; // Asked for names the file does not have
+        }
+        long matched = 0;
+        for (Block block : blocks) {
+            if (!mayMatch(block, filter)) {
+                continue;
+            }
+            blocksRead++;
+            matched += scanBlock(block, filter, topicCodes, producerCodes, columns, sink);
+        }
+        return matched;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Block stats against the filter; false means no row can match
+    private boolean mayMatch(Block block, Filter filter) {
+        Chunk id = block.chunks()[Column.ID.ordinal()];
+        Chunk time = block.chunks()[Column.TIMESTAMP.ordinal()];
+        return id.max() >= filter.fromId() && id.min() < filter.toId()
+                && time.max() >= filter.fromMs() && time.min() < filter.toMs()
+                && inRange(filter.topics(), block.chunks()[Column.TOPIC.ordinal()], topics, 0)
+                && inRange(filter.producers(), block.chunks()[Column.PRODUCER.ordinal()], producers, 1);
+    }
+
+    // Some wanted name lies between the chunk's lowest and highest value
+    private static boolean inRange(Set<String> wanted, Chunk chunk, List<String> dictionary, int codeBase) {
+        if (wanted == null) {
+            return true;
+        }
+        if (chunk.min() < codeBase) {
+            return false; // No values at all (producer column of anonymous messages)
+        }
+        String lowest = dictionary.get((int) chunk.min() - codeBase);
+        String highest = dictionary.get((int) chunk.max() - codeBase);
+        for (String name : wanted) {
+            if (name.compareTo(lowest) >= 0 && name.compareTo(highest) <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long scanBlock(Block block, Filter filter, boolean[] topicCodes, boolean[] producerCodes,
+            Set<Column> columns, Consumer<? super Row> sink) throws IOException {
+        int rows = block.rows();
+        boolean[] selected = new boolean[rows];
+
+        // Filter columns first
+        long[] ids = filter.hasIds() || columns.contains(Column.ID) ? decodeLongs(block, Column.ID) : null;
+        long[] times = filter.hasTime() || columns.contains(Column.TIMESTAMP) ? decodeLongs(block, Column.TIMESTAMP)
+                : null;
+        int[] topicColumn = topicCodes != null ? decodeCodes(block, Column.TOPIC) : null;
+        int[] producerColumn = producerCodes != null ? decodeCodes(block, Column.PRODUCER) : null;
+        int selectedRows = 0;
+        for (int i = 0; i < rows; i++) {
+            boolean pass = (!filter.hasIds() || (ids[i] >= filter.fromId() && ids[i] < filter.toId()))
+                    && (!filter.hasTime() || (times[i] >= filter.fromMs() && times[i] < filter.toMs()))
+                    && (topicColumn == null || topicCodes[topicColumn[i]])
+                    && (producerColumn == null || producerCodes[producerColumn[i]]);
+            selected[i] = pass;
+            if (pass) {
+                selectedRows++;
+            }
+        }
+        if (selectedRows == 0) {
+            return 0;
+        }
+
+        // Then the other requested columns
+        if (topicColumn == null && columns.contains(Column.TOPIC)) {
+            topicColumn = decodeCodes(block, Column.TOPIC);
+        }
+        if (producerColumn == null && columns.contains(Column.PRODUCER)) {
+            producerColumn = decodeCodes(block, Column.PRODUCER);
+        }
+        byte[] content = null;
+        int[] contentStart = null;
+        if (columns.contains(Column.CONTENT)) {
+            content = chunk(block, Column.CONTENT);
+            contentStart = new int[rows + 1];
+            ColumnarFormat.Cursor cursor = new ColumnarFormat.Cursor(content);
+            int[] lengths = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                lengths[i] = (int) cursor.readVarint();
+            }
+            contentStart[0] = cursor.pos;
+            for (int i = 0; i < rows; i++) {
+                contentStart[i + 1] = contentStart[i] + lengths[i];
+            }
+        }
+
+        boolean wantId = columns.contains(Column.ID);
+        boolean wantTime = columns.contains(Column.TIMESTAMP);
+        boolean wantTopic = columns.contains(Column.TOPIC);
+        boolean wantProducer = columns.contains(Column.PRODUCER);
+        for (int i = 0; i < rows; i++) {
+            if (!selected[i]) {
+                continue;
+            }
+            sink.accept(new Row(
+                    wantId ? ids[i] : 0,
+                    wantTime ? times[i] : 0,
+                    wantTopic ? topics.get(topicColumn[i]) : null,
+                    wantProducer && producerColumn[i] > 0 ? producers.get(producerColumn[i] - 1) : null,
+                    content != null ? Arrays.copyOfRange(content, contentStart[i], contentStart[i + 1]) : null));
+        }
+        return selectedRows;
+    }
+
+    private long[] decodeLongs(Block block, Column column) throws IOException {
+        ColumnarFormat.Cursor cursor = new ColumnarFormat.Cursor(chunk(block, column));
+        long[] values = new long[block.rows()];
+        long previous = 0;
+        for (int i = 0; i < values.length; i++) {
+            previous += cursor.readZigZag();
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    private int[] decodeCodes(Block block, Column column) throws IOException {
+        ColumnarFormat.Cursor cursor = new ColumnarFormat.Cursor(chunk(block, column));
+        int[] codes = new int[block.rows()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = (int) cursor.readVarint();
+        }
+        return codes;
+    }
+
+    private byte[] chunk(Block block, Column column) throws IOException {
+        Chunk chunk = block.chunks()[column.ordinal()];
+        ByteBuffer stored = read(channel, chunk.offset(), chunk.storedLength());
+        bytesRead += chunk.storedLength();
+        return ColumnarFormat.inflate(stored.array(), chunk.rawLength());
+    }
+
+    // Codes of the wanted names (codeBase: 1 when code 0 means none), null for any
+    private static boolean[] codes(Set<String> wanted, List<String> dictionary, int codeBase) {
+        if (wanted == null) {
+            return null;
+        }
+        boolean[] codes = new boolean[dictionary.size() + codeBase];
+        for (int i = 0; i < dictionary.size(); i++) {
+            codes[i + codeBase] = wanted.contains(dictionary.get(i));
+        }
+        return codes;
+    }
+
+    private static boolean any(boolean[] values) {
+        for (boolean value : values) {
+            if (value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Unexpected end of columnar snapshot");
+            }
+        }
+        return buf.flip();
+    }
+
+    private static List<String> readDictionary(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            values.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,248 @@
+package com.streamingplatform.analysis;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes messages to a columnar snapshot ({@link ColumnarFormat}): rows are
+ * buffered into blocks of blockRows, and each block is written as one
+ * compressed chunk per column with its min / max, so a
+ * {@link ColumnarReader} can skip blocks and columns it does not need.
+ * Rows are expected in id order (as exported), which keeps the id and
+ * timestamp deltas small. Not thread-safe.
+ *
+ * The snapshot is written to a ".tmp" sibling and moved into place by
+ * {@link #finish()}; closing without finish() (e.g. the export failed
+ * partway) deletes it, so a truncated snapshot never looks complete.
+ */
+public class ColumnarWriter implements Closeable {
+
+    public static final int DEFAULT_BLOCK_ROWS = 65_536;
+
+    private final Path path;
+    private final Path tempPath;
+    private final DataOutputStream out;
+    private boolean finished;
+    private final int blockRows;
+    private long position;
+
+    private final Map<String, Integer> topicCodes = new HashMap<>();
+    private final List<String> topics = new ArrayList<>();
+    private final Map<String, Integer> producerCodes = new HashMap<>();
+    private final List<String> producers = new ArrayList<>();
+    private final List<long[]> blockMeta = new ArrayList<>(); // rows, then per column: offset, stored, raw, min, max
+
+    // Current block
+    private final long[] ids;
+    private final long[] timestamps;
+    private final int[] topicColumn;
+    private final int[] producerColumn;
+    private final int[] lengths;
+    private final ColumnarFormat.Buffer contents = new ColumnarFormat.Buffer();
+    private final ColumnarFormat.Buffer chunk = new ColumnarFormat.Buffer();
+    private int rows;
+    private long totalRows;
+
+    public ColumnarWriter(Path path) throws IOException {
+        this(path, DEFAULT_BLOCK_ROWS);
+    }
+
+    public ColumnarWriter(Path path, int blockRows) throws IOException {
+        if (blockRows < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockRows);
+        }
+        this.blockRows = blockRows;
+        this.ids = new long[blockRows];
+        this.timestamps = new long[blockRows];
+        this.topicColumn = new int[blockRows];
+        this.producerColumn = new int[blockRows];
+        this.lengths = new int[blockRows];
+        this.path = path;
+        this.tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath), 1 << 16));
+        out.writeInt(ColumnarFormat.MAGIC);
+        out.writeByte(ColumnarFormat.VERSION);
+        position = Integer.BYTES + 1;
+    }
+
+    /**
+     * Append one message; producerId may be null and content empty.
+     */
+    public void write(long id, long timestampMs, String topic, String producerId, byte[] content) throws IOException {
+        ids[rows] = id;
+        timestamps[rows] = timestampMs;
+        topicColumn[rows] = code(topicCodes, topics, topic);
+        producerColumn[rows] = producerId == null ? 0 : code(producerCodes, producers, producerId) + 1;
+        int length = content == null ? 0 : content.length;
+        lengths[rows] = length;
+        if (length > 0) {
+            contents.write(content, 0, length);
+        }
+        rows++;
+        totalRows++;
+        if (rows == blockRows) {
+            flushBlock();
+        }
+    }
+
+    public long rowCount() {
+        return totalRows;
+    }
+
+    /**
+     * Write the last block and the footer, then move the snapshot into place.
+     */
+    public void finish() throws IOException {
+        try (out) {
+            if (rows > 0) {
+                flushBlock();
+            }
+            long footer = position;
+            writeDictionary(topics);
+            writeDictionary(producers);
+            out.writeInt(blockMeta.size());
+            for (long[] meta : blockMeta) {
+                out.writeInt((int) meta[0]);
+                for (int c = 0; c < ColumnarFormat.COLUMNS; c++) {
+                    int base = 1 + c * 5;
+                    out.writeLong(meta[base]);
+                    out.writeInt((int) meta[base + 1]);
+                    out.writeInt((int) meta[base + 2]);
+                    out.writeLong(meta[base + 3]);
+                    out.writeLong(meta[base + 4]);
+                }
+            }
+            out.writeLong(footer);
+            out.writeInt(ColumnarFormat.MAGIC);
+        }
+        try {
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        finished = true;
+    }
+
+    /**
+     * Without finish(), discard the partial snapshot.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!finished) {
+            try (out) {
+                // Only closing
+            } finally {
+                Files.deleteIfExists(tempPath);
+            }
+        }
+    }
+
+    private static int code(Map<String, Integer> codes, List<String> dictionary, String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            codes.put(value, code);
+            dictionary.add(value);
+        }
+        return code;
+    }
+
+    private void flushBlock() throws IOException {
+        long[] meta = new long[1 + ColumnarFormat.COLUMNS * 5];
+        meta[0] = rows;
+
+        // id, timestamp
+        long[][] numeric = { ids, timestamps };
+        for (int c = 0; c < 2; c++) {
+            long[] values = numeric[c];
+            chunk.clear();
+            long previous = 0;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < rows; i++) {
+                chunk.writeZigZag(values[i] - previous);
+                previous = values[i];
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+            }
+            writeChunk(meta, c, min, max);
+        }
+
+        // topic, producer: codes of the alphabetically lowest / highest value
+        writeCodes(meta, 2, topicColumn, topics, 0);
+        writeCodes(meta, 3, producerColumn, producers, 1);
+
+        // content
+        chunk.clear();
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < rows; i++) {
+            chunk.writeVarint(lengths[i]);
+            min = Math.min(min, lengths[i]);
+            max = Math.max(max, lengths[i]);
+        }
+        chunk.write(contents.bytes, 0, contents.size);
+        writeChunk(meta, 4, min, max);
+
+        blockMeta.add(meta);
+        rows = 0;
+        contents.clear();
+    }
+
+    // codeBase: 1 when code 0 means none (producer)
+    private void writeCodes(long[] meta, int column, int[] codes, List<String> dictionary, int codeBase)
+            throws IOException {
+        chunk.clear();
+        int min = -1;
+        int max = -1;
+        for (int i = 0; i < rows; i++) {
+            int code = codes[i];
+            chunk.writeVarint(code);
+            if (code < codeBase) {
+                continue;
+            }
+            String value = dictionary.get(code - codeBase);
+            if (min < 0 || (code != min && value.compareTo(dictionary.get(min - codeBase)) < 0)) {
+                min = code;
+            }
+            if (max < 0 || (code != max && value.compareTo(dictionary.get(max - codeBase)) > 0)) {
+                max = code;
+            }
+        }
+        writeChunk(meta, column, min, max);
+    }
+
+    private void writeChunk(long[] meta, int column, long min, long max) throws IOException {
+        byte[] stored = ColumnarFormat.deflate(chunk.bytes, chunk.size);
+        int base = 1 + column * 5;
+        meta[base] = position;
+        meta[base + 1] = stored.length;
+        meta[base + 2] = chunk.size;
+        meta[base + 3] = min;
+        meta[base + 4] = max;
+        out.write(stored);
+        position += stored.length;
+    }
+
+    private void writeDictionary(List<String> dictionary) throws IOException {
+        out.writeInt(dictionary.size());
+        for (String value : dictionary) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            position += Integer.BYTES + bytes.length;
+        }
+        position += Integer.BYTES;
+    }
+}
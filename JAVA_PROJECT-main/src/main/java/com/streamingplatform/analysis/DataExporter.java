@@ -1,21 +1,24 @@
 package com.streamingplatform.analysis;
 
+import com.streamingplatform.graph.StreamGraph;
 import com.streamingplatform.persistence.DatabaseManager;
-import com.streamingplatform.persistence.Neo4jManager;
-
-import org.neo4j.driver.Record;
-import org.neo4j.driver.Result;
-import org.neo4j.driver.Session;
+import com.streamingplatform.service.StreamAggregator;
 
 import java.io.PrintWriter;
-import java.sql.Connection;
+import java.nio.file.Path;
 import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Enhanced Data Exporter supporting CSV, JSON, and timestamped backups.
- * Exports data from both H2 (SQL) and Neo4j (Graph) databases.
+ * Exports data from H2 (SQL) and the in-memory producer / topic / consumer
+ * graph (in the format used for Neo4j import).
  * Supports offline analysis and data archiving.
  */
 public class DataExporter {
@@ -37,9 +40,10 @@ public class DataExporter {
      * Export messages to CSV with custom filename
      */
     public static void exportCSV(String filename) {
-        try (Connection conn = DatabaseManager.getConnection();
+        // The shared connection stays open; only the statement is closed
+        try (Statement stmt = DatabaseManager.getConnection().createStatement();
                 PrintWriter pw = new PrintWriter(filename);
-                ResultSet rs = conn.createStatement().executeQuery("SELECT * FROM messages ORDER BY id")) {
+                ResultSet rs = stmt.executeQuery("SELECT * FROM messages ORDER BY id")) {
 
             pw.println("id,topic,producer_id,content,timestamp");
             while (rs.next()) {
@@ -69,9 +73,10 @@ public class DataExporter {
      * Export messages to JSON with custom filename
      */
     public static void exportJSON(String filename) {
-        try (Connection conn = DatabaseManager.getConnection();
+        // The shared connection stays open; only the statement is closed
+        try (Statement stmt = DatabaseManager.getConnection().createStatement();
                 PrintWriter pw = new PrintWriter(filename);
-                ResultSet rs = conn.createStatement().executeQuery("SELECT * FROM messages ORDER BY id")) {
+                ResultSet rs = stmt.executeQuery("SELECT * FROM messages ORDER BY id")) {
 
             pw.println("{");
             pw.println("  \"exportDate\": \"" + LocalDateTime.now() + "\",");
@@ -102,120 +107,128 @@ public class DataExporter {
         }
     }
 
+    /**
+     * Export messages to a columnar snapshot (read back with ColumnarReader)
+     */
+    public static void exportColumnar() {
+        exportColumnar("messages.cols");
+    }
+
+    /**
+     * Export messages to a columnar snapshot with custom filename: per block of
+     * rows, one compressed chunk per column, so offline jobs read only the
+     * columns and blocks they need
+     */
+    public static void exportColumnar(String filename) {
+        // The shared connection stays open; only the statement is closed
+        try (Statement stmt = DatabaseManager.getConnection().createStatement();
+                ResultSet rs = stmt.executeQuery(
+                        "SELECT id, timestamp, topic, producer_id, content FROM messages ORDER BY id");
+                ColumnarWriter writer = new ColumnarWriter(Path.of(filename))) {
+
+            while (rs.next()) {
+                Timestamp timestamp = rs.getTimestamp(2);
+                writer.write(rs.getLong(1), timestamp != null ? timestamp.getTime() : 0, rs.getString(3),
+                        rs.getString(4), rs.getBytes(5));
+            }
+            // Only a complete export replaces the file; on an exception close() discards it
+            writer.finish();
+            System.out.println("[Export] Created " + filename + " (" + writer.rowCount() + " messages, columnar)");
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
     // =========================================================================
-    // NEO4J GRAPH EXPORTS
+    // GRAPH EXPORTS (Neo4j import format, from the in-memory StreamGraph)
     // =========================================================================
 
     /**
-     * Export Neo4j Topics to CSV
+     * Export Topics to CSV
      */
-    public static void exportNeo4jTopicsCSV() {
-        exportNeo4jTopicsCSV("neo4j_topics.csv");
+    public static void exportNeo4jTopicsCSV(StreamGraph graph) {
+        exportNeo4jTopicsCSV(graph, "neo4j_topics.csv");
     }
 
-    public static void exportNeo4jTopicsCSV(String filename) {
-        try (Session session = Neo4jManager.getDriver().session();
-                PrintWriter pw = new PrintWriter(filename)) {
+    public static void exportNeo4jTopicsCSV(StreamGraph graph, String filename) {
+        try (PrintWriter pw = new PrintWriter(filename)) {
 
             pw.println("name,messageCount,producerCount,consumerCount");
 
-            Result result = session.run(
-                    "MATCH (t:Topic) " +
-                            "OPTIONAL MATCH (p:Producer)-[:PUBLISHES_TO]->(t) " +
-                            "OPTIONAL MATCH (c:Consumer)-[:SUBSCRIBES_TO]->(t) " +
-                            "RETURN t.name as name, t.messageCount as messageCount, " +
-                            "COUNT(DISTINCT p) as producerCount, COUNT(DISTINCT c) as consumerCount " +
-                            "ORDER BY messageCount DESC");
-
-            while (result.hasNext()) {
-                Record record = result.next();
+            for (StreamGraph.Node topic : graph.nodes(StreamGraph.Kind.TOPIC)) {
                 pw.printf("%s,%d,%d,%d%n",
-                        escapeCSV(record.get("name").asString()),
-                        record.get("messageCount").isNull() ? 0 : record.get("messageCount").asInt(),
-                        record.get("producerCount").asInt(),
-                        record.get("consumerCount").asInt());
+                        escapeCSV(topic.name()),
+                        topic.messages(),
+                        topic.publishes(),
+                        topic.subscriptions());
             }
 
-            System.out.println("[Neo4j Export] Created " + filename);
+            System.out.println("[Graph Export] Created " + filename);
         } catch (Exception e) {
-            System.err.println("[Neo4j Export] Failed: " + e.getMessage());
+            System.err.println("[Graph Export] Failed: " + e.getMessage());
         }
     }
 
     /**
-     * Export Neo4j Producers to CSV
+     * Export Producers to CSV
      */
-    public static void exportNeo4jProducersCSV() {
-        exportNeo4jProducersCSV("neo4j_producers.csv");
+    public static void exportNeo4jProducersCSV(StreamGraph graph) {
+        exportNeo4jProducersCSV(graph, "neo4j_producers.csv");
     }
 
-    public static void exportNeo4jProducersCSV(String filename) {
-        try (Session session = Neo4jManager.getDriver().session();
-                PrintWriter pw = new PrintWriter(filename)) {
+    public static void exportNeo4jProducersCSV(StreamGraph graph, String filename) {
+        try (PrintWriter pw = new PrintWriter(filename)) {
 
             pw.println("producer_id,topicCount,totalMessages");
 
-            Result result = session.run(
-                    "MATCH (p:Producer)-[r:PUBLISHES_TO]->(t:Topic) " +
-                            "RETURN p.id as producerId, COUNT(DISTINCT t) as topicCount, " +
-                            "SUM(r.messageCount) as totalMessages " +
-                            "ORDER BY topicCount DESC, totalMessages DESC");
-
-            while (result.hasNext()) {
-                Record record = result.next();
+            for (StreamGraph.Node producer : graph.nodes(StreamGraph.Kind.PRODUCER)) {
                 pw.printf("%s,%d,%d%n",
-                        escapeCSV(record.get("producerId").asString()),
-                        record.get("topicCount").asInt(),
-                        record.get("totalMessages").asInt());
+                        escapeCSV(producer.name()),
+                        producer.publishes(),
+                        producer.messages());
             }
 
-            System.out.println("[Neo4j Export] Created " + filename);
+            System.out.println("[Graph Export] Created " + filename);
         } catch (Exception e) {
-            System.err.println("[Neo4j Export] Failed: " + e.getMessage());
+            System.err.println("[Graph Export] Failed: " + e.getMessage());
         }
     }
 
     /**
-     * Export Neo4j Consumers to CSV
+     * Export Consumers to CSV
      */
-    public static void exportNeo4jConsumersCSV() {
-        exportNeo4jConsumersCSV("neo4j_consumers.csv");
+    public static void exportNeo4jConsumersCSV(StreamGraph graph) {
+        exportNeo4jConsumersCSV(graph, "neo4j_consumers.csv");
     }
 
-    public static void exportNeo4jConsumersCSV(String filename) {
-        try (Session session = Neo4jManager.getDriver().session();
-                PrintWriter pw = new PrintWriter(filename)) {
+    public static void exportNeo4jConsumersCSV(StreamGraph graph, String filename) {
+        try (PrintWriter pw = new PrintWriter(filename)) {
 
             pw.println("consumer_id,subscribedTopics");
 
-            Result result = session.run(
-                    "MATCH (c:Consumer)-[:SUBSCRIBES_TO]->(t:Topic) " +
-                            "RETURN c.id as consumerId, COLLECT(t.name) as topics");
-
-            while (result.hasNext()) {
-                Record record = result.next();
-                String topics = String.join(";", record.get("topics").asList(v -> v.asString()));
+            for (StreamGraph.Node consumer : graph.nodes(StreamGraph.Kind.CONSUMER)) {
+                List<String> topics = new ArrayList<>();
+                graph.neighbors(StreamGraph.Kind.CONSUMER, consumer.name()).forEach(n -> topics.add(n.name()));
                 pw.printf("%s,\"%s\"%n",
-                        escapeCSV(record.get("consumerId").asString()),
-                        topics);
+                        escapeCSV(consumer.name()),
+                        String.join(";", topics));
             }
 
-            System.out.println("[Neo4j Export] Created " + filename);
+            System.out.println("[Graph Export] Created " + filename);
         } catch (Exception e) {
-            System.err.println("[Neo4j Export] Failed: " + e.getMessage());
+            System.err.println("[Graph Export] Failed: " + e.getMessage());
         }
     }
 
     /**
-     * Export all Neo4j data to JSON
+     * Export the whole graph to JSON
      */
-    public static void exportNeo4jJSON() {
-        exportNeo4jJSON("neo4j_data.json");
+    public static void exportNeo4jJSON(StreamGraph graph) {
+        exportNeo4jJSON(graph, "neo4j_data.json");
     }
 
-    public static void exportNeo4jJSON(String filename) {
-        try (Session session = Neo4jManager.getDriver().session();
-                PrintWriter pw = new PrintWriter(filename)) {
+    public static void exportNeo4jJSON(StreamGraph graph, String filename) {
+        try (PrintWriter pw = new PrintWriter(filename)) {
 
             pw.println("{");
             pw.println("  \"exportDate\": \"" + LocalDateTime.now() + "\",");
@@ -223,70 +236,70 @@ public class DataExporter {
 
             // Topics
             pw.println("  \"topics\": [");
-            Result topicsResult = session
-                    .run("MATCH (t:Topic) RETURN t.name as name, t.messageCount as count ORDER BY count DESC");
             boolean first = true;
-            while (topicsResult.hasNext()) {
+            for (StreamGraph.Node topic : graph.nodes(StreamGraph.Kind.TOPIC)) {
                 if (!first)
                     pw.println(",");
                 first = false;
-                Record r = topicsResult.next();
                 pw.printf("    {\"name\": \"%s\", \"messageCount\": %d}",
-                        escapeJSON(r.get("name").asString()),
-                        r.get("count").isNull() ? 0 : r.get("count").asInt());
+                        escapeJSON(topic.name()),
+                        topic.messages());
             }
             pw.println("\n  ],");
 
             // Producers
             pw.println("  \"producers\": [");
-            Result producersResult = session.run(
-                    "MATCH (p:Producer)-[r:PUBLISHES_TO]->(t:Topic) " +
-                            "RETURN p.id as id, COLLECT({topic: t.name, count: r.messageCount}) as topics");
             first = true;
-            while (producersResult.hasNext()) {
+            for (StreamGraph.Node producer : graph.nodes(StreamGraph.Kind.PRODUCER)) {
                 if (!first)
                     pw.println(",");
                 first = false;
-                Record r = producersResult.next();
-                pw.printf("    {\"id\": \"%s\", \"publishesTo\": %s}",
-                        escapeJSON(r.get("id").asString()),
-                        r.get("topics").toString());
+                StringBuilder topics = new StringBuilder("[");
+                for (StreamGraph.Neighbor topic : graph.neighbors(StreamGraph.Kind.PRODUCER, producer.name())) {
+                    topics.append(topics.length() > 1 ? ", " : "").append("{\"topic\": \"")
+                            .append(escapeJSON(topic.name())).append("\", \"count\": ").append(topic.messages())
+                            .append("}");
+                }
+                pw.printf("    {\"id\": \"%s\", \"publishesTo\": %s]}",
+                        escapeJSON(producer.name()),
+                        topics);
             }
             pw.println("\n  ],");
 
             // Consumers
             pw.println("  \"consumers\": [");
-            Result consumersResult = session.run(
-                    "MATCH (c:Consumer)-[:SUBSCRIBES_TO]->(t:Topic) " +
-                            "RETURN c.id as id, COLLECT(t.name) as topics");
             first = true;
-            while (consumersResult.hasNext()) {
+            for (StreamGraph.Node consumer : graph.nodes(StreamGraph.Kind.CONSUMER)) {
                 if (!first)
                     pw.println(",");
                 first = false;
-                Record r = consumersResult.next();
-                pw.printf("    {\"id\": \"%s\", \"subscribesTo\": %s}",
-                        escapeJSON(r.get("id").asString()),
-                        r.get("topics").asList());
+                StringBuilder topics = new StringBuilder("[");
+                for (StreamGraph.Neighbor topic : graph.neighbors(StreamGraph.Kind.CONSUMER, consumer.name())) {
+                    topics.append(topics.length() > 1 ? ", " : "").append("\"").append(escapeJSON(topic.name()))
+                            .append("\"");
+                }
+                pw.printf("    {\"id\": \"%s\", \"subscribesTo\": %s]}",
+                        escapeJSON(consumer.name()),
+                        topics);
             }
             pw.println("\n  ]");
 
             pw.println("}");
 
-            System.out.println("[Neo4j Export] Created " + filename);
+            System.out.println("[Graph Export] Created " + filename);
         } catch (Exception e) {
-            System.err.println("[Neo4j Export] Failed: " + e.getMessage());
+            System.err.println("[Graph Export] Failed: " + e.getMessage());
         }
     }
 
     // =========================================================================
-    // COMBINED BACKUPS (H2 + Neo4j)
+    // COMBINED BACKUPS (H2 + graph)
     // =========================================================================
 
     /**
-     * Create timestamped backup files (H2 CSV/JSON + Neo4j data)
+     * Create timestamped backup files (H2 CSV/JSON + graph in Neo4j import format)
      */
-    public static void exportBackup() {
+    public static void exportBackup(StreamGraph graph) {
         String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMAT);
 
         // H2 backups
@@ -295,77 +308,56 @@ public class DataExporter {
         exportCSV(csvFile);
         exportJSON(jsonFile);
 
-        // Neo4j backups
+        // Graph backups (Neo4j import format)
         String neo4jTopics = "backup_neo4j_topics_" + timestamp + ".csv";
         String neo4jProducers = "backup_neo4j_producers_" + timestamp + ".csv";
         String neo4jConsumers = "backup_neo4j_consumers_" + timestamp + ".csv";
         String neo4jJson = "backup_neo4j_" + timestamp + ".json";
 
-        exportNeo4jTopicsCSV(neo4jTopics);
-        exportNeo4jProducersCSV(neo4jProducers);
-        exportNeo4jConsumersCSV(neo4jConsumers);
-        exportNeo4jJSON(neo4jJson);
+        exportNeo4jTopicsCSV(graph, neo4jTopics);
+        exportNeo4jProducersCSV(graph, neo4jProducers);
+        exportNeo4jConsumersCSV(graph, neo4jConsumers);
+        exportNeo4jJSON(graph, neo4jJson);
 
-        System.out.println("[Backup] Created full backup (H2 + Neo4j) with timestamp: " + timestamp);
+        System.out.println("[Backup] Created full backup (H2 + graph) with timestamp: " + timestamp);
     }
 
     /**
-     * Export summary statistics from both databases
+     * Export summary statistics: broker message counts (from the live
+     * aggregator, no H2 scan) and graph node counts
      */
-    public static void exportStats() {
-        try (Connection conn = DatabaseManager.getConnection();
-                PrintWriter pw = new PrintWriter("stats.json")) {
+    public static void exportStats(StreamAggregator aggregator, StreamGraph graph) {
+        try (PrintWriter pw = new PrintWriter("stats.json")) {
 
             pw.println("{");
             pw.println("  \"exportDate\": \"" + LocalDateTime.now() + "\",");
 
-            // H2 stats
-            ResultSet rsTotal = conn.createStatement().executeQuery("SELECT COUNT(*) as total FROM messages");
-            rsTotal.next();
-            pw.println("  \"h2_totalMessages\": " + rsTotal.getInt("total") + ",");
-            rsTotal.close();
+            // Messages published since the broker started, not rows stored in H2
+            pw.println("  \"broker_publishedSinceStart\": " + aggregator.getTotalCount() + ",");
 
-            // H2 topic stats
-            pw.println("  \"h2_topicStats\": [");
-            ResultSet rsTopic = conn.createStatement().executeQuery(
-                    "SELECT topic, COUNT(*) as count FROM messages GROUP BY topic ORDER BY count DESC");
+            // Per-topic counts since start
+            pw.println("  \"broker_topicStats\": [");
+            List<Map.Entry<String, Long>> topicCounts = new ArrayList<>(aggregator.topicTotals().entrySet());
+            topicCounts.sort(Map.Entry.<String, Long>comparingByValue().reversed());
             boolean first = true;
-            while (rsTopic.next()) {
+            for (Map.Entry<String, Long> topicCount : topicCounts) {
                 if (!first)
                     pw.println(",");
                 first = false;
                 pw.printf("    {\"topic\": \"%s\", \"count\": %d}",
-                        escapeJSON(rsTopic.getString("topic")),
-                        rsTopic.getInt("count"));
+                        escapeJSON(topicCount.getKey()),
+                        topicCount.getValue());
             }
-            rsTopic.close();
             pw.println("\n  ],");
 
-            // Neo4j stats
-            try (Session session = Neo4jManager.getDriver().session()) {
-                Result neo4jStats = session.run(
-                        "MATCH (t:Topic) RETURN COUNT(t) as topics " +
-                                "UNION ALL MATCH (p:Producer) RETURN COUNT(p) as topics " +
-                                "UNION ALL MATCH (c:Consumer) RETURN COUNT(c) as topics");
-
-                int topics = 0, producers = 0, consumers = 0;
-                if (neo4jStats.hasNext())
-                    topics = neo4jStats.next().get("topics").asInt();
-                if (neo4jStats.hasNext())
-                    producers = neo4jStats.next().get("topics").asInt();
-                if (neo4jStats.hasNext())
-                    consumers = neo4jStats.next().get("topics").asInt();
-
-                pw.println("  \"neo4j_topics\": " + topics + ",");
-                pw.println("  \"neo4j_producers\": " + producers + ",");
-                pw.println("  \"neo4j_consumers\": " + consumers);
-            } catch (Exception e) {
-                pw.println("  \"neo4j_error\": \"" + escapeJSON(e.getMessage()) + "\"");
-            }
+            // Graph node counts (the keys predate the in-memory graph)
+            pw.println("  \"neo4j_topics\": " + graph.count(StreamGraph.Kind.TOPIC) + ",");
+            pw.println("  \"neo4j_producers\": " + graph.count(StreamGraph.Kind.PRODUCER) + ",");
+            pw.println("  \"neo4j_consumers\": " + graph.count(StreamGraph.Kind.CONSUMER));
 
             pw.println("}");
 
-            System.out.println("[Export] Created stats.json (H2 + Neo4j)");
+            System.out.println("[Export] Created stats.json (broker + graph)");
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -378,7 +370,7 @@ public class DataExporter {
     /**
      * Escape special characters for CSV
      */
-    private static String escapeCSV(String value) {
+    public static String escapeCSV(String value) {
         if (value == null)
             return "";
         if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
@@ -390,7 +382,7 @@ public class DataExporter {
     /**
      * Escape special characters for JSON
      */
-    private static String escapeJSON(String value) {
+    public static String escapeJSON(String value) {
         if (value == null)
             return "";
         return value
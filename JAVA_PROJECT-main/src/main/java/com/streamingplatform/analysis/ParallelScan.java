@@ -0,0 +1,288 @@
+package com.streamingplatform.analysis;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+
+import com.streamingplatform.persistence.DatabaseManager;
+
+/**
+ * Ad-hoc aggregation over the messages retained in H2, on all cores.
+ *
+ * The id range of the matching messages is split in halves on a
+ * {@link ForkJoinPool} until a chunk covers at most chunkRows ids; each
+ * chunk is read with its own query and folded into a partial result with
+ * the collector's accumulator, and the partials are merged with its
+ * combiner on the way back up. Topic and time bounds go into the SQL, any
+ * other filter runs on the rows.
+ *
+ * Each chunk reads through a connection of its own, taken from a small
+ * pool (at most one per worker), so chunks do not queue on the shared
+ * connection. The pool is kept between scans: H2 runs the same query
+ * noticeably slower on a new session.
+ */
+public class ParallelScan implements AutoCloseable {
+
+    private static final int DEFAULT_CHUNK_ROWS = 10_000;
+
+    /**
+     * One stored message. The payload is the stored bytes, not a copy.
+     */
+    public record Row(long id, String topic, String producerId, byte[] payload, long timestampMs) {
+
+        public String payloadAsString() {
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Which messages to read: a topic (null for all) and [fromMs, toMs) on
+     * the stored timestamp.
+     */
+    public record Range(String topic, long fromMs, long toMs) {
+
+        public static Range all() {
+            return new Range(null, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+        public static Range topic(String topic) {
+            return new Range(topic, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+        public Range between(long fromMs, long toMs) {
+            return new Range(topic, fromMs, toMs);
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final int chunkRows;
+    private final Queue<Connection> idle = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    /**
+     * One worker per core, 10,000 ids per chunk.
+     */
+    public ParallelScan() {
+        this(new ForkJoinPool(Runtime.getRuntime().availableProcessors()), true, DEFAULT_CHUNK_ROWS);
+    }
+
+    /**
+     * Chunks run on pool, which stays the caller's to shut down.
+     */
+    public ParallelScan(ForkJoinPool pool, int chunkRows) {
+        this(pool, false, chunkRows);
+    }
+
+    private ParallelScan(ForkJoinPool pool, boolean ownsPool, int chunkRows) {
+        if (chunkRows < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkRows);
+        }
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.chunkRows = chunkRows;
+    }
+
+    /**
+     * All messages in range.
+     */
+    public <A, R> R scan(Range range, Collector<? super Row, A, R> collector) throws SQLException {
+        return scan(range, row -> true, collector);
+    }
+
+    /**
+     * Messages in range that pass filter, reduced with collector (e.g.
+     * Collectors.groupingBy(Row::topic, Collectors.counting())). The
+     * collector's accumulator only ever sees one chunk, so it need not be
+     * thread-safe.
+     */
+    public <A, R> R scan(Range range, Predicate<? super Row> filter, Collector<? super Row, A, R> collector)
+            throws SQLException {
+        if (closed) {
+            throw new IllegalStateException("Scan is closed");
+        }
+        try {
+            long[] ids = idBounds(range);
+            A result = ids == null ? collector.supplier().get()
+                    : pool.invoke(new Chunk<>(range, filter, collector, ids[0], ids[1]));
+            return finish(collector, result);
+        } catch (ScanFailure e) {
+            throw (SQLException) e.getCause();
+        }
+    }
+
+    /**
+     * Close the pooled connections (and the fork/join pool, if created here).
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (ownsPool) {
+            pool.shutdown();
+        }
+        Connection conn;
+        while ((conn = idle.poll()) != null) {
+            release(conn);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <A, R> R finish(Collector<?, A, R> collector, A result) {
+        if (collector.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            return (R) result;
+        }
+        return collector.finisher().apply(result);
+    }
+
+    // Smallest and largest id in range, null when nothing matches
+    private long[] idBounds(Range range) throws SQLException {
+        Connection conn = borrow();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT MIN(id), MAX(id) FROM messages WHERE 1 = 1"
+                + where(range))) {
+            bind(ps, range, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                long min = rs.getLong(1);
+                return rs.wasNull() ? null : new long[] { min, rs.getLong(2) };
+            }
+        } finally {
+            giveBack(conn);
+        }
+    }
+
+    private Connection borrow() throws SQLException {
+        Connection conn;
+        while ((conn = idle.poll()) != null) {
+            if (!conn.isClosed()) {
+                return conn;
+            }
+        }
+        return DatabaseManager.openConnection();
+    }
+
+    private void giveBack(Connection conn) {
+        idle.add(conn);
+        if (closed && idle.remove(conn)) {
+            release(conn); // close() ran while this one was out
+        }
+    }
+
+    private static void release(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            System.err.println("[Scan] Closing connection failed: " + e.getMessage());
+        }
+    }
+
+    // Range conditions, each prefixed with " AND "
+    private static String where(Range range) {
+        StringBuilder sql = new StringBuilder();
+        if (range.topic() != null) {
+            sql.append(" AND topic = ?");
+        }
+        if (range.fromMs() != Long.MIN_VALUE) {
+            sql.append(" AND timestamp >= ?");
+        }
+        if (range.toMs() != Long.MAX_VALUE) {
+            sql.append(" AND timestamp < ?");
+        }
+        return sql.toString();
+    }
+
+    // Binds the where() parameters from index; returns the next free index
+    private static int bind(PreparedStatement ps, Range range, int index) throws SQLException {
+        if (range.topic() != null) {
+            ps.setString(index++, range.topic());
+        }
+        if (range.fromMs() != Long.MIN_VALUE) {
+            ps.setTimestamp(index++, new Timestamp(range.fromMs()));
+        }
+        if (range.toMs() != Long.MAX_VALUE) {
+            ps.setTimestamp(index++, new Timestamp(range.toMs()));
+        }
+        return index;
+    }
+
+    // Carries a chunk's SQLException out of the pool
+    private static final class ScanFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ScanFailure(SQLException cause) {
+            super(cause);
+        }
+    }
+
+    // Ids [lo, hi]: split in halves down to chunkRows, then read
+    private final class Chunk<A> extends RecursiveTask<A> {
+        private static final long serialVersionUID = 1L;
+
+        private final Range range;
+        private final Predicate<? super Row> filter;
+        private final Collector<? super Row, A, ?> collector;
+        private final long lo;
+        private final long hi;
+
+        Chunk(Range range, Predicate<? super Row> filter, Collector<? super Row, A, ?> collector, long lo,
+                long hi) {
+            this.range = range;
+            this.filter = filter;
+            this.collector = collector;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected A compute() {
+            if (hi - lo < chunkRows) {
+                try {
+                    return read();
+                } catch (SQLException e) {
+                    throw new ScanFailure(e);
+                }
+            }
+            long mid = lo + (hi - lo) / 2;
+            Chunk<A> left = new Chunk<>(range, filter, collector, lo, mid);
+            left.fork();
+            A right = new Chunk<>(range, filter, collector, mid + 1, hi).compute();
+            return collector.combiner().apply(left.join(), right);
+        }
+
+        private A read() throws SQLException {
+            A partial = collector.supplier().get();
+            BiConsumer<A, ? super Row> accumulator = collector.accumulator();
+            String sql = "SELECT id, topic, producer_id, content, timestamp FROM messages WHERE id BETWEEN ? AND ?"
+                    + where(range);
+            Connection conn = borrow();
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setLong(1, lo);
+                ps.setLong(2, hi);
+                bind(ps, range, 3);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        byte[] payload = rs.getBytes(4);
+                        Timestamp timestamp = rs.getTimestamp(5);
+                        Row row = new Row(rs.getLong(1), rs.getString(2), rs.getString(3),
+                                payload != null ? payload : new byte[0], timestamp != null ? timestamp.getTime() : 0);
+                        if (filter.test(row)) {
+                            accumulator.accept(partial, row);
+                        }
+                    }
+                }
+            } finally {
+                giveBack(conn);
+            }
+            return partial;
+        }
+    }
+}
@@ -1,32 +1,349 @@
 package com.streamingplatform.analysis;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
 
-import com.streamingplatform.persistence.MessageDAO;
-
+/**
+ * Windowed stream statistics per topic and per producer, maintained as
+ * messages are published: count, messages containing "error" (any case)
+ * and payload length in bytes (sum, min, max).
+ *
+ * Each topic / producer keeps 1-second buckets for the last minute and
+ * 1-minute buckets for the last hour. Recording adds to the current bucket
+ * of each; a window is the sum of the buckets it covers, so reads cost at
+ * most 60 buckets whatever the message volume and never touch the store.
+ *
+ * Sliding windows end now; tumbling windows are aligned on multiples of
+ * their size (epoch time), the newest one still in progress.
+ *
+ * Each message also feeds the {@link StreamSketches} (distinct producers,
+ * heavy hitters, size quantiles since start). Questions about older data go
+ * to the store through {@link #history}.
+ */
 public class StreamAnalytics {
-    private final MessageDAO dao = new MessageDAO();
+
+    public enum Scope {
+        TOPIC, PRODUCER
+    }
+
+    /**
+     * Statistics of one window [startMs, endMs).
+     */
+    public record WindowStats(long startMs, long endMs, long count, long errors, long bytes, long minLength,
+            long maxLength) {
+
+        public double errorRate() {
+            return count == 0 ? 0 : (double) errors / count;
+        }
+
+        public double avgLength() {
+            return count == 0 ? 0 : (double) bytes / count;
+        }
+    }
+
+    public static final long SECOND_MS = 1000;
+    public static final long MINUTE_MS = 60_000;
+    private static final int BUCKETS = 60;
+
+    private final Map<String, Series> topics = new ConcurrentHashMap<>();
+    private final Map<String, Series> producers = new ConcurrentHashMap<>();
+    private final StreamSketches sketches = new StreamSketches();
+
+    /**
+     * Add one published message to its topic's and producer's windows.
+     */
+    public void record(String topic, String producerId, byte[] payload, int offset, int length, long timestampMs) {
+        boolean error = containsError(payload, offset, length);
+        series(topics, topic).record(timestampMs, length, error);
+        if (producerId != null) {
+            series(producers, producerId).record(timestampMs, length, error);
+        }
+        sketches.record(topic, producerId, length);
+    }
+
+    public StreamSketches sketches() {
+        return sketches;
+    }
+
+    /**
+     * The last widthMs up to now (at most an hour): 1-second resolution up to
+     * a minute, 1-minute resolution beyond. Rounded up to whole buckets, the
+     * current one included.
+     */
+    public WindowStats sliding(Scope scope, String key, long widthMs) {
+        long now = System.currentTimeMillis();
+        Series series = map(scope).get(key);
+        Ring ring = widthMs <= BUCKETS * SECOND_MS ? Series.SECONDS : Series.MINUTES;
+        if (widthMs <= 0 || widthMs > BUCKETS * ring.bucketMs) {
+            throw new IllegalArgumentException("Sliding window must be 1 ms to 1 hour: " + widthMs);
+        }
+        long end = ring.bucketStart(now) + ring.bucketMs;
+        long start = end - ceil(widthMs, ring.bucketMs);
+        return series == null ? empty(start, end) : series.ring(ring).sum(start, end);
+    }
+
+    /**
+     * The last count tumbling windows of sizeMs, oldest first, the last one in
+     * progress. sizeMs must be whole seconds with count * sizeMs within a
+     * minute, or whole minutes within an hour.
+     */
+    public List<WindowStats> tumbling(Scope scope, String key, long sizeMs, int count) {
+        Ring ring = sizeMs % SECOND_MS == 0 && sizeMs * count <= BUCKETS * SECOND_MS ? Series.SECONDS
+                : sizeMs % MINUTE_MS == 0 && sizeMs * count <= BUCKETS * MINUTE_MS ? Series.MINUTES : null;
+        if (ring == null || sizeMs <= 0 || count <= 0) {
+            throw new IllegalArgumentException("Tumbling windows must be whole seconds within a minute "
+                    + "or whole minutes within an hour: " + count + " x " + sizeMs + " ms");
+        }
+        Series series = map(scope).get(key);
+        long now = System.currentTimeMillis();
+        long current = now - Math.floorMod(now, sizeMs);
+        List<WindowStats> windows = new ArrayList<>(count);
+        for (long start = current - (count - 1) * sizeMs; start <= current; start += sizeMs) {
+            windows.add(series == null ? empty(start, start + sizeMs) : series.ring(ring).sum(start, start + sizeMs));
+        }
+        return windows;
+    }
+
+    /**
+     * Topics or producers with data in the last hour.
+     */
+    public Set<String> keys(Scope scope) {
+        return new TreeSet<>(map(scope).keySet());
+    }
+
+    /**
+     * Drop topics / producers with nothing recorded in the last hour.
+     *
+     * @return the number dropped
+     */
+    public int evictIdle(long nowMs) {
+        long cutoff = nowMs - BUCKETS * MINUTE_MS;
+        int evicted = 0;
+        for (Map<String, Series> map : List.of(topics, producers)) {
+            for (Map.Entry<String, Series> entry : map.entrySet()) {
+                if (entry.getValue().minutes.latestStart() < cutoff && map.remove(entry.getKey(), entry.getValue())) {
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
 
     public void printStats(String topic) {
-        List<String> messages = dao.getMessagesByTopic(topic);
-        
         System.out.println("--- Stream Analysis for '" + topic + "' ---");
+        for (long width : new long[] { MINUTE_MS, BUCKETS * MINUTE_MS }) {
+            WindowStats w = sliding(Scope.TOPIC, topic, width);
+            System.out.printf("Last %d min: %d messages, %d errors (%.1f%%), avg length %.1f bytes [%d..%d]%n",
+                    width / MINUTE_MS, w.count(), w.errors(), w.errorRate() * 100, w.avgLength(),
+                    w.count() == 0 ? 0 : w.minLength(), w.maxLength());
+        }
+    }
+
+    /**
+     * The same stats over stored messages, per topic: one WindowStats from
+     * each topic's first message to its last, read from H2 with a parallel
+     * scan (Range.all() for everything retained).
+     */
+    public static Map<String, WindowStats> history(ParallelScan scan, ParallelScan.Range range) throws SQLException {
+        return scan.scan(range, Collectors.groupingBy(ParallelScan.Row::topic, TreeMap::new,
+                Collector.of(Totals::new, Totals::add, Totals::merge, Totals::stats)));
+    }
+
+    public static void printHistory(Map<String, WindowStats> history) {
+        System.out.println("--- Stored Messages by Topic ---");
+        history.forEach((topic, w) -> System.out.printf(
+                "%-30s %d messages, %d errors (%.1f%%), avg length %.1f bytes [%d..%d]%n", topic, w.count(),
+                w.errors(), w.errorRate() * 100, w.avgLength(), w.minLength(), w.maxLength()));
+    }
+
+    /**
+     * Case-insensitive search for "error" in the raw payload. The UTF-8 bytes
+     * of these ASCII letters never occur inside a multi-byte character.
+     */
+    static boolean containsError(byte[] b, int offset, int length) {
+        int end = offset + length - 4;
+        for (int i = offset; i < end; i++) {
+            if ((b[i] | 0x20) == 'e' && (b[i + 1] | 0x20) == 'r' && (b[i + 2] | 0x20) == 'r'
+                    && (b[i + 3] | 0x20) == 'o' && (b[i + 4] | 0x20) == 'r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, Series> map(Scope scope) {
+        return scope == Scope.TOPIC ? topics : producers;
+    }
+
+    private static Series series(Map<String, Series> map, String key) {
+        Series series = map.get(key);
+        return series != null ? series : map.computeIfAbsent(key, k -> new Series());
+    }
+
+    private static long ceil(long value, long unit) {
+        return (value + unit - 1) / unit * unit;
+    }
+
+    private static WindowStats empty(long start, long end) {
+        return new WindowStats(start, end, 0, 0, 0, 0, 0);
+    }
+
+    // Running stats of one topic's chunk in a history scan
+    private static final class Totals {
+        long count, errors, bytes;
+        long minLength = Long.MAX_VALUE, maxLength;
+        long firstMs = Long.MAX_VALUE, lastMs = Long.MIN_VALUE;
+
+        void add(ParallelScan.Row row) {
+            int length = row.payload().length;
+            count++;
+            if (containsError(row.payload(), 0, length)) {
+                errors++;
+            }
+            bytes += length;
+            minLength = Math.min(minLength, length);
+            maxLength = Math.max(maxLength, length);
+            firstMs = Math.min(firstMs, row.timestampMs());
+            lastMs = Math.max(lastMs, row.timestampMs());
+        }
+
+        Totals merge(Totals other) {
+            count += other.count;
+            errors += other.errors;
+            bytes += other.bytes;
+            minLength = Math.min(minLength, other.minLength);
+            maxLength = Math.max(maxLength, other.maxLength);
+            firstMs = Math.min(firstMs, other.firstMs);
+            lastMs = Math.max(lastMs, other.lastMs);
+            return this;
+        }
+
+        WindowStats stats() {
+            return new WindowStats(firstMs, lastMs + 1, count, errors, bytes, minLength, maxLength);
+        }
+    }
+
+    // =========================================================================
+    // BUCKETS
+    // =========================================================================
+
+    private static final class Series {
+        static final Ring SECONDS = new Ring(SECOND_MS);
+        static final Ring MINUTES = new Ring(MINUTE_MS);
+
+        final Buckets seconds = new Buckets(SECONDS);
+        final Buckets minutes = new Buckets(MINUTES);
+
+        void record(long timestampMs, int length, boolean error) {
+            seconds.record(timestampMs, length, error);
+            minutes.record(timestampMs, length, error);
+        }
+
+        Buckets ring(Ring ring) {
+            return ring == SECONDS ? seconds : minutes;
+        }
+    }
+
+    // Bucket width of one ring
+    private record Ring(long bucketMs) {
+        long bucketStart(long timestampMs) {
+            return timestampMs - Math.floorMod(timestampMs, bucketMs);
+        }
+    }
+
+    /**
+     * A ring of BUCKETS buckets. A slot holding an older bucket is replaced
+     * (compare-and-set) by the first record of a newer one, so recording
+     * never locks; a record older than its slot's bucket is dropped.
+     */
+    private static final class Buckets {
+        final Ring ring;
+        final AtomicReferenceArray<Bucket> slots = new AtomicReferenceArray<>(BUCKETS);
+
+        Buckets(Ring ring) {
+            this.ring = ring;
+        }
+
+        void record(long timestampMs, int length, boolean error) {
+            long start = ring.bucketStart(timestampMs);
+            int slot = (int) Math.floorMod(start / ring.bucketMs, (long) BUCKETS);
+            Bucket bucket = slots.get(slot);
+            while (bucket == null || bucket.start < start) {
+                Bucket fresh = new Bucket(start);
+                if (slots.compareAndSet(slot, bucket, fresh)) {
+                    bucket = fresh;
+                } else {
+                    bucket = slots.get(slot);
+                }
+            }
+            if (bucket.start == start) {
+                bucket.add(length, error);
+            }
+        }
+
+        // Buckets starting in [from, to)
+        WindowStats sum(long from, long to) {
+            long count = 0, errors = 0, bytes = 0;
+            long min = Long.MAX_VALUE, max = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                Bucket bucket = slots.get(i);
+                if (bucket != null && bucket.start >= from && bucket.start < to) {
+                    long n = bucket.count.sum();
+                    if (n > 0) {
+                        count += n;
+                        errors += bucket.errors.sum();
+                        bytes += bucket.bytes.sum();
+                        min = Math.min(min, bucket.minLength.get());
+                        max = Math.max(max, bucket.maxLength.get());
+                    }
+                }
+            }
+            return new WindowStats(from, to, count, errors, bytes, count == 0 ? 0 : min, max);
+        }
+
+        long latestStart() {
+            long latest = Long.MIN_VALUE;
+            for (int i = 0; i < BUCKETS; i++) {
+                Bucket bucket = slots.get(i);
+                if (bucket != null) {
+                    latest = Math.max(latest, bucket.start);
+                }
+            }
+            return latest;
+        }
+    }
 
-        // 1. Count total using Stream
-        long total = messages.stream().count();
-        System.out.println("Total Messages: " + total);
+    private static final class Bucket {
+        final long start;
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAccumulator minLength = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        final LongAccumulator maxLength = new LongAccumulator(Math::max, 0);
 
-        // 2. Filter messages containing "Error" using Stream & Lambda
-        long errorCount = messages.stream()
-                .filter(msg -> msg.toLowerCase().contains("error"))
-                .count();
-        System.out.println("Error Messages: " + errorCount);
+        Bucket(long start) {
+            this.start = start;
+        }
 
-        // 3. Calculate average length
-        double avgLength = messages.stream()
-                .mapToInt(String::length)
-                .average()
-                .orElse(0.0);
-        System.out.println("Avg Message Length: " + avgLength);
+        void add(int length, boolean error) {
+            if (error) {
+                errors.increment();
+            }
+            bytes.add(length);
+            minLength.accumulate(length);
+            maxLength.accumulate(length);
+            count.increment(); // Last: a reader that sees the count sees the rest
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,143 @@
+package com.streamingplatform.analysis;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.streamingplatform.sketch.HyperLogLog;
+import com.streamingplatform.sketch.KllSketch;
+import com.streamingplatform.sketch.TopK;
+
+/**
+ * Approximate stream statistics maintained at publish time, in memory that
+ * does not grow with message volume:
+ *
+ * - distinct producers, overall and per topic (HyperLogLog)
+ * - heaviest topics and producers by messages (Count-Min + top-K)
+ * - payload size quantiles, overall and per topic (KLL)
+ *
+ * Publishing threads update one of a few stripes, each under its own lock;
+ * a read merges the stripes into a {@link Snapshot}.
+ */
+public class StreamSketches {
+
+    private static final int STRIPES = 4;
+    private static final int TOP_K = 20;
+    private static final int CMS_WIDTH = 2048;
+    private static final int CMS_DEPTH = 5;
+    private static final int HLL_PRECISION = 12;       // ~1.6% error
+    private static final int TOPIC_HLL_PRECISION = 10; // ~3.3% error, 1 KB per topic and stripe
+    private static final int KLL_K = 200;
+    private static final int TOPIC_KLL_K = 100;
+
+    /**
+     * Merged view of all stripes at one point in time.
+     */
+    public record Snapshot(HyperLogLog producers, TopK topTopics, TopK topProducers, KllSketch sizes,
+            Map<String, TopicSketches> topics) {
+    }
+
+    /**
+     * Per-topic sketches: distinct producers and payload sizes.
+     */
+    public record TopicSketches(HyperLogLog producers, KllSketch sizes) {
+
+        static TopicSketches empty() {
+            return new TopicSketches(new HyperLogLog(TOPIC_HLL_PRECISION), new KllSketch(TOPIC_KLL_K));
+        }
+
+        void merge(TopicSketches other) {
+            producers.merge(other.producers);
+            sizes.merge(other.sizes);
+        }
+    }
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public StreamSketches() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Add one published message.
+     */
+    public void record(String topic, String producerId, int length) {
+        Stripe stripe = stripes[(int) (Thread.currentThread().getId() & (STRIPES - 1))];
+        synchronized (stripe) {
+            stripe.record(topic, producerId, length);
+        }
+    }
+
+    public Snapshot snapshot() {
+        Stripe merged = new Stripe();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                merged.merge(stripe);
+            }
+        }
+        return new Snapshot(merged.producers, merged.topTopics, merged.topProducers, merged.sizes,
+                new TreeMap<>(merged.topics));
+    }
+
+    /**
+     * Console summary of a snapshot.
+     */
+    public static String format(Snapshot s) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n=== Stream Sketches (approximate) ===\n");
+        sb.append(String.format("Messages: %d, distinct producers: ~%d%n", s.sizes().getCount(),
+                s.producers().estimate()));
+        sb.append(String.format("Payload bytes p50 / p90 / p99 / max: %s / %s / %s / %s%n",
+                size(s.sizes(), 0.5), size(s.sizes(), 0.9), size(s.sizes(), 0.99), size(s.sizes(), 1)));
+        appendTop(sb, "Top topics", s.topTopics().top(10));
+        appendTop(sb, "Top producers", s.topProducers().top(10));
+        sb.append(String.format("%n%-30s | %-10s | %-8s | %-8s%n", "Topic", "Producers", "p50", "p99"));
+        sb.append("-".repeat(64)).append("\n");
+        s.topics().forEach((topic, t) -> sb.append(String.format("%-30s | ~%-9d | %-8s | %-8s%n", topic,
+                t.producers().estimate(), size(t.sizes(), 0.5), size(t.sizes(), 0.99))));
+        return sb.toString();
+    }
+
+    private static void appendTop(StringBuilder sb, String title, List<TopK.Entry> entries) {
+        sb.append(title).append(":\n");
+        for (TopK.Entry e : entries) {
+            sb.append(String.format("  %-30s ~%d%n", e.key(), e.count()));
+        }
+    }
+
+    private static String size(KllSketch sketch, double q) {
+        return sketch.getCount() == 0 ? "-" : String.valueOf((long) sketch.quantile(q));
+    }
+
+    // One stripe's sketches; guarded by the stripe
+    private static final class Stripe {
+        final HyperLogLog producers = new HyperLogLog(HLL_PRECISION);
+        final TopK topTopics = new TopK(TOP_K, CMS_WIDTH, CMS_DEPTH);
+        final TopK topProducers = new TopK(TOP_K, CMS_WIDTH, CMS_DEPTH);
+        final KllSketch sizes = new KllSketch(KLL_K);
+        final Map<String, TopicSketches> topics = new HashMap<>();
+
+        void record(String topic, String producerId, int length) {
+            TopicSketches t = topics.computeIfAbsent(topic, k -> TopicSketches.empty());
+            topTopics.add(topic);
+            sizes.add(length);
+            t.sizes().add(length);
+            if (producerId != null) {
+                producers.add(producerId);
+                topProducers.add(producerId);
+                t.producers().add(producerId);
+            }
+        }
+
+        void merge(Stripe other) {
+            producers.merge(other.producers);
+            topTopics.merge(other.topTopics);
+            topProducers.merge(other.topProducers);
+            sizes.merge(other.sizes);
+            other.topics.forEach((topic, t) -> topics.computeIfAbsent(topic, k -> TopicSketches.empty()).merge(t));
+        }
+    }
+}
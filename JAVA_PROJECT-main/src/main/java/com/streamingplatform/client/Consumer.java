@@ -13,19 +13,33 @@ public class Consumer {
         try (Scanner scanner = new Scanner(System.in)) {
             System.out.print("Enter Topic to Subscribe (e.g., news): ");
             String topic = scanner.nextLine();
+            // Sent with every poll so the broker can track this consumer (-Dconsumer.id)
+            String consumerId = System.getProperty("consumer.id", "Consumer-" + ProcessHandle.current().pid());
+            // Optional server-side filter, e.g. -Dconsumer.filter="icontains=error since=10m"
+            String filter = System.getProperty("consumer.filter");
 
             // Connect to Broker
             try (Socket socket = new Socket("localhost", 8080);
                  PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
                  BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
 
-                System.out.println("Connected. Polling topic: " + topic);
+                System.out.println("Connected as " + consumerId + ". Polling topic: " + topic);
+                if (filter != null) {
+                    // The broker keeps the filter with the subscription and sends only matches
+                    out.println("SUBSCRIBE " + topic + " " + consumerId + " " + filter);
+                    String reply = in.readLine();
+                    if (reply == null || reply.startsWith("ERROR")) {
+                        System.out.println("Subscribe failed: " + reply);
+                        return;
+                    }
+                    System.out.println("Filter: " + filter);
+                }
                 System.out.println("------------------------------------------------");
 
                 // POLLING LOOP
                 while (true) {
                     // 1. Send Pull Request
-                    out.println("CONSUME " + topic);
+                    out.println("CONSUME " + topic + " " + consumerId);
 
                     // 2. Read Response
                     String line;
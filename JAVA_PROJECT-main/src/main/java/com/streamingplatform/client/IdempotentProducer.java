@@ -0,0 +1,113 @@
+package com.streamingplatform.client;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Producer that can retry safely: it registers with INIT_PRODUCER and sends
+ * every message with IPUBLISH and a per-topic sequence number.
+ * If the ACK is lost, the same sequence is resent and the broker drops the
+ * replay instead of storing it twice. If the broker no longer knows the
+ * producer (restarted, or expired it while idle), it registers again and
+ * retries under the new epoch.
+ */
+public class IdempotentProducer implements AutoCloseable {
+
+    private static final int SO_TIMEOUT_MS = 2000;
+
+    private final String host;
+    private final int port;
+    private final String producerId;
+    private final int maxRetries;
+    private final Map<String, Long> nextSequence = new HashMap<>();
+
+    private Socket socket;
+    private PrintWriter out;
+    private BufferedReader in;
+    private long epoch = -1;
+
+    public IdempotentProducer(String host, int port, String producerId, int maxRetries) {
+        this.host = host;
+        this.port = port;
+        this.producerId = producerId;
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Send one message, retrying on connection errors or a missing ACK.
+     *
+     * @return true once the broker acknowledged it (first write or replay)
+     */
+    public synchronized boolean send(String topic, String content) {
+        long sequence = nextSequence.getOrDefault(topic, 0L);
+
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            try {
+                ensureConnected();
+                out.println("IPUBLISH " + topic + " " + producerId + " " + epoch + " " + sequence + " " + content);
+                String response = in.readLine();
+
+                if (response != null && response.startsWith("ACK")) {
+                    nextSequence.put(topic, sequence + 1);
+                    return true;
+                }
+                if (response != null && response.startsWith("ERROR: Fenced")) {
+                    System.err.println("[IdempotentProducer] " + response);
+                    return false;
+                }
+                if (response != null && response.startsWith("ERROR: Unknown producer")) {
+                    // The broker lost our epoch: INIT_PRODUCER again on this connection, then retry
+                    epoch = -1;
+                    continue;
+                }
+                // Anything else: drop the connection and retry with the same sequence
+                disconnect();
+            } catch (IOException e) {
+                disconnect();
+            }
+        }
+        return false;
+    }
+
+    private void ensureConnected() throws IOException {
+        if (socket == null) {
+            socket = new Socket(host, port);
+            socket.setSoTimeout(SO_TIMEOUT_MS);
+            out = new PrintWriter(socket.getOutputStream(), true);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        }
+
+        // Register only when the broker has no epoch for us: a new epoch resets its dedup window
+        if (epoch < 0) {
+            out.println("INIT_PRODUCER " + producerId);
+            String response = in.readLine();
+            if (response == null || !response.startsWith("PRODUCER_EPOCH ")) {
+                throw new IOException("Unexpected INIT_PRODUCER response: " + response);
+            }
+            epoch = Long.parseLong(response.substring("PRODUCER_EPOCH ".length()));
+        }
+    }
+
+    private void disconnect() {
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException ignored) {
+            // Already broken
+        }
+        socket = null;
+        out = null;
+        in = null;
+    }
+
+    @Override
+    public synchronized void close() {
+        disconnect();
+    }
+}
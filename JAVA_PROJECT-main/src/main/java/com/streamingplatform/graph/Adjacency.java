@@ -0,0 +1,72 @@
+package com.streamingplatform.graph;
+
+import java.util.Arrays;
+
+/**
+ * One growable int list per node id: one side of the graph's adjacency.
+ * Order is not kept (remove moves the last element into the gap). Not
+ * thread-safe.
+ */
+final class Adjacency {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[][] lists = new int[16][];
+    private int[] sizes = new int[16];
+
+    void add(int node, int value) {
+        if (node >= lists.length) {
+            int capacity = Math.max(lists.length * 2, node + 1);
+            lists = Arrays.copyOf(lists, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+        int[] list = lists[node] != null ? lists[node] : EMPTY;
+        int size = sizes[node];
+        if (size == list.length) {
+            list = Arrays.copyOf(list, Math.max(4, size * 2));
+            lists[node] = list;
+        }
+        list[size] = value;
+        sizes[node] = size + 1;
+    }
+
+    boolean contains(int node, int value) {
+        return indexOf(node, value) >= 0;
+    }
+
+    boolean remove(int node, int value) {
+        int i = indexOf(node, value);
+        if (i < 0) {
+            return false;
+        }
+        int last = --sizes[node];
+        lists[node][i] = lists[node][last];
+        return true;
+    }
+
+    void clear(int node) {
+        if (node < lists.length) {
+            lists[node] = null;
+            sizes[node] = 0;
+        }
+    }
+
+    int size(int node) {
+        return node < sizes.length ? sizes[node] : 0;
+    }
+
+    int get(int node, int index) {
+        return lists[node][index];
+    }
+
+    private int indexOf(int node, int value) {
+        int size = size(node);
+        int[] list = lists[node < lists.length ? node : 0];
+        for (int i = 0; i < size; i++) {
+            if (list[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,486 @@
+package com.streamingplatform.graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Producers, topics and consumers as an in-memory bipartite graph:
+ * PUBLISHES_TO edges from producers to topics, weighted by message count,
+ * and SUBSCRIBES_TO edges from consumers to topics - the graph
+ * Neo4jSyncService mirrors to Neo4j. Degree, top-K and neighborhood
+ * questions are answered here without a round trip.
+ *
+ * Names are interned to int ids per kind. Publish edges live in parallel
+ * arrays indexed by edge id, with an int adjacency list per node on both
+ * sides. One lock guards the structure: new nodes and edges, subscription
+ * changes (O(degree)) and queries (O(nodes + edges) at most). Counting a
+ * publish on a known edge does not take it: topic -> producer maps lead
+ * to the edge's LongAdders, as in StreamAggregator, and nothing is
+ * allocated.
+ */
+public class StreamGraph {
+
+    public enum Kind {
+        PRODUCER, TOPIC, CONSUMER
+    }
+
+    /**
+     * A node and its edges: publishes counts PUBLISHES_TO edges (topics of a
+     * producer, producers of a topic), subscriptions SUBSCRIBES_TO edges
+     * (topics of a consumer, consumers of a topic). messages: published by
+     * the producer / to the topic, 0 for a consumer.
+     */
+    public record Node(Kind kind, String name, int publishes, int subscriptions, long messages) {
+
+        public int degree() {
+            return publishes + subscriptions;
+        }
+    }
+
+    /**
+     * A node one edge away; messages is the PUBLISHES_TO edge's count, 0 for
+     * a subscription.
+     */
+    public record Neighbor(Kind kind, String name, long messages) {
+    }
+
+    private static final Comparator<Neighbor> NEIGHBOR_ORDER = Comparator.comparing(Neighbor::kind)
+            .thenComparing(Comparator.comparingLong(Neighbor::messages).reversed())
+            .thenComparing(Neighbor::name);
+
+    private final Names producers = new Names();
+    private final Names topics = new Names();
+    private final Names consumers = new Names();
+
+    // PUBLISHES_TO edges, by edge id
+    private int[] edgeProducer = new int[64];
+    private int[] edgeTopic = new int[64];
+    private LongAdder[] edgeMessages = new LongAdder[64];
+    private int edges;
+    private final Adjacency producerEdges = new Adjacency(); // producer -> edge ids
+    private final Adjacency topicEdges = new Adjacency(); // topic -> edge ids
+    private LongAdder[] producerMessages = new LongAdder[16];
+    private LongAdder[] topicMessages = new LongAdder[16]; // Includes messages without a producer
+
+    // The counters a publish bumps, found without the lock; entries are added under it
+    private final ConcurrentHashMap<String, TopicCounters> publishCounters = new ConcurrentHashMap<>();
+
+    private record TopicCounters(LongAdder messages, ConcurrentHashMap<String, EdgeCounters> producers) {
+    }
+
+    private record EdgeCounters(LongAdder edge, LongAdder producer) {
+    }
+
+    // SUBSCRIBES_TO edges
+    private final Adjacency consumerTopics = new Adjacency();
+    private final Adjacency topicConsumers = new Adjacency();
+    private int subscriptions;
+
+    // =========================================================================
+    // UPDATES
+    // =========================================================================
+
+    /**
+     * Count one published message. Lock-free unless the topic or the
+     * (producer, topic) edge is new.
+     *
+     * @param producerId may be null (counted for the topic only)
+     */
+    public void recordPublish(String topic, String producerId) {
+        TopicCounters counters = publishCounters.get(topic);
+        EdgeCounters edge = counters == null || producerId == null ? null : counters.producers().get(producerId);
+        if (counters == null || producerId != null && edge == null) {
+            counters = addPublishCounters(topic);
+            edge = producerId == null ? null : addEdgeCounters(counters, topic, producerId);
+        }
+        counters.messages().increment();
+        if (edge != null) {
+            edge.edge().increment();
+            edge.producer().increment();
+        }
+    }
+
+    private synchronized TopicCounters addPublishCounters(String topic) {
+        TopicCounters counters = publishCounters.get(topic);
+        if (counters == null) {
+            int t = topics.intern(topic);
+            topicMessages = ensure(topicMessages, t);
+            counters = new TopicCounters(topicMessages[t], new ConcurrentHashMap<>());
+            publishCounters.put(topic, counters);
+        }
+        return counters;
+    }
+
+    private synchronized EdgeCounters addEdgeCounters(TopicCounters counters, String topic, String producerId) {
+        EdgeCounters edge = counters.producers().get(producerId);
+        if (edge == null) {
+            int p = producers.intern(producerId);
+            producerMessages = ensure(producerMessages, p);
+            int id = addEdge(p, topics.id(topic));
+            edge = new EdgeCounters(edgeMessages[id], producerMessages[p]);
+            counters.producers().put(producerId, edge);
+        }
+        return edge;
+    }
+
+    public synchronized void subscribe(String consumerId, String topic) {
+        int c = consumers.intern(consumerId);
+        int t = topics.intern(topic);
+        if (!consumerTopics.contains(c, t)) {
+            consumerTopics.add(c, t);
+            topicConsumers.add(t, c);
+            subscriptions++;
+        }
+    }
+
+    public synchronized void unsubscribe(String consumerId, String topic) {
+        int c = consumers.id(consumerId);
+        int t = topics.id(topic);
+        if (c >= 0 && t >= 0 && consumerTopics.remove(c, t)) {
+            topicConsumers.remove(t, c);
+            subscriptions--;
+        }
+    }
+
+    /**
+     * Drop a consumer with its subscriptions; its id is reused.
+     */
+    public synchronized void removeConsumer(String consumerId) {
+        int c = consumers.id(consumerId);
+        if (c < 0) {
+            return;
+        }
+        int size = consumerTopics.size(c);
+        for (int i = 0; i < size; i++) {
+            topicConsumers.remove(consumerTopics.get(c, i), c);
+        }
+        subscriptions -= size;
+        consumerTopics.clear(c);
+        consumers.release(c);
+    }
+
+    private int addEdge(int producer, int topic) {
+        if (edges == edgeProducer.length) {
+            int capacity = edges * 2;
+            edgeProducer = Arrays.copyOf(edgeProducer, capacity);
+            edgeTopic = Arrays.copyOf(edgeTopic, capacity);
+            edgeMessages = Arrays.copyOf(edgeMessages, capacity);
+        }
+        int edge = edges++;
+        edgeProducer[edge] = producer;
+        edgeTopic[edge] = topic;
+        edgeMessages[edge] = new LongAdder();
+        producerEdges.add(producer, edge);
+        topicEdges.add(topic, edge);
+        return edge;
+    }
+
+    // Grows values to cover index and creates its counter (ids of these kinds are never released)
+    private static LongAdder[] ensure(LongAdder[] values, int index) {
+        if (index >= values.length) {
+            values = Arrays.copyOf(values, Math.max(values.length * 2, index + 1));
+        }
+        if (values[index] == null) {
+            values[index] = new LongAdder();
+        }
+        return values;
+    }
+
+    // =========================================================================
+    // QUERIES
+    // =========================================================================
+
+    public synchronized int count(Kind kind) {
+        return names(kind).count();
+    }
+
+    public synchronized int publishEdgeCount() {
+        return edges;
+    }
+
+    public synchronized int subscriptionCount() {
+        return subscriptions;
+    }
+
+    /**
+     * The node, or null if the graph has never seen it.
+     */
+    public synchronized Node node(Kind kind, String name) {
+        int id = names(kind).id(name);
+        return id < 0 ? null : node(kind, id);
+    }
+
+    /**
+     * The limit highest ranked nodes of a kind, best first. Producers: most
+     * topics, then most messages (the order of the Neo4j top-producer
+     * query); topics: most messages, then most edges; consumers: most
+     * topics. Ties go alphabetically.
+     */
+    public synchronized List<Node> top(Kind kind, int limit) {
+        Names names = names(kind);
+        // Publishes keep counting during the query: rank on one snapshot of the counts
+        long[] messages = messageCounts(kind, names.capacity());
+        // Bounded heap with the lowest ranked id at the root
+        int[] heap = new int[Math.min(limit, names.count())];
+        int size = 0;
+        for (int id = 0; id < names.capacity() && heap.length > 0; id++) {
+            if (names.name(id) == null) {
+                continue;
+            }
+            if (size < heap.length) {
+                heap[size] = id;
+                siftUp(kind, messages, heap, size++);
+            } else if (rank(kind, messages, id, heap[0]) > 0) {
+                heap[0] = id;
+                siftDown(kind, messages, heap, size);
+            }
+        }
+        Node[] result = new Node[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = node(kind, heap[0], messages[heap[0]]);
+            heap[0] = heap[i];
+            siftDown(kind, messages, heap, i);
+        }
+        return List.of(result);
+    }
+
+    /**
+     * Every node of a kind, in top() order.
+     */
+    public List<Node> nodes(Kind kind) {
+        return top(kind, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Nodes one edge away: a producer's topics, a topic's producers then
+     * consumers, a consumer's topics. Heaviest edges first.
+     */
+    public synchronized List<Neighbor> neighbors(Kind kind, String name) {
+        int id = names(kind).id(name);
+        List<Neighbor> result = new ArrayList<>();
+        if (id < 0) {
+            return result;
+        }
+        switch (kind) {
+            case PRODUCER -> {
+                for (int i = 0; i < producerEdges.size(id); i++) {
+                    int edge = producerEdges.get(id, i);
+                    result.add(new Neighbor(Kind.TOPIC, topics.name(edgeTopic[edge]), edgeMessages[edge].sum()));
+                }
+            }
+            case TOPIC -> {
+                for (int i = 0; i < topicEdges.size(id); i++) {
+                    int edge = topicEdges.get(id, i);
+                    result.add(new Neighbor(Kind.PRODUCER, producers.name(edgeProducer[edge]),
+                            edgeMessages[edge].sum()));
+                }
+                for (int i = 0; i < topicConsumers.size(id); i++) {
+                    result.add(new Neighbor(Kind.CONSUMER, consumers.name(topicConsumers.get(id, i)), 0));
+                }
+            }
+            case CONSUMER -> {
+                for (int i = 0; i < consumerTopics.size(id); i++) {
+                    result.add(new Neighbor(Kind.TOPIC, topics.name(consumerTopics.get(id, i)), 0));
+                }
+            }
+        }
+        result.sort(NEIGHBOR_ORDER);
+        return result;
+    }
+
+    /**
+     * Topics two edges away, through the topic's producers, most related
+     * first: messages is what those shared producers published to the
+     * related topic.
+     */
+    public synchronized List<Neighbor> relatedTopics(String topic, int limit) {
+        int t = topics.id(topic);
+        if (t < 0) {
+            return List.of();
+        }
+        long[] scores = new long[topics.capacity()];
+        byte[] seen = new byte[topics.capacity()];
+        List<Neighbor> result = new ArrayList<>();
+        int[] related = new int[topics.capacity()];
+        int count = 0;
+        for (int i = 0; i < topicEdges.size(t); i++) {
+            int producer = edgeProducer[topicEdges.get(t, i)];
+            for (int j = 0; j < producerEdges.size(producer); j++) {
+                int edge = producerEdges.get(producer, j);
+                int other = edgeTopic[edge];
+                if (other != t) {
+                    if (seen[other] == 0) {
+                        seen[other] = 1;
+                        related[count++] = other;
+                    }
+                    scores[other] += edgeMessages[edge].sum();
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            result.add(new Neighbor(Kind.TOPIC, topics.name(related[i]), scores[related[i]]));
+        }
+        result.sort(NEIGHBOR_ORDER);
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * Node and edge counts, then the top producers and topics.
+     */
+    public synchronized List<String> describe(int limit) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("  %d producers, %d topics, %d consumers, %d PUBLISHES_TO, %d SUBSCRIBES_TO",
+                producers.count(), topics.count(), consumers.count(), edges, subscriptions));
+        lines.add(String.format("  %-20s | %-12s | %-15s", "Producer", "Topics", "Total Messages"));
+        for (Node node : top(Kind.PRODUCER, limit)) {
+            lines.add(String.format("  %-20s | %-12d | %-15d", node.name(), node.publishes(), node.messages()));
+        }
+        lines.add(String.format("  %-20s | %-12s | %-10s | %-10s", "Topic", "Messages", "Producers", "Consumers"));
+        for (Node node : top(Kind.TOPIC, limit)) {
+            lines.add(String.format("  %-20s | %-12d | %-10d | %-10d", node.name(), node.messages(),
+                    node.publishes(), node.subscriptions()));
+        }
+        return lines;
+    }
+
+    private Node node(Kind kind, int id) {
+        return node(kind, id, switch (kind) {
+            case PRODUCER -> at(producerMessages, id);
+            case TOPIC -> at(topicMessages, id);
+            case CONSUMER -> 0;
+        });
+    }
+
+    private Node node(Kind kind, int id, long messages) {
+        return switch (kind) {
+            case PRODUCER -> new Node(kind, producers.name(id), producerEdges.size(id), 0, messages);
+            case TOPIC -> new Node(kind, topics.name(id), topicEdges.size(id), topicConsumers.size(id), messages);
+            case CONSUMER -> new Node(kind, consumers.name(id), 0, consumerTopics.size(id), 0);
+        };
+    }
+
+    // Messages per id of a kind, read once
+    private long[] messageCounts(Kind kind, int capacity) {
+        long[] counts = new long[capacity];
+        LongAdder[] counters = kind == Kind.PRODUCER ? producerMessages : kind == Kind.TOPIC ? topicMessages : null;
+        for (int id = 0; counters != null && id < capacity; id++) {
+            counts[id] = at(counters, id);
+        }
+        return counts;
+    }
+
+    private Names names(Kind kind) {
+        return switch (kind) {
+            case PRODUCER -> producers;
+            case TOPIC -> topics;
+            case CONSUMER -> consumers;
+        };
+    }
+
+    private static long at(LongAdder[] values, int index) {
+        return index < values.length && values[index] != null ? values[index].sum() : 0;
+    }
+
+    // Positive when a ranks above b (see top()); messages from messageCounts()
+    private int rank(Kind kind, long[] messages, int a, int b) {
+        int c = switch (kind) {
+            case PRODUCER -> compare(producerEdges.size(a), producerEdges.size(b), messages[a], messages[b]);
+            case TOPIC -> compare(messages[a], messages[b],
+                    topicEdges.size(a) + topicConsumers.size(a), topicEdges.size(b) + topicConsumers.size(b));
+            case CONSUMER -> Integer.compare(consumerTopics.size(a), consumerTopics.size(b));
+        };
+        Names names = names(kind);
+        return c != 0 ? c : names.name(b).compareTo(names.name(a));
+    }
+
+    private static int compare(long first1, long first2, long second1, long second2) {
+        int c = Long.compare(first1, first2);
+        return c != 0 ? c : Long.compare(second1, second2);
+    }
+
+    private void siftUp(Kind kind, long[] messages, int[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (rank(kind, messages, heap[i], heap[parent]) >= 0) {
+                return;
+            }
+            swap(heap, i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(Kind kind, long[] messages, int[] heap, int size) {
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int lowest = 2 * i + 1;
+            if (lowest + 1 < size && rank(kind, messages, heap[lowest + 1], heap[lowest]) < 0) {
+                lowest++;
+            }
+            if (rank(kind, messages, heap[lowest], heap[i]) >= 0) {
+                return;
+            }
+            swap(heap, i, lowest);
+            i = lowest;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+
+    // Name <-> id for one kind; released ids are reused
+    private static final class Names {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> names = new ArrayList<>(); // null for a released id
+        private final ArrayDeque<Integer> free = new ArrayDeque<>();
+
+        int id(String name) {
+            Integer id = ids.get(name);
+            return id == null ? -1 : id;
+        }
+
+        int intern(String name) {
+            Integer id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            int next;
+            if (free.isEmpty()) {
+                next = names.size();
+                names.add(name);
+            } else {
+                next = free.pop();
+                names.set(next, name);
+            }
+            ids.put(name, next);
+            return next;
+        }
+
+        void release(int id) {
+            ids.remove(names.get(id));
+            names.set(id, null);
+            free.push(id);
+        }
+
+        String name(int id) {
+            return names.get(id);
+        }
+
+        int capacity() {
+            return names.size();
+        }
+
+        int count() {
+            return ids.size();
+        }
+    }
+}
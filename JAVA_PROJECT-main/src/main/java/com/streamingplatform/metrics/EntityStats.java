@@ -0,0 +1,60 @@
+package com.streamingplatform.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publish/consume counters for one topic or one producer.
+ * Rates are derived when a snapshot is taken, from the counter delta since
+ * the previous snapshot, so recording stays a plain LongAdder increment.
+ */
+public class EntityStats {
+
+    private static final long MIN_RATE_INTERVAL_NS = 1_000_000_000L;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+
+    // Guarded by this; only touched when a snapshot is taken
+    private long lastPublished;
+    private long lastConsumed;
+    private long lastRateNanos = System.nanoTime();
+    private double publishRate;
+    private double consumeRate;
+
+    public void recordPublish(int bytes) {
+        published.increment();
+        bytesIn.add(bytes);
+    }
+
+    public void recordConsume(int messages) {
+        consumed.add(messages);
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    public long getConsumed() {
+        return consumed.sum();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    synchronized MetricsSnapshot.EntitySnapshot snapshot(long nowNanos) {
+        long pub = published.sum();
+        long con = consumed.sum();
+        long elapsed = nowNanos - lastRateNanos;
+        // Keep the previous rate if snapshots come faster than once a second
+        if (elapsed >= MIN_RATE_INTERVAL_NS) {
+            publishRate = (pub - lastPublished) * 1e9 / elapsed;
+            consumeRate = (con - lastConsumed) * 1e9 / elapsed;
+            lastPublished = pub;
+            lastConsumed = con;
+            lastRateNanos = nowNanos;
+        }
+        return new MetricsSnapshot.EntitySnapshot(pub, con, bytesIn.sum(), publishRate, consumeRate);
+    }
+}
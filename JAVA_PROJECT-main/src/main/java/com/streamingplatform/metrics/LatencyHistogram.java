@@ -0,0 +1,148 @@
+package com.streamingplatform.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HDR-style log-linear histogram for latencies (any non-negative long,
+ * normally nanoseconds).
+ * Values below 128 are counted exactly; above that every power of two is
+ * split into 64 sub-buckets, so a reported percentile is within ~1.6% of
+ * the true value. Recording is lock-free and allocation-free, so it can
+ * be called from many threads on the hot path.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS; // 128
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2; // 64
+    // Long.MAX_VALUE has shift 56 and lands on index 56 * 64 + 127
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalSum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record one value. Negative values are clamped to 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value));
+        totalCount.increment();
+        totalSum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0.0 : (double) totalSum.sum() / count;
+    }
+
+    /**
+     * Value at the given percentile (0-100), reported as the upper bound of
+     * the bucket it falls in and capped at the recorded max.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100.0) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestEquivalent(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Add all counts of another histogram into this one.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        totalCount.add(other.totalCount.sum());
+        totalSum.add(other.totalSum.sum());
+        max.accumulate(other.getMax());
+    }
+
+    /**
+     * Point-in-time copy (counts recorded concurrently may or may not be
+     * included).
+     */
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(this);
+        return copy;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalSum.reset();
+        max.reset();
+    }
+
+    /**
+     * One-line summary in the given unit, e.g. "p50=1.2 p99=3.4 ... (ms)".
+     */
+    public String summary(double divisor, String unit) {
+        return String.format("count=%d p50=%.3f p99=%.3f p99.9=%.3f max=%.3f mean=%.3f (%s)",
+                getCount(),
+                getValueAtPercentile(50) / divisor,
+                getValueAtPercentile(99) / divisor,
+                getValueAtPercentile(99.9) / divisor,
+                getMax() / divisor,
+                getMean() / divisor,
+                unit);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> shift); // in [64, 128)
+        return shift * SUB_BUCKET_HALF + subBucket;
+    }
+
+    static long lowestEquivalent(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF - 1;
+        long subBucket = index % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return subBucket << shift;
+    }
+
+    static long highestEquivalent(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF - 1;
+        return lowestEquivalent(index) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,110 @@
+package com.streamingplatform.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide metrics: named counters, gauges, latency histograms and
+ * per-topic / per-producer publish and consume stats.
+ *
+ * Look a metric up once and keep the reference where possible. Lookups of an
+ * existing name are a single ConcurrentHashMap.get, and recording
+ * (LongAdder, LatencyHistogram) does not allocate.
+ */
+public class MetricsRegistry {
+
+    // Well-known metric names
+    public static final String CONNECTIONS_TOTAL = "connections_total";
+    public static final String CONNECTIONS_ACTIVE = "connections_active";
+    public static final String MESSAGES_PUBLISHED = "messages_published_total";
+    public static final String MESSAGES_CONSUMED = "messages_consumed_total";
+    public static final String DUPLICATES_DROPPED = "duplicates_dropped_total";
+    public static final String ARCHIVE_DELETED = "archive_deleted_total";
+    public static final String STORE_WRITE_LATENCY = "store_write_latency_ns";
+    public static final String STORE_READ_LATENCY = "store_read_latency_ns";
+
+    private static final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, EntityStats> topics = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, EntityStats> producers = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * Get (or create) a striped counter.
+     */
+    public static LongAdder counter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter : counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * Get (or create) a latency histogram.
+     */
+    public static LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        return histogram != null ? histogram : histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /**
+     * Register a gauge read at snapshot time (replaces a gauge of the same name).
+     */
+    public static void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public static EntityStats topic(String topic) {
+        EntityStats stats = topics.get(topic);
+        return stats != null ? stats : topics.computeIfAbsent(topic, t -> new EntityStats());
+    }
+
+    public static EntityStats producer(String producerId) {
+        EntityStats stats = producers.get(producerId);
+        return stats != null ? stats : producers.computeIfAbsent(producerId, p -> new EntityStats());
+    }
+
+    /**
+     * Consistent-enough copy of every metric (each value is read once; values
+     * recorded concurrently may land in this snapshot or the next).
+     */
+    public static MetricsSnapshot snapshot() {
+        long now = System.nanoTime();
+
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.sum()));
+
+        Map<String, Long> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, gauge) -> {
+            try {
+                gaugeValues.put(name, gauge.getAsLong());
+            } catch (RuntimeException e) {
+                // A broken gauge must not break the whole snapshot
+                gaugeValues.put(name, -1L);
+            }
+        });
+
+        Map<String, MetricsSnapshot.HistogramSummary> histogramValues = new TreeMap<>();
+        histograms.forEach((name, h) -> histogramValues.put(name, summarize(h)));
+
+        Map<String, MetricsSnapshot.EntitySnapshot> topicValues = new TreeMap<>();
+        topics.forEach((name, stats) -> topicValues.put(name, stats.snapshot(now)));
+
+        Map<String, MetricsSnapshot.EntitySnapshot> producerValues = new TreeMap<>();
+        producers.forEach((name, stats) -> producerValues.put(name, stats.snapshot(now)));
+
+        return new MetricsSnapshot(System.currentTimeMillis(), counterValues, gaugeValues, histogramValues,
+                topicValues, producerValues, Tracing.snapshot());
+    }
+
+    static MetricsSnapshot.HistogramSummary summarize(LatencyHistogram histogram) {
+        LatencyHistogram copy = histogram.copy();
+        return new MetricsSnapshot.HistogramSummary(copy.getCount(), copy.getMean(),
+                copy.getValueAtPercentile(50), copy.getValueAtPercentile(99),
+                copy.getValueAtPercentile(99.9), copy.getMax());
+    }
+}
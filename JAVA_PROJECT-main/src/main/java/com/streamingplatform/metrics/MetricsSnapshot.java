@@ -0,0 +1,107 @@
+package com.streamingplatform.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable point-in-time view of the {@link MetricsRegistry}.
+ * Maps are sorted by name so output is stable between calls.
+ */
+public final class MetricsSnapshot {
+
+    public record HistogramSummary(long count, double mean, long p50, long p99, long p999, long max) {
+    }
+
+    public record EntitySnapshot(long published, long consumed, long bytesIn,
+            double publishRate, double consumeRate) {
+    }
+
+    private final long timestampMillis;
+    private final Map<String, Long> counters;
+    private final Map<String, Long> gauges;
+    private final Map<String, HistogramSummary> histograms;
+    private final Map<String, EntitySnapshot> topics;
+    private final Map<String, EntitySnapshot> producers;
+    private final Map<String, Map<String, HistogramSummary>> stageLatencies;
+
+    MetricsSnapshot(long timestampMillis, Map<String, Long> counters, Map<String, Long> gauges,
+            Map<String, HistogramSummary> histograms, Map<String, EntitySnapshot> topics,
+            Map<String, EntitySnapshot> producers, Map<String, Map<String, HistogramSummary>> stageLatencies) {
+        this.timestampMillis = timestampMillis;
+        this.counters = counters;
+        this.gauges = gauges;
+        this.histograms = histograms;
+        this.topics = topics;
+        this.producers = producers;
+        this.stageLatencies = stageLatencies;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    public Map<String, Long> getGauges() {
+        return gauges;
+    }
+
+    public Map<String, HistogramSummary> getHistograms() {
+        return histograms;
+    }
+
+    public Map<String, EntitySnapshot> getTopics() {
+        return topics;
+    }
+
+    public Map<String, EntitySnapshot> getProducers() {
+        return producers;
+    }
+
+    /**
+     * topic -> stage (parse, store, ack, delivery) -> latency summary in ns.
+     */
+    public Map<String, Map<String, HistogramSummary>> getStageLatencies() {
+        return stageLatencies;
+    }
+
+    /**
+     * One "name value" pair per line, used by the METRICS protocol command.
+     * Histograms are in nanoseconds.
+     */
+    public List<String> toLines() {
+        List<String> lines = new ArrayList<>();
+        counters.forEach((name, value) -> lines.add(name + " " + value));
+        gauges.forEach((name, value) -> lines.add(name + " " + value));
+        histograms.forEach((name, h) -> addHistogramLines(lines, name, h));
+        addEntityLines(lines, "topic", topics);
+        addEntityLines(lines, "producer", producers);
+        stageLatencies.forEach((topic, perStage) -> perStage.forEach(
+                (stage, h) -> addHistogramLines(lines, "stage." + topic + "." + stage + "_ns", h)));
+        return lines;
+    }
+
+    private static void addHistogramLines(List<String> lines, String name, HistogramSummary h) {
+        lines.add(name + ".count " + h.count());
+        lines.add(name + ".mean " + String.format(Locale.ROOT, "%.0f", h.mean()));
+        lines.add(name + ".p50 " + h.p50());
+        lines.add(name + ".p99 " + h.p99());
+        lines.add(name + ".p999 " + h.p999());
+        lines.add(name + ".max " + h.max());
+    }
+
+    private static void addEntityLines(List<String> lines, String kind, Map<String, EntitySnapshot> entities) {
+        entities.forEach((name, e) -> {
+            String prefix = kind + "." + name;
+            lines.add(prefix + ".published " + e.published());
+            lines.add(prefix + ".consumed " + e.consumed());
+            lines.add(prefix + ".bytes_in " + e.bytesIn());
+            lines.add(prefix + ".publish_rate " + String.format(Locale.ROOT, "%.2f", e.publishRate()));
+            lines.add(prefix + ".consume_rate " + String.format(Locale.ROOT, "%.2f", e.consumeRate()));
+        });
+    }
+}
@@ -0,0 +1,133 @@
+package com.streamingplatform.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-topic stage latencies for the message path, plus a ring buffer of
+ * sampled trace records.
+ *
+ * Stages are recorded as durations of their own step, so a slow stage is
+ * visible on its own: PARSE (request line read -> command split), STORE
+ * (H2 insert + commit), ACK (commit -> ACK written back to the producer).
+ * DELIVERY is end to end: request line read -> message first written as MSG
+ * to a subscribed consumer (CONSUME with a consumer id), which can be much
+ * later.
+ *
+ * Timestamps come from {@link #now()}: monotonic within the process but
+ * anchored to wall-clock time, so an ingest time stored with a message is
+ * still roughly meaningful after a restart.
+ */
+public class Tracing {
+
+    public enum Stage {
+        PARSE, STORE, ACK, DELIVERY
+    }
+
+    public record TraceRecord(String kind, String topic, String producerId, long ingestEpochMillis,
+            long parseNanos, long storeNanos, long ackNanos, long deliveryNanos) {
+    }
+
+    // Highest latency tracked per stage (1 hour); longer values are clamped
+    private static final long MAX_TRACKED_NANOS = 3_600_000_000_000L;
+    // Keep memory bounded when clients invent many topics
+    private static final int MAX_TRACED_TOPICS = 256;
+    private static final String OTHER_TOPICS = "_other";
+
+    private static final long EPOCH_BASE_NANOS = System.currentTimeMillis() * 1_000_000L;
+    private static final long NANO_BASE = System.nanoTime();
+
+    // 1 in SAMPLE_RATE messages gets a full trace record (-Dstreaming.trace.sample=N, 0 = off)
+    private static final int SAMPLE_RATE = Integer.getInteger("streaming.trace.sample", 100);
+    private static final int BUFFER_SIZE = 1024;
+
+    private static final ConcurrentHashMap<String, LatencyHistogram[]> stages = new ConcurrentHashMap<>();
+    private static final TraceRecord[] buffer = new TraceRecord[BUFFER_SIZE];
+    private static long bufferNext; // guarded by buffer
+
+    private Tracing() {
+    }
+
+    /**
+     * Monotonic timestamp in nanoseconds since the Unix epoch.
+     */
+    public static long now() {
+        return EPOCH_BASE_NANOS + (System.nanoTime() - NANO_BASE);
+    }
+
+    /**
+     * Record one stage latency for a topic (allocation-free once the topic is known).
+     */
+    public static void record(String topic, Stage stage, long nanos) {
+        histograms(topic)[stage.ordinal()].record(Math.min(nanos, MAX_TRACKED_NANOS));
+    }
+
+    /**
+     * Whether the current message should also produce a trace record.
+     */
+    public static boolean sample() {
+        return SAMPLE_RATE > 0 && ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0;
+    }
+
+    public static void addTrace(TraceRecord record) {
+        synchronized (buffer) {
+            buffer[(int) (bufferNext++ % BUFFER_SIZE)] = record;
+        }
+    }
+
+    /**
+     * Most recent sampled traces, newest first.
+     *
+     * @param topic only this topic, or null for all
+     */
+    public static List<TraceRecord> recentTraces(String topic, int limit) {
+        List<TraceRecord> result = new ArrayList<>();
+        synchronized (buffer) {
+            long oldest = Math.max(0, bufferNext - BUFFER_SIZE);
+            for (long i = bufferNext - 1; i >= oldest && result.size() < limit; i--) {
+                TraceRecord record = buffer[(int) (i % BUFFER_SIZE)];
+                if (topic == null || record.topic().equals(topic)) {
+                    result.add(record);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * topic -> stage name -> summary, sorted by topic.
+     */
+    static Map<String, Map<String, MetricsSnapshot.HistogramSummary>> snapshot() {
+        Map<String, Map<String, MetricsSnapshot.HistogramSummary>> result = new TreeMap<>();
+        stages.forEach((topic, histograms) -> {
+            Map<String, MetricsSnapshot.HistogramSummary> perStage = new TreeMap<>();
+            for (Stage stage : Stage.values()) {
+                LatencyHistogram h = histograms[stage.ordinal()];
+                if (h.getCount() > 0) {
+                    perStage.put(stage.name().toLowerCase(), MetricsRegistry.summarize(h));
+                }
+            }
+            result.put(topic, perStage);
+        });
+        return result;
+    }
+
+    private static LatencyHistogram[] histograms(String topic) {
+        LatencyHistogram[] histograms = stages.get(topic);
+        if (histograms != null) {
+            return histograms;
+        }
+        String key = stages.size() < MAX_TRACED_TOPICS ? topic : OTHER_TOPICS;
+        return stages.computeIfAbsent(key, t -> {
+            LatencyHistogram[] created = new LatencyHistogram[Stage.values().length];
+            for (int i = 0; i < created.length; i++) {
+                created[i] = new LatencyHistogram();
+            }
+            return created;
+        });
+    }
+}
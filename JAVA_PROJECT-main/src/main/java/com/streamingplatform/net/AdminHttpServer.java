@@ -0,0 +1,488 @@
+package com.streamingplatform.net;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.net.URLDecoder;
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.streamingplatform.analysis.DataExporter;
+import com.streamingplatform.analysis.StreamAnalytics;
+import com.streamingplatform.analysis.StreamAnalytics.WindowStats;
+import com.streamingplatform.analysis.StreamSketches;
+import com.streamingplatform.graph.StreamGraph;
+import com.streamingplatform.sketch.KllSketch;
+import com.streamingplatform.sketch.TopK;
+import com.streamingplatform.metrics.MetricsRegistry;
+import com.streamingplatform.metrics.MetricsSnapshot;
+import com.streamingplatform.metrics.MetricsSnapshot.EntitySnapshot;
+import com.streamingplatform.metrics.MetricsSnapshot.HistogramSummary;
+import com.streamingplatform.metrics.Tracing;
+import com.streamingplatform.metrics.Tracing.TraceRecord;
+import com.streamingplatform.persistence.CircuitBreaker;
+import com.streamingplatform.persistence.DatabaseManager;
+import com.streamingplatform.persistence.MySQLManager;
+import com.streamingplatform.persistence.Neo4jManager;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Optional HTTP admin endpoint (JDK built-in server, no extra dependency).
+ *
+ * GET /metrics  Prometheus text format
+ * GET /health   H2 / MySQL / Neo4j connectivity and circuit state (cached for a few seconds)
+ * GET /topics   live per-topic stats as JSON
+ * GET /traces   recent sampled message traces as JSON (?topic=..&limit=..)
+ * GET /windows  windowed topic / producer stats as JSON
+ *               (?topic=.. or ?producer=.., &width=ms sliding, or &size=ms&count=n tumbling)
+ * GET /sketches approximate distinct producers, top topics / producers and size quantiles as JSON
+ * GET /graph    graph counts with top producers / topics, or one node with its neighbors
+ *               (?producer=.., ?topic=.. (plus related topics) or ?consumer=..; &limit=n) as JSON
+ *
+ * Everything is served from in-memory metrics; a scrape never queries the
+ * message store.
+ */
+public class AdminHttpServer {
+
+    private static final String PREFIX = "streaming_";
+    private static final long HEALTH_CACHE_MS = 5000;
+
+    private final int port;
+    private final StreamAnalytics analytics;
+    private final StreamGraph graph;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    // Last health check, reused while fresh
+    private volatile String cachedHealth;
+    private volatile boolean cachedHealthy;
+    private volatile long cachedHealthAt;
+
+    public AdminHttpServer(int port, StreamAnalytics analytics, StreamGraph graph) {
+        this.port = port;
+        this.analytics = analytics;
+        this.graph = graph;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        executor = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "admin-http");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", exchange -> respond(exchange, 200,
+                "text/plain; version=0.0.4; charset=utf-8", prometheus(MetricsRegistry.snapshot())));
+        server.createContext("/health", this::handleHealth);
+        server.createContext("/topics", exchange -> respond(exchange, 200,
+                "application/json", topicsJson(MetricsRegistry.snapshot())));
+        server.createContext("/traces", this::handleTraces);
+        server.createContext("/windows", this::handleWindows);
+        server.createContext("/sketches", exchange -> respond(exchange, 200, "application/json",
+                sketchesJson(analytics.sketches().snapshot())));
+        server.createContext("/graph", this::handleGraph);
+        server.start();
+        System.out.println("[Admin] HTTP admin endpoint listening on port " + port);
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            System.out.println("[Admin] HTTP admin endpoint stopped.");
+        }
+    }
+
+    // =========================================================================
+    // HANDLERS
+    // =========================================================================
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        long now = System.currentTimeMillis();
+        if (cachedHealth == null || now - cachedHealthAt > HEALTH_CACHE_MS) {
+            synchronized (this) {
+                if (cachedHealth == null || now - cachedHealthAt > HEALTH_CACHE_MS) {
+                    checkHealth();
+                    cachedHealthAt = System.currentTimeMillis();
+                }
+            }
+        }
+        respond(exchange, cachedHealthy ? 200 : 503, "application/json", cachedHealth);
+    }
+
+    private void handleTraces(HttpExchange exchange) throws IOException {
+        Map<String, String> params = query(exchange.getRequestURI().getRawQuery());
+        int limit;
+        try {
+            limit = Integer.parseInt(params.getOrDefault("limit", "100"));
+        } catch (NumberFormatException e) {
+            respond(exchange, 400, "application/json", "{\"error\": \"limit must be a number\"}");
+            return;
+        }
+        respond(exchange, 200, "application/json", tracesJson(Tracing.recentTraces(params.get("topic"), limit)));
+    }
+
+    private void handleWindows(HttpExchange exchange) throws IOException {
+        Map<String, String> params = query(exchange.getRequestURI().getRawQuery());
+        StreamAnalytics.Scope scope = params.containsKey("producer") ? StreamAnalytics.Scope.PRODUCER
+                : StreamAnalytics.Scope.TOPIC;
+        String key = scope == StreamAnalytics.Scope.PRODUCER ? params.get("producer") : params.get("topic");
+        List<String> keys = key != null ? List.of(key) : List.copyOf(analytics.keys(scope));
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"windows\": [");
+        try {
+            boolean first = true;
+            for (String k : keys) {
+                List<WindowStats> windows = params.containsKey("size")
+                        ? analytics.tumbling(scope, k, Long.parseLong(params.get("size")),
+                                Integer.parseInt(params.getOrDefault("count", "10")))
+                        : List.of(analytics.sliding(scope, k, Long.parseLong(params.getOrDefault("width", "60000"))));
+                for (WindowStats w : windows) {
+                    sb.append(first ? "" : ", ");
+                    first = false;
+                    appendWindow(sb, scope, k, w);
+                }
+            }
+        } catch (IllegalArgumentException e) { // Includes NumberFormatException
+            respond(exchange, 400, "application/json",
+                    "{\"error\": \"" + DataExporter.escapeJSON(String.valueOf(e.getMessage())) + "\"}");
+            return;
+        }
+        sb.append("]}");
+        respond(exchange, 200, "application/json", sb.toString());
+    }
+
+    private void handleGraph(HttpExchange exchange) throws IOException {
+        Map<String, String> params = query(exchange.getRequestURI().getRawQuery());
+        int limit;
+        try {
+            limit = Integer.parseInt(params.getOrDefault("limit", "20"));
+        } catch (NumberFormatException e) {
+            limit = -1;
+        }
+        if (limit < 0) {
+            respond(exchange, 400, "application/json", "{\"error\": \"limit must be a number >= 0\"}");
+            return;
+        }
+        for (StreamGraph.Kind kind : StreamGraph.Kind.values()) {
+            String name = params.get(kind.name().toLowerCase());
+            if (name != null) {
+                StreamGraph.Node node = graph.node(kind, name);
+                if (node == null) {
+                    respond(exchange, 404, "application/json", "{\"error\": \"Unknown " + kind.name().toLowerCase()
+                            + ": " + DataExporter.escapeJSON(name) + "\"}");
+                } else {
+                    respond(exchange, 200, "application/json", graphNodeJson(graph, node, limit));
+                }
+                return;
+            }
+        }
+        respond(exchange, 200, "application/json", graphJson(graph, limit));
+    }
+
+    private void checkHealth() {
+        String h2 = check(() -> {
+            Connection conn = DatabaseManager.getConnection();
+            return conn.isValid(1);
+        });
+        // Through the stores' breakers: an open circuit reports DOWN without a connection attempt
+        CircuitBreaker mysqlCircuit = MySQLManager.circuitBreaker();
+        CircuitBreaker neo4jCircuit = Neo4jManager.circuitBreaker();
+        String mysql = check(() -> mysqlCircuit.execute(() -> MySQLManager.getConnection().isValid(1)));
+        String neo4j = check(() -> neo4jCircuit.execute(() -> {
+            Neo4jManager.getDriver().verifyConnectivity();
+            return true;
+        }));
+
+        // The broker can serve without MySQL/Neo4j; only H2 is required
+        cachedHealthy = h2.equals("UP");
+        String status = !cachedHealthy ? "DOWN"
+                : (mysql.equals("UP") && neo4j.equals("UP")) ? "UP" : "DEGRADED";
+        cachedHealth = "{\"status\": \"" + status + "\", \"h2\": \"" + h2 + "\", \"mysql\": \"" + mysql
+                + "\", \"neo4j\": \"" + neo4j + "\", \"circuits\": {\"mysql\": \"" + mysqlCircuit.getState()
+                + "\", \"neo4j\": \"" + neo4jCircuit.getState() + "\"}}";
+    }
+
+    private interface Check {
+        boolean run() throws Exception;
+    }
+
+    private static String check(Check check) {
+        try {
+            return check.run() ? "UP" : "DOWN";
+        } catch (Exception e) {
+            return "DOWN";
+        }
+    }
+
+    // =========================================================================
+    // FORMATTING
+    // =========================================================================
+
+    static String prometheus(MetricsSnapshot snapshot) {
+        StringBuilder sb = new StringBuilder(4096);
+
+        snapshot.getCounters().forEach((name, value) -> {
+            String metric = PREFIX + sanitize(name);
+            sb.append("# TYPE ").append(metric).append(" counter\n");
+            sb.append(metric).append(' ').append(value).append('\n');
+        });
+        snapshot.getGauges().forEach((name, value) -> {
+            String metric = PREFIX + sanitize(name);
+            sb.append("# TYPE ").append(metric).append(" gauge\n");
+            sb.append(metric).append(' ').append(value).append('\n');
+        });
+
+        // Histograms are recorded in ns; Prometheus convention is seconds
+        snapshot.getHistograms().forEach((name, h) -> {
+            String metric = PREFIX + sanitize(name.endsWith("_ns")
+                    ? name.substring(0, name.length() - 3) + "_seconds" : name);
+            appendSummary(sb, metric, "", h);
+        });
+
+        appendEntities(sb, "topic", snapshot.getTopics());
+        appendEntities(sb, "producer", snapshot.getProducers());
+
+        // One summary family, labelled by topic and stage
+        Map<String, Map<String, HistogramSummary>> stages = snapshot.getStageLatencies();
+        if (!stages.isEmpty()) {
+            String metric = PREFIX + "stage_latency_seconds";
+            sb.append("# TYPE ").append(metric).append(" summary\n");
+            stages.forEach((topic, perStage) -> perStage.forEach((stage, h) -> appendSummaryValues(sb, metric,
+                    labelPair("topic", topic) + "," + labelPair("stage", stage), h)));
+        }
+        return sb.toString();
+    }
+
+    static void appendSummary(StringBuilder sb, String metric, String labels, HistogramSummary h) {
+        sb.append("# TYPE ").append(metric).append(" summary\n");
+        appendSummaryValues(sb, metric, labels, h);
+    }
+
+    private static void appendSummaryValues(StringBuilder sb, String metric, String labels, HistogramSummary h) {
+        String sep = labels.isEmpty() ? "" : ",";
+        sb.append(metric).append("{").append(labels).append(sep).append("quantile=\"0.5\"} ").append(seconds(h.p50())).append('\n');
+        sb.append(metric).append("{").append(labels).append(sep).append("quantile=\"0.99\"} ").append(seconds(h.p99())).append('\n');
+        sb.append(metric).append("{").append(labels).append(sep).append("quantile=\"0.999\"} ").append(seconds(h.p999())).append('\n');
+        sb.append(metric).append("_sum").append(labels.isEmpty() ? "" : "{" + labels + "}").append(' ')
+                .append(seconds((long) (h.mean() * h.count()))).append('\n');
+        sb.append(metric).append("_count").append(labels.isEmpty() ? "" : "{" + labels + "}").append(' ')
+                .append(h.count()).append('\n');
+    }
+
+    private static void appendEntities(StringBuilder sb, String kind, Map<String, EntitySnapshot> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        String published = PREFIX + kind + "_published_total";
+        String consumed = PREFIX + kind + "_consumed_total";
+        String bytes = PREFIX + kind + "_bytes_in_total";
+
+        sb.append("# TYPE ").append(published).append(" counter\n");
+        entities.forEach((name, e) -> sb.append(published).append(label(kind, name)).append(' ')
+                .append(e.published()).append('\n'));
+        sb.append("# TYPE ").append(consumed).append(" counter\n");
+        entities.forEach((name, e) -> sb.append(consumed).append(label(kind, name)).append(' ')
+                .append(e.consumed()).append('\n'));
+        sb.append("# TYPE ").append(bytes).append(" counter\n");
+        entities.forEach((name, e) -> sb.append(bytes).append(label(kind, name)).append(' ')
+                .append(e.bytesIn()).append('\n'));
+    }
+
+    static String topicsJson(MetricsSnapshot snapshot) {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("{\"topics\": [");
+        boolean first = true;
+        for (Map.Entry<String, EntitySnapshot> entry : snapshot.getTopics().entrySet()) {
+            EntitySnapshot e = entry.getValue();
+            if (!first) {
+                sb.append(", ");
+            }
+            first = false;
+            sb.append(String.format(Locale.ROOT,
+                    "{\"topic\": \"%s\", \"published\": %d, \"consumed\": %d, \"bytesIn\": %d, "
+                            + "\"publishRate\": %.2f, \"consumeRate\": %.2f}",
+                    DataExporter.escapeJSON(entry.getKey()), e.published(), e.consumed(), e.bytesIn(),
+                    e.publishRate(), e.consumeRate()));
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    static String tracesJson(List<TraceRecord> traces) {
+        StringBuilder sb = new StringBuilder(256 + traces.size() * 160);
+        sb.append("{\"traces\": [");
+        for (int i = 0; i < traces.size(); i++) {
+            TraceRecord t = traces.get(i);
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(String.format(Locale.ROOT,
+                    "{\"kind\": \"%s\", \"topic\": \"%s\", \"producerId\": %s, \"ingestEpochMillis\": %d, "
+                            + "\"parseNs\": %d, \"storeNs\": %d, \"ackNs\": %d, \"deliveryNs\": %d}",
+                    t.kind(), DataExporter.escapeJSON(t.topic()),
+                    t.producerId() == null ? "null" : "\"" + DataExporter.escapeJSON(t.producerId()) + "\"",
+                    t.ingestEpochMillis(), t.parseNanos(), t.storeNanos(), t.ackNanos(), t.deliveryNanos()));
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    private static void appendWindow(StringBuilder sb, StreamAnalytics.Scope scope, String key, WindowStats w) {
+        sb.append(String.format(Locale.ROOT,
+                "{\"%s\": \"%s\", \"startMs\": %d, \"endMs\": %d, \"count\": %d, \"errors\": %d, "
+                        + "\"errorRate\": %.4f, \"avgLength\": %.2f, \"minLength\": %d, \"maxLength\": %d}",
+                scope == StreamAnalytics.Scope.PRODUCER ? "producer" : "topic", DataExporter.escapeJSON(key),
+                w.startMs(), w.endMs(), w.count(), w.errors(), w.errorRate(), w.avgLength(), w.minLength(),
+                w.maxLength()));
+    }
+
+    static String sketchesJson(StreamSketches.Snapshot s) {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("{\"messages\": ").append(s.sizes().getCount())
+                .append(", \"distinctProducers\": ").append(s.producers().estimate())
+                .append(", \"sizeQuantiles\": ");
+        appendQuantiles(sb, s.sizes());
+        sb.append(", \"topTopics\": ");
+        appendTop(sb, s.topTopics().top(20));
+        sb.append(", \"topProducers\": ");
+        appendTop(sb, s.topProducers().top(20));
+        sb.append(", \"topics\": [");
+        boolean first = true;
+        for (Map.Entry<String, StreamSketches.TopicSketches> entry : s.topics().entrySet()) {
+            sb.append(first ? "" : ", ");
+            first = false;
+            sb.append("{\"topic\": \"").append(DataExporter.escapeJSON(entry.getKey()))
+                    .append("\", \"distinctProducers\": ").append(entry.getValue().producers().estimate())
+                    .append(", \"sizeQuantiles\": ");
+            appendQuantiles(sb, entry.getValue().sizes());
+            sb.append('}');
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    static String graphJson(StreamGraph graph, int limit) {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("{\"producers\": ").append(graph.count(StreamGraph.Kind.PRODUCER))
+                .append(", \"topics\": ").append(graph.count(StreamGraph.Kind.TOPIC))
+                .append(", \"consumers\": ").append(graph.count(StreamGraph.Kind.CONSUMER))
+                .append(", \"publishesTo\": ").append(graph.publishEdgeCount())
+                .append(", \"subscribesTo\": ").append(graph.subscriptionCount())
+                .append(", \"topProducers\": ");
+        appendNodes(sb, graph.top(StreamGraph.Kind.PRODUCER, limit));
+        sb.append(", \"topTopics\": ");
+        appendNodes(sb, graph.top(StreamGraph.Kind.TOPIC, limit));
+        sb.append('}');
+        return sb.toString();
+    }
+
+    static String graphNodeJson(StreamGraph graph, StreamGraph.Node node, int limit) {
+        StringBuilder sb = new StringBuilder(512);
+        appendNode(sb, node);
+        sb.setLength(sb.length() - 1);
+        sb.append(", \"neighbors\": ");
+        List<StreamGraph.Neighbor> neighbors = graph.neighbors(node.kind(), node.name());
+        appendNeighbors(sb, neighbors.size() > limit ? neighbors.subList(0, limit) : neighbors);
+        if (node.kind() == StreamGraph.Kind.TOPIC) {
+            sb.append(", \"relatedTopics\": ");
+            appendNeighbors(sb, graph.relatedTopics(node.name(), limit));
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private static void appendNodes(StringBuilder sb, List<StreamGraph.Node> nodes) {
+        sb.append('[');
+        for (int i = 0; i < nodes.size(); i++) {
+            sb.append(i > 0 ? ", " : "");
+            appendNode(sb, nodes.get(i));
+        }
+        sb.append(']');
+    }
+
+    private static void appendNode(StringBuilder sb, StreamGraph.Node node) {
+        sb.append("{\"kind\": \"").append(node.kind().name().toLowerCase()).append("\", \"name\": \"")
+                .append(DataExporter.escapeJSON(node.name())).append("\", \"publishesTo\": ").append(node.publishes())
+                .append(", \"subscribesTo\": ").append(node.subscriptions())
+                .append(", \"messages\": ").append(node.messages()).append('}');
+    }
+
+    private static void appendNeighbors(StringBuilder sb, List<StreamGraph.Neighbor> neighbors) {
+        sb.append('[');
+        for (int i = 0; i < neighbors.size(); i++) {
+            StreamGraph.Neighbor n = neighbors.get(i);
+            sb.append(i > 0 ? ", " : "").append("{\"kind\": \"").append(n.kind().name().toLowerCase())
+                    .append("\", \"name\": \"").append(DataExporter.escapeJSON(n.name()))
+                    .append("\", \"messages\": ").append(n.messages()).append('}');
+        }
+        sb.append(']');
+    }
+
+    private static void appendQuantiles(StringBuilder sb, KllSketch sizes) {
+        if (sizes.getCount() == 0) {
+            sb.append("null");
+            return;
+        }
+        sb.append(String.format(Locale.ROOT, "{\"p50\": %.0f, \"p90\": %.0f, \"p99\": %.0f, \"max\": %.0f}",
+                sizes.quantile(0.5), sizes.quantile(0.9), sizes.quantile(0.99), sizes.getMax()));
+    }
+
+    private static void appendTop(StringBuilder sb, List<TopK.Entry> entries) {
+        sb.append('[');
+        for (int i = 0; i < entries.size(); i++) {
+            sb.append(i > 0 ? ", " : "").append("{\"key\": \"").append(DataExporter.escapeJSON(entries.get(i).key()))
+                    .append("\", \"count\": ").append(entries.get(i).count()).append('}');
+        }
+        sb.append(']');
+    }
+
+    static String label(String name, String value) {
+        return "{" + labelPair(name, value) + "}";
+    }
+
+    private static String labelPair(String name, String value) {
+        return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^a-zA-Z0-9_:]", "_");
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
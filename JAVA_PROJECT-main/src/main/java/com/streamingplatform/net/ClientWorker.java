@@ -1,14 +1,88 @@
 package com.streamingplatform.net;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
+import com.streamingplatform.metrics.MetricsRegistry;
+import com.streamingplatform.metrics.Tracing;
+import com.streamingplatform.metrics.Tracing.Stage;
+import com.streamingplatform.metrics.Tracing.TraceRecord;
+import com.streamingplatform.persistence.MessageFilter;
+import com.streamingplatform.persistence.MessageRecord;
+import com.streamingplatform.search.SearchQuery;
 import com.streamingplatform.service.BrokerService;
 
 public class ClientWorker implements Runnable {
+    // Goes up and down, so it is exposed as a gauge rather than a counter
+    private static final LongAdder ACTIVE_CONNECTIONS = new LongAdder();
+    static {
+        MetricsRegistry.gauge(MetricsRegistry.CONNECTIONS_ACTIVE, ACTIVE_CONNECTIONS::sum);
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Protocol commands, matched against the raw command bytes so dispatch
+     * never builds (or upper-cases) a String.
+     */
+    enum Command {
+        PUBLISH(4), CONSUME(4), FETCH(3), SUBSCRIBE(4), UNSUBSCRIBE(4), INIT_PRODUCER(4), IPUBLISH(6), METRICS(4),
+        TRACES(4), SEARCH(3);
+
+        private static final Command[] ALL = values();
+
+        final byte[] name = name().getBytes(StandardCharsets.US_ASCII);
+        // Most fields the command splits into; the last one keeps the rest of the line
+        final int maxTokens;
+
+        Command(int maxTokens) {
+            this.maxTokens = maxTokens;
+        }
+
+        static Command match(RequestReader in) {
+            for (Command command : ALL) {
+                if (in.tokenEqualsIgnoreCase(0, command.name)) {
+                    return command;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Pre-encoded responses
+    private static final byte[] ACK = line("ACK");
+    private static final byte[] ACK_DUPLICATE = line("ACK DUPLICATE");
+    private static final byte[] ACK_NOT_SUBSCRIBED = line("ACK NOT_SUBSCRIBED");
+    private static final byte[] EMPTY = line("EMPTY");
+    private static final byte[] END_OF_BATCH = line("END_OF_BATCH");
+    private static final byte[] MSG = "MSG ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] METRIC = "METRIC ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PRODUCER_EPOCH = "PRODUCER_EPOCH ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ERROR = "ERROR: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ERROR_FILTER = "ERROR: Bad filter: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ERROR_SEARCH = "ERROR: Bad search: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ERROR_NOT_INDEXED = "ERROR: Topic not indexed: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ERROR_FENCED = "ERROR: Fenced producer epoch ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ERROR_UNKNOWN_COMMAND = line("ERROR: Unknown command");
+    private static final byte[] ERROR_PERSIST = line("ERROR: Failed to persist message");
+    private static final byte[] ERROR_UNKNOWN_PRODUCER = line("ERROR: Unknown producer, send INIT_PRODUCER first");
+    private static final byte[] ERROR_NUMBERS = line("ERROR: EPOCH and SEQUENCE must be numbers");
+    private static final byte[] USAGE_PUBLISH = line("ERROR: Usage: PUBLISH <TOPIC> <PRODUCER_ID> <CONTENT>");
+    private static final byte[] USAGE_CONSUME = line("ERROR: Usage: CONSUME <TOPIC> [CONSUMER_ID]");
+    private static final byte[] USAGE_FETCH = line("ERROR: Usage: FETCH <TOPIC> <FILTER>");
+    private static final byte[] USAGE_SUBSCRIBE = line("ERROR: Usage: SUBSCRIBE <TOPIC> <CONSUMER_ID> [FILTER]");
+    private static final byte[] USAGE_UNSUBSCRIBE = line("ERROR: Usage: UNSUBSCRIBE <TOPIC> <CONSUMER_ID>");
+    private static final byte[] USAGE_INIT_PRODUCER = line("ERROR: Usage: INIT_PRODUCER <PRODUCER_ID>");
+    private static final byte[] USAGE_IPUBLISH =
+            line("ERROR: Usage: IPUBLISH <TOPIC> <PRODUCER_ID> <EPOCH> <SEQUENCE> <CONTENT>");
+    private static final byte[] USAGE_TRACES = line("ERROR: Usage: TRACES [TOPIC] [LIMIT]");
+    private static final byte[] USAGE_SEARCH = line("ERROR: Usage: SEARCH <TOPIC> <TERMS> [limit=N]");
+
     private final Socket socket;
     private final BrokerService service;
 
@@ -19,53 +93,261 @@ public class ClientWorker implements Runnable {
 
     @Override
     public void run() {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-             PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
-
-            String line;
-            while ((line = in.readLine()) != null) {
-                String trimmedLine = line.trim();
-                if (trimmedLine.isEmpty()) continue;
-
-                // We went for better splitting to handle multiple spaces
-                String[] parts = trimmedLine.split("\\s+", 4);
-                if (parts.length == 0) continue;
-
-                String command = parts[0].toUpperCase();
-
-                if (command.equals("PUBLISH")) {
-                    // --- PUBLISH LOGIC (Matches your InteractiveClient) ---
-                    if (parts.length == 4) {
-                        service.publish(parts[1], parts[2], parts[3]);
-                        out.println("ACK");
-                    } else {
-                        out.println("ERROR: Usage: PUBLISH <TOPIC> <PRODUCER_ID> <CONTENT>");
-                    }
+        ACTIVE_CONNECTIONS.increment();
+        try (InputStream is = socket.getInputStream();
+             OutputStream os = socket.getOutputStream()) {
 
-                } else if (command.equals("CONSUME")) {
-                    // --- FIX: PULL LOGIC ---
-                    if (parts.length >= 2) {
-                        String topic = parts[1];
-                        var messages = service.consume(topic); 
-                        
-                        if (messages.isEmpty()) {
-                            out.println("EMPTY");
-                        } else {
-                            for (String msg : messages) {
-                                out.println("MSG " + msg);
-                            }
-                            out.println("END_OF_BATCH");
-                        }
-                    } else {
-                        out.println("ERROR: Usage: CONSUME <TOPIC>");
-                    }
+            RequestReader in = new RequestReader(is, BUFFER_SIZE);
+            ResponseBuffer out = new ResponseBuffer(os, BUFFER_SIZE);
 
-                } else {
-                    out.println("ERROR: Unknown command");
+            while (in.nextLine()) {
+                // Ingest time: everything downstream is measured from here
+                long ingest = Tracing.now();
+                // Split for the widest command first, then re-split for the one matched
+                if (in.tokenize(Command.IPUBLISH.maxTokens) > 0) {
+                    handle(in, out, ingest);
+                }
+                // Pipelined requests get their responses in one write
+                if (!in.hasBufferedInput()) {
+                    out.flush();
                 }
             }
+            out.flush();
         } catch (IOException e) {
             System.out.println("[Server] Client disconnected: " + socket.getInetAddress());
+        } finally {
+            ACTIVE_CONNECTIONS.decrement();
+        }
+    }
+
+    private void handle(RequestReader in, ResponseBuffer out, long ingest) throws IOException {
+        Command command = Command.match(in);
+        if (command == null) {
+            out.write(ERROR_UNKNOWN_COMMAND);
+            return;
+        }
+        int count = in.tokenize(command.maxTokens);
+        long parsed = Tracing.now();
+
+        switch (command) {
+            case PUBLISH -> {
+                // --- PUBLISH LOGIC (Matches your InteractiveClient) ---
+                if (count == 4) {
+                    handlePublish(in, ingest, parsed, out);
+                } else {
+                    out.write(USAGE_PUBLISH);
+                }
+            }
+            case CONSUME -> {
+                // --- FIX: PULL LOGIC ---
+                if (count == 2 || count == 3) {
+                    // With a consumer id the poll keeps its subscription alive and applies its filter
+                    String topic = in.internedToken(1);
+                    String consumerId = count == 3 ? in.internedToken(2) : null;
+                    List<MessageRecord> messages = consumerId != null ? service.consume(topic, consumerId)
+                            : service.consume(topic);
+                    writeMessages(messages, out);
+                    if (consumerId != null) {
+                        recordDeliveries(topic, consumerId, messages);
+                    }
+                } else {
+                    out.write(USAGE_CONSUME);
+                }
+            }
+            case FETCH -> {
+                // One-off filtered pull: only matching messages are read out and sent
+                if (count == 3) {
+                    MessageFilter filter = parseFilter(in.token(2), out);
+                    if (filter != null) {
+                        String topic = in.internedToken(1);
+                        writeMessages(service.consume(topic, filter), out);
+                    }
+                } else {
+                    out.write(USAGE_FETCH);
+                }
+            }
+            case SUBSCRIBE -> {
+                if (count == 3 || count == 4) {
+                    // The filter is compiled here, once; the consumer's CONSUMEs apply it
+                    MessageFilter filter = count == 4 ? parseFilter(in.token(3), out) : MessageFilter.ALL;
+                    if (filter != null) {
+                        service.subscribe(in.internedToken(1), in.internedToken(2), filter);
+                        out.write(ACK);
+                    }
+                } else {
+                    out.write(USAGE_SUBSCRIBE);
+                }
+            }
+            case UNSUBSCRIBE -> {
+                if (count == 3) {
+                    out.write(service.unsubscribe(in.internedToken(1), in.internedToken(2)) ? ACK : ACK_NOT_SUBSCRIBED);
+                } else {
+                    out.write(USAGE_UNSUBSCRIBE);
+                }
+            }
+            case INIT_PRODUCER -> {
+                // --- IDEMPOTENT PRODUCER REGISTRATION ---
+                if (count == 2) {
+                    out.write(PRODUCER_EPOCH).write(service.initProducer(in.internedToken(1))).newLine();
+                } else {
+                    out.write(USAGE_INIT_PRODUCER);
+                }
+            }
+            case IPUBLISH -> handleIdempotentPublish(in, count, ingest, out);
+            case METRICS -> {
+                // --- METRICS SNAPSHOT: one "METRIC <name> <value>" line each ---
+                for (String metric : MetricsRegistry.snapshot().toLines()) {
+                    out.write(METRIC).write(metric).newLine();
+                }
+                out.write(END_OF_BATCH);
+            }
+            case TRACES -> handleTraces(in, count, out);
+            case SEARCH -> handleSearch(in, count, out);
+        }
+    }
+
+    private void handlePublish(RequestReader in, long ingest, long parsed, ResponseBuffer out) throws IOException {
+        String topic = in.internedToken(1);
+        String producerId = in.internedToken(2);
+        Tracing.record(topic, Stage.PARSE, parsed - ingest);
+
+        // The payload goes to the store as the bytes the client sent
+        long committed = service.publish(new MessageRecord(topic, producerId, in.tokenBytes(3), ingest));
+        if (committed < 0) {
+            out.write(ERROR_PERSIST);
+            return;
+        }
+        out.write(ACK);
+        long acked = Tracing.now();
+        Tracing.record(topic, Stage.ACK, acked - committed);
+
+        if (Tracing.sample()) {
+            Tracing.addTrace(new TraceRecord("publish", topic, producerId, ingest / 1_000_000,
+                    parsed - ingest, committed - parsed, acked - committed, -1));
+        }
+    }
+
+    // Writes ERROR_FILTER and returns null for a bad spec
+    private static MessageFilter parseFilter(String spec, ResponseBuffer out) throws IOException {
+        try {
+            return MessageFilter.parse(spec);
+        } catch (IllegalArgumentException e) {
+            out.write(ERROR_FILTER).write(e.getMessage()).newLine();
+            return null;
+        }
+    }
+
+    private static void writeMessages(List<MessageRecord> messages, ResponseBuffer out) throws IOException {
+        if (messages.isEmpty()) {
+            out.write(EMPTY);
+            return;
+        }
+        for (MessageRecord msg : messages) {
+            out.write(MSG).write(msg.payload(), msg.offset(), msg.length()).newLine();
         }
+        out.write(END_OF_BATCH);
+    }
+
+    private void handleSearch(RequestReader in, int count, ResponseBuffer out) throws IOException {
+        if (count != 3) {
+            out.write(USAGE_SEARCH);
+            return;
+        }
+        SearchQuery query;
+        try {
+            query = SearchQuery.parse(in.token(2));
+        } catch (IllegalArgumentException e) {
+            out.write(ERROR_SEARCH).write(e.getMessage()).newLine();
+            return;
+        }
+        String topic = in.internedToken(1);
+        List<MessageRecord> messages = service.search(topic, query);
+        if (messages == null) {
+            out.write(ERROR_NOT_INDEXED).write(topic).newLine();
+            return;
+        }
+        // Not deliveries: search hits are old messages and would skew the delivery latency
+        writeMessages(messages, out);
+    }
+
+    /**
+     * Time the messages this consumer gets for the first time. CONSUME returns
+     * the whole topic on every poll, so only messages ingested after the
+     * subscription's delivery cursor count; anonymous CONSUMEs and FETCHes
+     * have no cursor and are not timed.
+     */
+    private void recordDeliveries(String topic, String consumerId, List<MessageRecord> messages) {
+        long newest = 0;
+        for (MessageRecord msg : messages) {
+            newest = Math.max(newest, msg.ingestNanos());
+        }
+        long previous = service.advanceDelivered(topic, consumerId, newest);
+        if (newest <= previous) {
+            return;
+        }
+        long now = Tracing.now();
+        for (MessageRecord msg : messages) {
+            if (msg.ingestNanos() > previous) {
+                long latency = now - msg.ingestNanos();
+                Tracing.record(topic, Stage.DELIVERY, latency);
+                if (Tracing.sample()) {
+                    Tracing.addTrace(new TraceRecord("delivery", topic, null, msg.ingestNanos() / 1_000_000,
+                            -1, -1, -1, latency));
+                }
+            }
+        }
+    }
+
+    private void handleTraces(RequestReader in, int count, ResponseBuffer out) throws IOException {
+        String topic = count >= 2 ? in.internedToken(1) : null;
+        int limit = 20;
+        try {
+            if (count >= 3) {
+                limit = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, in.tokenAsLong(2)));
+            }
+        } catch (NumberFormatException e) {
+            out.write(USAGE_TRACES);
+            return;
+        }
+        for (TraceRecord t : Tracing.recentTraces(topic, limit)) {
+            out.write("TRACE " + t.kind() + " " + t.topic() + " ingest=" + t.ingestEpochMillis()
+                    + " parse_ns=" + t.parseNanos() + " store_ns=" + t.storeNanos()
+                    + " ack_ns=" + t.ackNanos() + " delivery_ns=" + t.deliveryNanos()).newLine();
+        }
+        out.write(END_OF_BATCH);
+    }
+
+    private void handleIdempotentPublish(RequestReader in, int count, long ingest, ResponseBuffer out)
+            throws IOException {
+        if (count != 6) {
+            out.write(USAGE_IPUBLISH);
+            return;
+        }
+
+        long epoch;
+        long sequence;
+        try {
+            epoch = in.tokenAsLong(3);
+            sequence = in.tokenAsLong(4);
+        } catch (NumberFormatException e) {
+            out.write(ERROR_NUMBERS);
+            return;
+        }
+
+        try {
+            MessageRecord record = new MessageRecord(in.internedToken(1), in.internedToken(2), in.tokenBytes(5), ingest);
+            switch (service.publishIdempotent(record, epoch, sequence)) {
+                case ACCEPTED -> out.write(ACK);
+                case DUPLICATE -> out.write(ACK_DUPLICATE);
+                case FENCED -> out.write(ERROR_FENCED).write(epoch).newLine();
+                case UNKNOWN_PRODUCER -> out.write(ERROR_UNKNOWN_PRODUCER);
+            }
+        } catch (IllegalStateException e) {
+            out.write(ERROR).write(e.getMessage()).newLine();
+        }
+    }
+
+    private static byte[] line(String response) {
+        return (response + "\n").getBytes(StandardCharsets.US_ASCII);
     }
-}
\ No newline at end of file
+}
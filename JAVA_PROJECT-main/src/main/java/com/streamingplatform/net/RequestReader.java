@@ -0,0 +1,263 @@
+package com.streamingplatform.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads request lines from a socket into one reusable per-connection buffer
+ * and splits them into whitespace-separated tokens by offset, without
+ * creating a String per line or per token.
+ *
+ * Tokenizing follows the old {@code line.trim().split("\\s+", n)}: leading and
+ * trailing whitespace is ignored and the last token keeps the rest of the line.
+ * Lines end with \n or \r\n.
+ */
+public final class RequestReader {
+
+    // Longest accepted request line; a longer one drops the connection
+    private static final int MAX_LINE_BYTES = 1 << 20;
+    private static final int MAX_TOKENS = 8;
+    // Per-connection cache for topic / producer ids (power of two)
+    private static final int INTERN_SLOTS = 64;
+
+    private final InputStream in;
+    private byte[] buf;
+    private int pos;      // start of unread data
+    private int limit;    // end of data read from the stream
+    private int scanFrom; // where the search for the next '\n' resumes
+
+    private int lineStart;
+    private int lineEnd;
+
+    private final int[] tokenStart = new int[MAX_TOKENS];
+    private final int[] tokenEnd = new int[MAX_TOKENS];
+    private int tokenCount;
+
+    private final String[] interned = new String[INTERN_SLOTS];
+
+    public RequestReader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buf = new byte[bufferSize];
+    }
+
+    /**
+     * Advance to the next line.
+     *
+     * @return false at end of stream
+     */
+    public boolean nextLine() throws IOException {
+        while (true) {
+            for (int i = scanFrom; i < limit; i++) {
+                if (buf[i] == '\n') {
+                    lineStart = pos;
+                    lineEnd = (i > pos && buf[i - 1] == '\r') ? i - 1 : i;
+                    pos = i + 1;
+                    scanFrom = pos;
+                    tokenCount = 0;
+                    return true;
+                }
+            }
+            scanFrom = limit;
+            if (!fill()) {
+                if (pos < limit) {
+                    // Last line without a terminator
+                    lineStart = pos;
+                    lineEnd = limit;
+                    pos = limit;
+                    tokenCount = 0;
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Whether more request bytes are already buffered, i.e. the client
+     * pipelined another request and the response can wait for it.
+     */
+    public boolean hasBufferedInput() {
+        return pos < limit;
+    }
+
+    /**
+     * Split the current line into at most maxTokens tokens.
+     *
+     * @return the token count, 0 for a blank line
+     */
+    public int tokenize(int maxTokens) {
+        int max = Math.min(maxTokens, MAX_TOKENS);
+        int end = lineEnd;
+        while (end > lineStart && isWhitespace(buf[end - 1])) {
+            end--;
+        }
+
+        int count = 0;
+        int i = lineStart;
+        while (i < end && count < max) {
+            while (isWhitespace(buf[i])) {
+                i++;
+            }
+            tokenStart[count] = i;
+            if (count == max - 1) {
+                i = end;
+            } else {
+                while (i < end && !isWhitespace(buf[i])) {
+                    i++;
+                }
+            }
+            tokenEnd[count++] = i;
+        }
+        tokenCount = count;
+        return count;
+    }
+
+    public int tokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * Case-insensitive comparison of token i with an upper-case ASCII name.
+     */
+    public boolean tokenEqualsIgnoreCase(int i, byte[] upperAscii) {
+        int start = tokenStart[i];
+        if (tokenEnd[i] - start != upperAscii.length) {
+            return false;
+        }
+        for (int j = 0; j < upperAscii.length; j++) {
+            int b = buf[start + j];
+            if (b >= 'a' && b <= 'z') {
+                b -= 'a' - 'A';
+            }
+            if (b != upperAscii[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Token i as a new String (UTF-8).
+     */
+    public String token(int i) {
+        return new String(buf, tokenStart[i], tokenEnd[i] - tokenStart[i], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copy of token i's raw bytes, e.g. a message payload that outlives
+     * this line's buffer.
+     */
+    public byte[] tokenBytes(int i) {
+        byte[] bytes = new byte[tokenEnd[i] - tokenStart[i]];
+        System.arraycopy(buf, tokenStart[i], bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    /**
+     * Token i as a String, reusing the previous instance when the same
+     * ASCII token was seen on this connection. Meant for the few distinct
+     * names a client repeats on every request (topics, producer ids).
+     */
+    public String internedToken(int i) {
+        int start = tokenStart[i];
+        int len = tokenEnd[i] - start;
+        int h = 0;
+        for (int j = start; j < start + len; j++) {
+            if (buf[j] < 0) {
+                return token(i); // non-ASCII, not cached
+            }
+            h = 31 * h + buf[j];
+        }
+        int slot = (h ^ (h >>> 16)) & (INTERN_SLOTS - 1);
+        String cached = interned[slot];
+        if (cached != null && asciiEquals(cached, start, len)) {
+            return cached;
+        }
+        String created = new String(buf, start, len, StandardCharsets.US_ASCII);
+        interned[slot] = created;
+        return created;
+    }
+
+    /**
+     * Token i as a decimal long, with the same rules as Long.parseLong.
+     */
+    public long tokenAsLong(int i) {
+        int start = tokenStart[i];
+        int end = tokenEnd[i];
+        if (start == end) {
+            throw new NumberFormatException("empty number");
+        }
+        boolean negative = buf[start] == '-';
+        if (negative || buf[start] == '+') {
+            start++;
+            if (start == end) {
+                throw new NumberFormatException("sign without digits");
+            }
+        }
+        // Accumulate negatively so Long.MIN_VALUE parses
+        long result = 0;
+        for (int j = start; j < end; j++) {
+            int digit = buf[j] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("not a number: " + token(i));
+            }
+            if (result < Long.MIN_VALUE / 10) {
+                throw new NumberFormatException("out of range: " + token(i));
+            }
+            result *= 10;
+            if (result < Long.MIN_VALUE + digit) {
+                throw new NumberFormatException("out of range: " + token(i));
+            }
+            result -= digit;
+        }
+        if (negative) {
+            return result;
+        }
+        if (result == Long.MIN_VALUE) {
+            throw new NumberFormatException("out of range: " + token(i));
+        }
+        return -result;
+    }
+
+    private boolean asciiEquals(String s, int start, int len) {
+        if (s.length() != len) {
+            return false;
+        }
+        for (int j = 0; j < len; j++) {
+            if (s.charAt(j) != buf[start + j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Same characters as the regex \s
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+    }
+
+    // Read more bytes, compacting or growing the buffer first; false at EOF
+    private boolean fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            scanFrom -= pos;
+            pos = 0;
+        }
+        if (limit == buf.length) {
+            if (buf.length >= MAX_LINE_BYTES) {
+                throw new IOException("Request line longer than " + MAX_LINE_BYTES + " bytes");
+            }
+            byte[] grown = new byte[Math.min(buf.length * 2, MAX_LINE_BYTES)];
+            System.arraycopy(buf, 0, grown, 0, limit);
+            buf = grown;
+        }
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n < 0) {
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+}
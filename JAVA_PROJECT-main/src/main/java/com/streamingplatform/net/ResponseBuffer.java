@@ -0,0 +1,127 @@
+package com.streamingplatform.net;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Reusable per-connection output buffer. Responses are encoded straight into
+ * it (UTF-8, '\n' line ends) and written to the socket on {@link #flush()},
+ * or earlier when it fills up, so a CONSUME batch costs a few large writes
+ * instead of one flush per line.
+ */
+public final class ResponseBuffer {
+
+    private final OutputStream out;
+    private final byte[] buf;
+    private int count;
+
+    public ResponseBuffer(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buf = new byte[Math.max(bufferSize, 64)];
+    }
+
+    /**
+     * Append pre-encoded bytes, typically a constant response line.
+     */
+    public ResponseBuffer write(byte[] bytes) throws IOException {
+        return write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Append a slice of already-encoded bytes, e.g. a stored payload.
+     */
+    public ResponseBuffer write(byte[] bytes, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            if (count == buf.length) {
+                drain();
+            }
+            int n = Math.min(end - offset, buf.length - count);
+            System.arraycopy(bytes, offset, buf, count, n);
+            count += n;
+            offset += n;
+        }
+        return this;
+    }
+
+    /**
+     * Append a String as UTF-8 without going through String.getBytes.
+     */
+    public ResponseBuffer write(String s) throws IOException {
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            if (buf.length - count < 4) {
+                drain();
+            }
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buf[count++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[count++] = (byte) (0xC0 | (c >> 6));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf[count++] = (byte) (0xF0 | (cp >> 18));
+                buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buf[count++] = '?'; // unpaired surrogate, as String.getBytes does
+            } else {
+                buf[count++] = (byte) (0xE0 | (c >> 12));
+                buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Append a decimal long.
+     */
+    public ResponseBuffer write(long value) throws IOException {
+        if (buf.length - count < 20) {
+            drain();
+        }
+        if (value == Long.MIN_VALUE) {
+            return write("-9223372036854775808");
+        }
+        if (value < 0) {
+            buf[count++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = count + digits - 1; i >= count; i--) {
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        count += digits;
+        return this;
+    }
+
+    public ResponseBuffer newLine() throws IOException {
+        if (count == buf.length) {
+            drain();
+        }
+        buf[count++] = '\n';
+        return this;
+    }
+
+    /**
+     * Write everything buffered to the socket.
+     */
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private void drain() throws IOException {
+        if (count > 0) {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.net.Socket;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import com.streamingplatform.metrics.MetricsRegistry;
 import com.streamingplatform.service.BrokerService;
 
 public class SocketServer {
@@ -26,6 +27,7 @@ public class SocketServer {
                 System.out.println("[Server] Broker listening on port " + port);
                 while (true) {
                     Socket client = serverSocket.accept();
+                    MetricsRegistry.counter(MetricsRegistry.CONNECTIONS_TOTAL).increment();
                     // FIX 3: Submitting task to pool instead of "new Thread(...).start()"
                     threadPool.submit(new ClientWorker(client, brokerService));
                 }
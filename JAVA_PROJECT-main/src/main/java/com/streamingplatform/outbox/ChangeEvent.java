@@ -0,0 +1,120 @@
+package com.streamingplatform.outbox;
+
+/**
+ * One entry of the change outbox. Counts are deltas (messages published since
+ * the previous event for the same key), so sinks add them up.
+ *
+ * @param seq position in the outbox, assigned on append (0 before that)
+ */
+public record ChangeEvent(long seq, Type type, String topic, String producerId, String consumerId, long delta) {
+
+    public enum Type {
+        TOPIC_COUNT,          // topic, delta
+        PAIR_COUNT,           // producerId, topic, delta
+        CONSUMER_REGISTERED,  // consumerId, topic: subscribed
+        CONSUMER_UNSUBSCRIBED, // consumerId, topic
+        CONSUMER_EXPIRED      // consumerId: session ended, all subscriptions gone
+    }
+
+    public static ChangeEvent topicCount(String topic, long delta) {
+        return new ChangeEvent(0, Type.TOPIC_COUNT, topic, null, null, delta);
+    }
+
+    public static ChangeEvent pairCount(String producerId, String topic, long delta) {
+        return new ChangeEvent(0, Type.PAIR_COUNT, topic, producerId, null, delta);
+    }
+
+    public static ChangeEvent consumerRegistered(String consumerId, String topic) {
+        return new ChangeEvent(0, Type.CONSUMER_REGISTERED, topic, null, consumerId, 0);
+    }
+
+    public static ChangeEvent consumerUnsubscribed(String consumerId, String topic) {
+        return new ChangeEvent(0, Type.CONSUMER_UNSUBSCRIBED, topic, null, consumerId, 0);
+    }
+
+    public static ChangeEvent consumerExpired(String consumerId) {
+        return new ChangeEvent(0, Type.CONSUMER_EXPIRED, null, null, consumerId, 0);
+    }
+
+    /**
+     * Whether this is a count (TOPIC_COUNT, PAIR_COUNT) rather than a consumer change.
+     */
+    public boolean isCount() {
+        return type == Type.TOPIC_COUNT || type == Type.PAIR_COUNT;
+    }
+
+    ChangeEvent withSeq(long seq) {
+        return new ChangeEvent(seq, type, topic, producerId, consumerId, delta);
+    }
+
+    // =========================================================================
+    // LOG FORMAT: one line per event, tab-separated
+    // seq, type, topic, producerId, consumerId, delta (null as empty field)
+    // =========================================================================
+
+    String toLine() {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(seq).append('\t').append(type.name()).append('\t');
+        escape(sb, topic).append('\t');
+        escape(sb, producerId).append('\t');
+        escape(sb, consumerId).append('\t');
+        return sb.append(delta).append('\n').toString();
+    }
+
+    static ChangeEvent parse(String line) {
+        String[] f = line.split("\t", -1);
+        if (f.length != 6) {
+            throw new IllegalArgumentException("Malformed outbox line: " + line);
+        }
+        return new ChangeEvent(Long.parseLong(f[0]), Type.valueOf(f[1]), unescape(f[2]), unescape(f[3]),
+                unescape(f[4]), Long.parseLong(f[5]));
+    }
+
+    private static StringBuilder escape(StringBuilder sb, String value) {
+        if (value == null) {
+            return sb;
+        }
+        if (value.isEmpty()) {
+            return sb.append("\\0"); // Empty string, as opposed to null
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '\t' -> sb.append("\\t");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+        return sb;
+    }
+
+    private static String unescape(String field) {
+        if (field.isEmpty()) {
+            return null;
+        }
+        if (field.indexOf('\\') < 0) {
+            return field;
+        }
+        if (field.equals("\\0")) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '\\' && i + 1 < field.length()) {
+                char next = field.charAt(++i);
+                sb.append(switch (next) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> next;
+                });
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
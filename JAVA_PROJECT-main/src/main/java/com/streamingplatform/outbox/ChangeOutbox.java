@@ -0,0 +1,439 @@
+package com.streamingplatform.outbox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import com.streamingplatform.metrics.MetricsRegistry;
+import com.streamingplatform.service.SyncScheduler;
+
+/**
+ * Durable, append-only log of {@link ChangeEvent}s, read by any number of
+ * {@link Sink}s.
+ *
+ * Events live in segment files (events-&lt;first seq&gt;.log) under one
+ * directory. Each append is forced to disk before sinks can see it. Every
+ * sink has its own read position, checkpointed to &lt;sink&gt;.checkpoint after
+ * each applied batch, so after a restart it resumes where it stopped instead
+ * of rescanning. Segments every sink has read past are deleted; a sink
+ * that has a checkpoint here counts even before it is attached again, so
+ * a slow-starting sink never finds its events gone.
+ *
+ * The outbox id (outbox.id) changes when the directory is recreated, so a
+ * sink's stored position from an older outbox is not reused.
+ */
+public class ChangeOutbox {
+
+    private static final String SEGMENT_PREFIX = "events-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    // Roll to a new segment past this size
+    private static final long SEGMENT_BYTES = 4L << 20;
+    private static final int READ_CHUNK_BYTES = 64 * 1024;
+    // Events folded into a sink's pending buffer per run, at most
+    private static final int MAX_SCAN_EVENTS = 100_000;
+
+    private static final class Segment {
+        final long firstSeq;
+        final Path path;
+        volatile long size; // bytes of complete, forced lines
+
+        Segment(long firstSeq, Path path, long size) {
+            this.firstSeq = firstSeq;
+            this.path = path;
+            this.size = size;
+        }
+    }
+
+    private final Path dir;
+    private final String id;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>(); // guarded by this
+    private FileChannel activeChannel; // guarded by this
+    private volatile long lastSeq;
+    private final Map<String, SinkJob> sinks = new ConcurrentHashMap<>();
+    private final LongAdder appended = MetricsRegistry.counter("outbox_events_appended_total");
+
+    private ChangeOutbox(Path dir, String id) {
+        this.dir = dir;
+        this.id = id;
+    }
+
+    /**
+     * Open (or create) the outbox in dir, recovering the last segment: a line
+     * cut short by a crash is dropped.
+     */
+    public static ChangeOutbox open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Path idFile = dir.resolve("outbox.id");
+        if (!Files.exists(idFile)) {
+            Files.writeString(idFile, Long.toString(System.currentTimeMillis()));
+        }
+        ChangeOutbox outbox = new ChangeOutbox(dir, Files.readString(idFile).trim());
+        outbox.recover();
+        MetricsRegistry.gauge("outbox_last_seq", () -> outbox.lastSeq);
+        System.out.println("[Outbox] Opened " + dir + " (last seq " + outbox.lastSeq + ")");
+        return outbox;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Append events, numbering them, and force them to disk.
+     *
+     * @return the seq of the last event
+     */
+    public synchronized long append(List<ChangeEvent> events) throws IOException {
+        if (events.isEmpty()) {
+            return lastSeq;
+        }
+        Segment active = segments.lastEntry().getValue();
+        if (active.size >= SEGMENT_BYTES) {
+            active = roll();
+        }
+
+        StringBuilder sb = new StringBuilder(events.size() * 64);
+        long seq = lastSeq;
+        for (ChangeEvent event : events) {
+            sb.append(event.withSeq(++seq).toLine());
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        long written = bytes.remaining();
+        while (bytes.hasRemaining()) {
+            activeChannel.write(bytes);
+        }
+        activeChannel.force(false);
+
+        // Visible to readers only once on disk
+        active.size += written;
+        lastSeq = seq;
+        appended.add(events.size());
+        return seq;
+    }
+
+    /**
+     * Feed a sink from its checkpoint on the scheduler, one batch per run.
+     */
+    public SyncScheduler.ScheduledJob attach(Sink sink, SyncScheduler scheduler, SyncScheduler.Policy policy) {
+        SinkJob job = new SinkJob(sink, readCheckpoint(sink.name()));
+        if (sinks.putIfAbsent(sink.name(), job) != null) {
+            throw new IllegalArgumentException("Sink already attached: " + sink.name());
+        }
+        MetricsRegistry.gauge("outbox_" + sink.name().replace('-', '_') + "_lag_events",
+                () -> lastSeq - job.position);
+        return scheduler.schedule(sink.name(), policy, job::run);
+    }
+
+    public synchronized void close() {
+        try {
+            if (activeChannel != null) {
+                activeChannel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("[Outbox] Close failed: " + e.getMessage());
+        }
+    }
+
+    // =========================================================================
+    // SINK DELIVERY
+    // =========================================================================
+
+    // Events of one key are coalesced into a single pending event
+    private record Key(ChangeEvent.Type type, String topic, String producerId, String consumerId) {
+
+        static Key of(ChangeEvent event) {
+            return new Key(event.type(), event.topic(), event.producerId(), event.consumerId());
+        }
+    }
+
+    /**
+     * Delivers the outbox to one sink through a bounded, coalescing pending
+     * buffer: at most batchSize() distinct keys, each holding the summed
+     * delta of its events. A failed apply keeps the buffer, and later runs
+     * only fold newer events into it, so an outage costs neither rereads nor
+     * unbounded memory; the backlog stays on disk. A failed apply may still
+     * have committed (the error came after the commit), so before the next
+     * attempt the sink's committed position is read again, and a buffer it
+     * already covers is dropped instead of being applied twice.
+     */
+    private final class SinkJob {
+        private final Sink sink;
+        private volatile long position; // last seq applied
+        private boolean started;
+        private boolean applyFailed; // pending was passed to apply() and it threw
+
+        private final Map<Key, ChangeEvent> pending = new LinkedHashMap<>();
+        private long pendingPosition; // last seq folded into pending
+
+        // Where the next read starts
+        private Segment readSegment;
+        private long readOffset;
+
+        SinkJob(Sink sink, long position) {
+            this.sink = sink;
+            this.position = position;
+            this.pendingPosition = position;
+        }
+
+        long run() throws Exception {
+            if (!started) {
+                // The sink's own transactional position wins over our file
+                position = Math.max(position, sink.committedPosition(id).orElse(0));
+                pendingPosition = position;
+                started = true;
+            } else if (applyFailed) {
+                // Before folding newer events in: did the failed batch commit after all?
+                if (sink.committedPosition(id).orElse(-1) >= pendingPosition) {
+                    System.out.println("[Outbox] " + sink.name() + " had committed the failed batch up to "
+                            + pendingPosition + "; not applying it again.");
+                    acknowledge();
+                }
+                applyFailed = false;
+            }
+            fill(sink.batchSize());
+            if (pending.isEmpty()) {
+                return 0;
+            }
+
+            List<ChangeEvent> batch = new ArrayList<>(pending.values());
+            batch.sort(Comparator.comparingLong(ChangeEvent::seq));
+            try {
+                sink.apply(batch, id);
+            } catch (Exception e) {
+                applyFailed = true; // The buffer is kept for the next run
+                throw e;
+            }
+            acknowledge();
+            return batch.size();
+        }
+
+        // Everything folded into pending is applied
+        private void acknowledge() throws IOException {
+            position = pendingPosition;
+            pending.clear();
+            writeCheckpoint(sink.name(), position);
+            deleteConsumedSegments();
+        }
+
+        // Fold events after pendingPosition into the buffer, up to maxKeys keys
+        private void fill(int maxKeys) throws IOException {
+            long scanned = 0;
+            while (pendingPosition < lastSeq && scanned < MAX_SCAN_EVENTS) {
+                Segment segment;
+                Segment next;
+                synchronized (ChangeOutbox.this) {
+                    Map.Entry<Long, Segment> entry = segments.floorEntry(pendingPosition + 1);
+                    if (entry == null) {
+                        // Skipping ahead would silently lose these events' counts
+                        throw new IOException("Outbox events " + (pendingPosition + 1) + ".."
+                                + (segments.firstKey() - 1) + " needed by " + sink.name() + " were deleted");
+                    }
+                    segment = entry.getValue();
+                    Map.Entry<Long, Segment> higher = segments.higherEntry(segment.firstSeq);
+                    next = higher != null ? higher.getValue() : null;
+                }
+                if (segment != readSegment) {
+                    readSegment = segment;
+                    readOffset = 0; // Scan this segment from its start, skipping folded events
+                }
+                long size = segment.size;
+                if (readOffset >= size) {
+                    if (next == null) {
+                        return;
+                    }
+                    pendingPosition = Math.max(pendingPosition, next.firstSeq - 1);
+                    continue;
+                }
+                int read = readChunk(segment, size, maxKeys);
+                if (read < 0) {
+                    return; // Buffer full
+                }
+                scanned += read;
+            }
+        }
+
+        // Fold complete lines from readOffset; returns the lines consumed, or -1 when full
+        private int readChunk(Segment segment, long size, int maxKeys) throws IOException {
+            int length = (int) Math.min(size - readOffset, READ_CHUNK_BYTES);
+            ByteBuffer buf = ByteBuffer.allocate(length);
+            try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+                while (buf.hasRemaining() && channel.read(buf, readOffset + buf.position()) >= 0) {
+                    // Keep reading up to length
+                }
+            }
+            byte[] bytes = buf.array();
+            int lineStart = 0;
+            int lines = 0;
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+                ChangeEvent event = ChangeEvent.parse(new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8));
+                if (event.seq() > pendingPosition) {
+                    Key key = Key.of(event);
+                    ChangeEvent folded = pending.get(key);
+                    if (folded == null && pending.size() >= maxKeys) {
+                        readOffset += lineStart;
+                        return -1; // Left for the next batch
+                    }
+                    pending.put(key, folded == null ? event
+                            : new ChangeEvent(event.seq(), event.type(), event.topic(), event.producerId(),
+                                    event.consumerId(), folded.delta() + event.delta()));
+                    pendingPosition = event.seq();
+                }
+                lineStart = i + 1;
+                lines++;
+            }
+            if (lineStart == 0) {
+                throw new IOException("Outbox line longer than " + READ_CHUNK_BYTES + " bytes in " + segment.path);
+            }
+            readOffset += lineStart;
+            return lines;
+        }
+    }
+
+    // =========================================================================
+    // FILES
+    // =========================================================================
+
+    private synchronized void recover() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                    && p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .forEach(p -> {
+                        String name = p.getFileName().toString();
+                        long firstSeq = Long.parseLong(
+                                name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                        try {
+                            segments.put(firstSeq, new Segment(firstSeq, p, Files.size(p)));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        }
+        if (segments.isEmpty()) {
+            lastSeq = 0;
+            roll();
+            return;
+        }
+
+        // Last segment: drop a torn final line, find the last seq
+        Segment last = segments.lastEntry().getValue();
+        byte[] bytes = Files.readAllBytes(last.path);
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] != '\n') {
+            end--;
+        }
+        lastSeq = last.firstSeq - 1;
+        if (end > 0) {
+            int start = end - 1;
+            while (start > 0 && bytes[start - 1] != '\n') {
+                start--;
+            }
+            lastSeq = ChangeEvent.parse(new String(bytes, start, end - 1 - start, StandardCharsets.UTF_8)).seq();
+        }
+        activeChannel = FileChannel.open(last.path, StandardOpenOption.WRITE);
+        if (end < bytes.length) {
+            activeChannel.truncate(end);
+            activeChannel.force(false);
+        }
+        activeChannel.position(end);
+        last.size = end;
+    }
+
+    private Segment roll() throws IOException {
+        if (activeChannel != null) {
+            activeChannel.close();
+        }
+        long firstSeq = lastSeq + 1;
+        Path path = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+        activeChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        Segment segment = new Segment(firstSeq, path, 0);
+        segments.put(firstSeq, segment);
+        return segment;
+    }
+
+    // Drop segments that every sink has read past (never the active one)
+    private synchronized void deleteConsumedSegments() {
+        if (segments.size() <= 1) {
+            return;
+        }
+        long minPosition = minSinkPosition();
+        while (segments.size() > 1) {
+            Map.Entry<Long, Segment> first = segments.firstEntry();
+            long segmentLastSeq = segments.higherKey(first.getKey()) - 1;
+            if (segmentLastSeq > minPosition) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(first.getValue().path);
+            } catch (IOException e) {
+                System.err.println("[Outbox] Could not delete " + first.getValue().path + ": " + e.getMessage());
+                return;
+            }
+            segments.pollFirstEntry();
+        }
+    }
+
+    // Lowest position of the attached sinks and of every checkpoint in the
+    // directory: sinks not attached yet after a restart still need their events
+    private long minSinkPosition() {
+        long min = sinks.values().stream().mapToLong(s -> s.position).min().orElse(Long.MAX_VALUE);
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(CHECKPOINT_SUFFIX)) {
+                    min = Math.min(min, readCheckpoint(name.substring(0, name.length() - CHECKPOINT_SUFFIX.length())));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[Outbox] Could not list checkpoints, keeping segments: " + e.getMessage());
+            return 0;
+        }
+        return min == Long.MAX_VALUE ? 0 : min;
+    }
+
+    // Checkpoint file content: "<outbox id> <seq>"
+    private long readCheckpoint(String sinkName) {
+        Path file = dir.resolve(sinkName + CHECKPOINT_SUFFIX);
+        try {
+            if (Files.exists(file)) {
+                String[] parts = Files.readString(file).trim().split(" ");
+                if (parts.length == 2 && parts[0].equals(id)) {
+                    return Long.parseLong(parts[1]);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("[Outbox] Ignoring unreadable checkpoint " + file + ": " + e.getMessage());
+        }
+        return 0;
+    }
+
+    private void writeCheckpoint(String sinkName, long seq) throws IOException {
+        Path file = dir.resolve(sinkName + CHECKPOINT_SUFFIX);
+        Path tmp = dir.resolve(sinkName + CHECKPOINT_SUFFIX + ".tmp");
+        Files.writeString(tmp, id + " " + seq + "\n");
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,110 @@
+package com.streamingplatform.outbox;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Sink that appends every change event to a local file as one JSON object per
+ * line. The last line's seq doubles as the stored position, so a batch that
+ * was written just before a crash is not written twice.
+ */
+public class FileSink implements Sink {
+
+    private final Path file;
+
+    public FileSink(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public String name() {
+        return "file-sink";
+    }
+
+    @Override
+    public void apply(List<ChangeEvent> batch, String outboxId) throws IOException {
+        StringBuilder sb = new StringBuilder(batch.size() * 96);
+        for (ChangeEvent event : batch) {
+            sb.append("{\"outbox\": \"").append(outboxId)
+                    .append("\", \"seq\": ").append(event.seq())
+                    .append(", \"type\": \"").append(event.type()).append('"');
+            appendField(sb, "topic", event.topic());
+            appendField(sb, "producerId", event.producerId());
+            appendField(sb, "consumerId", event.consumerId());
+            if (event.isCount()) {
+                sb.append(", \"delta\": ").append(event.delta());
+            }
+            sb.append("}\n");
+        }
+        Files.writeString(file, sb, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND,
+                StandardOpenOption.SYNC);
+    }
+
+    /**
+     * The seq of the file's last line, if it was written from this outbox.
+     */
+    @Override
+    public OptionalLong committedPosition(String outboxId) throws IOException {
+        String last = lastLine();
+        String outboxField = "{\"outbox\": \"" + outboxId + "\", \"seq\": ";
+        if (last == null || !last.startsWith(outboxField)) {
+            return OptionalLong.empty();
+        }
+        int start = outboxField.length();
+        int end = last.indexOf(',', start);
+        return OptionalLong.of(Long.parseLong(last.substring(start, end)));
+    }
+
+    private String lastLine() throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            long length = raf.length();
+            int tail = (int) Math.min(length, 4096);
+            byte[] bytes = new byte[tail];
+            raf.seek(length - tail);
+            raf.readFully(bytes);
+            int end = tail;
+            while (end > 0 && bytes[end - 1] == '\n') {
+                end--;
+            }
+            int start = end;
+            while (start > 0 && bytes[start - 1] != '\n') {
+                start--;
+            }
+            return end > start ? new String(bytes, start, end - start, StandardCharsets.UTF_8) : null;
+        }
+    }
+
+    private static void appendField(StringBuilder sb, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        sb.append(", \"").append(name).append("\": \"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,44 @@
+package com.streamingplatform.outbox;
+
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * A downstream store fed from the {@link ChangeOutbox}. Each sink reads at its
+ * own pace from its own checkpoint, in batches of up to batchSize() keys.
+ *
+ * Events of the same key (type, topic, producer, consumer) may be coalesced
+ * into one, with deltas summed and the seq of the last event folded in.
+ * Batches are in seq order, and the last event's seq is the batch position.
+ *
+ * The outbox checkpoints a sink in a local file after apply() returns. A sink
+ * that also stores its position in the same transaction as its writes
+ * (committedPosition) gets exactly-once delivery across crashes; otherwise a
+ * batch applied just before a crash is delivered again.
+ */
+public interface Sink {
+
+    /**
+     * Unique name, used for the checkpoint file, the job and metric names.
+     */
+    String name();
+
+    /**
+     * Apply events in order. If this throws, the same events (possibly
+     * coalesced with newer ones) are passed again on the next attempt,
+     * unless committedPosition() shows they were committed.
+     */
+    void apply(List<ChangeEvent> batch, String outboxId) throws Exception;
+
+    /**
+     * Position this sink stored itself for the given outbox, read on start
+     * and after a failed apply().
+     */
+    default OptionalLong committedPosition(String outboxId) throws Exception {
+        return OptionalLong.empty();
+    }
+
+    default int batchSize() {
+        return 1000;
+    }
+}
@@ -0,0 +1,141 @@
+package com.streamingplatform.persistence;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.streamingplatform.metrics.MetricsRegistry;
+
+/**
+ * Circuit breaker for one external store (MySQL, Neo4j).
+ *
+ * CLOSED: calls go through; failureThreshold failures in a row open it.
+ * OPEN: calls fail fast with {@link OpenException}, without touching the
+ * store, until the open period ends.
+ * HALF_OPEN: one probe call goes through (others are rejected); success
+ * closes the circuit, failure re-opens it for twice as long (up to maxOpenMs).
+ *
+ * Publishes circuit_&lt;name&gt;_state (0 closed, 1 half-open, 2 open),
+ * circuit_&lt;name&gt;_opened_total and circuit_&lt;name&gt;_rejected_total.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    /**
+     * Thrown instead of calling the store while the circuit is open.
+     */
+    public static class OpenException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        public OpenException(String name, long retryInMs) {
+            super(name + " circuit open, next probe in " + retryInMs + " ms");
+        }
+    }
+
+    @FunctionalInterface
+    public interface Call<T> {
+        T call() throws Exception;
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long baseOpenMs;
+    private final long maxOpenMs;
+
+    private State state = State.CLOSED; // guarded by this
+    private int consecutiveFailures;    // guarded by this
+    private long openMs;                // guarded by this
+    private long openUntil;             // guarded by this
+    private String lastError;           // guarded by this
+
+    private final LongAdder opened;
+    private final LongAdder rejected;
+
+    public CircuitBreaker(String name, int failureThreshold, long baseOpenMs, long maxOpenMs) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.baseOpenMs = baseOpenMs;
+        this.maxOpenMs = maxOpenMs;
+        this.openMs = baseOpenMs;
+        this.opened = MetricsRegistry.counter("circuit_" + name + "_opened_total");
+        this.rejected = MetricsRegistry.counter("circuit_" + name + "_rejected_total");
+        MetricsRegistry.gauge("circuit_" + name + "_state", () -> getState().ordinal());
+    }
+
+    /**
+     * Run a call against the store, or fail fast if the circuit is open.
+     */
+    public <T> T execute(Call<T> call) throws Exception {
+        acquire();
+        try {
+            T result = call.call();
+            onSuccess();
+            return result;
+        } catch (Exception e) {
+            onFailure(e);
+            throw e;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Whether a call would be let through right now (no state change).
+     */
+    public synchronized boolean isCallPermitted() {
+        return state == State.CLOSED || (state == State.OPEN && System.currentTimeMillis() >= openUntil);
+    }
+
+    public synchronized String getLastError() {
+        return lastError;
+    }
+
+    private synchronized void acquire() {
+        switch (state) {
+            case CLOSED -> {
+            }
+            case OPEN -> {
+                long now = System.currentTimeMillis();
+                if (now < openUntil) {
+                    rejected.increment();
+                    throw new OpenException(name, openUntil - now);
+                }
+                state = State.HALF_OPEN; // This caller is the probe
+            }
+            case HALF_OPEN -> {
+                rejected.increment();
+                throw new OpenException(name, 0);
+            }
+        }
+    }
+
+    private synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            System.out.println("[Circuit] " + name + " closed (store reachable again).");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        openMs = baseOpenMs;
+        lastError = null;
+    }
+
+    private synchronized void onFailure(Exception e) {
+        lastError = String.valueOf(e.getMessage()).lines().findFirst().orElse("");
+        if (state == State.HALF_OPEN) {
+            openMs = Math.min(openMs * 2, maxOpenMs);
+            open();
+        } else if (++consecutiveFailures >= failureThreshold && state == State.CLOSED) {
+            open();
+            System.err.println("[Circuit] " + name + " open after " + consecutiveFailures + " failures: " + lastError);
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + openMs;
+        opened.increment();
+    }
+}
@@ -1,6 +1,10 @@
 package com.streamingplatform.persistence;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -11,28 +15,34 @@ public class DatabaseManager {
 
     //private static final String DB_URL = "jdbc:h2:./streamingservice_db";
     // Fixed: Keeps the DB alive even if no threads are connected
-    private static final String DB_URL = "jdbc:h2:mem:streammesh_db;DB_CLOSE_DELAY=-1";
+    // Can be overridden with -Dstreaming.h2.url=... (e.g. a file DB for benchmarks)
+    private static final String DB_URL = System.getProperty("streaming.h2.url",
+            "jdbc:h2:mem:streammesh_db;DB_CLOSE_DELAY=-1");
     private static final String USER = "sa";
     private static final String PASSWORD = "";
 
     private static Connection connection;
 
-    // Get connection (singleton)
-    public static Connection getConnection() throws SQLException {
+    // Get connection (singleton, shared by all threads: callers must not close it)
+    public static synchronized Connection getConnection() throws SQLException {
         if (connection == null || connection.isClosed()) {
             connection = DriverManager.getConnection(DB_URL, USER, PASSWORD);
         }
         return connection;
     }
 
+    // A connection of its own, for work that runs alongside the shared one
+    // (parallel scans); the caller closes it
+    public static Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(DB_URL, USER, PASSWORD);
+    }
+
     // Initialize DB using schema.sql
     @SuppressWarnings("CallToPrintStackTrace")
     public static void initializeDatabase() {
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement()) {
+        try (Statement stmt = getConnection().createStatement()) {
 
-            String schema = new String(Files.readAllBytes(Paths.get("src/main/resources/schema.sql")));
-            stmt.execute(schema);
+            stmt.execute(loadSchema());
 
             System.out.println("Database initialized successfully.");
 
@@ -40,4 +50,19 @@ public class DatabaseManager {
             e.printStackTrace();
         }
     }
+
+    // Read schema.sql from the source tree, or from the classpath when run
+    // outside the project directory (packaged jar, benchmarks)
+    private static String loadSchema() throws IOException {
+        Path sourceSchema = Paths.get("src/main/resources/schema.sql");
+        if (Files.exists(sourceSchema)) {
+            return new String(Files.readAllBytes(sourceSchema));
+        }
+        try (InputStream in = DatabaseManager.class.getResourceAsStream("/schema.sql")) {
+            if (in == null) {
+                throw new IOException("schema.sql not found");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
 }
@@ -3,46 +3,152 @@ package com.streamingplatform.persistence;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Messages table access. Payloads are bytes (messages.content is VARBINARY);
+ * the String variants are for the CLI and analysis code.
+ *
+ * The connection is DatabaseManager's shared one, so it is never closed here,
+ * only the statements and result sets.
+ */
 public class MessageDAO {
 
-    // Save a message to the database
-    @SuppressWarnings("CallToPrintStackTrace")
-    public void saveMessage(String topic, String producerId, String content) {
-        String sql = "INSERT INTO messages (topic, producer_id, content) VALUES (?, ?, ?)";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+    private static final String INSERT_SQL =
+            "INSERT INTO messages (topic, producer_id, content, ingest_nanos) VALUES (?, ?, ?, ?)";
 
-            ps.setString(1, topic);
-            ps.setString(2, producerId);
-            ps.setString(3, content);
+    // Save a message to the database (returns false if the insert failed)
+    public boolean saveMessage(String topic, String producerId, String content) {
+        return saveMessage(MessageRecord.of(topic, producerId, content));
+    }
+
+    // Save a message along with the time the broker received it
+    public boolean saveMessage(MessageRecord record) {
+        return insertMessage(record) >= 0;
+    }
+
+    // Save a message and return its generated id (-1 if the insert failed)
+    @SuppressWarnings("CallToPrintStackTrace")
+    public long insertMessage(MessageRecord record) {
+        try (PreparedStatement ps = DatabaseManager.getConnection().prepareStatement(INSERT_SQL,
+                Statement.RETURN_GENERATED_KEYS)) {
+            bind(ps, record);
             ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                return keys.next() ? keys.getLong(1) : -1;
+            }
 
         } catch (Exception e) {
             e.printStackTrace();
+            return -1;
         }
     }
 
-    // Fetch all messages for a topic
+    // Save several messages with one JDBC batch (returns the number written)
     @SuppressWarnings("CallToPrintStackTrace")
+    public int saveMessages(List<MessageRecord> records) {
+        try (PreparedStatement ps = DatabaseManager.getConnection().prepareStatement(INSERT_SQL)) {
+            for (MessageRecord record : records) {
+                bind(ps, record);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            return records.size();
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    // Fetch all message payloads for a topic as Strings
     public List<String> getMessagesByTopic(String topic) {
-        List<String> messages = new ArrayList<>();
-        String sql = "SELECT content FROM messages WHERE topic = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        List<MessageRecord> records = getRecordsByTopic(topic);
+        List<String> messages = new ArrayList<>(records.size());
+        for (MessageRecord record : records) {
+            messages.add(record.payloadAsString());
+        }
+        return messages;
+    }
+
+    // Fetch all messages for a topic, payloads as stored
+    public List<MessageRecord> getRecordsByTopic(String topic) {
+        return getRecordsByTopic(topic, MessageFilter.ALL);
+    }
+
+    // Fetch the messages of a topic that pass filter: producer / time in the
+    // query, text / regex on the stored bytes before a record is built
+    @SuppressWarnings("CallToPrintStackTrace")
+    public List<MessageRecord> getRecordsByTopic(String topic, MessageFilter filter) {
+        List<MessageRecord> records = new ArrayList<>();
+        String sql = "SELECT producer_id, content, ingest_nanos FROM messages WHERE topic = ?" + filter.sqlConditions();
+        try (PreparedStatement ps = DatabaseManager.getConnection().prepareStatement(sql)) {
 
             ps.setString(1, topic);
-            ResultSet rs = ps.executeQuery();
+            filter.bind(ps, 2, System.currentTimeMillis());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    byte[] payload = rs.getBytes(2);
+                    if (payload == null) {
+                        payload = new byte[0];
+                    }
+                    if (filter.matchesPayload(payload, 0, payload.length)) {
+                        records.add(new MessageRecord(topic, rs.getString(1), payload, rs.getLong(3)));
+                    }
+                }
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return records;
+    }
+
+    // Fetch messages of a topic by id (search hits), stored in [fromMs, toMs)
+    // (Long.MIN_VALUE / MAX_VALUE for no bound), highest id first
+    @SuppressWarnings("CallToPrintStackTrace")
+    public List<MessageRecord> getRecordsByIds(String topic, long[] ids, long fromMs, long toMs) {
+        List<MessageRecord> records = new ArrayList<>(ids.length);
+        String sql = "SELECT producer_id, content, ingest_nanos FROM messages WHERE id = ANY(?) AND topic = ?"
+                + (fromMs != Long.MIN_VALUE ? " AND timestamp >= ?" : "")
+                + (toMs != Long.MAX_VALUE ? " AND timestamp < ?" : "")
+                + " ORDER BY id DESC";
+        try (PreparedStatement ps = DatabaseManager.getConnection().prepareStatement(sql)) {
 
-            while (rs.next()) {
-                messages.add(rs.getString("content"));
+            Long[] boxed = new Long[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                boxed[i] = ids[i];
+            }
+            int index = 1;
+            ps.setArray(index++, ps.getConnection().createArrayOf("BIGINT", boxed));
+            ps.setString(index++, topic);
+            if (fromMs != Long.MIN_VALUE) {
+                ps.setTimestamp(index++, new Timestamp(fromMs));
+            }
+            if (toMs != Long.MAX_VALUE) {
+                ps.setTimestamp(index, new Timestamp(toMs));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    byte[] payload = rs.getBytes(2);
+                    records.add(new MessageRecord(topic, rs.getString(1), payload != null ? payload : new byte[0],
+                            rs.getLong(3)));
+                }
             }
 
         } catch (Exception e) {
             e.printStackTrace();
         }
-        return messages;
+        return records;
+    }
+
+    private static void bind(PreparedStatement ps, MessageRecord record) throws Exception {
+        ps.setString(1, record.topic());
+        ps.setString(2, record.key());
+        ps.setBytes(3, record.payloadBytes());
+        ps.setLong(4, record.ingestNanos());
     }
 }
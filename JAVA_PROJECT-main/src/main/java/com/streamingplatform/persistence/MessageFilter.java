@@ -0,0 +1,225 @@
+package com.streamingplatform.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Which messages of a topic a consumer wants, parsed and compiled once (per
+ * subscription or FETCH) and evaluated in the broker next to the data, so
+ * only matching messages are sent.
+ *
+ * Spec: space-separated options, all of which must match.
+ * <pre>
+ *   producer=&lt;id&gt;        sent by this producer
+ *   contains=&lt;text&gt;      payload contains text (exact bytes)
+ *   icontains=&lt;text&gt;     payload contains text, ASCII letters in any case
+ *   regex=&lt;pattern&gt;      java.util.regex find() on the payload
+ *   from=&lt;epoch ms&gt;      stored at or after
+ *   to=&lt;epoch ms&gt;        stored before
+ *   since=&lt;n&gt;(s|m|h)    stored in the last n seconds / minutes / hours, as of each read
+ * </pre>
+ * A value runs to the next option, so text and patterns may contain spaces.
+ *
+ * Producer and time go into the SQL; text and patterns are tested on the
+ * stored bytes before a record is built, and a payload is decoded only for
+ * a regex.
+ */
+public final class MessageFilter {
+
+    public static final MessageFilter ALL = new MessageFilter("", null, null, false, null, Long.MIN_VALUE,
+            Long.MAX_VALUE, 0);
+
+    // A space followed by one of these starts the next option
+    private static final Pattern OPTION_START = Pattern.compile(" +(?=(?:producer|contains|icontains|regex|from|to|since)=)");
+
+    private final String spec;
+    private final String producerId;
+    private final byte[] text;        // contains / icontains (lower-cased for icontains)
+    private final boolean ignoreCase;
+    private final Pattern regex;
+    private final long fromMs;
+    private final long toMs;
+    private final long sinceMs;       // 0 = none
+    private final String sqlConditions;
+
+    private MessageFilter(String spec, String producerId, byte[] text, boolean ignoreCase, Pattern regex,
+            long fromMs, long toMs, long sinceMs) {
+        this.spec = spec;
+        this.producerId = producerId;
+        this.text = text;
+        this.ignoreCase = ignoreCase;
+        this.regex = regex;
+        this.fromMs = fromMs;
+        this.toMs = toMs;
+        this.sinceMs = sinceMs;
+        this.sqlConditions = (producerId != null ? " AND producer_id = ?" : "")
+                + (fromMs != Long.MIN_VALUE || sinceMs > 0 ? " AND timestamp >= ?" : "")
+                + (toMs != Long.MAX_VALUE ? " AND timestamp < ?" : "");
+    }
+
+    /**
+     * Compile a filter spec; blank means every message.
+     *
+     * @throws IllegalArgumentException for an unknown option or a bad value
+     */
+    public static MessageFilter parse(String spec) {
+        String trimmed = spec == null ? "" : spec.trim();
+        if (trimmed.isEmpty()) {
+            return ALL;
+        }
+        String producerId = null;
+        byte[] text = null;
+        boolean ignoreCase = false;
+        Pattern regex = null;
+        long fromMs = Long.MIN_VALUE;
+        long toMs = Long.MAX_VALUE;
+        long sinceMs = 0;
+
+        for (String option : OPTION_START.split(trimmed)) {
+            int eq = option.indexOf('=');
+            String key = eq > 0 ? option.substring(0, eq) : option;
+            String value = eq > 0 ? option.substring(eq + 1) : "";
+            if (value.isEmpty()) {
+                throw new IllegalArgumentException("Expected <option>=<value>: " + option);
+            }
+            switch (key) {
+                case "producer" -> producerId = value;
+                case "contains" -> {
+                    text = value.getBytes(StandardCharsets.UTF_8);
+                    ignoreCase = false;
+                }
+                case "icontains" -> {
+                    text = lowerAscii(value.getBytes(StandardCharsets.UTF_8));
+                    ignoreCase = true;
+                }
+                case "regex" -> {
+                    try {
+                        regex = Pattern.compile(value);
+                    } catch (PatternSyntaxException e) {
+                        throw new IllegalArgumentException("Bad regex: " + e.getDescription());
+                    }
+                }
+                case "from" -> fromMs = parseMillis(key, value);
+                case "to" -> toMs = parseMillis(key, value);
+                case "since" -> sinceMs = parseDuration(value);
+                default -> throw new IllegalArgumentException("Unknown filter option: " + key);
+            }
+        }
+        return new MessageFilter(trimmed, producerId, text, ignoreCase, regex, fromMs, toMs, sinceMs);
+    }
+
+    public boolean matchesAll() {
+        return this == ALL;
+    }
+
+    /**
+     * The spec this filter was parsed from ("" for ALL).
+     */
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    /**
+     * Conditions for the SQL WHERE clause, each starting with " AND ".
+     */
+    String sqlConditions() {
+        return sqlConditions;
+    }
+
+    /**
+     * Bind the sqlConditions() parameters starting at index, as of nowMs.
+     */
+    void bind(PreparedStatement ps, int index, long nowMs) throws SQLException {
+        if (producerId != null) {
+            ps.setString(index++, producerId);
+        }
+        if (fromMs != Long.MIN_VALUE || sinceMs > 0) {
+            long from = sinceMs > 0 ? Math.max(fromMs, nowMs - sinceMs) : fromMs;
+            ps.setTimestamp(index++, new Timestamp(from));
+        }
+        if (toMs != Long.MAX_VALUE) {
+            ps.setTimestamp(index, new Timestamp(toMs));
+        }
+    }
+
+    /**
+     * Whether a payload passes the text and regex options.
+     */
+    public boolean matchesPayload(byte[] payload, int offset, int length) {
+        if (text != null && indexOf(payload, offset, length) < 0) {
+            return false;
+        }
+        return regex == null || regex.matcher(new String(payload, offset, length, StandardCharsets.UTF_8)).find();
+    }
+
+    // First position of text in the payload slice, -1 if absent
+    private int indexOf(byte[] payload, int offset, int length) {
+        int n = text.length;
+        int last = offset + length - n;
+        byte first = text[0];
+        for (int i = offset; i <= last; i++) {
+            if (fold(payload[i]) != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < n && fold(payload[i + j]) == text[j]) {
+                j++;
+            }
+            if (j == n) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private byte fold(byte b) {
+        return ignoreCase && b >= 'A' && b <= 'Z' ? (byte) (b | 0x20) : b;
+    }
+
+    // ASCII letters only: UTF-8 multi-byte sequences never contain them
+    private static byte[] lowerAscii(byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] >= 'A' && bytes[i] <= 'Z') {
+                bytes[i] |= 0x20;
+            }
+        }
+        return bytes;
+    }
+
+    private static long parseMillis(String key, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be epoch milliseconds: " + value);
+        }
+    }
+
+    /**
+     * A since= value, n followed by s, m or h, in milliseconds. SEARCH
+     * (SearchQuery) parses its since= option with this too.
+     *
+     * @throws IllegalArgumentException for anything else
+     */
+    public static long parseDuration(String value) {
+        long unit = value.isEmpty() ? 0 : switch (value.charAt(value.length() - 1)) {
+            case 's' -> 1000L;
+            case 'm' -> 60_000L;
+            case 'h' -> 3_600_000L;
+            default -> 0;
+        };
+        try {
+            long amount = unit == 0 ? -1 : Long.parseLong(value.substring(0, value.length() - 1));
+            if (amount > 0) {
+                return Math.multiplyExact(amount, unit);
+            }
+        } catch (NumberFormatException | ArithmeticException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("since must be a positive number of s, m or h: " + value);
+    }
+}
@@ -0,0 +1,63 @@
+package com.streamingplatform.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.streamingplatform.metrics.Tracing;
+
+/**
+ * One message as it moves socket -> BrokerService -> store -> consumer.
+ *
+ * The payload stays the UTF-8 bytes the producer sent (a slice of payload,
+ * from offset for length bytes) and is stored as-is in messages.content.
+ * Make Strings only at the edges (CLI, Dashboard, analysis) with
+ * {@link #payloadAsString()}.
+ *
+ * @param topic       topic name (interned per connection by the socket layer)
+ * @param key         producer id
+ * @param ingestNanos Tracing.now() when the broker received it, 0 if unknown
+ *                    (e.g. seeded rows)
+ */
+public record MessageRecord(String topic, String key, byte[] payload, int offset, int length, long ingestNanos) {
+
+    public MessageRecord {
+        if (offset < 0 || length < 0 || offset + length > payload.length) {
+            throw new IllegalArgumentException("Payload slice out of bounds");
+        }
+    }
+
+    public MessageRecord(String topic, String key, byte[] payload, long ingestNanos) {
+        this(topic, key, payload, 0, payload.length, ingestNanos);
+    }
+
+    /**
+     * Record for a String payload, received now.
+     */
+    public static MessageRecord of(String topic, String key, String payload) {
+        return new MessageRecord(topic, key, payload.getBytes(StandardCharsets.UTF_8), Tracing.now());
+    }
+
+    /**
+     * Read-only view of the payload slice (no copy).
+     */
+    public ByteBuffer payloadBuffer() {
+        return ByteBuffer.wrap(payload, offset, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * The payload as its own array: the backing array itself when the slice
+     * covers all of it, otherwise a copy.
+     */
+    public byte[] payloadBytes() {
+        if (offset == 0 && length == payload.length) {
+            return payload;
+        }
+        byte[] copy = new byte[length];
+        System.arraycopy(payload, offset, copy, 0, length);
+        return copy;
+    }
+
+    public String payloadAsString() {
+        return new String(payload, offset, length, StandardCharsets.UTF_8);
+    }
+}
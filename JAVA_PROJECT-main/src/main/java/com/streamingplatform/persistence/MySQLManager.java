@@ -13,11 +13,16 @@ public class MySQLManager {
 
     private static final String DB_URL = "jdbc:mysql://localhost:3306/";
     private static final String DB_NAME = "streamingplatform";
+    // Lets the driver send a JDBC batch as multi-row statements instead of one round trip per row
+    private static final String DB_OPTIONS = "?rewriteBatchedStatements=true";
     private static final String USER = "root";
     private static final String PASSWORD = ""; // Default XAMPP password
 
     private static Connection connection;
 
+    // Background writers go through this, so an outage is not retried on every tick
+    private static final CircuitBreaker CIRCUIT = new CircuitBreaker("mysql", 3, 5000, 60_000);
+
     /**
      * Get MySQL connection (singleton pattern)
      */
@@ -26,7 +31,7 @@ public class MySQLManager {
             try {
                 // Load MySQL driver
                 Class.forName("com.mysql.cj.jdbc.Driver");
-                connection = DriverManager.getConnection(DB_URL + DB_NAME, USER, PASSWORD);
+                connection = DriverManager.getConnection(DB_URL + DB_NAME + DB_OPTIONS, USER, PASSWORD);
             } catch (ClassNotFoundException e) {
                 throw new SQLException("MySQL Driver not found", e);
             }
@@ -34,6 +39,10 @@ public class MySQLManager {
         return connection;
     }
 
+    public static CircuitBreaker circuitBreaker() {
+        return CIRCUIT;
+    }
+
     /**
      * Initialize MySQL database and tables
      */
@@ -117,6 +126,16 @@ public class MySQLManager {
                         )
                     """);
 
+            // Change outbox position per sink, written with each applied batch
+            tableStmt.executeUpdate("""
+                        CREATE TABLE IF NOT EXISTS sync_checkpoints (
+                            sink VARCHAR(64) PRIMARY KEY,
+                            outbox_id VARCHAR(64) NOT NULL,
+                            position BIGINT NOT NULL,
+                            last_updated TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+                        )
+                    """);
+
             tableStmt.close();
             System.out.println("[MySQL] Database initialized successfully.");
 
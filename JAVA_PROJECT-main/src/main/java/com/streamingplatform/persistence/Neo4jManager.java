@@ -1,14 +1,19 @@
 package com.streamingplatform.persistence;
 
 import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Config;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.GraphDatabase;
 import org.neo4j.driver.Session;
+import org.neo4j.driver.TransactionContext;
 import org.neo4j.driver.Result;
 import org.neo4j.driver.Record;
 
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Neo4j Database Manager for graph-based storage of Topics, Producers, and
@@ -24,16 +29,36 @@ public class Neo4jManager {
 
     private static Driver driver;
 
+    // Background writers go through this, so an outage is not retried on every tick
+    private static final CircuitBreaker CIRCUIT = new CircuitBreaker("neo4j", 3, 5000, 60_000);
+
+    // Read queries are served from here; Neo4jSyncService invalidates it after each commit
+    private static final QueryCache QUERY_CACHE = new QueryCache("neo4j",
+            Long.getLong("streaming.neo4j.cache.ttl.ms", 10_000));
+
     /**
      * Get Neo4j driver (singleton)
      */
     public static Driver getDriver() {
         if (driver == null) {
-            driver = GraphDatabase.driver(URI, AuthTokens.basic(USER, PASSWORD));
+            // Short retry window: a sync tick should fail fast when Neo4j is down,
+            // not block for the driver's default 30s
+            Config config = Config.builder()
+                    .withMaxTransactionRetryTime(2, TimeUnit.SECONDS)
+                    .build();
+            driver = GraphDatabase.driver(URI, AuthTokens.basic(USER, PASSWORD), config);
         }
         return driver;
     }
 
+    public static CircuitBreaker circuitBreaker() {
+        return CIRCUIT;
+    }
+
+    public static QueryCache queryCache() {
+        return QUERY_CACHE;
+    }
+
     /**
      * Initialize Neo4j database with constraints and indexes
      */
@@ -50,106 +75,151 @@ public class Neo4jManager {
         }
     }
 
+    // =========================================================================
+    // BATCHED WRITES: one UNWIND statement per entity type, all in a
+    // transaction opened with writeInTransaction
+    // =========================================================================
+
     /**
-     * Create or update a Topic node
+     * Run work in one managed write transaction (retried by the driver on
+     * transient errors, so work must be idempotent). Exceptions propagate
+     * and nothing is committed.
      */
-    public static void upsertTopic(String topicName, int messageCount) {
+    public static void writeInTransaction(Consumer<TransactionContext> work) {
         try (Session session = getDriver().session()) {
-            Map<String, Object> params = new HashMap<>();
-            params.put("name", topicName);
-            params.put("messageCount", messageCount);
-
-            session.run(
-                    "MERGE (t:Topic {name: $name}) " +
-                            "SET t.messageCount = $messageCount, t.lastUpdated = datetime()",
-                    params);
-        } catch (Exception e) {
-            System.err.println("[Neo4j] Error upserting topic: " + e.getMessage());
+            session.executeWrite(tx -> {
+                work.accept(tx);
+                return null;
+            });
         }
     }
 
     /**
-     * Create or update a Producer node
+     * Rows: {name, delta}; delta is added to the topic's messageCount
      */
-    public static void upsertProducer(String producerId) {
-        try (Session session = getDriver().session()) {
-            Map<String, Object> params = new HashMap<>();
-            params.put("id", producerId);
+    public static void upsertTopics(TransactionContext tx, List<Map<String, Object>> rows) {
+        if (!rows.isEmpty()) {
+            tx.run("UNWIND $rows AS row " +
+                    "MERGE (t:Topic {name: row.name}) " +
+                    "SET t.messageCount = coalesce(t.messageCount, 0) + row.delta, t.lastUpdated = datetime()",
+                    Map.of("rows", rows));
+        }
+    }
 
-            session.run(
-                    "MERGE (p:Producer {id: $id}) " +
-                            "SET p.lastSeen = datetime()",
-                    params);
-        } catch (Exception e) {
-            System.err.println("[Neo4j] Error upserting producer: " + e.getMessage());
+    /**
+     * Producer and Consumer rows are plain ids.
+     */
+    public static void upsertProducers(TransactionContext tx, Collection<String> producerIds) {
+        if (!producerIds.isEmpty()) {
+            tx.run("UNWIND $ids AS id " +
+                    "MERGE (p:Producer {id: id}) " +
+                    "SET p.lastSeen = datetime()",
+                    Map.of("ids", producerIds));
+        }
+    }
+
+    public static void upsertConsumers(TransactionContext tx, Collection<String> consumerIds) {
+        if (!consumerIds.isEmpty()) {
+            tx.run("UNWIND $ids AS id " +
+                    "MERGE (c:Consumer {id: id}) " +
+                    "SET c.lastSeen = datetime()",
+                    Map.of("ids", consumerIds));
         }
     }
 
     /**
-     * Create or update a Consumer node
+     * Rows: {producerId, topicName, delta}; delta is added to the relationship's messageCount
      */
-    public static void upsertConsumer(String consumerId) {
-        try (Session session = getDriver().session()) {
-            Map<String, Object> params = new HashMap<>();
-            params.put("id", consumerId);
+    public static void mergePublishesRelations(TransactionContext tx, List<Map<String, Object>> rows) {
+        if (!rows.isEmpty()) {
+            tx.run("UNWIND $rows AS row " +
+                    "MATCH (p:Producer {id: row.producerId}) " +
+                    "MATCH (t:Topic {name: row.topicName}) " +
+                    "MERGE (p)-[r:PUBLISHES_TO]->(t) " +
+                    "SET r.messageCount = coalesce(r.messageCount, 0) + row.delta, r.lastUpdated = datetime()",
+                    Map.of("rows", rows));
+        }
+    }
 
-            session.run(
-                    "MERGE (c:Consumer {id: $id}) " +
-                            "SET c.lastSeen = datetime()",
-                    params);
-        } catch (Exception e) {
-            System.err.println("[Neo4j] Error upserting consumer: " + e.getMessage());
+    /**
+     * Rows: {consumerId, topicName}; the topic is created if nothing was published to it yet
+     */
+    public static void mergeSubscribesRelations(TransactionContext tx, List<Map<String, Object>> rows) {
+        if (!rows.isEmpty()) {
+            tx.run("UNWIND $rows AS row " +
+                    "MATCH (c:Consumer {id: row.consumerId}) " +
+                    "MERGE (t:Topic {name: row.topicName}) " +
+                    "MERGE (c)-[r:SUBSCRIBES_TO]->(t) " +
+                    "SET r.lastUpdated = datetime()",
+                    Map.of("rows", rows));
         }
     }
 
     /**
-     * Create PUBLISHES_TO relationship between Producer and Topic
+     * Rows: {consumerId, topicName}
      */
-    public static void createPublishesRelation(String producerId, String topicName, int messageCount) {
-        try (Session session = getDriver().session()) {
-            Map<String, Object> params = new HashMap<>();
-            params.put("producerId", producerId);
-            params.put("topicName", topicName);
-            params.put("messageCount", messageCount);
-
-            session.run(
-                    "MATCH (p:Producer {id: $producerId}) " +
-                            "MATCH (t:Topic {name: $topicName}) " +
-                            "MERGE (p)-[r:PUBLISHES_TO]->(t) " +
-                            "SET r.messageCount = $messageCount, r.lastUpdated = datetime()",
-                    params);
-        } catch (Exception e) {
-            System.err.println("[Neo4j] Error creating PUBLISHES_TO relation: " + e.getMessage());
+    public static void deleteSubscribesRelations(TransactionContext tx, List<Map<String, Object>> rows) {
+        if (!rows.isEmpty()) {
+            tx.run("UNWIND $rows AS row " +
+                    "MATCH (:Consumer {id: row.consumerId})-[r:SUBSCRIBES_TO]->(:Topic {name: row.topicName}) " +
+                    "DELETE r",
+                    Map.of("rows", rows));
+        }
+    }
+
+    /**
+     * Remove expired consumers with their relationships.
+     */
+    public static void deleteConsumers(TransactionContext tx, Collection<String> consumerIds) {
+        if (!consumerIds.isEmpty()) {
+            tx.run("UNWIND $ids AS id " +
+                    "MATCH (c:Consumer {id: id}) " +
+                    "DETACH DELETE c",
+                    Map.of("ids", consumerIds));
         }
     }
 
     /**
-     * Create SUBSCRIBES_TO relationship between Consumer and Topic
+     * Store a change outbox position for a sink, in the sink's write transaction.
      */
-    public static void createSubscribesRelation(String consumerId, String topicName) {
+    public static void writeCheckpoint(TransactionContext tx, String sink, String outboxId, long position) {
+        tx.run("MERGE (c:SyncCheckpoint {sink: $sink}) " +
+                "SET c.outboxId = $outboxId, c.position = $position, c.lastUpdated = datetime()",
+                Map.of("sink", sink, "outboxId", outboxId, "position", position));
+    }
+
+    /**
+     * Position stored by writeCheckpoint for this sink and outbox, or -1.
+     */
+    public static long readCheckpoint(String sink, String outboxId) {
         try (Session session = getDriver().session()) {
-            Map<String, Object> params = new HashMap<>();
-            params.put("consumerId", consumerId);
-            params.put("topicName", topicName);
-
-            session.run(
-                    "MATCH (c:Consumer {id: $consumerId}) " +
-                            "MATCH (t:Topic {name: $topicName}) " +
-                            "MERGE (c)-[r:SUBSCRIBES_TO]->(t) " +
-                            "SET r.lastUpdated = datetime()",
-                    params);
-        } catch (Exception e) {
-            System.err.println("[Neo4j] Error creating SUBSCRIBES_TO relation: " + e.getMessage());
+            Result rs = session.run("MATCH (c:SyncCheckpoint {sink: $sink}) RETURN c.outboxId AS outboxId, " +
+                    "c.position AS position", Map.of("sink", sink));
+            if (rs.hasNext()) {
+                Record r = rs.next();
+                if (outboxId.equals(r.get("outboxId").asString(null))) {
+                    return r.get("position").asLong();
+                }
+            }
         }
+        return -1;
     }
 
     /**
-     * Query: Which Producer posts to the most topics?
+     * Query: Which Producer posts to the most topics? Cached until the next
+     * sync commit or the cache TTL.
      */
     public static String getTopProducerByTopicCount() {
-        StringBuilder result = new StringBuilder();
-        result.append("\n=== Neo4j: Which Producer posts to the most topics? ===\n");
+        String header = "\n=== Neo4j: Which Producer posts to the most topics? ===\n";
+        try {
+            return header + QUERY_CACHE.get("top-producers", Neo4jManager::queryTopProducers);
+        } catch (Exception e) {
+            return header + "Error: Neo4j not available - " + e.getMessage();
+        }
+    }
 
+    private static String queryTopProducers() {
+        StringBuilder result = new StringBuilder();
         try (Session session = getDriver().session()) {
             Result rs = session.run(
                     "MATCH (p:Producer)-[r:PUBLISHES_TO]->(t:Topic) " +
@@ -168,41 +238,7 @@ public class Neo4jManager {
                         record.get("topicCount").asInt(),
                         record.get("totalMessages").asInt()));
             }
-        } catch (Exception e) {
-            result.append("Error: Neo4j not available - ").append(e.getMessage());
-        }
-
-        return result.toString();
-    }
-
-    /**
-     * Get all topics with message counts
-     */
-    public static String getAllTopics() {
-        StringBuilder result = new StringBuilder();
-        result.append("\n=== Neo4j: All Topics ===\n");
-
-        try (Session session = getDriver().session()) {
-            Result rs = session.run(
-                    "MATCH (t:Topic) " +
-                            "OPTIONAL MATCH (p:Producer)-[r:PUBLISHES_TO]->(t) " +
-                            "RETURN t.name as topic, t.messageCount as count, COUNT(DISTINCT p) as producers " +
-                            "ORDER BY count DESC");
-
-            result.append(String.format("%-20s | %-12s | %-10s%n", "Topic", "Messages", "Producers"));
-            result.append("-".repeat(46)).append("\n");
-
-            while (rs.hasNext()) {
-                Record record = rs.next();
-                result.append(String.format("%-20s | %-12d | %-10d%n",
-                        record.get("topic").asString(),
-                        record.get("count").isNull() ? 0 : record.get("count").asInt(),
-                        record.get("producers").asInt()));
-            }
-        } catch (Exception e) {
-            result.append("Error: ").append(e.getMessage());
         }
-
         return result.toString();
     }
 
@@ -0,0 +1,102 @@
+package com.streamingplatform.persistence;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.streamingplatform.metrics.MetricsRegistry;
+
+/**
+ * Read-through cache for the read queries of one store (Neo4j).
+ *
+ * A result is served until its TTL runs out or the store changes: the
+ * writer calls invalidate() after each committed sync, which bumps an epoch
+ * and retires every entry loaded before it. Concurrent misses on one key
+ * share a single load (single flight). A load that throws is not cached.
+ *
+ * Publishes &lt;name&gt;_cache_hits_total, &lt;name&gt;_cache_misses_total,
+ * &lt;name&gt;_cache_shared_loads_total (misses that joined a running load)
+ * and &lt;name&gt;_cache_hit_ratio_percent.
+ */
+public class QueryCache {
+
+    private record Entry(long epoch, long loadedAtNanos, Object value) {
+    }
+
+    private final long ttlNanos;
+    private final AtomicLong epoch = new AtomicLong();
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, FutureTask<Object>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder sharedLoads;
+
+    public QueryCache(String name, long ttlMs) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.hits = MetricsRegistry.counter(name + "_cache_hits_total");
+        this.misses = MetricsRegistry.counter(name + "_cache_misses_total");
+        this.sharedLoads = MetricsRegistry.counter(name + "_cache_shared_loads_total");
+        MetricsRegistry.gauge(name + "_cache_hit_ratio_percent", this::hitRatioPercent);
+    }
+
+    /**
+     * The cached result for key, or the result of loader (run once however
+     * many callers miss at the same time). Exceptions of the load are
+     * rethrown to every caller waiting on it.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(String key, Callable<V> loader) throws Exception {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.epoch() == epoch.get() && System.nanoTime() - entry.loadedAtNanos() < ttlNanos) {
+            hits.increment();
+            return (V) entry.value();
+        }
+        misses.increment();
+
+        FutureTask<Object> task = new FutureTask<>(() -> {
+            // Read before the query: an invalidate() during it retires the result
+            long loadEpoch = epoch.get();
+            Object value = loader.call();
+            entries.put(key, new Entry(loadEpoch, System.nanoTime(), value));
+            return value;
+        });
+        FutureTask<Object> running = loading.putIfAbsent(key, task);
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+            } finally {
+                loading.remove(key, task);
+            }
+        } else {
+            sharedLoads.increment();
+        }
+        try {
+            return (V) running.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    /**
+     * Retire every cached result; called when the store has changed.
+     */
+    public void invalidate() {
+        epoch.incrementAndGet();
+    }
+
+    public long getEpoch() {
+        return epoch.get();
+    }
+
+    private long hitRatioPercent() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : h * 100 / total;
+    }
+}
@@ -0,0 +1,108 @@
+package com.streamingplatform.search;
+
+import java.util.Arrays;
+
+/**
+ * Posting list codec: a count, then ascending message ids as gaps from the
+ * previous id, each a varint (7 bits per byte, high bit = more). Ids of one
+ * topic are close together, so most gaps take one or two bytes.
+ */
+final class Postings {
+
+    private Postings() {
+    }
+
+    /**
+     * Encode ids[0..n), which must be ascending and distinct.
+     */
+    static byte[] encode(long[] ids, int n) {
+        byte[] out = new byte[10 + n * 3];
+        int pos = writeVarint(out, 0, n);
+        long previous = 0;
+        for (int i = 0; i < n; i++) {
+            if (out.length - pos < 10) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            pos = writeVarint(out, pos, ids[i] - previous);
+            previous = ids[i];
+        }
+        return Arrays.copyOf(out, pos);
+    }
+
+    static long[] decode(byte[] data) {
+        int[] pos = { 0 };
+        long[] ids = new long[(int) readVarint(data, pos)];
+        long previous = 0;
+        for (int i = 0; i < ids.length; i++) {
+            previous += readVarint(data, pos);
+            ids[i] = previous;
+        }
+        return ids;
+    }
+
+    /**
+     * Ids in both ascending lists, ascending.
+     */
+    static long[] intersect(long[] a, long[] b) {
+        long[] out = new long[Math.min(a.length, b.length)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Ids in either ascending list, ascending and distinct.
+     */
+    static long[] union(long[] a, long[] b) {
+        long[] out = new long[a.length + b.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            long next;
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                next = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                next = b[j++];
+            } else {
+                next = a[i++];
+                j++;
+            }
+            out[n++] = next;
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private static int writeVarint(byte[] out, int pos, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static long readVarint(byte[] data, int[] pos) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
@@ -0,0 +1,130 @@
+package com.streamingplatform.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.streamingplatform.metrics.LatencyHistogram;
+import com.streamingplatform.metrics.MetricsRegistry;
+import com.streamingplatform.persistence.MessageRecord;
+
+/**
+ * Optional full-text index over message payloads, per topic, so a search
+ * reads only the messages that hold the terms instead of scanning the topic.
+ *
+ * Messages are indexed at publish time by their stored id: payloads are
+ * tokenized into terms ({@link Tokenizer}) and each term's id goes into the
+ * topic's active segment. A background job ({@link #maintain()}) seals the
+ * active segment into compressed posting lists ({@link Postings}) and merges
+ * sealed segments so a topic keeps a handful of them. A search intersects
+ * the terms' posting lists segment by segment, newest first, skips segments
+ * outside its time range and loads the matches by id until it has enough.
+ *
+ * Only the ids are kept here; payloads stay in the store, and ids of
+ * messages deleted since (archiving) simply load nothing.
+ */
+public class SearchIndex {
+
+    /**
+     * Loads messages of a topic by id, restricted to [fromMs, toMs), highest
+     * id first (MessageDAO::getRecordsByIds).
+     */
+    @FunctionalInterface
+    public interface Loader {
+        List<MessageRecord> load(String topic, long[] ids, long fromMs, long toMs);
+    }
+
+    private final boolean allTopics;
+    private final Set<String> topics;
+    private final Map<String, TopicIndex> indexes = new ConcurrentHashMap<>();
+
+    private final LongAdder indexed = MetricsRegistry.counter("search_indexed_total");
+    private final LongAdder queries = MetricsRegistry.counter("search_queries_total");
+    private final LatencyHistogram latency = MetricsRegistry.histogram("search_latency_ns");
+
+    /**
+     * @param topics topics to index; "*" indexes every topic, none disables indexing
+     */
+    public SearchIndex(Collection<String> topics) {
+        this.allTopics = topics.contains("*");
+        this.topics = Set.copyOf(topics);
+        MetricsRegistry.gauge("search_index_bytes", this::bytes);
+    }
+
+    public boolean isEnabled() {
+        return !topics.isEmpty();
+    }
+
+    public boolean isIndexed(String topic) {
+        return allTopics || topics.contains(topic);
+    }
+
+    /**
+     * Index a stored message. No-op for topics not indexed.
+     */
+    public void add(String topic, long id, byte[] payload, int offset, int length) {
+        if (!isIndexed(topic)) {
+            return;
+        }
+        indexes.computeIfAbsent(topic, TopicIndex::new).add(id, System.currentTimeMillis(), payload, offset, length);
+        indexed.increment();
+    }
+
+    /**
+     * Newest messages of topic matching query.
+     *
+     * @return the matches, or null if the topic is not indexed
+     */
+    public List<MessageRecord> search(String topic, SearchQuery query, Loader loader) {
+        if (!isIndexed(topic)) {
+            return null;
+        }
+        TopicIndex index = indexes.get(topic);
+        if (index == null) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        List<MessageRecord> results = index.search(query.terms().toArray(new String[0]), query.fromMs(),
+                query.toMs(), query.limit(), loader);
+        latency.record(System.nanoTime() - start);
+        queries.increment();
+        return results;
+    }
+
+    /**
+     * Seal every topic's active segment and merge small segments; run
+     * periodically on one thread (SyncScheduler job).
+     *
+     * @return messages sealed plus merges done, 0 if there was nothing to do
+     */
+    public synchronized long maintain() {
+        long work = 0;
+        for (TopicIndex index : indexes.values()) {
+            work += index.seal();
+            work += index.merge();
+        }
+        return work;
+    }
+
+    /**
+     * One line per indexed topic, by name.
+     */
+    public List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        new TreeMap<>(indexes).values().forEach(index -> lines.add(index.describe()));
+        return lines;
+    }
+
+    private long bytes() {
+        long bytes = 0;
+        for (TopicIndex index : indexes.values()) {
+            bytes += index.bytes();
+        }
+        return bytes;
+    }
+}
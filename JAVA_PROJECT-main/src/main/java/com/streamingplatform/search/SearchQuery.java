@@ -0,0 +1,84 @@
+package com.streamingplatform.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.streamingplatform.persistence.MessageFilter;
+
+/**
+ * A parsed SEARCH: terms that must all occur, a stored-time range
+ * [fromMs, toMs) and how many messages to return.
+ *
+ * Text: space-separated words plus optional options.
+ * <pre>
+ *   disk full                 both words, 20 newest
+ *   disk full limit=5         both words, 5 newest
+ *   status 500                both words (numbers are terms too)
+ *   timeout since=15m         in the last 15 minutes
+ *   timeout from=&lt;ms&gt; to=&lt;ms&gt;  stored at or after from, before to (epoch ms)
+ * </pre>
+ * Words are split like payloads (e.g. "disk-full" is disk and full) and
+ * match whole terms, ASCII letters in any case. since= takes the same
+ * values as in a MessageFilter (s, m or h).
+ */
+public record SearchQuery(List<String> terms, long fromMs, long toMs, int limit) {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 1000;
+
+    /**
+     * @throws IllegalArgumentException for no terms, a bad option or a bad limit
+     */
+    public static SearchQuery parse(String text) {
+        List<String> words = new ArrayList<>(List.of(text == null ? new String[0] : text.trim().split(" +")));
+        words.remove("");
+        long fromMs = Long.MIN_VALUE;
+        long toMs = Long.MAX_VALUE;
+        int limit = DEFAULT_LIMIT;
+
+        Set<String> terms = new LinkedHashSet<>();
+        for (String word : words) {
+            int eq = word.indexOf('=');
+            String key = eq > 0 ? word.substring(0, eq) : "";
+            String value = word.substring(eq + 1);
+            switch (key) {
+                case "from" -> fromMs = parseMillis(key, value);
+                case "to" -> toMs = parseMillis(key, value);
+                case "since" -> fromMs = Math.max(fromMs,
+                        System.currentTimeMillis() - MessageFilter.parseDuration(value));
+                case "limit" -> limit = parseLimit(value);
+                default -> {
+                    byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+                    Tokenizer.forEachTerm(bytes, 0, bytes.length, terms::add);
+                }
+            }
+        }
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("No search terms");
+        }
+        return new SearchQuery(List.copyOf(terms), fromMs, toMs, limit);
+    }
+
+    private static int parseLimit(String value) {
+        try {
+            int limit = Integer.parseInt(value);
+            if (limit >= 1 && limit <= MAX_LIMIT) {
+                return limit;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Limit must be 1.." + MAX_LIMIT + ": " + value);
+    }
+
+    private static long parseMillis(String key, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be epoch milliseconds: " + value);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.streamingplatform.search;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable slice of a topic's index: term -> compressed posting list of
+ * message ids, plus the time span of its messages so a time-bounded search
+ * can skip it. Segments are built from a {@link Builder} and later merged
+ * pairwise in the background.
+ */
+final class Segment {
+
+    // Stored timestamps come from the database clock at insert; allow for the gap to the index clock
+    private static final long CLOCK_SLACK_MS = 1000;
+
+    private final Map<String, byte[]> postings;
+    private final int docs;
+    private final long minTs;
+    private final long maxTs;
+    private final long bytes;
+
+    private Segment(Map<String, byte[]> postings, int docs, long minTs, long maxTs) {
+        this.postings = postings;
+        this.docs = docs;
+        this.minTs = minTs;
+        this.maxTs = maxTs;
+        long size = 0;
+        for (Map.Entry<String, byte[]> e : postings.entrySet()) {
+            size += e.getKey().length() + e.getValue().length;
+        }
+        this.bytes = size;
+    }
+
+    int docs() {
+        return docs;
+    }
+
+    int terms() {
+        return postings.size();
+    }
+
+    /**
+     * Approximate size: term characters plus encoded postings.
+     */
+    long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Ids of the messages holding every term, ascending; empty if none.
+     */
+    long[] match(String[] terms) {
+        byte[][] lists = new byte[terms.length][];
+        for (int i = 0; i < terms.length; i++) {
+            lists[i] = postings.get(terms[i]);
+            if (lists[i] == null) {
+                return new long[0];
+            }
+        }
+        // Shortest list first keeps every intersection small
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+        long[] ids = Postings.decode(lists[0]);
+        for (int i = 1; i < lists.length && ids.length > 0; i++) {
+            ids = Postings.intersect(ids, Postings.decode(lists[i]));
+        }
+        return ids;
+    }
+
+    /**
+     * False only if no message here can fall in [fromMs, toMs).
+     */
+    boolean overlaps(long fromMs, long toMs) {
+        return (fromMs == Long.MIN_VALUE || maxTs >= fromMs - CLOCK_SLACK_MS)
+                && (toMs == Long.MAX_VALUE || minTs < toMs + CLOCK_SLACK_MS);
+    }
+
+    /**
+     * One segment holding the messages of both.
+     */
+    static Segment merge(Segment a, Segment b) {
+        Map<String, byte[]> merged = new HashMap<>(a.postings);
+        b.postings.forEach((term, list) -> merged.merge(term, list, (x, y) -> {
+            long[] ids = Postings.union(Postings.decode(x), Postings.decode(y));
+            return Postings.encode(ids, ids.length);
+        }));
+        return new Segment(merged, a.docs + b.docs, Math.min(a.minTs, b.minTs), Math.max(a.maxTs, b.maxTs));
+    }
+
+    /**
+     * The segment being written: uncompressed posting lists, appended to
+     * at publish time. Not thread-safe.
+     */
+    static final class Builder {
+        private final Map<String, IdList> postings = new HashMap<>();
+        private int docs;
+        private long minTs = Long.MAX_VALUE;
+        private long maxTs = Long.MIN_VALUE;
+
+        void add(long id, long timestampMs, byte[] payload, int offset, int length) {
+            docs++;
+            minTs = Math.min(minTs, timestampMs);
+            maxTs = Math.max(maxTs, timestampMs);
+            Tokenizer.forEachTerm(payload, offset, length, term -> postings.computeIfAbsent(term, t -> new IdList()).add(id));
+        }
+
+        int docs() {
+            return docs;
+        }
+
+        long[] match(String[] terms) {
+            long[] ids = null;
+            for (String term : terms) {
+                IdList list = postings.get(term);
+                if (list == null) {
+                    return new long[0];
+                }
+                ids = ids == null ? list.sorted() : Postings.intersect(ids, list.sorted());
+            }
+            return ids;
+        }
+
+        Segment build() {
+            Map<String, byte[]> encoded = new HashMap<>(postings.size() * 2);
+            postings.forEach((term, list) -> {
+                long[] ids = list.sorted();
+                encoded.put(term, Postings.encode(ids, ids.length));
+            });
+            return new Segment(encoded, docs, minTs, maxTs);
+        }
+    }
+
+    // Ids appended in arrival order; concurrent publishes may commit slightly out of order
+    private static final class IdList {
+        private long[] ids = new long[4];
+        private int size;
+        private boolean ascending = true;
+
+        void add(long id) {
+            if (size > 0) {
+                if (ids[size - 1] == id) {
+                    return; // Term repeated in the same message
+                }
+                ascending &= id > ids[size - 1];
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        // Ascending, distinct copy
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(ids, size);
+            if (ascending) {
+                return copy;
+            }
+            Arrays.sort(copy);
+            int n = 0;
+            for (int i = 0; i < copy.length; i++) {
+                if (n == 0 || copy[i] != copy[n - 1]) {
+                    copy[n++] = copy[i];
+                }
+            }
+            return Arrays.copyOf(copy, n);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.streamingplatform.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Splits payload bytes into search terms: runs of ASCII letters and digits
+ * plus any non-ASCII bytes (so UTF-8 words stay whole), ASCII lower-cased.
+ * Everything else separates terms. Runs longer than MAX_TERM_BYTES (hashes,
+ * base64 blobs) are not indexed.
+ */
+final class Tokenizer {
+
+    static final int MAX_TERM_BYTES = 64;
+
+    private Tokenizer() {
+    }
+
+    static void forEachTerm(byte[] data, int offset, int length, Consumer<String> sink) {
+        byte[] term = new byte[MAX_TERM_BYTES];
+        int n = 0;
+        boolean tooLong = false;
+        int end = offset + length;
+        for (int i = offset; i <= end; i++) {
+            byte b = i < end ? data[i] : (byte) ' ';
+            if (isTermByte(b)) {
+                if (n < MAX_TERM_BYTES) {
+                    term[n++] = b >= 'A' && b <= 'Z' ? (byte) (b | 0x20) : b;
+                } else {
+                    tooLong = true;
+                }
+            } else {
+                if (n > 0 && !tooLong) {
+                    sink.accept(new String(term, 0, n, StandardCharsets.UTF_8));
+                }
+                n = 0;
+                tooLong = false;
+            }
+        }
+    }
+
+    private static boolean isTermByte(byte b) {
+        return b < 0 // Part of a UTF-8 multi-byte sequence
+                || (b >= '0' && b <= '9') || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+    }
+}
@@ -0,0 +1,167 @@
+package com.streamingplatform.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.streamingplatform.persistence.MessageRecord;
+
+/**
+ * One topic's index: the segment being written, the one being sealed (still
+ * searchable while it is compressed) and the sealed segments, oldest first.
+ *
+ * Publishing threads only append to the active builder, under this object's
+ * lock. Sealing and merging run on one maintenance thread and swap in a new
+ * segment list, so searches work on an immutable snapshot of it.
+ */
+final class TopicIndex {
+
+    // More sealed segments than this and the smallest adjacent pair is merged
+    static final int MAX_SEGMENTS = 8;
+    // Fewest ids loaded per round trip, so a low limit with a strict time range does not crawl
+    private static final int MIN_BATCH = 64;
+    private static final int MAX_BATCH = 1000;
+
+    private final String topic;
+
+    // Guarded by this
+    private Segment.Builder active = new Segment.Builder();
+    private Segment.Builder sealing;
+    private List<Segment> segments = List.of();
+
+    TopicIndex(String topic) {
+        this.topic = topic;
+    }
+
+    synchronized void add(long id, long timestampMs, byte[] payload, int offset, int length) {
+        active.add(id, timestampMs, payload, offset, length);
+    }
+
+    /**
+     * Compress the active builder into a new segment.
+     *
+     * @return messages sealed
+     */
+    int seal() {
+        Segment.Builder full;
+        synchronized (this) {
+            if (active.docs() == 0) {
+                return 0;
+            }
+            full = active;
+            sealing = full;
+            active = new Segment.Builder();
+        }
+        Segment segment = full.build();
+        synchronized (this) {
+            List<Segment> next = new ArrayList<>(segments);
+            next.add(segment);
+            segments = List.copyOf(next);
+            sealing = null;
+        }
+        return full.docs();
+    }
+
+    /**
+     * Merge the smallest adjacent pairs until at most MAX_SEGMENTS are left.
+     * Adjacent only, so each segment keeps a contiguous time span to prune on.
+     *
+     * @return merges done
+     */
+    int merge() {
+        List<Segment> current = snapshot();
+        int merges = 0;
+        while (current.size() > MAX_SEGMENTS) {
+            int best = 0;
+            for (int i = 1; i < current.size() - 1; i++) {
+                if (pairDocs(current, i) < pairDocs(current, best)) {
+                    best = i;
+                }
+            }
+            List<Segment> next = new ArrayList<>(current);
+            next.set(best, Segment.merge(current.get(best), current.get(best + 1)));
+            next.remove(best + 1);
+            current = List.copyOf(next);
+            synchronized (this) {
+                // Only seal() also replaces the list, and it runs on this same thread
+                segments = current;
+            }
+            merges++;
+        }
+        return merges;
+    }
+
+    /**
+     * Up to limit messages holding every term, stored in [fromMs, toMs),
+     * newest first: the unsealed messages, then the sealed segments from the
+     * newest back, skipping those outside the time range.
+     */
+    List<MessageRecord> search(String[] terms, long fromMs, long toMs, int limit, SearchIndex.Loader loader) {
+        long[] recent;
+        List<Segment> sealed;
+        synchronized (this) {
+            recent = active.match(terms);
+            if (sealing != null) {
+                recent = Postings.union(sealing.match(terms), recent);
+            }
+            sealed = segments;
+        }
+        List<MessageRecord> results = new ArrayList<>();
+        load(recent, fromMs, toMs, limit, loader, results);
+        for (int i = sealed.size() - 1; i >= 0 && results.size() < limit; i--) {
+            Segment segment = sealed.get(i);
+            if (segment.overlaps(fromMs, toMs)) {
+                load(segment.match(terms), fromMs, toMs, limit, loader, results);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Messages, segments, terms (summed over segments) and bytes of the
+     * sealed part, plus messages not yet sealed.
+     */
+    synchronized String describe() {
+        long docs = 0;
+        long terms = 0;
+        long bytes = 0;
+        for (Segment segment : segments) {
+            docs += segment.docs();
+            terms += segment.terms();
+            bytes += segment.bytes();
+        }
+        int unsealed = active.docs() + (sealing != null ? sealing.docs() : 0);
+        return String.format("%-30s | %9d msgs | %2d segments | %8d terms | %8d KB | %d unsealed", topic, docs,
+                segments.size(), terms, bytes / 1024, unsealed);
+    }
+
+    synchronized long bytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.bytes();
+        }
+        return bytes;
+    }
+
+    private synchronized List<Segment> snapshot() {
+        return segments;
+    }
+
+    private static long pairDocs(List<Segment> list, int i) {
+        return (long) list.get(i).docs() + list.get(i + 1).docs();
+    }
+
+    // Loads matching ids from the highest down, in batches, until limit results
+    private void load(long[] ids, long fromMs, long toMs, int limit, SearchIndex.Loader loader,
+            List<MessageRecord> results) {
+        int end = ids.length;
+        while (end > 0 && results.size() < limit) {
+            int batch = Math.min(end, Math.min(MAX_BATCH, Math.max(MIN_BATCH, limit - results.size())));
+            List<MessageRecord> loaded = loader.load(topic, Arrays.copyOfRange(ids, end - batch, end), fromMs, toMs);
+            for (int i = 0; i < loaded.size() && results.size() < limit; i++) {
+                results.add(loaded.get(i));
+            }
+            end -= batch;
+        }
+    }
+}
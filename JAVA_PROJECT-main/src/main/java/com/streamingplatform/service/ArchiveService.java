@@ -3,9 +3,8 @@ package com.streamingplatform.service;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.Timer;
-import java.util.TimerTask;
 
+import com.streamingplatform.metrics.MetricsRegistry;
 import com.streamingplatform.persistence.DatabaseManager;
 
 /**
@@ -14,17 +13,21 @@ import com.streamingplatform.persistence.DatabaseManager;
  */
 public class ArchiveService {
 
-    private Timer cleanupTimer;
+    private final SyncScheduler scheduler;
+    private SyncScheduler.ScheduledJob cleanupJob;
     private int retentionMinutes;
-    private static final long CLEANUP_INTERVAL_MS = 60000; // Run every minute
+    // Start after 1 minute, run every minute (up to every 10 while there is nothing to delete)
+    private static final SyncScheduler.Policy CLEANUP_POLICY = SyncScheduler.Policy.adaptive(60_000, 60_000, 60_000,
+            600_000);
 
     /**
      * Create archive service with specified retention period
      * 
      * @param retentionMinutes Messages older than this will be deleted
      */
-    public ArchiveService(int retentionMinutes) {
+    public ArchiveService(int retentionMinutes, SyncScheduler scheduler) {
         this.retentionMinutes = retentionMinutes;
+        this.scheduler = scheduler;
     }
 
     /**
@@ -33,56 +36,58 @@ public class ArchiveService {
     public void start() {
         System.out.println("[Archive] Starting cleanup service (retention: " + retentionMinutes + " minutes)...");
 
-        cleanupTimer = new Timer(true); // Daemon thread
-        cleanupTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                cleanup();
-            }
-        }, CLEANUP_INTERVAL_MS, CLEANUP_INTERVAL_MS); // Start after 1 minute, run every minute
+        cleanupJob = scheduler.schedule("archive", CLEANUP_POLICY, this::cleanup);
     }
 
     /**
      * Stop the cleanup service
      */
     public void stop() {
-        if (cleanupTimer != null) {
-            cleanupTimer.cancel();
+        if (cleanupJob != null) {
+            cleanupJob.cancel();
             System.out.println("[Archive] Cleanup service stopped.");
         }
     }
 
     /**
      * Delete messages older than retention period
+     *
+     * @return the number of messages deleted
      */
-    private void cleanup() {
-        try {
-            Connection conn = DatabaseManager.getConnection();
+    private long cleanup() throws SQLException {
+        Connection conn = DatabaseManager.getConnection();
 
-            // Delete messages older than X minutes
-            String deleteSQL = "DELETE FROM messages WHERE timestamp < DATEADD('MINUTE', ?, CURRENT_TIMESTAMP)";
+        // Delete messages older than X minutes
+        String deleteSQL = "DELETE FROM messages WHERE timestamp < DATEADD('MINUTE', ?, CURRENT_TIMESTAMP)";
 
-            PreparedStatement ps = conn.prepareStatement(deleteSQL);
+        int deleted;
+        try (PreparedStatement ps = conn.prepareStatement(deleteSQL)) {
             ps.setInt(1, -retentionMinutes); // Negative value for past time
+            deleted = ps.executeUpdate();
+        }
+        MetricsRegistry.counter(MetricsRegistry.ARCHIVE_DELETED).add(deleted);
 
-            int deleted = ps.executeUpdate();
-            ps.close();
-
-            if (deleted > 0) {
-                System.out.println(
-                        "[Archive] Deleted " + deleted + " old messages (older than " + retentionMinutes + " min).");
-            }
-
-        } catch (SQLException e) {
-            System.err.println("[Archive] Cleanup failed: " + e.getMessage());
+        if (deleted > 0) {
+            System.out.println(
+                    "[Archive] Deleted " + deleted + " old messages (older than " + retentionMinutes + " min).");
         }
+        return deleted;
     }
 
     /**
-     * Manually trigger cleanup (for testing)
+     * Manually trigger cleanup (for testing). Skipped if a scheduled cleanup
+     * is running right now.
      */
     public void cleanupNow() {
-        cleanup();
+        if (cleanupJob != null) {
+            cleanupJob.runNow();
+            return;
+        }
+        try {
+            cleanup();
+        } catch (SQLException e) {
+            System.err.println("[Archive] Cleanup failed: " + e.getMessage());
+        }
     }
 
     /**
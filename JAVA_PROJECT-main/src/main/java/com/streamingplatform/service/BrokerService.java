@@ -1,24 +1,200 @@
 package com.streamingplatform.service;
 
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
+import com.streamingplatform.analysis.StreamAnalytics;
+import com.streamingplatform.metrics.LatencyHistogram;
+import com.streamingplatform.metrics.MetricsRegistry;
+import com.streamingplatform.metrics.Tracing;
 import com.streamingplatform.persistence.MessageDAO;
+import com.streamingplatform.persistence.MessageFilter;
+import com.streamingplatform.persistence.MessageRecord;
+import com.streamingplatform.search.SearchIndex;
+import com.streamingplatform.search.SearchQuery;
+import com.streamingplatform.service.ProducerStateManager.SequenceWindow;
+import com.streamingplatform.service.ProducerStateManager.Status;
 
 public class BrokerService {
     private final MessageDAO messageDAO;
+    private final StreamAggregator aggregator;
+    private final ConsumerRegistry consumers;
+    private final StreamAnalytics analytics;
+    private final SearchIndex searchIndex;
+    private final RollupService rollups;
+    private final ProducerStateManager producerState = new ProducerStateManager();
+
+    // Looked up once so the publish path only increments / records
+    private final LongAdder published = MetricsRegistry.counter(MetricsRegistry.MESSAGES_PUBLISHED);
+    private final LongAdder consumed = MetricsRegistry.counter(MetricsRegistry.MESSAGES_CONSUMED);
+    private final LongAdder duplicates = MetricsRegistry.counter(MetricsRegistry.DUPLICATES_DROPPED);
+    private final LatencyHistogram storeWriteLatency = MetricsRegistry.histogram(MetricsRegistry.STORE_WRITE_LATENCY);
+    private final LatencyHistogram storeReadLatency = MetricsRegistry.histogram(MetricsRegistry.STORE_READ_LATENCY);
 
     // FIX: Constructor Injection
-    public BrokerService(MessageDAO messageDAO) {
+    public BrokerService(MessageDAO messageDAO, StreamAggregator aggregator, ConsumerRegistry consumers,
+            StreamAnalytics analytics, SearchIndex searchIndex, RollupService rollups) {
         this.messageDAO = messageDAO;
+        this.aggregator = aggregator;
+        this.consumers = consumers;
+        this.analytics = analytics;
+        this.searchIndex = searchIndex;
+        this.rollups = rollups;
+    }
+
+    public BrokerService(MessageDAO messageDAO) {
+        this(messageDAO, new StreamAggregator(), new ConsumerRegistry(), new StreamAnalytics(),
+                new SearchIndex(List.of()), new RollupService());
     }
 
     public void publish(String topic, String producerId, String content) {
-        messageDAO.saveMessage(topic, producerId, content);
-        System.out.println("[Broker] Persisted: " + topic + " -> " + content);
+        publish(MessageRecord.of(topic, producerId, content));
+    }
+
+    /**
+     * Publish a message, timed from record.ingestNanos() (Tracing.now()).
+     *
+     * @return the Tracing.now() time the store commit finished, or -1 if it failed
+     */
+    public long publish(MessageRecord record) {
+        long committed = store(record);
+        if (committed >= 0) {
+            recordPublished(record);
+        }
+        logPersisted(record);
+        return committed;
+    }
+
+    /**
+     * Register an idempotent producer and return its new epoch.
+     */
+    public long initProducer(String producerId) {
+        return producerState.initProducer(producerId);
+    }
+
+    /**
+     * Forget idempotent producers idle for the TTL (ProducerStateManager).
+     */
+    public int expireProducers(long now) {
+        return producerState.expire(now);
+    }
+
+    /**
+     * Publish with producer epoch + per-topic sequence number.
+     * A replayed sequence (client retry after a lost ACK) is acknowledged
+     * as DUPLICATE without writing a second row.
+     */
+    public Status publishIdempotent(MessageRecord record, long epoch, long sequence) {
+        String producerId = record.key();
+        SequenceWindow window = producerState.window(producerId, epoch, record.topic());
+        if (window == null) {
+            return producerState.rejection(producerId, epoch);
+        }
+
+        // Check, store and mark under the window lock so two concurrent
+        // retries of the same sequence cannot both be written
+        synchronized (window) {
+            if (window.isDuplicate(sequence)) {
+                duplicates.increment();
+                return Status.DUPLICATE;
+            }
+            if (store(record) < 0) {
+                // Not marked: the client's retry must be allowed through
+                throw new IllegalStateException("Failed to persist message");
+            }
+            window.mark(sequence);
+        }
+        recordPublished(record);
+        logPersisted(record);
+        return Status.ACCEPTED;
+    }
+
+    /**
+     * Consume as a known consumer, which keeps its subscription to the topic
+     * alive; only messages passing the subscription's filter are returned.
+     */
+    public List<MessageRecord> consume(String topic, String consumerId) {
+        return consume(topic, consumers.touch(consumerId, topic));
+    }
+
+    /**
+     * Record that messages up to ingest time newestNanos were sent to a
+     * consumer; see ConsumerRegistry.advanceDelivered.
+     */
+    public long advanceDelivered(String topic, String consumerId, long newestNanos) {
+        return consumers.advanceDelivered(consumerId, topic, newestNanos);
+    }
+
+    public void subscribe(String topic, String consumerId) {
+        subscribe(topic, consumerId, MessageFilter.ALL);
+    }
+
+    /**
+     * Subscribe with a filter that later CONSUMEs of this consumer apply.
+     */
+    public void subscribe(String topic, String consumerId, MessageFilter filter) {
+        consumers.subscribe(consumerId, topic, filter);
+    }
+
+    /**
+     * @return false if the consumer was not subscribed to the topic
+     */
+    public boolean unsubscribe(String topic, String consumerId) {
+        return consumers.unsubscribe(consumerId, topic);
+    }
+
+    public List<MessageRecord> consume(String topic) {
+        return consume(topic, MessageFilter.ALL);
+    }
+
+    /**
+     * Messages of a topic that pass filter, filtered in the broker.
+     */
+    public List<MessageRecord> consume(String topic, MessageFilter filter) {
+        long start = System.nanoTime();
+        List<MessageRecord> messages = messageDAO.getRecordsByTopic(topic, filter);
+        storeReadLatency.record(System.nanoTime() - start);
+
+        consumed.add(messages.size());
+        MetricsRegistry.topic(topic).recordConsume(messages.size());
+        return messages;
+    }
+
+    /**
+     * Newest messages of an indexed topic holding every query term.
+     *
+     * @return the matches, or null if the topic is not indexed
+     */
+    public List<MessageRecord> search(String topic, SearchQuery query) {
+        return searchIndex.search(topic, query, messageDAO::getRecordsByIds);
+    }
+
+    // Stores and indexes the message; returns the commit time, or -1 if the insert failed
+    private long store(MessageRecord record) {
+        long start = Tracing.now();
+        long id = messageDAO.insertMessage(record);
+        long end = Tracing.now();
+        storeWriteLatency.record(end - start);
+        if (id < 0) {
+            return -1;
+        }
+        Tracing.record(record.topic(), Tracing.Stage.STORE, end - start);
+        searchIndex.add(record.topic(), id, record.payload(), record.offset(), record.length());
+        return end;
+    }
 
+    private void recordPublished(MessageRecord record) {
+        long now = System.currentTimeMillis();
+        published.increment();
+        aggregator.record(record.topic(), record.key());
+        analytics.record(record.topic(), record.key(), record.payload(), record.offset(), record.length(), now);
+        rollups.record(record.topic(), record.key(), record.length(), now);
+        MetricsRegistry.topic(record.topic()).recordPublish(record.length());
+        MetricsRegistry.producer(record.key()).recordPublish(record.length());
     }
 
-    public List<String> consume(String topic) {
-        return messageDAO.getMessagesByTopic(topic);
+    // Console edge: the only place the publish path turns a payload into a String
+    private static void logPersisted(MessageRecord record) {
+        System.out.println("[Broker] Persisted: " + record.topic() + " -> " + record.payloadAsString());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+package com.streamingplatform.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.streamingplatform.outbox.ChangeEvent;
+import com.streamingplatform.outbox.ChangeOutbox;
+
+/**
+ * Feeds the change outbox: drains the broker's live counts
+ * ({@link StreamAggregator}) into topic / producer-topic count deltas, and
+ * the consumer changes queued by the {@link ConsumerRegistry}. The sinks
+ * read the outbox, never H2.
+ *
+ * Publishing stays in memory; counts reach the outbox on the next capture
+ * (every 200 ms while messages flow), coalesced per key.
+ */
+public class ChangeCaptureService {
+
+    // Every 200 ms, adapting between 100 ms and 2 seconds
+    private static final SyncScheduler.Policy CAPTURE_POLICY = SyncScheduler.Policy.adaptive(0, 200, 100, 2000);
+
+    // Consumer subscriptions are checked for expiry at most once a second
+    private static final long EXPIRY_CHECK_MS = 1000;
+
+    private final StreamAggregator.Cursor cursor;
+    private final ChangeOutbox outbox;
+    private final SyncScheduler scheduler;
+    private final ConsumerRegistry consumers;
+    private SyncScheduler.ScheduledJob captureJob;
+    private long lastExpiryCheck;
+    // Drained from the registry, kept until appended
+    private final List<ChangeEvent> consumerChanges = new ArrayList<>();
+
+    public ChangeCaptureService(StreamAggregator aggregator, ConsumerRegistry consumers, ChangeOutbox outbox,
+            SyncScheduler scheduler) {
+        this.cursor = aggregator.newCursor("outbox");
+        this.consumers = consumers;
+        this.outbox = outbox;
+        this.scheduler = scheduler;
+    }
+
+    public void start() {
+        System.out.println("[Outbox] Starting change capture...");
+        captureJob = scheduler.schedule("outbox-capture", CAPTURE_POLICY, this::capture);
+    }
+
+    public void stop() {
+        if (captureJob != null) {
+            captureJob.cancel();
+        }
+        consumers.expireAll(); // Their connections end with the broker
+        try {
+            capture(); // Last counts and consumer changes before shutdown
+        } catch (IOException e) {
+            System.err.println("[Outbox] Final capture failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Append the consumer changes and counts since the last capture.
+     *
+     * @return the number of events appended
+     */
+    private synchronized long capture() throws IOException {
+        long now = System.currentTimeMillis();
+        if (now - lastExpiryCheck >= EXPIRY_CHECK_MS) {
+            consumers.expire(now);
+            lastExpiryCheck = now;
+        }
+
+        consumers.drainChanges(consumerChanges);
+        List<ChangeEvent> events = new ArrayList<>(consumerChanges);
+        StreamAggregator.ChangeSet changes = cursor.changes();
+        for (StreamAggregator.TopicChange change : changes.topics()) {
+            events.add(ChangeEvent.topicCount(change.topic(), change.delta()));
+        }
+        for (StreamAggregator.PairChange change : changes.pairs()) {
+            events.add(ChangeEvent.pairCount(change.producerId(), change.topic(), change.delta()));
+        }
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        outbox.append(events);
+        consumerChanges.clear();
+        cursor.commit(changes);
+        return events.size();
+    }
+}
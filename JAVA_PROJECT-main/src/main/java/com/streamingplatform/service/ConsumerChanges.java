@@ -0,0 +1,67 @@
+package com.streamingplatform.service;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.streamingplatform.outbox.ChangeEvent;
+
+/**
+ * Net effect of the consumer events in one sink batch. Batches are in seq
+ * order, so replaying them here leaves, per consumer and subscription, only
+ * the last change: apply expired, then removed, then added.
+ */
+final class ConsumerChanges {
+
+    record Subscription(String consumerId, String topic) {
+    }
+
+    // Consumers to delete first; one may still be in added if it came back afterwards
+    final Set<String> expired = new LinkedHashSet<>();
+    final Set<Subscription> removed = new LinkedHashSet<>();
+    final Set<Subscription> added = new LinkedHashSet<>();
+
+    static ConsumerChanges of(List<ChangeEvent> batch) {
+        ConsumerChanges changes = new ConsumerChanges();
+        for (ChangeEvent event : batch) {
+            changes.apply(event);
+        }
+        return changes;
+    }
+
+    boolean isEmpty() {
+        return expired.isEmpty() && removed.isEmpty() && added.isEmpty();
+    }
+
+    /**
+     * Consumers with at least one added subscription.
+     */
+    Set<String> addedConsumers() {
+        Set<String> consumers = new LinkedHashSet<>();
+        added.forEach(s -> consumers.add(s.consumerId()));
+        return consumers;
+    }
+
+    private void apply(ChangeEvent event) {
+        switch (event.type()) {
+            case CONSUMER_REGISTERED -> {
+                Subscription s = new Subscription(event.consumerId(), event.topic());
+                removed.remove(s);
+                added.add(s);
+            }
+            case CONSUMER_UNSUBSCRIBED -> {
+                Subscription s = new Subscription(event.consumerId(), event.topic());
+                added.remove(s);
+                removed.add(s);
+            }
+            case CONSUMER_EXPIRED -> {
+                added.removeIf(s -> s.consumerId().equals(event.consumerId()));
+                removed.removeIf(s -> s.consumerId().equals(event.consumerId()));
+                expired.add(event.consumerId());
+            }
+            default -> {
+                // Counts are not consumer changes
+            }
+        }
+    }
+}
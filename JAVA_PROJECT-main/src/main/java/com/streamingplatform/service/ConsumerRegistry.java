@@ -0,0 +1,240 @@
+package com.streamingplatform.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.streamingplatform.graph.StreamGraph;
+import com.streamingplatform.metrics.MetricsRegistry;
+import com.streamingplatform.metrics.Tracing;
+import com.streamingplatform.outbox.ChangeEvent;
+import com.streamingplatform.persistence.MessageFilter;
+
+/**
+ * Live consumer sessions: which consumer reads which topics, when each
+ * subscription was last used (CONSUME / SUBSCRIBE with a consumer id) and
+ * the filter it was subscribed with, and the newest message ingest time
+ * already delivered to it (so a delivery is only timed the first time).
+ *
+ * A subscription not used for the TTL expires, and a consumer whose last
+ * subscription expires is gone. Only these changes - subscribed,
+ * unsubscribed, expired - are queued as change events, for
+ * {@link ChangeCaptureService} to move into the outbox; polling an existing
+ * subscription only updates its last-seen time in memory. The same changes
+ * are applied to the {@link StreamGraph}'s SUBSCRIBES_TO edges as they happen.
+ */
+public class ConsumerRegistry {
+
+    // Subscriptions not used for a minute expire (-Dstreaming.consumer.ttl.ms)
+    private static final long DEFAULT_TTL_MS = 60_000;
+
+    private final long ttlMs;
+    // consumerId -> topic -> subscription; each session is changed only inside compute() on its key
+    private final ConcurrentHashMap<String, Map<String, Subscription>> sessions = new ConcurrentHashMap<>();
+    private final Queue<ChangeEvent> changes = new ConcurrentLinkedQueue<>();
+    private final StreamGraph graph;
+
+    private final LongAdder subscriptions = new LongAdder();
+    private final LongAdder subscribed = MetricsRegistry.counter("consumer_subscribed_total");
+    private final LongAdder unsubscribed = MetricsRegistry.counter("consumer_unsubscribed_total");
+    private final LongAdder expired = MetricsRegistry.counter("consumer_expired_total");
+
+    public ConsumerRegistry() {
+        this(Long.getLong("streaming.consumer.ttl.ms", DEFAULT_TTL_MS));
+    }
+
+    public ConsumerRegistry(long ttlMs) {
+        this(ttlMs, new StreamGraph());
+    }
+
+    public ConsumerRegistry(StreamGraph graph) {
+        this(Long.getLong("streaming.consumer.ttl.ms", DEFAULT_TTL_MS), graph);
+    }
+
+    public ConsumerRegistry(long ttlMs, StreamGraph graph) {
+        this.ttlMs = ttlMs;
+        this.graph = graph;
+        MetricsRegistry.gauge("consumers_active", sessions::size);
+        MetricsRegistry.gauge("consumer_subscriptions_active", subscriptions::sum);
+    }
+
+    // Last use of a subscription, the filter it reads with and its delivery cursor (Tracing.now() nanos)
+    private record Subscription(long lastSeenMs, MessageFilter filter, long deliveredNanos) {
+    }
+
+    /**
+     * Record that a consumer read a topic; a first read subscribes it with no
+     * filter.
+     *
+     * @return the subscription's filter
+     */
+    public MessageFilter touch(String consumerId, String topic) {
+        return update(consumerId, topic, null);
+    }
+
+    /**
+     * Subscribe a consumer to a topic with filter (MessageFilter.ALL for every
+     * message), replacing the filter of an existing subscription.
+     */
+    public void subscribe(String consumerId, String topic, MessageFilter filter) {
+        update(consumerId, topic, filter);
+    }
+
+    // filter null keeps the current one
+    private MessageFilter update(String consumerId, String topic, MessageFilter filter) {
+        long now = System.currentTimeMillis();
+        MessageFilter[] current = new MessageFilter[1];
+        sessions.compute(consumerId, (id, topics) -> {
+            if (topics == null) {
+                topics = new ConcurrentHashMap<>();
+            }
+            Subscription previous = topics.get(topic);
+            current[0] = filter != null ? filter : previous != null ? previous.filter() : MessageFilter.ALL;
+            // A new subscription times only messages ingested from now on, not the topic's history
+            long delivered = previous != null ? previous.deliveredNanos() : Tracing.now();
+            topics.put(topic, new Subscription(now, current[0], delivered));
+            if (previous == null) {
+                subscriptions.increment();
+                subscribed.increment();
+                changes.add(ChangeEvent.consumerRegistered(id, topic));
+                graph.subscribe(id, topic);
+            }
+            return topics;
+        });
+        return current[0];
+    }
+
+    /**
+     * Move a subscription's delivery cursor up to newestNanos, the newest
+     * ingest time just sent to the consumer.
+     *
+     * @return the cursor before the move: messages ingested after it were
+     *         delivered for the first time; Long.MAX_VALUE if the consumer is
+     *         not subscribed to the topic
+     */
+    public long advanceDelivered(String consumerId, String topic, long newestNanos) {
+        long[] previous = { Long.MAX_VALUE };
+        sessions.computeIfPresent(consumerId, (id, topics) -> {
+            Subscription subscription = topics.get(topic);
+            if (subscription != null) {
+                previous[0] = subscription.deliveredNanos();
+                if (newestNanos > previous[0]) {
+                    topics.put(topic, new Subscription(subscription.lastSeenMs(), subscription.filter(), newestNanos));
+                }
+            }
+            return topics;
+        });
+        return previous[0];
+    }
+
+    /**
+     * Drop one subscription; the consumer is gone once it has none left.
+     *
+     * @return false if the consumer was not subscribed to the topic
+     */
+    public boolean unsubscribe(String consumerId, String topic) {
+        boolean[] removed = new boolean[1];
+        sessions.computeIfPresent(consumerId, (id, topics) -> {
+            if (topics.remove(topic) != null) {
+                removed[0] = true;
+                subscriptions.decrement();
+                unsubscribed.increment();
+                changes.add(ChangeEvent.consumerUnsubscribed(id, topic));
+                graph.unsubscribe(id, topic);
+            }
+            return endIfEmpty(id, topics);
+        });
+        return removed[0];
+    }
+
+    /**
+     * Expire subscriptions not used since now - TTL.
+     *
+     * @return the number of subscriptions expired
+     */
+    public int expire(long now) {
+        long cutoff = now - ttlMs;
+        int[] count = new int[1];
+        for (String consumerId : sessions.keySet()) {
+            sessions.computeIfPresent(consumerId, (id, topics) -> {
+                List<String> idle = new ArrayList<>();
+                for (Iterator<Map.Entry<String, Subscription>> it = topics.entrySet().iterator(); it.hasNext();) {
+                    Map.Entry<String, Subscription> subscription = it.next();
+                    if (subscription.getValue().lastSeenMs() < cutoff) {
+                        it.remove();
+                        idle.add(subscription.getKey());
+                    }
+                }
+                count[0] += idle.size();
+                subscriptions.add(-idle.size());
+                if (!topics.isEmpty()) {
+                    // Still active on other topics; with none left, CONSUMER_EXPIRED covers them all
+                    for (String topic : idle) {
+                        unsubscribed.increment();
+                        changes.add(ChangeEvent.consumerUnsubscribed(id, topic));
+                        graph.unsubscribe(id, topic);
+                    }
+                }
+                return endIfEmpty(id, topics);
+            });
+        }
+        return count[0];
+    }
+
+    /**
+     * End every session, e.g. on shutdown: their connections are gone.
+     */
+    public void expireAll() {
+        expire(Long.MAX_VALUE);
+    }
+
+    /**
+     * Move the queued changes to out, in the order they happened per consumer.
+     */
+    public int drainChanges(List<ChangeEvent> out) {
+        int drained = 0;
+        ChangeEvent event;
+        while ((event = changes.poll()) != null) {
+            out.add(event);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * One line per consumer: id, topics (with their filters) and seconds
+     * since it was last seen.
+     */
+    public List<String> describe() {
+        long now = System.currentTimeMillis();
+        List<String> lines = new ArrayList<>();
+        new TreeMap<>(sessions).forEach((consumerId, topics) -> {
+            long lastSeen = topics.values().stream().mapToLong(Subscription::lastSeenMs).max().orElse(now);
+            List<String> names = new ArrayList<>();
+            new TreeMap<>(topics).forEach((topic, subscription) -> names.add(subscription.filter().matchesAll() ? topic
+                    : topic + " [" + subscription.filter() + "]"));
+            lines.add(String.format("  %-30s topics=%s  last seen %ds ago", consumerId, names, (now - lastSeen) / 1000));
+        });
+        if (lines.isEmpty()) {
+            lines.add("  (no consumers)");
+        }
+        return lines;
+    }
+
+    // Called inside compute(): an empty session ends with one CONSUMER_EXPIRED
+    private Map<String, Subscription> endIfEmpty(String consumerId, Map<String, Subscription> topics) {
+        if (!topics.isEmpty()) {
+            return topics;
+        }
+        expired.increment();
+        changes.add(ChangeEvent.consumerExpired(consumerId));
+        graph.removeConsumer(consumerId);
+        return null;
+    }
+}
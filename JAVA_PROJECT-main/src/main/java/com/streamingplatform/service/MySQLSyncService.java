@@ -4,120 +4,190 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Timer;
-import java.util.TimerTask;
-
-import com.streamingplatform.persistence.DatabaseManager;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+import com.streamingplatform.outbox.ChangeEvent;
+import com.streamingplatform.outbox.ChangeOutbox;
+import com.streamingplatform.outbox.Sink;
 import com.streamingplatform.persistence.MySQLManager;
 
 /**
- * Background service that syncs topic relationships from H2 to MySQL.
+ * Background service that syncs topic relationships to MySQL, as a
+ * {@link Sink} of the change outbox.
  * Enables advanced queries like "Which IP posts to the most topics?"
  */
-public class MySQLSyncService {
+public class MySQLSyncService implements Sink {
+
+    // Every 5 seconds, adapting between 1 and 30 seconds
+    private static final SyncScheduler.Policy SYNC_POLICY = SyncScheduler.Policy.adaptive(0, 5000, 1000, 30_000);
 
-    private Timer syncTimer;
-    private static final long SYNC_INTERVAL_MS = 5000; // Sync every 5 seconds
+    private final ChangeOutbox outbox;
+    private final SyncScheduler scheduler;
+    private SyncScheduler.ScheduledJob syncJob;
+
+    private record PairKey(String producerId, String topic) {
+    }
+
+    public MySQLSyncService(ChangeOutbox outbox, SyncScheduler scheduler) {
+        this.outbox = outbox;
+        this.scheduler = scheduler;
+    }
 
     /**
      * Start the background sync service
      */
     public void start() {
         System.out.println("[MySQLSync] Starting background sync service...");
-
-        syncTimer = new Timer(true); // Daemon thread
-        syncTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                syncToMySQL();
-            }
-        }, 0, SYNC_INTERVAL_MS);
+        syncJob = outbox.attach(this, scheduler, SYNC_POLICY);
     }
 
     /**
      * Stop the sync service
      */
     public void stop() {
-        if (syncTimer != null) {
-            syncTimer.cancel();
+        if (syncJob != null) {
+            syncJob.cancel();
             System.out.println("[MySQLSync] Sync service stopped.");
         }
     }
 
+    @Override
+    public String name() {
+        return "mysql-sync";
+    }
+
     /**
-     * Sync H2 data to MySQL
+     * Apply a batch of outbox events to MySQL.
+     *
+     * Deltas are summed per topic and per producer-topic pair and added to the
+     * MySQL counts; consumers are upserted, and deleted when they expire
+     * (MySQL has no subscription table). Everything, including this sink's
+     * outbox position, is written as JDBC batches in a single transaction, so
+     * a failure leaves MySQL unchanged and a crash never applies a batch
+     * twice. Calls go through MySQL's circuit breaker: while it is open the
+     * batch is rejected without touching MySQL and stays in the outbox.
      */
-    private void syncToMySQL() {
-        try {
-            Connection h2Conn = DatabaseManager.getConnection();
-            Connection mysqlConn = MySQLManager.getConnection();
-
-            // Get producer-topic stats from H2
-            String h2Query = """
-                        SELECT producer_id, topic, COUNT(*) as msg_count
-                        FROM messages
-                        WHERE producer_id IS NOT NULL
-                        GROUP BY producer_id, topic
-                    """;
-
-            ResultSet rs = h2Conn.createStatement().executeQuery(h2Query);
+    @Override
+    public void apply(List<ChangeEvent> batch, String outboxId) throws Exception {
+        MySQLManager.circuitBreaker().execute(() -> {
+            write(batch, outboxId);
+            return null;
+        });
+    }
 
-            // Upsert into MySQL
-            String upsertSQL = """
+    private void write(List<ChangeEvent> batch, String outboxId) throws SQLException {
+        Map<PairKey, Long> pairDeltas = new LinkedHashMap<>();
+        Map<String, Long> topicDeltas = new LinkedHashMap<>();
+        for (ChangeEvent event : batch) {
+            switch (event.type()) {
+                case PAIR_COUNT -> pairDeltas.merge(new PairKey(event.producerId(), event.topic()), event.delta(),
+                        Long::sum);
+                case TOPIC_COUNT -> topicDeltas.merge(event.topic(), event.delta(), Long::sum);
+                default -> {
+                    // Consumer changes, below
+                }
+            }
+        }
+        ConsumerChanges consumers = ConsumerChanges.of(batch);
+        long position = batch.get(batch.size() - 1).seq();
+
+        Connection mysqlConn = MySQLManager.getConnection();
+        // The connection is shared; keep other writers out of this transaction
+        synchronized (mysqlConn) {
+            boolean autoCommit = mysqlConn.getAutoCommit();
+            mysqlConn.setAutoCommit(false);
+            try (PreparedStatement producerTopicPs = mysqlConn.prepareStatement("""
                         INSERT INTO ip_topic_stats (producer_id, topic, message_count)
                         VALUES (?, ?, ?)
-                        ON DUPLICATE KEY UPDATE message_count = VALUES(message_count), last_seen = CURRENT_TIMESTAMP
-                    """;
-
-            PreparedStatement ps = mysqlConn.prepareStatement(upsertSQL);
-
-            int synced = 0;
-            while (rs.next()) {
-                ps.setString(1, rs.getString("producer_id"));
-                ps.setString(2, rs.getString("topic"));
-                ps.setInt(3, rs.getInt("msg_count"));
-                ps.executeUpdate();
-                synced++;
-            }
-
-            rs.close();
-            ps.close();
-
-            // Also sync topic counts
-            syncTopicCounts(h2Conn, mysqlConn);
-
-            if (synced > 0) {
-                System.out.println("[MySQLSync] Synced " + synced + " producer-topic records.");
+                        ON DUPLICATE KEY UPDATE message_count = message_count + VALUES(message_count),
+                            last_seen = CURRENT_TIMESTAMP
+                    """);
+                 PreparedStatement topicPs = mysqlConn.prepareStatement("""
+                        INSERT INTO topics (name, message_count) VALUES (?, ?)
+                        ON DUPLICATE KEY UPDATE message_count = message_count + VALUES(message_count)
+                    """);
+                 PreparedStatement consumerPs = mysqlConn.prepareStatement("""
+                        INSERT INTO consumers (consumer_id) VALUES (?)
+                        ON DUPLICATE KEY UPDATE last_seen = CURRENT_TIMESTAMP
+                    """);
+                 PreparedStatement expiredPs = mysqlConn.prepareStatement(
+                         "DELETE FROM consumers WHERE consumer_id = ?");
+                 PreparedStatement checkpointPs = mysqlConn.prepareStatement("""
+                        INSERT INTO sync_checkpoints (sink, outbox_id, position) VALUES (?, ?, ?)
+                        ON DUPLICATE KEY UPDATE outbox_id = VALUES(outbox_id), position = VALUES(position)
+                    """)) {
+
+                for (Map.Entry<PairKey, Long> row : pairDeltas.entrySet()) {
+                    producerTopicPs.setString(1, row.getKey().producerId());
+                    producerTopicPs.setString(2, row.getKey().topic());
+                    producerTopicPs.setLong(3, row.getValue());
+                    producerTopicPs.addBatch();
+                }
+                producerTopicPs.executeBatch();
+
+                for (Map.Entry<String, Long> row : topicDeltas.entrySet()) {
+                    topicPs.setString(1, row.getKey());
+                    topicPs.setLong(2, row.getValue());
+                    topicPs.addBatch();
+                }
+                topicPs.executeBatch();
+
+                for (String consumerId : consumers.expired) {
+                    expiredPs.setString(1, consumerId);
+                    expiredPs.addBatch();
+                }
+                expiredPs.executeBatch();
+
+                for (String consumerId : consumers.addedConsumers()) {
+                    consumerPs.setString(1, consumerId);
+                    consumerPs.addBatch();
+                }
+                consumerPs.executeBatch();
+
+                checkpointPs.setString(1, name());
+                checkpointPs.setString(2, outboxId);
+                checkpointPs.setLong(3, position);
+                checkpointPs.executeUpdate();
+
+                mysqlConn.commit();
+            } catch (SQLException e) {
+                mysqlConn.rollback();
+                throw e;
+            } finally {
+                mysqlConn.setAutoCommit(autoCommit);
             }
+        }
 
-        } catch (SQLException e) {
-            // Silently handle if MySQL is not available
-            // System.err.println("[MySQLSync] Sync failed: " + e.getMessage());
+        if (!pairDeltas.isEmpty()) {
+            System.out.println("[MySQLSync] Synced " + pairDeltas.size() + " producer-topic records.");
         }
     }
 
     /**
-     * Sync topic message counts to MySQL
+     * Outbox position stored with the last applied batch.
      */
-    private void syncTopicCounts(Connection h2Conn, Connection mysqlConn) throws SQLException {
-        String h2Query = "SELECT topic, COUNT(*) as cnt FROM messages GROUP BY topic";
-        ResultSet rs = h2Conn.createStatement().executeQuery(h2Query);
-
-        String upsertSQL = """
-                    INSERT INTO topics (name, message_count) VALUES (?, ?)
-                    ON DUPLICATE KEY UPDATE message_count = VALUES(message_count)
-                """;
-
-        PreparedStatement ps = mysqlConn.prepareStatement(upsertSQL);
+    @Override
+    public OptionalLong committedPosition(String outboxId) throws Exception {
+        return MySQLManager.circuitBreaker().execute(() -> readPosition(outboxId));
+    }
 
-        while (rs.next()) {
-            ps.setString(1, rs.getString("topic"));
-            ps.setInt(2, rs.getInt("cnt"));
-            ps.executeUpdate();
+    private OptionalLong readPosition(String outboxId) throws SQLException {
+        Connection mysqlConn = MySQLManager.getConnection();
+        synchronized (mysqlConn) {
+            try (PreparedStatement ps = mysqlConn.prepareStatement(
+                    "SELECT outbox_id, position FROM sync_checkpoints WHERE sink = ?")) {
+                ps.setString(1, name());
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next() && outboxId.equals(rs.getString(1))) {
+                        return OptionalLong.of(rs.getLong(2));
+                    }
+                }
+            }
         }
-
-        rs.close();
-        ps.close();
+        return OptionalLong.empty();
     }
 
     /**
@@ -1,22 +1,39 @@
 package com.streamingplatform.service;
 
-import java.sql.Connection;
-import java.sql.ResultSet;
-import java.util.Timer;
-import java.util.TimerTask;
-
-import com.streamingplatform.persistence.DatabaseManager;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+
+import com.streamingplatform.outbox.ChangeEvent;
+import com.streamingplatform.outbox.ChangeOutbox;
+import com.streamingplatform.outbox.Sink;
 import com.streamingplatform.persistence.Neo4jManager;
 
 /**
- * Background service that syncs Topics, Producers, and Consumers from H2 to
- * Neo4j.
+ * Background service that syncs Topics, Producers, and Consumers to Neo4j,
+ * as a {@link Sink} of the change outbox.
  * Creates graph relationships for analysis.
  */
-public class Neo4jSyncService {
+public class Neo4jSyncService implements Sink {
+
+    // Every 500 ms, adapting between 250 ms and 10 seconds
+    private static final SyncScheduler.Policy SYNC_POLICY = SyncScheduler.Policy.adaptive(1000, 500, 250, 10_000);
 
-    private Timer syncTimer;
-    private static final long SYNC_INTERVAL_MS = 500; // Sync every 5 seconds
+    private final ChangeOutbox outbox;
+    private final SyncScheduler scheduler;
+    private SyncScheduler.ScheduledJob syncJob;
+
+    private record PairKey(String producerId, String topic) {
+    }
+
+    public Neo4jSyncService(ChangeOutbox outbox, SyncScheduler scheduler) {
+        this.outbox = outbox;
+        this.scheduler = scheduler;
+    }
 
     /**
      * Start the background sync service
@@ -27,148 +44,109 @@ public class Neo4jSyncService {
         // Initialize Neo4j database
         Neo4jManager.initializeDatabase();
 
-        syncTimer = new Timer(true); // Daemon thread
-        syncTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                syncToNeo4j();
-            }
-        }, 1000, SYNC_INTERVAL_MS);
+        syncJob = outbox.attach(this, scheduler, SYNC_POLICY);
     }
 
     /**
      * Stop the sync service
      */
     public void stop() {
-        if (syncTimer != null) {
-            syncTimer.cancel();
+        if (syncJob != null) {
+            syncJob.cancel();
             System.out.println("[Neo4jSync] Sync service stopped.");
         }
         Neo4jManager.closeConnection();
     }
 
-    /**
-     * Sync H2 data to Neo4j
-     */
-    private void syncToNeo4j() {
-        try {
-            Connection h2Conn = DatabaseManager.getConnection();
-
-            // 1. Sync Topics
-            syncTopics(h2Conn);
-
-            // 2. Sync Producers and their relationships
-            syncProducers(h2Conn);
-
-            // 3. Sync Consumers (create sample consumers based on topics)
-            syncConsumers();
-
-        } catch (Exception e) {
-            // Silently handle if Neo4j is not available
-            // System.err.println("[Neo4jSync] Sync failed: " + e.getMessage());
-        }
+    @Override
+    public String name() {
+        return "neo4j-sync";
     }
 
     /**
-     * Sync Topics from H2 to Neo4j
+     * Apply a batch of outbox events to Neo4j.
+     *
+     * Deltas are summed per topic and per producer-topic relationship, then
+     * sent with one UNWIND statement per kind; consumer changes are reduced
+     * to their net effect (expired consumers are deleted, then subscriptions
+     * removed and added). All of it goes, together with this sink's
+     * outbox position, in a single write transaction. A failed transaction
+     * commits nothing, so the driver's retries and the next attempt are
+     * harmless. Calls go through Neo4j's circuit breaker: while it is open
+     * the batch is rejected without opening a session and stays in the outbox.
      */
-    private void syncTopics(Connection h2Conn) throws Exception {
-        String query = "SELECT topic, COUNT(*) as cnt FROM messages GROUP BY topic";
-        ResultSet rs = h2Conn.createStatement().executeQuery(query);
-
-        int synced = 0;
-        while (rs.next()) {
-            String topicName = rs.getString("topic");
-            int messageCount = rs.getInt("cnt");
-            Neo4jManager.upsertTopic(topicName, messageCount);
-            synced++;
-        }
-        rs.close();
-
-        if (synced > 0) {
-            System.out.println("[Neo4jSync] Synced " + synced + " topics.");
-        }
+    @Override
+    public void apply(List<ChangeEvent> batch, String outboxId) throws Exception {
+        Neo4jManager.circuitBreaker().execute(() -> {
+            write(batch, outboxId);
+            return null;
+        });
     }
 
-    /**
-     * Sync Producers and their PUBLISHES_TO relationships
-     */
-    private void syncProducers(Connection h2Conn) throws Exception {
-        // Get unique producers
-        String producerQuery = "SELECT DISTINCT producer_id FROM messages WHERE producer_id IS NOT NULL";
-        ResultSet rsProducers = h2Conn.createStatement().executeQuery(producerQuery);
-
-        while (rsProducers.next()) {
-            String producerId = rsProducers.getString("producer_id");
-            Neo4jManager.upsertProducer(producerId);
+    private void write(List<ChangeEvent> batch, String outboxId) {
+        Map<String, Long> topicDeltas = new LinkedHashMap<>();
+        Map<PairKey, Long> pairDeltas = new LinkedHashMap<>();
+        Set<String> producers = new LinkedHashSet<>();
+        for (ChangeEvent event : batch) {
+            switch (event.type()) {
+                case TOPIC_COUNT -> topicDeltas.merge(event.topic(), event.delta(), Long::sum);
+                case PAIR_COUNT -> {
+                    producers.add(event.producerId());
+                    pairDeltas.merge(new PairKey(event.producerId(), event.topic()), event.delta(), Long::sum);
+                }
+                default -> {
+                    // Consumer changes, below
+                }
+            }
+        }
+        ConsumerChanges consumers = ConsumerChanges.of(batch);
+
+        List<Map<String, Object>> topicRows = new ArrayList<>();
+        topicDeltas.forEach((topic, delta) -> topicRows.add(Map.of("name", topic, "delta", delta)));
+        List<Map<String, Object>> relationRows = new ArrayList<>();
+        pairDeltas.forEach((pair, delta) -> relationRows.add(Map.of("producerId", pair.producerId(),
+                "topicName", pair.topic(), "delta", delta)));
+        long position = batch.get(batch.size() - 1).seq();
+
+        Neo4jManager.writeInTransaction(tx -> {
+            Neo4jManager.upsertTopics(tx, topicRows);
+            Neo4jManager.upsertProducers(tx, producers);
+            Neo4jManager.mergePublishesRelations(tx, relationRows);
+            Neo4jManager.deleteConsumers(tx, consumers.expired);
+            Neo4jManager.deleteSubscribesRelations(tx, subscriptionRows(consumers.removed));
+            Neo4jManager.upsertConsumers(tx, consumers.addedConsumers());
+            Neo4jManager.mergeSubscribesRelations(tx, subscriptionRows(consumers.added));
+            Neo4jManager.writeCheckpoint(tx, name(), outboxId, position);
+        });
+        Neo4jManager.queryCache().invalidate();
+
+        if (!topicRows.isEmpty()) {
+            System.out.println("[Neo4jSync] Synced " + topicRows.size() + " topics.");
         }
-        rsProducers.close();
-
-        // Get producer-topic relationships with counts
-        String relQuery = """
-                    SELECT producer_id, topic, COUNT(*) as msg_count
-                    FROM messages
-                    WHERE producer_id IS NOT NULL
-                    GROUP BY producer_id, topic
-                """;
-        ResultSet rsRel = h2Conn.createStatement().executeQuery(relQuery);
-
-        int synced = 0;
-        while (rsRel.next()) {
-            String producerId = rsRel.getString("producer_id");
-            String topicName = rsRel.getString("topic");
-            int messageCount = rsRel.getInt("msg_count");
-
-            Neo4jManager.createPublishesRelation(producerId, topicName, messageCount);
-            synced++;
+        if (!relationRows.isEmpty()) {
+            System.out.println("[Neo4jSync] Synced " + relationRows.size() + " producer-topic relationships.");
         }
-        rsRel.close();
+        if (!consumers.isEmpty()) {
+            System.out.println("[Neo4jSync] Synced consumers: " + consumers.added.size() + " subscribed, "
+                    + consumers.removed.size() + " unsubscribed, " + consumers.expired.size() + " expired.");
+        }
+    }
 
-        if (synced > 0) {
-            System.out.println("[Neo4jSync] Synced " + synced + " producer-topic relationships.");
+    private static List<Map<String, Object>> subscriptionRows(Set<ConsumerChanges.Subscription> subscriptions) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (ConsumerChanges.Subscription s : subscriptions) {
+            rows.add(Map.of("consumerId", s.consumerId(), "topicName", s.topic()));
         }
+        return rows;
     }
 
     /**
-     * Create sample Consumers that subscribe to topics
+     * Outbox position stored with the last applied batch.
      */
-    private void syncConsumers() {
-        // Create sample consumers
-        String[] consumers = { "Fraud-Detection-Service", "RealTime-Analytics-Engine", "ML-Recommendation-System",
-    "Data-Lake-Ingestor", "Elastic-Search-Indexer", "Security-Audit-Manager",
-    "Customer-Notification-Hub", "Global-Billing-System", "Inventory-Replenishment-Bot",
-    "Shipping-Tracking-Service", "Marketing-Automation-Tool", "Email-Service-Provider",
-    "User-Profile-Manager", "Legacy-System-Bridge", "Cold-Storage-Archiver",
-    "Spark-Streaming-Analytics", "Operational-Dashboard-UI", "Executive-Reporting-Tool",
-    "Slack-Alert-Integration", "Webhook-Dispatcher-Service", "Mobile-Push-Notification",
-    "Partner-Sync-Service", "Compliance-Verification-Node", "DDoS-Mitigation-Service",
-    "Log-Aggregator-Splunk", "Database-Backup-Manager", "Performance-Monitoring-Node",
-    "Order-Fulfillment-Service", "Refund-Processing-Unit", "Support-Ticket-AutoRouter" };
-    
-        String[] subscribedTopics = { "UserLogins", "PaymentEvents", "ClickStream", "SystemLogs", "SecurityAlerts",
-        "InventoryUpdates", "UserAnalytics", "ErrorLogs", "BillingEvents", "FrontendTelemetry",
-        "DatabaseHealth", "EmailService", "AuthEvents", "OrderProcessing", "ShippingUpdates",
-        "RefundRequests", "CustomerFeedback", "PromotionalEmails", "PasswordResets", "ApiGatewayLogs",
-        "MobileAppEvents", "DesktopAppEvents", "PartnerIntegration", "CloudSyncEvents", "BackupStatus",
-        "CacheInvalidations", "SessionExpirations", "SearchQueries", "ProductViews", "CartAdditions",
-        "CheckoutStarted", "PaymentSuccess", "PaymentFailure", "CouponApplied", "ReviewSubmitted",
-        "AccountCreated", "AccountDeleted", "NewsletterSub", "NewsletterUnsub", "SupportTickets",
-        "LiveChatLogs", "InternalAudit", "ComplianceLogs", "FraudDetection", "MachineLearningInference" };
-
-        for (int i = 0; i < consumers.length; i++) {
-            Neo4jManager.upsertConsumer(consumers[i]);
-
-            // Each consumer subscribes to some topics
-            if (i < subscribedTopics.length) {
-                Neo4jManager.createSubscribesRelation(consumers[i], subscribedTopics[i]);
-            }
-            // Some consumers subscribe to multiple topics
-            if (i == 0) { // Dashboard subscribes to all
-                for (String topic : subscribedTopics) {
-                    Neo4jManager.createSubscribesRelation(consumers[i], topic);
-                }
-            }
-        }
+    @Override
+    public OptionalLong committedPosition(String outboxId) throws Exception {
+        long position = Neo4jManager.circuitBreaker().execute(() -> Neo4jManager.readCheckpoint(name(), outboxId));
+        return position >= 0 ? OptionalLong.of(position) : OptionalLong.empty();
     }
 
     /**
@@ -177,11 +155,4 @@ public class Neo4jSyncService {
     public String getNeo4jStats() {
         return Neo4jManager.getTopProducerByTopicCount();
     }
-
-    /**
-     * Get all topics from Neo4j
-     */
-    public String getTopics() {
-        return Neo4jManager.getAllTopics();
-    }
 }
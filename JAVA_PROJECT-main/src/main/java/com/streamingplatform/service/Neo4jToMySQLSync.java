@@ -2,11 +2,27 @@ package com.streamingplatform.service;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
+import org.neo4j.driver.Value;
 
 import com.streamingplatform.persistence.MySQLManager;
 import com.streamingplatform.persistence.Neo4jManager;
@@ -15,223 +31,254 @@ import com.streamingplatform.persistence.Neo4jManager;
  * Service to sync data FROM Neo4j TO MySQL.
  * Reads Topics, Producers, Consumers, Partitions, Consumer Groups from Neo4j
  * and writes to MySQL tables.
+ *
+ * Each table is diffed against what MySQL already holds, and only the rows
+ * that were added, changed or removed are written. The entity types are read
+ * in parallel, then all changes go to MySQL as JDBC batches in one transaction,
+ * so readers see either the old tables or the new ones, never an empty one.
  */
 public class Neo4jToMySQLSync {
 
     /**
-     * Sync all Neo4j data to MySQL
+     * One MySQL table mirrored from a Neo4j query. The query's columns are
+     * the key columns followed by the value columns, in the same order.
      */
-    public static void syncAll() {
-        System.out.println("[Neo4j→MySQL] Starting full sync...");
+    private record Entity(String label, String table, List<String> keyColumns, List<String> valueColumns,
+            String cypher, Function<Record, List<Object>> row) {
 
-        try {
-            // Clear existing MySQL data first
-            clearMySQLTables();
-
-            // Sync all entities
-            int topics = syncTopics();
-            int producers = syncProducers();
-            int consumers = syncConsumers();
-            int partitions = syncPartitions();
-            int groups = syncConsumerGroups();
-            int relations = syncProducerTopicStats();
-
-            System.out.println("[Neo4j→MySQL] Sync completed!");
-            System.out.println("  Topics: " + topics);
-            System.out.println("  Producers: " + producers);
-            System.out.println("  Consumers: " + consumers);
-            System.out.println("  Partitions: " + partitions);
-            System.out.println("  Consumer Groups: " + groups);
-            System.out.println("  Producer-Topic Relations: " + relations);
+        String selectSql() {
+            return "SELECT " + String.join(", ", columns()) + " FROM " + table;
+        }
 
-        } catch (Exception e) {
-            System.err.println("[Neo4j→MySQL] Sync failed: " + e.getMessage());
-            e.printStackTrace();
+        String upsertSql() {
+            List<String> updated = valueColumns.isEmpty() ? keyColumns : valueColumns;
+            return "INSERT INTO " + table + " (" + String.join(", ", columns()) + ") VALUES ("
+                    + String.join(", ", Collections.nCopies(columns().size(), "?")) + ") ON DUPLICATE KEY UPDATE "
+                    + updated.stream().map(c -> c + " = VALUES(" + c + ")").collect(Collectors.joining(", "));
+        }
+
+        String deleteSql() {
+            return "DELETE FROM " + table + " WHERE "
+                    + keyColumns.stream().map(c -> c + " = ?").collect(Collectors.joining(" AND "));
+        }
+
+        List<String> columns() {
+            List<String> columns = new ArrayList<>(keyColumns);
+            columns.addAll(valueColumns);
+            return columns;
         }
     }
 
     /**
-     * Clear existing MySQL tables before sync
+     * What one entity needs written: full rows to upsert and keys to delete.
      */
-    private static void clearMySQLTables() throws Exception {
-        Connection mysqlConn = MySQLManager.getConnection();
-        Statement stmt = mysqlConn.createStatement();
-
-        stmt.executeUpdate("DELETE FROM ip_topic_stats");
-        stmt.executeUpdate("DELETE FROM topics");
-        stmt.executeUpdate("DELETE FROM producers");
-        stmt.executeUpdate("DELETE FROM consumers");
-        stmt.executeUpdate("DELETE FROM partitions");
-        stmt.executeUpdate("DELETE FROM consumer_groups");
-
-        stmt.close();
-        System.out.println("[Neo4j→MySQL] Cleared existing MySQL data.");
+    private record EntityDiff(Entity entity, int neo4jRows, List<List<Object>> upserts, List<List<Object>> deletes,
+            int inserted, int updated, long readNanos) {
     }
 
+    private static final List<Entity> ENTITIES = List.of(
+            new Entity("Topics", "topics", List.of("name"), List.of("message_count"),
+                    "MATCH (t:Topic) RETURN t.name as name, t.messageCount as messageCount",
+                    r -> List.of(r.get("name").asString(), longOr(r.get("messageCount"), 0))),
+            new Entity("Producers", "producers", List.of("producer_id"), List.of(),
+                    "MATCH (p:producer) RETURN p.id as producerId",
+                    r -> List.of(r.get("producerId").asString())),
+            new Entity("Consumers", "consumers", List.of("consumer_id"), List.of("consumer_group"),
+                    "MATCH (c:consumer) " +
+                            "OPTIONAL MATCH (c)-[:BELONGS_TO]->(g:consumer_group) " +
+                            "RETURN c.id as consumerId, g.id as groupId",
+                    r -> Arrays.asList(r.get("consumerId").asString(),
+                            r.get("groupId").isNull() ? null : r.get("groupId").asString())),
+            new Entity("Partitions", "partitions", List.of("partition_id"), List.of("topic", "leader", "replicas"),
+                    "MATCH (p:partition) " +
+                            "OPTIONAL MATCH (p)-[:BELONGS_TO]->(t:Topic) " +
+                            "RETURN p.id as partitionId, t.name as topic, p.leader as leader, p.replicas as replicas",
+                    r -> List.of(r.get("partitionId").asString(),
+                            r.get("topic").isNull() ? "" : r.get("topic").asString(),
+                            r.get("leader").isNull() ? "" : r.get("leader").asString(),
+                            longOr(r.get("replicas"), 1))),
+            new Entity("Consumer Groups", "consumer_groups", List.of("group_id"), List.of("member_count"),
+                    "MATCH (g:consumer_group) " +
+                            "OPTIONAL MATCH (c:consumer)-[:BELONGS_TO]->(g) " +
+                            "RETURN g.id as groupId, COUNT(c) as memberCount",
+                    r -> List.of(r.get("groupId").asString(), r.get("memberCount").asLong())),
+            new Entity("Producer-Topic Relations", "ip_topic_stats", List.of("producer_id", "topic"),
+                    List.of("message_count"),
+                    "MATCH (p:producer)-[r:PUBLISHES_TO]->(t:Topic) " +
+                            "RETURN p.id as producerId, t.name as topic, r.messageCount as messageCount",
+                    r -> List.of(r.get("producerId").asString(), r.get("topic").asString(),
+                            longOr(r.get("messageCount"), 0))));
+
     /**
-     * Sync Topics from Neo4j to MySQL
+     * Sync all Neo4j data to MySQL
      */
-    private static int syncTopics() throws Exception {
-        Connection mysqlConn = MySQLManager.getConnection();
-        String insertSQL = "INSERT INTO topics (name, message_count) VALUES (?, ?) " +
-                "ON DUPLICATE KEY UPDATE message_count = VALUES(message_count)";
-        PreparedStatement ps = mysqlConn.prepareStatement(insertSQL);
+    @SuppressWarnings("CallToPrintStackTrace")
+    public static void syncAll() {
+        System.out.println("[Neo4j→MySQL] Starting sync...");
+        long start = System.nanoTime();
+
+        ExecutorService pool = Executors.newFixedThreadPool(ENTITIES.size(), r -> {
+            Thread t = new Thread(r, "neo4j-mysql-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Connection mysqlConn = MySQLManager.getConnection();
 
-        int count = 0;
-        try (Session session = Neo4jManager.getDriver().session()) {
-            Result result = session.run("MATCH (t:Topic) RETURN t.name as name, t.messageCount as messageCount");
-            while (result.hasNext()) {
-                Record record = result.next();
-                ps.setString(1, record.get("name").asString());
-                ps.setInt(2, record.get("messageCount").isNull() ? 0 : record.get("messageCount").asInt());
-                ps.executeUpdate();
-                count++;
+            // Read and diff every entity type in parallel
+            List<Future<EntityDiff>> futures = new ArrayList<>();
+            for (Entity entity : ENTITIES) {
+                futures.add(pool.submit(() -> diff(entity, mysqlConn)));
+            }
+            List<EntityDiff> diffs = new ArrayList<>();
+            for (Future<EntityDiff> future : futures) {
+                diffs.add(future.get());
             }
-        }
-        ps.close();
-        return count;
-    }
 
-    /**
-     * Sync Producers from Neo4j to MySQL
-     */
-    private static int syncProducers() throws Exception {
-        Connection mysqlConn = MySQLManager.getConnection();
-        String insertSQL = "INSERT INTO producers (producer_id) VALUES (?) ON DUPLICATE KEY UPDATE producer_id = VALUES(producer_id)";
-        PreparedStatement ps = mysqlConn.prepareStatement(insertSQL);
+            long[] writeNanos = apply(mysqlConn, diffs);
 
-        int count = 0;
-        try (Session session = Neo4jManager.getDriver().session()) {
-            Result result = session.run("MATCH (p:producer) RETURN p.id as producerId");
-            while (result.hasNext()) {
-                Record record = result.next();
-                ps.setString(1, record.get("producerId").asString());
-                ps.executeUpdate();
-                count++;
+            System.out.println("[Neo4j→MySQL] Sync completed in " + millis(System.nanoTime() - start) + " ms");
+            System.out.printf("  %-26s %8s %8s %8s %8s %9s %9s%n",
+                    "Entity", "Rows", "Insert", "Update", "Delete", "Read ms", "Write ms");
+            for (int i = 0; i < diffs.size(); i++) {
+                EntityDiff d = diffs.get(i);
+                System.out.printf("  %-26s %8d %8d %8d %8d %9d %9d%n", d.entity().label(), d.neo4jRows(),
+                        d.inserted(), d.updated(), d.deletes().size(), millis(d.readNanos()), millis(writeNanos[i]));
             }
+
+        } catch (ExecutionException e) {
+            System.err.println("[Neo4j→MySQL] Sync failed: " + e.getCause().getMessage());
+            e.getCause().printStackTrace();
+        } catch (Exception e) {
+            System.err.println("[Neo4j→MySQL] Sync failed: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            pool.shutdownNow();
         }
-        ps.close();
-        return count;
     }
 
     /**
-     * Sync Consumers from Neo4j to MySQL
+     * Read one entity from Neo4j and from MySQL and work out what changed.
      */
-    private static int syncConsumers() throws Exception {
-        Connection mysqlConn = MySQLManager.getConnection();
-        String insertSQL = "INSERT INTO consumers (consumer_id, consumer_group) VALUES (?, ?) " +
-                "ON DUPLICATE KEY UPDATE consumer_group = VALUES(consumer_group)";
-        PreparedStatement ps = mysqlConn.prepareStatement(insertSQL);
+    private static EntityDiff diff(Entity entity, Connection mysqlConn) throws SQLException {
+        long start = System.nanoTime();
+        int keySize = entity.keyColumns().size();
 
-        int count = 0;
+        // Neo4j rows by key; a repeated key keeps its last row, as the old upserts did
+        Map<List<Object>, List<Object>> wanted = new LinkedHashMap<>();
+        int neo4jRows = 0;
         try (Session session = Neo4jManager.getDriver().session()) {
-            // Try to get consumer with group relationship
-            Result result = session.run(
-                    "MATCH (c:consumer) " +
-                            "OPTIONAL MATCH (c)-[:BELONGS_TO]->(g:consumer_group) " +
-                            "RETURN c.id as consumerId, g.id as groupId");
+            Result result = session.run(entity.cypher());
             while (result.hasNext()) {
-                Record record = result.next();
-                ps.setString(1, record.get("consumerId").asString());
-                ps.setString(2, record.get("groupId").isNull() ? null : record.get("groupId").asString());
-                ps.executeUpdate();
-                count++;
+                List<Object> row = entity.row().apply(result.next());
+                wanted.put(row.subList(0, keySize), row);
+                neo4jRows++;
             }
         }
-        ps.close();
-        return count;
-    }
 
-    /**
-     * Sync Partitions from Neo4j to MySQL
-     */
-    private static int syncPartitions() throws Exception {
-        Connection mysqlConn = MySQLManager.getConnection();
-        String insertSQL = "INSERT INTO partitions (partition_id, topic, leader, replicas) VALUES (?, ?, ?, ?) " +
-                "ON DUPLICATE KEY UPDATE topic = VALUES(topic), leader = VALUES(leader), replicas = VALUES(replicas)";
-        PreparedStatement ps = mysqlConn.prepareStatement(insertSQL);
+        // Current MySQL rows; the shared connection is used by one thread at a time
+        Map<List<Object>, List<Object>> current = new HashMap<>();
+        synchronized (mysqlConn) {
+            try (Statement stmt = mysqlConn.createStatement();
+                    ResultSet rs = stmt.executeQuery(entity.selectSql())) {
+                int columns = entity.columns().size();
+                while (rs.next()) {
+                    List<Object> row = new ArrayList<>(columns);
+                    for (int i = 1; i <= columns; i++) {
+                        Object value = rs.getObject(i);
+                        row.add(value instanceof Number n ? n.longValue() : value);
+                    }
+                    current.put(row.subList(0, keySize), row);
+                }
+            }
+        }
 
-        int count = 0;
-        try (Session session = Neo4jManager.getDriver().session()) {
-            Result result = session.run(
-                    "MATCH (p:partition) " +
-                            "OPTIONAL MATCH (p)-[:BELONGS_TO]->(t:Topic) " +
-                            "RETURN p.id as partitionId, t.name as topic, p.leader as leader, p.replicas as replicas");
-            while (result.hasNext()) {
-                Record record = result.next();
-                ps.setString(1, record.get("partitionId").asString());
-                ps.setString(2, record.get("topic").isNull() ? "" : record.get("topic").asString());
-                ps.setString(3, record.get("leader").isNull() ? "" : record.get("leader").asString());
-                ps.setInt(4, record.get("replicas").isNull() ? 1 : record.get("replicas").asInt());
-                ps.executeUpdate();
-                count++;
+        List<List<Object>> upserts = new ArrayList<>();
+        int inserted = 0;
+        for (Map.Entry<List<Object>, List<Object>> entry : wanted.entrySet()) {
+            List<Object> existing = current.remove(entry.getKey());
+            if (existing == null) {
+                inserted++;
+                upserts.add(entry.getValue());
+            } else if (!existing.equals(entry.getValue())) {
+                upserts.add(entry.getValue());
             }
         }
-        ps.close();
-        return count;
+        // Whatever is left in MySQL is gone from Neo4j
+        List<List<Object>> deletes = new ArrayList<>(current.keySet());
+
+        return new EntityDiff(entity, neo4jRows, upserts, deletes, inserted, upserts.size() - inserted,
+                System.nanoTime() - start);
     }
 
     /**
-     * Sync Consumer Groups from Neo4j to MySQL
+     * Write every diff in a single transaction: a delete batch and an upsert
+     * batch per table. A failure rolls everything back.
+     *
+     * @return write time per diff, in nanoseconds
      */
-    private static int syncConsumerGroups() throws Exception {
-        Connection mysqlConn = MySQLManager.getConnection();
-        String insertSQL = "INSERT INTO consumer_groups (group_id, member_count) VALUES (?, ?) " +
-                "ON DUPLICATE KEY UPDATE member_count = VALUES(member_count)";
-        PreparedStatement ps = mysqlConn.prepareStatement(insertSQL);
-
-        int count = 0;
-        try (Session session = Neo4jManager.getDriver().session()) {
-            Result result = session.run(
-                    "MATCH (g:consumer_group) " +
-                            "OPTIONAL MATCH (c:consumer)-[:BELONGS_TO]->(g) " +
-                            "RETURN g.id as groupId, COUNT(c) as memberCount");
-            while (result.hasNext()) {
-                Record record = result.next();
-                ps.setString(1, record.get("groupId").asString());
-                ps.setInt(2, (int) record.get("memberCount").asLong());
-                ps.executeUpdate();
-                count++;
+    private static long[] apply(Connection mysqlConn, List<EntityDiff> diffs) throws SQLException {
+        long[] writeNanos = new long[diffs.size()];
+        synchronized (mysqlConn) {
+            boolean autoCommit = mysqlConn.getAutoCommit();
+            mysqlConn.setAutoCommit(false);
+            try {
+                for (int i = 0; i < diffs.size(); i++) {
+                    long start = System.nanoTime();
+                    EntityDiff d = diffs.get(i);
+                    executeBatch(mysqlConn, d.entity().deleteSql(), d.deletes());
+                    executeBatch(mysqlConn, d.entity().upsertSql(), d.upserts());
+                    writeNanos[i] = System.nanoTime() - start;
+                }
+                mysqlConn.commit();
+            } catch (SQLException e) {
+                mysqlConn.rollback();
+                throw e;
+            } finally {
+                mysqlConn.setAutoCommit(autoCommit);
             }
         }
-        ps.close();
-        return count;
+        return writeNanos;
     }
 
-    /**
-     * Sync Producer-Topic relationships from Neo4j to MySQL
-     */
-    private static int syncProducerTopicStats() throws Exception {
-        Connection mysqlConn = MySQLManager.getConnection();
-        String insertSQL = "INSERT INTO ip_topic_stats (producer_id, topic, message_count) VALUES (?, ?, ?) " +
-                "ON DUPLICATE KEY UPDATE message_count = VALUES(message_count)";
-        PreparedStatement ps = mysqlConn.prepareStatement(insertSQL);
-
-        int count = 0;
-        try (Session session = Neo4jManager.getDriver().session()) {
-            Result result = session.run(
-                    "MATCH (p:producer)-[r:PUBLISHES_TO]->(t:Topic) " +
-                            "RETURN p.id as producerId, t.name as topic, r.messageCount as messageCount");
-            while (result.hasNext()) {
-                Record record = result.next();
-                ps.setString(1, record.get("producerId").asString());
-                ps.setString(2, record.get("topic").asString());
-                ps.setInt(3, record.get("messageCount").isNull() ? 0 : record.get("messageCount").asInt());
-                ps.executeUpdate();
-                count++;
+    private static void executeBatch(Connection mysqlConn, String sql, List<List<Object>> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = mysqlConn.prepareStatement(sql)) {
+            for (List<Object> row : rows) {
+                for (int i = 0; i < row.size(); i++) {
+                    ps.setObject(i + 1, row.get(i));
+                }
+                ps.addBatch();
             }
+            ps.executeBatch();
         }
-        ps.close();
-        return count;
+    }
+
+    private static Object longOr(Value value, long defaultValue) {
+        return value.isNull() ? defaultValue : value.asLong();
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000;
     }
 
     /**
-     * Display current Neo4j data that will be synced
+     * Display current Neo4j data that will be synced (cached, see
+     * Neo4jManager.queryCache())
      */
     public static String previewNeo4jData() {
-        StringBuilder result = new StringBuilder();
-        result.append("\n=== Neo4j Data Preview (will be synced to MySQL) ===\n\n");
+        String header = "\n=== Neo4j Data Preview (will be synced to MySQL) ===\n\n";
+        try {
+            return header + Neo4jManager.queryCache().get("preview", Neo4jToMySQLSync::queryPreview);
+        } catch (Exception e) {
+            return header + "Error reading Neo4j: " + e.getMessage();
+        }
+    }
 
+    private static String queryPreview() {
+        StringBuilder result = new StringBuilder();
         try (Session session = Neo4jManager.getDriver().session()) {
             // Count entities
             Result countResult = session.run(
@@ -273,11 +320,7 @@ public class Neo4jToMySQLSync {
             while (consumers.hasNext()) {
                 result.append("  - ").append(consumers.next().get("id").asString()).append("\n");
             }
-
-        } catch (Exception e) {
-            result.append("Error reading Neo4j: ").append(e.getMessage());
         }
-
         return result.toString();
     }
 }
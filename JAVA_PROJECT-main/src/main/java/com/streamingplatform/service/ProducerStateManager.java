@@ -0,0 +1,148 @@
+package com.streamingplatform.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.streamingplatform.metrics.MetricsRegistry;
+
+/**
+ * Tracks idempotent producers: one epoch per producer id and a small
+ * sequence-number window per (producer, topic).
+ * A retried PUBLISH carrying an already seen sequence is dropped instead of
+ * being stored twice.
+ *
+ * A producer that has not published for the TTL is forgotten; its next
+ * publish gets UNKNOWN_PRODUCER and the client registers again. Epochs come
+ * from one counter, so a new registration always outranks an expired one.
+ */
+public class ProducerStateManager {
+
+    // Number of sequence numbers remembered behind the highest one (one bit each)
+    static final int WINDOW_SIZE = 64;
+
+    public enum Status {
+        ACCEPTED, DUPLICATE, FENCED, UNKNOWN_PRODUCER
+    }
+
+    // Producers idle for an hour are forgotten (-Dstreaming.producer.ttl.ms)
+    private static final long DEFAULT_TTL_MS = 3_600_000;
+
+    private final long ttlMs;
+    private final ConcurrentHashMap<String, ProducerState> producers = new ConcurrentHashMap<>();
+    private final AtomicLong nextEpoch = new AtomicLong();
+    private final LongAdder expired = MetricsRegistry.counter("producers_expired_total");
+
+    public ProducerStateManager() {
+        this(Long.getLong("streaming.producer.ttl.ms", DEFAULT_TTL_MS));
+    }
+
+    public ProducerStateManager(long ttlMs) {
+        this.ttlMs = ttlMs;
+        MetricsRegistry.gauge("producers_active", producers::size);
+    }
+
+    /**
+     * Register a producer (or re-register after a restart of the client).
+     * Every call bumps the epoch, so an older instance of the same producer
+     * id gets fenced off.
+     *
+     * @return the new epoch to send with every idempotent publish
+     */
+    public long initProducer(String producerId) {
+        // Drawn inside compute() so the stored state always holds the epoch returned
+        ProducerState state = producers.compute(producerId,
+                (id, old) -> new ProducerState(nextEpoch.getAndIncrement()));
+        return state.epoch;
+    }
+
+    /**
+     * Forget producers that have not registered or published since now - TTL.
+     *
+     * @return the number of producers forgotten
+     */
+    public int expire(long now) {
+        long cutoff = now - ttlMs;
+        int count = 0;
+        for (Map.Entry<String, ProducerState> entry : producers.entrySet()) {
+            // remove(key, value): a producer registering again meanwhile is kept
+            if (entry.getValue().lastSeenMs < cutoff && producers.remove(entry.getKey(), entry.getValue())) {
+                count++;
+            }
+        }
+        expired.add(count);
+        return count;
+    }
+
+    /**
+     * Get the dedup window for a publish, or null if the epoch is not the
+     * current one. The caller must hold the window's lock while it checks,
+     * stores and marks the sequence.
+     */
+    SequenceWindow window(String producerId, long epoch, String topic) {
+        ProducerState state = producers.get(producerId);
+        if (state == null || state.epoch != epoch) {
+            return null;
+        }
+        state.lastSeenMs = System.currentTimeMillis();
+        SequenceWindow window = state.windows.get(topic);
+        if (window == null) {
+            window = state.windows.computeIfAbsent(topic, t -> new SequenceWindow());
+        }
+        return window;
+    }
+
+    /**
+     * Explain why {@link #window} returned null.
+     */
+    Status rejection(String producerId, long epoch) {
+        ProducerState state = producers.get(producerId);
+        if (state == null || epoch > state.epoch) {
+            return Status.UNKNOWN_PRODUCER;
+        }
+        return Status.FENCED;
+    }
+
+    private static final class ProducerState {
+        final long epoch;
+        final ConcurrentHashMap<String, SequenceWindow> windows = new ConcurrentHashMap<>();
+        volatile long lastSeenMs = System.currentTimeMillis();
+
+        ProducerState(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+
+    /**
+     * Highest sequence seen plus a bitmap of the {@link #WINDOW_SIZE}
+     * sequences right below it (bit i set = highest - i already stored).
+     */
+    static final class SequenceWindow {
+        private long highest = -1;
+        private long seen;
+
+        boolean isDuplicate(long sequence) {
+            if (sequence > highest) {
+                return false;
+            }
+            long distance = highest - sequence;
+            if (distance >= WINDOW_SIZE) {
+                // Too old to tell apart: treat as a replay rather than risk a double count
+                return true;
+            }
+            return (seen & (1L << distance)) != 0;
+        }
+
+        void mark(long sequence) {
+            if (sequence > highest) {
+                long shift = sequence - highest;
+                seen = shift >= WINDOW_SIZE ? 0 : seen << shift;
+                seen |= 1L;
+                highest = sequence;
+            } else {
+                seen |= 1L << (highest - sequence);
+            }
+        }
+    }
+}
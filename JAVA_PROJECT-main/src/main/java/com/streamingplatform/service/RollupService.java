@@ -0,0 +1,302 @@
+package com.streamingplatform.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.streamingplatform.metrics.MetricsRegistry;
+import com.streamingplatform.persistence.DatabaseManager;
+
+/**
+ * Per-topic, per-producer message and byte counts in time buckets, kept in
+ * H2's message_stats table so trend questions read O(buckets) rows instead
+ * of the messages.
+ *
+ * Publishes are counted in memory per minute (one map update, no I/O); a
+ * background job adds the counts to the minute rows with one MERGE batch.
+ * A second job compacts minute rows older than a day into hour rows, and
+ * hour rows older than 30 days into day rows, so the table grows with
+ * topics x producers x time, not with traffic. Buckets are UTC-aligned
+ * and stored as epoch milliseconds, so local clock changes (DST) never map
+ * two buckets to one row.
+ *
+ * The jobs and queries share one connection of the service's own, so a
+ * flush or compaction can be one transaction without touching the shared
+ * H2 connection's auto-commit.
+ */
+public class RollupService {
+
+    /**
+     * Bucket sizes, finest first.
+     */
+    public enum Resolution {
+        MINUTE("m", 60_000L), HOUR("h", 3_600_000L), DAY("d", 86_400_000L);
+
+        final String code;
+        final long millis;
+
+        Resolution(String code, long millis) {
+            this.code = code;
+            this.millis = millis;
+        }
+
+        public long floor(long timeMs) {
+            return Math.floorDiv(timeMs, millis) * millis;
+        }
+    }
+
+    /**
+     * Counts of one bucket starting at startMs.
+     */
+    public record Bucket(long startMs, long messages, long bytes) {
+    }
+
+    // Flush every 5 s, adapting between 1 and 30 s
+    private static final SyncScheduler.Policy FLUSH_POLICY = SyncScheduler.Policy.adaptive(5000, 5000, 1000, 30_000);
+    // Compact every 10 minutes
+    private static final SyncScheduler.Policy COMPACT_POLICY = SyncScheduler.Policy.fixed(60_000, 600_000);
+
+    // How long each resolution is kept before being folded into the next one
+    private static final long MINUTE_RETENTION_MS = Resolution.DAY.millis;
+    private static final long HOUR_RETENTION_MS = 30 * Resolution.DAY.millis;
+
+    private static final String MERGE_SQL = "MERGE INTO message_stats s USING (VALUES (CAST(? AS VARCHAR(255)), "
+            + "CAST(? AS VARCHAR(255)), CAST(? AS CHAR(1)), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT))) "
+            + "AS v(topic, producer_id, resolution, bucket_start, message_count, byte_count) "
+            + "ON s.bucket_start = v.bucket_start AND s.topic = v.topic AND s.producer_id = v.producer_id "
+            + "AND s.resolution = v.resolution "
+            + "WHEN MATCHED THEN UPDATE SET message_count = s.message_count + v.message_count, "
+            + "byte_count = s.byte_count + v.byte_count, last_processed = CURRENT_TIMESTAMP "
+            + "WHEN NOT MATCHED THEN INSERT (topic, producer_id, resolution, bucket_start, message_count, byte_count, "
+            + "last_processed) VALUES (v.topic, v.producer_id, v.resolution, v.bucket_start, v.message_count, "
+            + "v.byte_count, CURRENT_TIMESTAMP)";
+
+    private record Key(long startMs, String topic, String producerId) {
+    }
+
+    private final ConcurrentHashMap<Key, long[]> pending = new ConcurrentHashMap<>(); // messages, bytes
+    private final LongAdder flushed = MetricsRegistry.counter("rollup_rows_flushed_total");
+    private final LongAdder compacted = MetricsRegistry.counter("rollup_rows_compacted_total");
+    private SyncScheduler.ScheduledJob flushJob;
+    private SyncScheduler.ScheduledJob compactJob;
+    private Connection connection; // guarded by this
+
+    /**
+     * Start the flush and compaction jobs; until then counts only accumulate
+     * in memory
+     */
+    public void start(SyncScheduler scheduler) {
+        System.out.println("[Rollup] Starting per-minute rollups...");
+        flushJob = scheduler.schedule("rollup-flush", FLUSH_POLICY, this::flush);
+        compactJob = scheduler.schedule("rollup-compact", COMPACT_POLICY,
+                () -> compact(System.currentTimeMillis()));
+    }
+
+    /**
+     * Stop the jobs, write what is still counted in memory and close the connection
+     */
+    public void stop() {
+        if (flushJob != null) {
+            flushJob.cancel();
+            compactJob.cancel();
+        }
+        try {
+            flush();
+        } catch (SQLException e) {
+            System.err.println("[Rollup] Final flush failed: " + e.getMessage());
+        }
+        synchronized (this) {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    System.err.println("[Rollup] Closing connection failed: " + e.getMessage());
+                }
+                connection = null;
+            }
+        }
+    }
+
+    /**
+     * Count one published message.
+     */
+    public void record(String topic, String producerId, int bytes, long timeMs) {
+        Key key = new Key(Resolution.MINUTE.floor(timeMs), topic, producerId != null ? producerId : "");
+        pending.compute(key, (k, counts) -> {
+            long[] c = counts != null ? counts : new long[2];
+            c[0]++;
+            c[1] += bytes;
+            return c;
+        });
+    }
+
+    /**
+     * Add the in-memory counts to the minute rows, in one transaction. On
+     * failure the counts go back to memory for the next run.
+     *
+     * @return rows written
+     */
+    public synchronized long flush() throws SQLException {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        Map<Key, long[]> batch = new HashMap<>();
+        for (Key key : pending.keySet()) {
+            long[] counts = pending.remove(key); // Publishes after this start a new entry
+            if (counts != null) {
+                batch.put(key, counts);
+            }
+        }
+        try {
+            write(Resolution.MINUTE, batch);
+        } catch (SQLException e) {
+            batch.forEach((key, counts) -> pending.merge(key, counts, (a, b) -> {
+                a[0] += b[0];
+                a[1] += b[1];
+                return a;
+            }));
+            throw e;
+        }
+        flushed.add(batch.size());
+        return batch.size();
+    }
+
+    /**
+     * Fold minute rows older than a day into hour rows, and hour rows older
+     * than 30 days into day rows. Only whole buckets of the coarser
+     * resolution are folded.
+     *
+     * @return rows folded
+     */
+    public synchronized long compact(long nowMs) throws SQLException {
+        long rows = fold(Resolution.MINUTE, Resolution.HOUR, Resolution.HOUR.floor(nowMs - MINUTE_RETENTION_MS));
+        rows += fold(Resolution.HOUR, Resolution.DAY, Resolution.DAY.floor(nowMs - HOUR_RETENTION_MS));
+        if (rows > 0) {
+            compacted.add(rows);
+            System.out.println("[Rollup] Compacted " + rows + " rollup rows.");
+        }
+        return rows;
+    }
+
+    /**
+     * Counts in [fromMs, toMs) per bucket of the given resolution, oldest
+     * first, for one topic and / or producer (null for all). Buckets with no
+     * messages are left out. Data already compacted to a coarser resolution
+     * is returned at that resolution.
+     */
+    public synchronized List<Bucket> series(String topic, String producerId, long fromMs, long toMs,
+            Resolution resolution) throws SQLException {
+        flush();
+        String sql = "SELECT bucket_start, SUM(message_count), SUM(byte_count) FROM message_stats "
+                + "WHERE bucket_start >= ? AND bucket_start < ?"
+                + (topic != null ? " AND topic = ?" : "")
+                + (producerId != null ? " AND producer_id = ?" : "")
+                + " GROUP BY bucket_start";
+        TreeMap<Long, long[]> buckets = new TreeMap<>();
+        try (PreparedStatement ps = connection().prepareStatement(sql)) {
+            int index = 1;
+            ps.setLong(index++, fromMs);
+            ps.setLong(index++, toMs);
+            if (topic != null) {
+                ps.setString(index++, topic);
+            }
+            if (producerId != null) {
+                ps.setString(index, producerId);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long[] counts = buckets.computeIfAbsent(resolution.floor(rs.getLong(1)),
+                            k -> new long[2]);
+                    counts[0] += rs.getLong(2);
+                    counts[1] += rs.getLong(3);
+                }
+            }
+        }
+        List<Bucket> series = new ArrayList<>(buckets.size());
+        buckets.forEach((start, counts) -> series.add(new Bucket(start, counts[0], counts[1])));
+        return series;
+    }
+
+    // Adds counts to rows of the resolution; commits, or rolls back and throws
+    private void write(Resolution resolution, Map<Key, long[]> counts) throws SQLException {
+        Connection conn = connection();
+        try (PreparedStatement ps = conn.prepareStatement(MERGE_SQL)) {
+            addMerges(ps, resolution, counts);
+            ps.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    // Moves rows of one resolution starting before cutoffMs into the next one, in one transaction
+    private long fold(Resolution from, Resolution to, long cutoffMs) throws SQLException {
+        Connection conn = connection();
+        Map<Key, long[]> folded = new HashMap<>();
+        long rows = 0;
+        try {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT topic, producer_id, bucket_start, message_count, "
+                    + "byte_count FROM message_stats WHERE resolution = ? AND bucket_start < ?")) {
+                ps.setString(1, from.code);
+                ps.setLong(2, cutoffMs);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Key key = new Key(to.floor(rs.getLong(3)), rs.getString(1), rs.getString(2));
+                        long[] counts = folded.computeIfAbsent(key, k -> new long[2]);
+                        counts[0] += rs.getLong(4);
+                        counts[1] += rs.getLong(5);
+                        rows++;
+                    }
+                }
+            }
+            if (rows == 0) {
+                return 0;
+            }
+            try (PreparedStatement merge = conn.prepareStatement(MERGE_SQL);
+                    PreparedStatement delete = conn.prepareStatement(
+                            "DELETE FROM message_stats WHERE resolution = ? AND bucket_start < ?")) {
+                addMerges(merge, to, folded);
+                merge.executeBatch();
+                delete.setString(1, from.code);
+                delete.setLong(2, cutoffMs);
+                delete.executeUpdate();
+            }
+            conn.commit();
+            return rows;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    private static void addMerges(PreparedStatement ps, Resolution resolution, Map<Key, long[]> counts)
+            throws SQLException {
+        for (Map.Entry<Key, long[]> e : counts.entrySet()) {
+            Key key = e.getKey();
+            ps.setString(1, key.topic());
+            ps.setString(2, key.producerId());
+            ps.setString(3, resolution.code);
+            ps.setLong(4, key.startMs());
+            ps.setLong(5, e.getValue()[0]);
+            ps.setLong(6, e.getValue()[1]);
+            ps.addBatch();
+        }
+    }
+
+    private Connection connection() throws SQLException {
+        if (connection == null || connection.isClosed()) {
+            connection = DatabaseManager.openConnection();
+            connection.setAutoCommit(false);
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,245 @@
+package com.streamingplatform.service;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.streamingplatform.graph.StreamGraph;
+
+/**
+ * Live message counts per topic and per producer x topic, updated by
+ * BrokerService on every publish. The sync services and exports read these
+ * instead of re-running GROUP BY over the whole messages table.
+ *
+ * Each reader owns a {@link Cursor}. Cursor.changes() returns only the
+ * entries that changed since the last change set the cursor committed, so
+ * a sync costs O(changed entries) and never touches H2.
+ *
+ * Recording is allocation-free once a topic / producer pair is known: two
+ * map lookups, two LongAdder increments and a dirty-bit check. Each publish
+ * also weighs the producer -> topic edge of the {@link StreamGraph}.
+ */
+public class StreamAggregator {
+
+    // One dirty bit per cursor
+    private static final int MAX_CURSORS = Long.SIZE;
+
+    /**
+     * A count plus one dirty bit per cursor. The count is bumped before the
+     * bits are set, and a cursor clears its bit before reading the count, so
+     * an increment is never lost: it is either in this read or re-marks the
+     * cell for the next one.
+     */
+    private static final class Cell {
+        final LongAdder count = new LongAdder();
+        final AtomicLong dirty = new AtomicLong();
+
+        void increment(long cursorMask) {
+            count.increment();
+            long bits = dirty.get();
+            if ((bits & cursorMask) != cursorMask) {
+                dirty.accumulateAndGet(cursorMask, (a, b) -> a | b);
+            }
+        }
+
+        // Clear this cursor's bit; true if it was set
+        boolean takeDirty(long bit) {
+            return (dirty.getAndAccumulate(~bit, (a, b) -> a & b) & bit) != 0;
+        }
+    }
+
+    private static final class TopicCells {
+        final Cell total = new Cell();
+        final ConcurrentHashMap<String, Cell> producers = new ConcurrentHashMap<>();
+    }
+
+    private record Key(String topic, String producerId) {
+    }
+
+    public record TopicChange(String topic, long total, long delta) {
+    }
+
+    public record PairChange(String producerId, String topic, long total, long delta) {
+    }
+
+    /**
+     * Entries changed since the cursor's last commit. Totals count every
+     * message published since the broker started; deltas are relative to
+     * what the cursor last committed.
+     *
+     * @param epoch sequence number of this change set for its cursor (1, 2, ...)
+     */
+    public record ChangeSet(long epoch, List<TopicChange> topics, List<PairChange> pairs) {
+
+        public boolean isEmpty() {
+            return topics.isEmpty() && pairs.isEmpty();
+        }
+    }
+
+    private final ConcurrentHashMap<String, TopicCells> topics = new ConcurrentHashMap<>();
+    private final AtomicLong cursorMask = new AtomicLong();
+    private final StreamGraph graph;
+    private int cursorCount; // guarded by this
+
+    public StreamAggregator() {
+        this(new StreamGraph());
+    }
+
+    public StreamAggregator(StreamGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Count one published message.
+     *
+     * @param producerId may be null (counted for the topic only)
+     */
+    public void record(String topic, String producerId) {
+        TopicCells cells = topics.get(topic);
+        if (cells == null) {
+            cells = topics.computeIfAbsent(topic, t -> new TopicCells());
+        }
+        Cell pair = null;
+        if (producerId != null) {
+            pair = cells.producers.get(producerId);
+            if (pair == null) {
+                pair = cells.producers.computeIfAbsent(producerId, p -> new Cell());
+            }
+        }
+        // Read after the lookups: a cell created after newCursor() marked the
+        // existing ones still gets the new cursor's bit
+        long mask = cursorMask.get();
+
+        // Pair before topic: a cursor only looks at a topic's pairs when the
+        // topic itself is dirty
+        if (pair != null) {
+            pair.increment(mask);
+        }
+        cells.total.increment(mask);
+        graph.recordPublish(topic, producerId);
+    }
+
+    public long getTopicCount(String topic) {
+        TopicCells cells = topics.get(topic);
+        return cells == null ? 0 : cells.total.count.sum();
+    }
+
+    /**
+     * Current total per topic.
+     */
+    public Map<String, Long> topicTotals() {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        topics.forEach((topic, cells) -> totals.put(topic, cells.total.count.sum()));
+        return totals;
+    }
+
+    public long getTotalCount() {
+        long total = 0;
+        for (TopicCells cells : topics.values()) {
+            total += cells.total.count.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Register a reader. Its first change set holds every entry so far.
+     */
+    public synchronized Cursor newCursor(String name) {
+        if (cursorCount == MAX_CURSORS) {
+            throw new IllegalStateException("At most " + MAX_CURSORS + " aggregator cursors");
+        }
+        long bit = 1L << cursorCount++;
+        cursorMask.accumulateAndGet(bit, (a, b) -> a | b);
+        // Existing entries are all news to the new cursor
+        topics.values().forEach(cells -> {
+            cells.total.dirty.accumulateAndGet(bit, (a, b) -> a | b);
+            cells.producers.values().forEach(cell -> cell.dirty.accumulateAndGet(bit, (a, b) -> a | b));
+        });
+        return new Cursor(name, bit);
+    }
+
+    /**
+     * One reader's position. Not thread-safe: use it from one sync thread.
+     */
+    public final class Cursor {
+        private final String name;
+        private final long bit;
+        private long epoch;
+
+        // Totals this cursor has committed
+        private final Map<Cell, Long> committed = new IdentityHashMap<>();
+        // Read by the last changes() but not committed yet: returned again
+        private final Map<Cell, Key> pending = new LinkedHashMap<>();
+
+        private Cursor(String name, long bit) {
+            this.name = name;
+            this.bit = bit;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Entries changed since the last commit(). Calling it again without
+         * committing returns the same entries (with fresher totals) plus any
+         * new ones, so a failed sync simply retries.
+         */
+        public ChangeSet changes() {
+            topics.forEach((topic, cells) -> {
+                if (cells.total.takeDirty(bit)) {
+                    pending.putIfAbsent(cells.total, new Key(topic, null));
+                    cells.producers.forEach((producerId, cell) -> {
+                        if (cell.takeDirty(bit)) {
+                            pending.putIfAbsent(cell, new Key(topic, producerId));
+                        }
+                    });
+                }
+            });
+
+            List<TopicChange> topicChanges = new ArrayList<>();
+            List<PairChange> pairChanges = new ArrayList<>();
+            pending.entrySet().removeIf(entry -> {
+                Cell cell = entry.getKey();
+                long total = cell.count.sum();
+                Long previous = committed.get(cell);
+                if (previous != null && previous == total) {
+                    return true; // Re-marked by an increment this cursor already counted
+                }
+                long delta = total - (previous == null ? 0 : previous);
+                Key key = entry.getValue();
+                if (key.producerId() == null) {
+                    topicChanges.add(new TopicChange(key.topic(), total, delta));
+                } else {
+                    pairChanges.add(new PairChange(key.producerId(), key.topic(), total, delta));
+                }
+                return false;
+            });
+            return new ChangeSet(epoch + 1, topicChanges, pairChanges);
+        }
+
+        /**
+         * Mark the change set returned by the last changes() as applied.
+         */
+        public void commit(ChangeSet changes) {
+            // Totals as they were in the change set, not now: newer increments
+            // have re-marked their cells and come with the next change set
+            for (TopicChange change : changes.topics()) {
+                TopicCells cells = topics.get(change.topic());
+                committed.put(cells.total, change.total());
+                pending.remove(cells.total);
+            }
+            for (PairChange change : changes.pairs()) {
+                Cell cell = topics.get(change.topic()).producers.get(change.producerId());
+                committed.put(cell, change.total());
+                pending.remove(cell);
+            }
+            epoch = changes.epoch();
+        }
+    }
+}
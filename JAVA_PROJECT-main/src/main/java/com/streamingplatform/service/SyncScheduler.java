@@ -0,0 +1,253 @@
+package com.streamingplatform.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.streamingplatform.metrics.LatencyHistogram;
+import com.streamingplatform.metrics.MetricsRegistry;
+import com.streamingplatform.persistence.CircuitBreaker;
+
+/**
+ * One scheduler for the background jobs (MySQL / Neo4j sync, archiving, the
+ * dashboard refresh), replacing a java.util.Timer thread per service.
+ *
+ * A job is re-armed only after its run finishes, so runs of the same job never
+ * overlap and an overrunning tick delays the next one instead of queueing
+ * behind it. The delay to the next run adapts:
+ * - work done: halve the interval (down to the policy minimum), but keep it at
+ *   least a few times the last run's duration
+ * - nothing to do: stretch it by half (up to the policy maximum)
+ * - failure (e.g. MySQL or Neo4j unreachable): exponential backoff up to the
+ *   policy maximum (at least 8x base, at most 60 s), logged once per outage
+ *   instead of being swallowed
+ * - rejected by an open circuit breaker: back to the base interval, so the
+ *   job is there when the breaker lets its half-open probe through
+ *
+ * Per job it publishes sync_job_&lt;name&gt;_run_ns (duration), _runs_total,
+ * _failures_total, _skipped_total, _circuit_rejected_total and the
+ * _interval_ms gauge.
+ */
+public class SyncScheduler {
+
+    // Longest wait between retries of a failing job
+    private static final long MAX_BACKOFF_MS = 60_000;
+    // Backoff may grow to this many base intervals even when the policy maximum is lower
+    private static final int MIN_BACKOFF_FACTOR = 8;
+    // A job may use at most 1 / DUTY_CYCLE_FACTOR of the wall clock
+    private static final int DUTY_CYCLE_FACTOR = 4;
+
+    /**
+     * A background job.
+     */
+    @FunctionalInterface
+    public interface Job {
+        /**
+         * @return how many changes the run handled; 0 lets the scheduler
+         *         stretch the interval
+         */
+        long run() throws Exception;
+    }
+
+    /**
+     * Run cadence in ms: start at base, adapt between min and max.
+     */
+    public record Policy(long initialDelayMs, long baseMs, long minMs, long maxMs) {
+
+        public static Policy fixed(long initialDelayMs, long intervalMs) {
+            return new Policy(initialDelayMs, intervalMs, intervalMs, intervalMs);
+        }
+
+        public static Policy adaptive(long initialDelayMs, long baseMs, long minMs, long maxMs) {
+            return new Policy(initialDelayMs, baseMs, minMs, maxMs);
+        }
+    }
+
+    private final ScheduledExecutorService executor;
+    private final Map<String, ScheduledJob> jobs = new ConcurrentHashMap<>();
+
+    public SyncScheduler(int threads) {
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread t = new Thread(r, "sync-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        pool.setRemoveOnCancelPolicy(true);
+        this.executor = pool;
+    }
+
+    /**
+     * Start running a job. Names must be unique and are used in metric names.
+     */
+    public ScheduledJob schedule(String name, Policy policy, Job job) {
+        ScheduledJob scheduled = new ScheduledJob(name, policy, job);
+        if (jobs.putIfAbsent(name, scheduled) != null) {
+            throw new IllegalArgumentException("Job already scheduled: " + name);
+        }
+        MetricsRegistry.gauge(scheduled.prefix + "interval_ms", () -> scheduled.intervalMs);
+        scheduled.arm(policy.initialDelayMs());
+        System.out.println("[Scheduler] Scheduled " + name + " (every " + policy.baseMs() + " ms)");
+        return scheduled;
+    }
+
+    /**
+     * One line per job: interval, runs, failures, last duration.
+     */
+    public List<String> status() {
+        List<String> lines = new ArrayList<>();
+        jobs.values().stream().sorted((a, b) -> a.name.compareTo(b.name)).forEach(job -> lines.add(String.format(
+                "  %-16s every %6d ms  runs=%d failures=%d skipped=%d last=%.1f ms%s", job.name, job.intervalMs,
+                job.runs.sum(), job.failures.sum(), job.skipped.sum(), job.lastRunNanos / 1e6,
+                job.consecutiveFailures > 0 ? "  (failing: " + job.lastError + ")" : "")));
+        return lines;
+    }
+
+    public void shutdown() {
+        jobs.values().forEach(ScheduledJob::cancel);
+        executor.shutdownNow();
+    }
+
+    /**
+     * A scheduled job's state. Runs are serialized by the running flag.
+     */
+    public final class ScheduledJob {
+        private final String name;
+        private final String prefix;
+        private final Policy policy;
+        private final Job job;
+
+        private final AtomicBoolean running = new AtomicBoolean();
+        private final LatencyHistogram runLatency;
+        private final LongAdder runs;
+        private final LongAdder failures;
+        private final LongAdder skipped;
+        private final LongAdder circuitRejected;
+
+        private volatile long intervalMs;
+        private volatile long lastRunNanos;
+        private volatile int consecutiveFailures;
+        private volatile String lastError;
+        private volatile boolean cancelled;
+        private volatile ScheduledFuture<?> next;
+
+        private ScheduledJob(String name, Policy policy, Job job) {
+            this.name = name;
+            this.prefix = "sync_job_" + name.replace('-', '_') + "_";
+            this.policy = policy;
+            this.job = job;
+            this.intervalMs = policy.baseMs();
+            this.runLatency = MetricsRegistry.histogram(prefix + "run_ns");
+            this.runs = MetricsRegistry.counter(prefix + "runs_total");
+            this.failures = MetricsRegistry.counter(prefix + "failures_total");
+            this.skipped = MetricsRegistry.counter(prefix + "skipped_total");
+            this.circuitRejected = MetricsRegistry.counter(prefix + "circuit_rejected_total");
+        }
+
+        /**
+         * Run now on the caller's thread, unless a run is already in progress.
+         *
+         * @return false if skipped because the job was running
+         */
+        public boolean runNow() {
+            return execute();
+        }
+
+        public void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> future = next;
+            if (future != null) {
+                future.cancel(false);
+            }
+            jobs.remove(name, this);
+        }
+
+        private void arm(long delayMs) {
+            if (!cancelled && !executor.isShutdown()) {
+                try {
+                    next = executor.schedule(this::tick, delayMs, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // Shut down between the check and the schedule
+                }
+            }
+        }
+
+        private void tick() {
+            try {
+                execute();
+            } finally {
+                // Whatever the run threw, the job must stay scheduled
+                arm(intervalMs);
+            }
+        }
+
+        private boolean execute() {
+            if (!running.compareAndSet(false, true)) {
+                skipped.increment();
+                return false;
+            }
+            long start = System.nanoTime();
+            try {
+                long changes = job.run();
+                long elapsed = System.nanoTime() - start;
+                record(elapsed);
+                if (consecutiveFailures > 0) {
+                    System.out.println("[Scheduler] " + name + " recovered after " + consecutiveFailures
+                            + " failed runs.");
+                    consecutiveFailures = 0;
+                    lastError = null;
+                }
+                intervalMs = adapt(changes, elapsed);
+
+            } catch (CircuitBreaker.OpenException e) {
+                // Cheap to check: the breaker decides when the store is tried again
+                circuitRejected.increment();
+                intervalMs = policy.baseMs();
+
+            } catch (Exception | Error e) {
+                // An Error (e.g. a driver's NoClassDefFoundError) is a failed run too
+                if (cancelled) {
+                    return true; // Interrupted by shutdown
+                }
+                record(System.nanoTime() - start);
+                failures.increment();
+                int failed = ++consecutiveFailures;
+                // Drivers put details on further lines; keep the first one
+                lastError = String.valueOf(e.getMessage()).lines().findFirst().orElse("");
+                intervalMs = backoff(failed);
+                if (failed == 1) {
+                    System.err.println("[Scheduler] " + name + " failed: " + lastError + " (retrying with backoff)");
+                }
+            } finally {
+                running.set(false);
+            }
+            return true;
+        }
+
+        private void record(long elapsedNanos) {
+            runs.increment();
+            lastRunNanos = elapsedNanos;
+            runLatency.record(elapsedNanos);
+        }
+
+        private long adapt(long changes, long elapsedNanos) {
+            long current = Math.min(Math.max(intervalMs, policy.minMs()), policy.maxMs());
+            long target = changes > 0 ? current / 2 : current + current / 2;
+            long floor = Math.max(policy.minMs(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos) * DUTY_CYCLE_FACTOR);
+            return Math.min(Math.max(target, floor), policy.maxMs());
+        }
+
+        private long backoff(int failed) {
+            long limit = Math.min(Math.max(policy.maxMs(), policy.baseMs() * MIN_BACKOFF_FACTOR), MAX_BACKOFF_MS);
+            long delay = policy.baseMs() << Math.min(failed, 20);
+            return Math.min(delay, limit);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.streamingplatform.sketch;
+
+/**
+ * Count-Min frequency sketch: depth rows of width counters. An estimate is
+ * never below the true count, and exceeds it by more than e/width (about
+ * 2.7/width) of the total with probability at most e^-depth. Not thread-safe.
+ */
+public class CountMinSketch implements Sketch<CountMinSketch> {
+
+    private static final byte MAGIC = 'C';
+
+    private final int width;
+    private final int depth;
+    private final long[] counters; // depth rows of width
+    private long total;
+
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1 || (long) width * depth > 1 << 24) {
+            throw new IllegalArgumentException("Count-Min size out of range: " + width + " x " + depth);
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new long[width * depth];
+    }
+
+    public void add(String key, long count) {
+        addHash(Sketch.hash64(key), count);
+    }
+
+    public void addHash(long hash, long count) {
+        for (int row = 0; row < depth; row++) {
+            counters[index(hash, row)] += count;
+        }
+        total += count;
+    }
+
+    public long estimate(String key) {
+        return estimateHash(Sketch.hash64(key));
+    }
+
+    public long estimateHash(long hash) {
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[index(hash, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * Sum of all counts added.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Count-Min size differs: " + width + "x" + depth + " vs "
+                    + other.width + "x" + other.depth);
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+        total += other.total;
+    }
+
+    @Override
+    public byte[] toBytes() {
+        return SketchIO.write(MAGIC, out -> {
+            out.writeInt(width);
+            out.writeInt(depth);
+            out.writeLong(total);
+            for (long counter : counters) {
+                out.writeLong(counter);
+            }
+        });
+    }
+
+    public static CountMinSketch fromBytes(byte[] data) {
+        return SketchIO.read(data, MAGIC, in -> {
+            CountMinSketch cms = new CountMinSketch(in.readInt(), in.readInt());
+            cms.total = in.readLong();
+            for (int i = 0; i < cms.counters.length; i++) {
+                cms.counters[i] = in.readLong();
+            }
+            return cms;
+        });
+    }
+
+    // Row i uses h1 + i * h2 (two halves of the 64-bit hash)
+    private int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return row * width + Math.floorMod(h1 + row * h2, width);
+    }
+}
@@ -0,0 +1,94 @@
+package com.streamingplatform.sketch;
+
+/**
+ * HyperLogLog distinct counter: 2^precision one-byte registers, relative
+ * standard error about 1.04 / sqrt(2^precision) (3.3% at precision 10,
+ * 1.6% at 12). Small cardinalities use linear counting, so they are
+ * close to exact. Not thread-safe.
+ */
+public class HyperLogLog implements Sketch<HyperLogLog> {
+
+    private static final byte MAGIC = 'H';
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("HyperLogLog precision must be 4..18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public void add(String value) {
+        addHash(Sketch.hash64(value));
+    }
+
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // Leading zeros of the remaining bits, +1; the guard bit caps it
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros); // Linear counting
+        }
+        return Math.round(estimate);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    @Override
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("HyperLogLog precision differs: " + precision + " vs " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    @Override
+    public byte[] toBytes() {
+        return SketchIO.write(MAGIC, out -> {
+            out.writeByte(precision);
+            out.write(registers);
+        });
+    }
+
+    public static HyperLogLog fromBytes(byte[] data) {
+        return SketchIO.read(data, MAGIC, in -> {
+            HyperLogLog hll = new HyperLogLog(in.readByte());
+            in.readFully(hll.registers);
+            return hll;
+        });
+    }
+
+    private static double alpha(int m) {
+        return switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+}
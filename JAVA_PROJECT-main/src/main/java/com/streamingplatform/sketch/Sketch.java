@@ -0,0 +1,37 @@
+package com.streamingplatform.sketch;
+
+/**
+ * A fixed-size summary of a stream. Sketches of the same shape merge into the
+ * sketch of both streams, so they can be kept per thread, per node or per
+ * time period and combined when read.
+ */
+public interface Sketch<S extends Sketch<S>> {
+
+    /**
+     * Fold other (same parameters) into this sketch.
+     */
+    void merge(S other);
+
+    /**
+     * Compact binary form, read back by the class's fromBytes().
+     */
+    byte[] toBytes();
+
+    /**
+     * 64-bit hash of a string (FNV-1a over its chars, then the MurmurHash3
+     * finalizer), so every sketch sees well-mixed bits.
+     */
+    static long hash64(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,136 @@
+package com.streamingplatform.sketch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Heavy hitters: a {@link CountMinSketch} of all keys plus the k keys with
+ * the highest estimates seen so far. A key enters once its estimate beats
+ * the smallest candidate, so memory is k keys plus the counters however
+ * many distinct keys the stream has. Not thread-safe.
+ */
+public class TopK implements Sketch<TopK> {
+
+    private static final byte MAGIC = 'K';
+
+    public record Entry(String key, long count) {
+    }
+
+    private final int k;
+    private final CountMinSketch counts;
+    private final Map<String, Long> candidates = new HashMap<>();
+    private long minCandidate; // Smallest candidate estimate, valid while the map is full
+
+    public TopK(int k, int width, int depth) {
+        this(k, new CountMinSketch(width, depth));
+    }
+
+    private TopK(int k, CountMinSketch counts) {
+        if (k < 1) {
+            throw new IllegalArgumentException("TopK k must be positive: " + k);
+        }
+        this.k = k;
+        this.counts = counts;
+    }
+
+    public void add(String key) {
+        add(key, 1);
+    }
+
+    public void add(String key, long count) {
+        long hash = Sketch.hash64(key);
+        counts.addHash(hash, count);
+        offer(key, counts.estimateHash(hash));
+    }
+
+    /**
+     * Estimated count of any key, heavy or not.
+     */
+    public long estimate(String key) {
+        return counts.estimate(key);
+    }
+
+    /**
+     * Up to n heaviest keys, highest first.
+     */
+    public List<Entry> top(int n) {
+        List<Entry> entries = new ArrayList<>(candidates.size());
+        candidates.forEach((key, count) -> entries.add(new Entry(key, count)));
+        entries.sort(Comparator.comparingLong(Entry::count).reversed().thenComparing(Entry::key));
+        return entries.size() > n ? entries.subList(0, n) : entries;
+    }
+
+    public long getTotal() {
+        return counts.getTotal();
+    }
+
+    @Override
+    public void merge(TopK other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("TopK k differs: " + k + " vs " + other.k);
+        }
+        counts.merge(other.counts);
+        // Re-rank both candidate sets against the merged counts
+        List<String> keys = new ArrayList<>(candidates.keySet());
+        keys.addAll(other.candidates.keySet());
+        candidates.clear();
+        for (String key : keys) {
+            offer(key, counts.estimate(key));
+        }
+    }
+
+    @Override
+    public byte[] toBytes() {
+        byte[] sketch = counts.toBytes();
+        return SketchIO.write(MAGIC, out -> {
+            out.writeInt(k);
+            out.writeInt(sketch.length);
+            out.write(sketch);
+            out.writeInt(candidates.size());
+            for (String key : candidates.keySet()) {
+                SketchIO.writeString(out, key);
+            }
+        });
+    }
+
+    public static TopK fromBytes(byte[] data) {
+        return SketchIO.read(data, MAGIC, in -> {
+            int k = in.readInt();
+            byte[] sketch = new byte[in.readInt()];
+            in.readFully(sketch);
+            TopK topK = new TopK(k, CountMinSketch.fromBytes(sketch));
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String key = SketchIO.readString(in);
+                topK.offer(key, topK.counts.estimate(key));
+            }
+            return topK;
+        });
+    }
+
+    private void offer(String key, long estimate) {
+        Long previous = candidates.get(key);
+        if (previous == null && candidates.size() >= k) {
+            if (estimate <= minCandidate) {
+                return;
+            }
+            candidates.values().remove(minCandidate); // Evict one candidate holding the minimum
+        }
+        candidates.put(key, estimate);
+        // Estimates only grow, so the minimum moves only if it was this key's or one was evicted
+        if (candidates.size() == k && (previous == null || previous == minCandidate)) {
+            minCandidate = minCount();
+        }
+    }
+
+    private long minCount() {
+        long min = Long.MAX_VALUE;
+        for (long count : candidates.values()) {
+            min = Math.min(min, count);
+        }
+        return min;
+    }
+}
@@ -1,11 +1,11 @@
 package com.streamingplatform.ui;
 
-import java.sql.Connection;
 import java.sql.ResultSet;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.sql.SQLException;
+import java.sql.Statement;
 
 import com.streamingplatform.persistence.DatabaseManager;
+import com.streamingplatform.service.SyncScheduler;
 
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -18,9 +18,16 @@ import javafx.scene.control.TableView;
 import javafx.stage.Stage;
 
 public class Dashboard extends Application {
+    // Refresh every 2 seconds
+    private static final SyncScheduler.Policy REFRESH_POLICY = SyncScheduler.Policy.fixed(0, 2000);
+
+    // JavaFX creates the Application instance, so the scheduler is handed over statically
+    private static SyncScheduler scheduler;
+
     private final ObservableList<MessageData> data = FXCollections.observableArrayList();
 
-    public static void launchApp() {
+    public static void launchApp(SyncScheduler scheduler) {
+        Dashboard.scheduler = scheduler;
         new Thread(() -> Application.launch(Dashboard.class)).start();
     }
 
@@ -43,21 +50,21 @@ public class Dashboard extends Application {
         stage.setScene(scene);
         stage.show();
 
-        // Auto-refresh every 2 seconds
-        new Timer(true).scheduleAtFixedRate(new TimerTask() {
-            public void run() { refresh(); }
-        }, 0, 2000);
+        // Auto-refresh
+        scheduler.schedule("dashboard", REFRESH_POLICY, this::refresh);
     }
 
-    private void refresh() {
-        try (Connection conn = DatabaseManager.getConnection();
-             ResultSet rs = conn.createStatement().executeQuery("SELECT topic, content FROM messages ORDER BY id DESC LIMIT 50")) {
+    // The connection is DatabaseManager's shared one: close only the statement
+    private long refresh() throws SQLException {
+        try (Statement stmt = DatabaseManager.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT topic, content FROM messages ORDER BY id DESC LIMIT 50")) {
              
             ObservableList<MessageData> snapshot = FXCollections.observableArrayList();
             while (rs.next()) snapshot.add(new MessageData(rs.getString("topic"), rs.getString("content")));
             
             Platform.runLater(() -> { data.clear(); data.addAll(snapshot); });
-        } catch (Exception e) { e.printStackTrace(); }
+            return snapshot.size();
+        }
     }
 
     public static class MessageData {
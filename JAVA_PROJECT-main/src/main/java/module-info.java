@@ -5,6 +5,7 @@ module com.streamingplatform {
     requires com.h2database;
     requires mysql.connector.j;
     requires org.neo4j.driver;
+    requires jdk.httpserver;
 
     // Allow JavaFX to see UI classes
     opens com.streamingplatform.ui to javafx.graphics, javafx.fxml;
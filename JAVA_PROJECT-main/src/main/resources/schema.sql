@@ -3,14 +3,23 @@ CREATE TABLE IF NOT EXISTS messages (
     id IDENTITY PRIMARY KEY,
     topic VARCHAR(255) NOT NULL,
     producer_id VARCHAR(255),
-    content VARCHAR(1024),
-    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    content VARBINARY(4096),
+    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    ingest_nanos BIGINT
 );
 
--- Table for storing message statistics 
+-- Per-topic, per-producer message / byte rollups (RollupService)
 CREATE TABLE IF NOT EXISTS message_stats (
     id IDENTITY PRIMARY KEY,
     topic VARCHAR(255) NOT NULL,
-    message_count INT DEFAULT 0,
+    producer_id VARCHAR(255) DEFAULT '' NOT NULL, -- '' for messages without a producer
+    resolution CHAR(1) DEFAULT 'm' NOT NULL,      -- m(inute), h(our), d(ay)
+    bucket_start BIGINT NOT NULL,                 -- epoch ms (UTC), a multiple of the resolution
+    message_count BIGINT DEFAULT 0,
+    byte_count BIGINT DEFAULT 0,
     last_processed TIMESTAMP
 );
+-- Topic first for per-topic series; compaction reads by resolution and age
+CREATE UNIQUE INDEX IF NOT EXISTS message_stats_bucket
+    ON message_stats (topic, bucket_start, producer_id, resolution);
+CREATE INDEX IF NOT EXISTS message_stats_resolution ON message_stats (resolution, bucket_start);
@@ -0,0 +1,111 @@
+package com.streamingplatform.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.streamingplatform.analysis.ColumnarReader.Column;
+import com.streamingplatform.analysis.ColumnarReader.Filter;
+import com.streamingplatform.analysis.ColumnarReader.Row;
+
+class ColumnarRoundTripTest {
+
+    private static final long START_MS = 1_700_000_000_000L;
+    private static final String[] TOPICS = { "Orders", "Logs", "Alerts" };
+
+    @TempDir
+    Path dir;
+
+    // 1000 rows over blocks of 100; every 7th has no producer, every 11th no content
+    private Path writeSnapshot() throws Exception {
+        Path path = dir.resolve("messages.col");
+        try (ColumnarWriter writer = new ColumnarWriter(path, 100)) {
+            for (int i = 0; i < 1000; i++) {
+                writer.write(i + 1, START_MS + i * 1000L, TOPICS[i % 3], i % 7 == 0 ? null : "p" + (i % 5),
+                        i % 11 == 0 ? new byte[0] : ("event " + i + " ü").getBytes(StandardCharsets.UTF_8));
+            }
+            writer.finish();
+        }
+        return path;
+    }
+
+    private static List<Row> scan(ColumnarReader reader, Filter filter, EnumSet<Column> columns) throws Exception {
+        List<Row> rows = new ArrayList<>();
+        reader.scan(filter, columns, rows::add);
+        return rows;
+    }
+
+    @Test
+    void everyRowAndColumnRoundTrips() throws Exception {
+        try (ColumnarReader reader = ColumnarReader.open(writeSnapshot())) {
+            assertEquals(1000, reader.rowCount());
+            assertEquals(10, reader.blockCount());
+            List<Row> rows = scan(reader, Filter.all(), EnumSet.allOf(Column.class));
+            assertEquals(1000, rows.size());
+            for (int i = 0; i < 1000; i++) {
+                Row row = rows.get(i);
+                assertEquals(i + 1, row.id());
+                assertEquals(START_MS + i * 1000L, row.timestampMs());
+                assertEquals(TOPICS[i % 3], row.topic());
+                assertEquals(i % 7 == 0 ? null : "p" + (i % 5), row.producerId());
+                assertArrayEquals(i % 11 == 0 ? new byte[0] : ("event " + i + " ü").getBytes(StandardCharsets.UTF_8),
+                        row.content());
+            }
+        }
+    }
+
+    @Test
+    void filtersSkipBlocksAndColumns() throws Exception {
+        try (ColumnarReader reader = ColumnarReader.open(writeSnapshot())) {
+            List<Row> rows = scan(reader, Filter.all().ids(251, 351).topics("Logs"),
+                    EnumSet.of(Column.ID, Column.TOPIC));
+            // Rows i = 250..349 with i % 3 == 1
+            assertEquals(34, rows.size());
+            assertTrue(rows.stream().allMatch(r -> r.topic().equals("Logs") && r.id() >= 251 && r.id() < 351));
+            assertNull(rows.get(0).content());
+            assertEquals(2, reader.blocksRead());
+        }
+    }
+
+    @Test
+    void timeAndProducerFilters() throws Exception {
+        try (ColumnarReader reader = ColumnarReader.open(writeSnapshot())) {
+            List<Row> rows = scan(reader, Filter.all().producers("p2").between(START_MS, START_MS + 50_000),
+                    EnumSet.allOf(Column.class));
+            for (Row row : rows) {
+                assertEquals("p2", row.producerId());
+                assertTrue(row.timestampMs() < START_MS + 50_000);
+            }
+            // i < 50 with i % 5 == 2 and i % 7 != 0: all but 7 and 42
+            assertEquals(8, rows.size());
+            assertEquals(0, scan(reader, Filter.all().topics("Unknown"), EnumSet.allOf(Column.class)).size());
+        }
+    }
+
+    @Test
+    void closeWithoutFinishLeavesNoSnapshot() throws Exception {
+        Path previous = writeSnapshot();
+        long size = Files.size(previous);
+        try (ColumnarWriter writer = new ColumnarWriter(previous, 100)) {
+            writer.write(1, START_MS, "Orders", "p1", new byte[] { 1 });
+            // The export fails here: no finish()
+        }
+        assertEquals(size, Files.size(previous));
+        assertFalse(Files.exists(dir.resolve("messages.col.tmp")));
+        try (ColumnarReader reader = ColumnarReader.open(previous)) {
+            assertEquals(1000, reader.rowCount());
+        }
+    }
+}
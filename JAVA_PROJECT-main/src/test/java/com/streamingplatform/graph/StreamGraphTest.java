@@ -0,0 +1,161 @@
+package com.streamingplatform.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.streamingplatform.graph.StreamGraph.Kind;
+import com.streamingplatform.graph.StreamGraph.Neighbor;
+import com.streamingplatform.graph.StreamGraph.Node;
+
+class StreamGraphTest {
+
+    // Same order as StreamGraph.top(): the documented ranking, ties alphabetical
+    private static Comparator<Node> order(Kind kind) {
+        Comparator<Node> byName = Comparator.comparing(Node::name);
+        return switch (kind) {
+            case PRODUCER -> Comparator.comparingInt(Node::publishes).reversed()
+                    .thenComparing(Comparator.comparingLong(Node::messages).reversed()).thenComparing(byName);
+            case TOPIC -> Comparator.comparingLong(Node::messages).reversed()
+                    .thenComparing(Comparator.comparingInt(Node::degree).reversed()).thenComparing(byName);
+            case CONSUMER -> Comparator.comparingInt(Node::subscriptions).reversed().thenComparing(byName);
+        };
+    }
+
+    @Test
+    void topMatchesAFullSortForEveryLimit() {
+        StreamGraph graph = new StreamGraph();
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            // Skewed, so counts tie as well as differ
+            graph.recordPublish("t" + random.nextInt(1 + random.nextInt(40)), "p" + random.nextInt(30));
+        }
+        for (int i = 0; i < 200; i++) {
+            graph.subscribe("c" + random.nextInt(25), "t" + random.nextInt(45));
+        }
+        for (Kind kind : Kind.values()) {
+            List<Node> all = new ArrayList<>();
+            for (Node node : graph.nodes(kind)) {
+                all.add(graph.node(kind, node.name()));
+            }
+            List<Node> sorted = new ArrayList<>(all);
+            sorted.sort(order(kind));
+            assertEquals(sorted, graph.nodes(kind), kind.name());
+            for (int limit : new int[] { 0, 1, 5, all.size() - 1, all.size() + 10 }) {
+                assertEquals(sorted.subList(0, Math.min(limit, sorted.size())), graph.top(kind, limit),
+                        kind + " limit " + limit);
+            }
+        }
+    }
+
+    @Test
+    void countsNodesEdgesAndMessages() {
+        StreamGraph graph = new StreamGraph();
+        graph.recordPublish("Orders", "p1");
+        graph.recordPublish("Orders", "p1");
+        graph.recordPublish("Orders", "p2");
+        graph.recordPublish("Logs", "p1");
+        graph.recordPublish("Logs", null);
+        graph.subscribe("c1", "Orders");
+        graph.subscribe("c1", "Orders");
+        graph.subscribe("c1", "Alerts");
+
+        assertEquals(3, graph.count(Kind.TOPIC));
+        assertEquals(3, graph.publishEdgeCount());
+        assertEquals(2, graph.subscriptionCount());
+        assertEquals(new Node(Kind.TOPIC, "Orders", 2, 1, 3), graph.node(Kind.TOPIC, "Orders"));
+        assertEquals(new Node(Kind.TOPIC, "Logs", 1, 0, 2), graph.node(Kind.TOPIC, "Logs"));
+        assertEquals(new Node(Kind.TOPIC, "Alerts", 0, 1, 0), graph.node(Kind.TOPIC, "Alerts"));
+        assertEquals(new Node(Kind.PRODUCER, "p1", 2, 0, 3), graph.node(Kind.PRODUCER, "p1"));
+        assertNull(graph.node(Kind.PRODUCER, "p9"));
+    }
+
+    @Test
+    void neighborsAndRelatedTopics() {
+        StreamGraph graph = new StreamGraph();
+        for (int i = 0; i < 5; i++) {
+            graph.recordPublish("Orders", "p1");
+        }
+        graph.recordPublish("Orders", "p2");
+        for (int i = 0; i < 3; i++) {
+            graph.recordPublish("Payments", "p1");
+            graph.recordPublish("Refunds", "p2");
+        }
+        graph.recordPublish("Payments", "p2");
+        graph.recordPublish("Logs", "p3");
+        graph.subscribe("c1", "Orders");
+
+        assertEquals(List.of(new Neighbor(Kind.PRODUCER, "p1", 5), new Neighbor(Kind.PRODUCER, "p2", 1),
+                new Neighbor(Kind.CONSUMER, "c1", 0)), graph.neighbors(Kind.TOPIC, "Orders"));
+        // Payments: 3 from p1 + 1 from p2; Refunds: 3 from p2; Logs shares no producer
+        assertEquals(List.of(new Neighbor(Kind.TOPIC, "Payments", 4), new Neighbor(Kind.TOPIC, "Refunds", 3)),
+                graph.relatedTopics("Orders", 10));
+        assertEquals(1, graph.relatedTopics("Orders", 1).size());
+        assertEquals(List.of(), graph.relatedTopics("Unknown", 10));
+    }
+
+    @Test
+    void removedConsumersLeaveNoSubscriptions() {
+        StreamGraph graph = new StreamGraph();
+        graph.subscribe("c1", "Orders");
+        graph.subscribe("c1", "Logs");
+        graph.subscribe("c2", "Orders");
+        graph.unsubscribe("c2", "Orders");
+        graph.unsubscribe("c2", "Missing");
+        graph.removeConsumer("c1");
+
+        assertEquals(0, graph.subscriptionCount());
+        assertNull(graph.node(Kind.CONSUMER, "c1"));
+        assertEquals(0, graph.node(Kind.TOPIC, "Orders").subscriptions());
+
+        // The released id is reused without inheriting old edges
+        graph.subscribe("c3", "Logs");
+        assertEquals(List.of(new Neighbor(Kind.TOPIC, "Logs", 0)), graph.neighbors(Kind.CONSUMER, "c3"));
+        assertEquals(1, graph.node(Kind.TOPIC, "Logs").subscriptions());
+    }
+
+    @Test
+    void concurrentPublishesAreAllCounted() throws Exception {
+        StreamGraph graph = new StreamGraph();
+        int threads = 4;
+        int perThread = 20_000;
+        List<Thread> workers = new ArrayList<>();
+        for (int w = 0; w < threads; w++) {
+            int seed = w;
+            workers.add(new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < perThread; i++) {
+                    graph.recordPublish("t" + random.nextInt(20), "p" + random.nextInt(20));
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        long total = 0;
+        for (Node topic : graph.nodes(Kind.TOPIC)) {
+            total += topic.messages();
+            long edges = 0;
+            for (Neighbor neighbor : graph.neighbors(Kind.TOPIC, topic.name())) {
+                edges += neighbor.messages();
+            }
+            assertEquals(topic.messages(), edges, topic.name());
+        }
+        assertEquals((long) threads * perThread, total);
+        long producerTotal = 0;
+        for (Node producer : graph.nodes(Kind.PRODUCER)) {
+            producerTotal += producer.messages();
+        }
+        assertEquals(total, producerTotal);
+        assertEquals(20, graph.count(Kind.PRODUCER));
+        assertEquals(20, graph.count(Kind.TOPIC));
+    }
+}
@@ -0,0 +1,268 @@
+package com.streamingplatform.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.streamingplatform.service.SyncScheduler;
+
+class ChangeOutboxTest {
+
+    // Never fires on its own: runs are driven with runNow()
+    private static final SyncScheduler.Policy MANUAL = SyncScheduler.Policy.fixed(3_600_000, 3_600_000);
+
+    @TempDir
+    Path dir;
+
+    private final SyncScheduler scheduler = new SyncScheduler(1);
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Keeps every batch it applied and, if transactional, reports the
+     * position of the last one. Throws on the calls listed in failOn, after
+     * or before committing.
+     */
+    private static final class RecordingSink implements Sink {
+        final String name;
+        final boolean transactional;
+        final List<List<ChangeEvent>> applied = new ArrayList<>();
+        final List<Integer> failOn = new ArrayList<>();
+        boolean commitBeforeFailing;
+        long committed = -1;
+        int calls;
+
+        RecordingSink(boolean transactional) {
+            this("test-sink", transactional);
+        }
+
+        RecordingSink(String name, boolean transactional) {
+            this.name = name;
+            this.transactional = transactional;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public void apply(List<ChangeEvent> batch, String outboxId) throws Exception {
+            calls++;
+            boolean fail = failOn.contains(calls);
+            if (fail && !commitBeforeFailing) {
+                throw new Exception("apply failed");
+            }
+            applied.add(batch);
+            committed = batch.get(batch.size() - 1).seq();
+            if (fail) {
+                throw new Exception("reply lost after commit");
+            }
+        }
+
+        @Override
+        public OptionalLong committedPosition(String outboxId) {
+            return !transactional || committed < 0 ? OptionalLong.empty() : OptionalLong.of(committed);
+        }
+
+        long total(String topic) {
+            return applied.stream().flatMap(List::stream)
+                    .filter(e -> e.type() == ChangeEvent.Type.TOPIC_COUNT && e.topic().equals(topic))
+                    .mapToLong(ChangeEvent::delta).sum();
+        }
+    }
+
+    @Test
+    void eventsOfOneKeyAreCoalesced() throws Exception {
+        ChangeOutbox outbox = ChangeOutbox.open(dir);
+        RecordingSink sink = new RecordingSink(true);
+        SyncScheduler.ScheduledJob job = outbox.attach(sink, scheduler, MANUAL);
+        outbox.append(List.of(ChangeEvent.topicCount("Orders", 5), ChangeEvent.pairCount("p1", "Orders", 5),
+                ChangeEvent.topicCount("Orders", 7)));
+
+        job.runNow();
+        List<ChangeEvent> batch = sink.applied.get(0);
+        assertEquals(2, batch.size());
+        assertEquals(new ChangeEvent(2, ChangeEvent.Type.PAIR_COUNT, "Orders", "p1", null, 5), batch.get(0));
+        assertEquals(new ChangeEvent(3, ChangeEvent.Type.TOPIC_COUNT, "Orders", null, null, 12), batch.get(1));
+        outbox.close();
+    }
+
+    @Test
+    void failedApplyIsRetriedWithNewerEventsFolded() throws Exception {
+        ChangeOutbox outbox = ChangeOutbox.open(dir);
+        RecordingSink sink = new RecordingSink(true);
+        sink.failOn.add(1);
+        SyncScheduler.ScheduledJob job = outbox.attach(sink, scheduler, MANUAL);
+
+        outbox.append(List.of(ChangeEvent.topicCount("Orders", 5)));
+        job.runNow();
+        assertEquals(0, sink.applied.size());
+
+        outbox.append(List.of(ChangeEvent.topicCount("Orders", 2)));
+        job.runNow();
+        assertEquals(1, sink.applied.size());
+        assertEquals(7, sink.total("Orders"));
+        outbox.close();
+    }
+
+    @Test
+    void batchCommittedBeforeAFailureIsNotAppliedAgain() throws Exception {
+        ChangeOutbox outbox = ChangeOutbox.open(dir);
+        RecordingSink sink = new RecordingSink(true);
+        sink.failOn.add(1);
+        sink.commitBeforeFailing = true;
+        SyncScheduler.ScheduledJob job = outbox.attach(sink, scheduler, MANUAL);
+
+        outbox.append(List.of(ChangeEvent.topicCount("Orders", 5), ChangeEvent.topicCount("Orders", 7)));
+        job.runNow();
+        outbox.append(List.of(ChangeEvent.topicCount("Orders", 1)));
+        job.runNow();
+
+        assertEquals(13, sink.total("Orders"));
+        assertEquals(2, sink.applied.size());
+        assertEquals(3, sink.committed);
+        outbox.close();
+    }
+
+    @Test
+    void reattachedSinkResumesFromItsCheckpoint() throws Exception {
+        ChangeOutbox outbox = ChangeOutbox.open(dir);
+        // Not transactional: the checkpoint file alone decides where it resumes
+        RecordingSink sink = new RecordingSink(false);
+        SyncScheduler.ScheduledJob job = outbox.attach(sink, scheduler, MANUAL);
+        outbox.append(List.of(ChangeEvent.topicCount("Orders", 5)));
+        job.runNow();
+        job.cancel();
+        outbox.append(List.of(ChangeEvent.topicCount("Orders", 2)));
+        outbox.close();
+
+        ChangeOutbox reopened = ChangeOutbox.open(dir);
+        RecordingSink resumed = new RecordingSink(false);
+        reopened.attach(resumed, scheduler, MANUAL).runNow();
+        assertEquals(2, resumed.total("Orders"));
+        reopened.close();
+    }
+
+    // Appends enough single-count events to roll at least one segment, then one more
+    private long fillSegments(ChangeOutbox outbox) throws Exception {
+        long events = 0;
+        int before = segmentCount();
+        while (segmentCount() == before) {
+            List<ChangeEvent> batch = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++) {
+                batch.add(ChangeEvent.topicCount("Orders", 1));
+            }
+            outbox.append(batch);
+            events += batch.size();
+        }
+        return events;
+    }
+
+    private int segmentCount() throws Exception {
+        try (var files = Files.list(dir)) {
+            return (int) files.filter(p -> p.getFileName().toString().endsWith(".log")).count();
+        }
+    }
+
+    private static void drain(ChangeOutbox outbox, SyncScheduler.ScheduledJob job, RecordingSink sink) {
+        for (int i = 0; i < 100 && sink.committed < outbox.getLastSeq(); i++) {
+            job.runNow();
+        }
+    }
+
+    @Test
+    void segmentsAreKeptForASinkNotAttachedYet() throws Exception {
+        ChangeOutbox outbox = ChangeOutbox.open(dir);
+        RecordingSink fast = new RecordingSink(false);
+        RecordingSink slow = new RecordingSink("slow-sink", false);
+        SyncScheduler.ScheduledJob fastJob = outbox.attach(fast, scheduler, MANUAL);
+        SyncScheduler.ScheduledJob slowJob = outbox.attach(slow, scheduler, MANUAL);
+        outbox.append(List.of(ChangeEvent.topicCount("Orders", 1)));
+        drain(outbox, slowJob, slow);
+        long total = 1 + fillSegments(outbox);
+        drain(outbox, fastJob, fast);
+        fastJob.cancel();
+        slowJob.cancel();
+        outbox.close();
+
+        // Restart: the fast sink attaches and catches up before the slow one is back
+        ChangeOutbox reopened = ChangeOutbox.open(dir);
+        RecordingSink fastAgain = new RecordingSink(false);
+        SyncScheduler.ScheduledJob fastAgainJob = reopened.attach(fastAgain, scheduler, MANUAL);
+        reopened.append(List.of(ChangeEvent.topicCount("Orders", 1)));
+        total++;
+        drain(reopened, fastAgainJob, fastAgain);
+
+        assertTrue(segmentCount() > 1);
+
+        RecordingSink slowAgain = new RecordingSink("slow-sink", false);
+        drain(reopened, reopened.attach(slowAgain, scheduler, MANUAL), slowAgain);
+        assertEquals(total - 1, slowAgain.total("Orders"));
+        // Every sink is past the old segments now: only the active one is left
+        assertEquals(1, segmentCount());
+        reopened.close();
+    }
+
+    @Test
+    void sinkWhoseEventsWereDeletedFailsInsteadOfSkipping() throws Exception {
+        ChangeOutbox outbox = ChangeOutbox.open(dir);
+        RecordingSink sink = new RecordingSink(false);
+        SyncScheduler.ScheduledJob job = outbox.attach(sink, scheduler, MANUAL);
+        fillSegments(outbox);
+        outbox.append(List.of(ChangeEvent.topicCount("Orders", 1)));
+        drain(outbox, job, sink);
+        outbox.close();
+
+        // A new sink with no checkpoint needs events from seq 1, which are gone
+        ChangeOutbox reopened = ChangeOutbox.open(dir);
+        RecordingSink late = new RecordingSink("late-sink", false);
+        reopened.attach(late, scheduler, MANUAL).runNow();
+        assertEquals(0, late.calls);
+        reopened.close();
+    }
+
+    @Test
+    void tornLastLineIsDroppedOnOpen() throws Exception {
+        ChangeOutbox outbox = ChangeOutbox.open(dir);
+        outbox.append(List.of(ChangeEvent.topicCount("Orders", 5), ChangeEvent.topicCount("Orders", 7)));
+        outbox.close();
+        try (var files = Files.list(dir)) {
+            Path segment = files.filter(p -> p.getFileName().toString().endsWith(".log")).findFirst().orElseThrow();
+            Files.write(segment, "3\tTOPIC_COUNT\tOrd".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        }
+
+        ChangeOutbox reopened = ChangeOutbox.open(dir);
+        assertEquals(2, reopened.getLastSeq());
+        assertEquals(3, reopened.append(List.of(ChangeEvent.topicCount("Orders", 1))));
+
+        RecordingSink sink = new RecordingSink(true);
+        reopened.attach(sink, scheduler, MANUAL).runNow();
+        assertEquals(13, sink.total("Orders"));
+        reopened.close();
+    }
+
+    @Test
+    void lineFormatRoundTripsEscapesAndNulls() {
+        ChangeEvent event = new ChangeEvent(42, ChangeEvent.Type.PAIR_COUNT, "a\tb\\c\nd", "", null, -3);
+        ChangeEvent parsed = ChangeEvent.parse(event.toLine().stripTrailing());
+        assertEquals(event, parsed);
+        assertEquals("", parsed.producerId());
+        assertNull(parsed.consumerId());
+    }
+}
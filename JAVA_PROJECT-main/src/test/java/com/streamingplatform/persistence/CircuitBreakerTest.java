@@ -0,0 +1,87 @@
+package com.streamingplatform.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.streamingplatform.persistence.CircuitBreaker.State;
+
+class CircuitBreakerTest {
+
+    private static final CircuitBreaker.Call<Integer> FAILING = () -> {
+        throw new Exception("connection refused");
+    };
+
+    private static void fail(CircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++) {
+            assertThrows(Exception.class, () -> breaker.execute(FAILING));
+        }
+    }
+
+    @Test
+    void opensAfterThresholdFailuresInARow() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test_threshold", 3, 60_000, 60_000);
+        fail(breaker, 2);
+        assertEquals(1, breaker.execute(() -> 1)); // A success resets the count
+        fail(breaker, 2);
+        assertEquals(State.CLOSED, breaker.getState());
+
+        fail(breaker, 1);
+        assertEquals(State.OPEN, breaker.getState());
+        assertEquals("connection refused", breaker.getLastError());
+    }
+
+    @Test
+    void openCircuitRejectsWithoutCallingTheStore() {
+        CircuitBreaker breaker = new CircuitBreaker("test_reject", 1, 60_000, 60_000);
+        fail(breaker, 1);
+        AtomicInteger calls = new AtomicInteger();
+        assertThrows(CircuitBreaker.OpenException.class, () -> breaker.execute(calls::incrementAndGet));
+        assertEquals(0, calls.get());
+        assertFalse(breaker.isCallPermitted());
+    }
+
+    @Test
+    void successfulProbeClosesTheCircuit() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test_probe", 1, 20, 1_000);
+        fail(breaker, 1);
+        Thread.sleep(40);
+        assertTrue(breaker.isCallPermitted());
+        assertEquals(7, breaker.execute(() -> 7));
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void onlyOneProbeGoesThroughWhileHalfOpen() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test_half_open", 1, 20, 1_000);
+        fail(breaker, 1);
+        Thread.sleep(40);
+        int result = breaker.execute(() -> {
+            assertEquals(State.HALF_OPEN, breaker.getState());
+            assertThrows(CircuitBreaker.OpenException.class, () -> breaker.execute(() -> 0));
+            return 1;
+        });
+        assertEquals(1, result);
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void failedProbeReopensForTwiceAsLong() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test_backoff", 1, 100, 1_000);
+        fail(breaker, 1);
+        Thread.sleep(150);
+        fail(breaker, 1); // The probe
+        assertEquals(State.OPEN, breaker.getState());
+
+        // Open for 200 ms now: still rejecting after the first period has passed
+        Thread.sleep(120);
+        assertFalse(breaker.isCallPermitted());
+        Thread.sleep(150);
+        assertTrue(breaker.isCallPermitted());
+    }
+}
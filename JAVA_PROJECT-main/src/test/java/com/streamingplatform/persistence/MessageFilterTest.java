@@ -0,0 +1,78 @@
+package com.streamingplatform.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class MessageFilterTest {
+
+    private static boolean matches(MessageFilter filter, String payload) {
+        byte[] bytes = ("xx" + payload + "yy").getBytes(StandardCharsets.UTF_8);
+        // Slice in the middle of the array, as stored records are
+        return filter.matchesPayload(bytes, 2, bytes.length - 4);
+    }
+
+    @Test
+    void blankSpecMatchesEverything() {
+        assertSame(MessageFilter.ALL, MessageFilter.parse(null));
+        assertSame(MessageFilter.ALL, MessageFilter.parse("   "));
+        assertTrue(MessageFilter.ALL.matchesAll());
+        assertEquals("", MessageFilter.ALL.sqlConditions());
+    }
+
+    @Test
+    void valuesRunToTheNextOption() {
+        MessageFilter filter = MessageFilter.parse("contains=disk full producer=node-1");
+        assertTrue(matches(filter, "ERROR disk full on /var"));
+        assertFalse(matches(filter, "disk is full"));
+        assertEquals(" AND producer_id = ?", filter.sqlConditions());
+        assertEquals("contains=disk full producer=node-1", filter.toString());
+    }
+
+    @Test
+    void containsIsCaseSensitiveAndIcontainsIsNot() {
+        assertFalse(matches(MessageFilter.parse("contains=error"), "ERROR at boot"));
+        assertTrue(matches(MessageFilter.parse("icontains=error"), "ERROR at boot"));
+        assertTrue(matches(MessageFilter.parse("icontains=ERROR"), "an error"));
+        // Non-ASCII bytes are compared as they are
+        assertTrue(matches(MessageFilter.parse("icontains=Überlauf"), "Fehler: Überlauf"));
+    }
+
+    @Test
+    void textAndRegexMustBothMatch() {
+        MessageFilter filter = MessageFilter.parse("icontains=timeout regex=after \\d+ ms");
+        assertTrue(matches(filter, "Timeout after 350 ms"));
+        assertFalse(matches(filter, "Timeout after a while"));
+        assertFalse(matches(filter, "done after 3 ms"));
+    }
+
+    @Test
+    void timeOptionsGoIntoTheSql() {
+        assertEquals(" AND timestamp >= ? AND timestamp < ?", MessageFilter.parse("from=1000 to=2000").sqlConditions());
+        assertEquals(" AND timestamp >= ?", MessageFilter.parse("since=5m").sqlConditions());
+    }
+
+    @Test
+    void durations() {
+        assertEquals(30_000, MessageFilter.parseDuration("30s"));
+        assertEquals(900_000, MessageFilter.parseDuration("15m"));
+        assertEquals(7_200_000, MessageFilter.parseDuration("2h"));
+        for (String bad : new String[] { "", "5", "1d", "0m", "-5m", "m", "99999999999999999h" }) {
+            assertThrows(IllegalArgumentException.class, () -> MessageFilter.parseDuration(bad), bad);
+        }
+    }
+
+    @Test
+    void badSpecsAreRejected() {
+        for (String bad : new String[] { "producer", "producer=", "color=red", "regex=(", "from=yesterday",
+                "since=1d" }) {
+            assertThrows(IllegalArgumentException.class, () -> MessageFilter.parse(bad), bad);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.streamingplatform.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.streamingplatform.metrics.MetricsRegistry;
+
+class QueryCacheTest {
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        QueryCache cache = new QueryCache("test_shared", 60_000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(pool.submit(() -> cache.get("topics", () -> {
+                loads.incrementAndGet();
+                started.countDown();
+                release.await();
+                return "result";
+            })));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < callers; i++) {
+                results.add(pool.submit(() -> cache.get("topics", () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            // Release the load only once every other caller has joined it
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (MetricsRegistry.counter("test_shared_cache_shared_loads_total").sum() < callers - 1
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("result", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(callers - 1, MetricsRegistry.counter("test_shared_cache_shared_loads_total").sum());
+        assertEquals("result", cache.get("topics", () -> "reloaded")); // Now a hit
+    }
+
+    @Test
+    void invalidateDuringALoadRetiresItsResult() throws Exception {
+        QueryCache cache = new QueryCache("test_invalidate", 60_000);
+        String first = cache.get("stats", () -> {
+            cache.invalidate(); // The store changed while the query ran
+            return "stale";
+        });
+        assertEquals("stale", first); // The caller still gets what it loaded
+
+        assertEquals("fresh", cache.get("stats", () -> "fresh"));
+        assertEquals("fresh", cache.get("stats", () -> "again"));
+
+        cache.invalidate();
+        assertEquals("after", cache.get("stats", () -> "after"));
+    }
+
+    @Test
+    void failedLoadIsNotCached() throws Exception {
+        QueryCache cache = new QueryCache("test_failure", 60_000);
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> cache.get("producers", () -> {
+                    throw new IllegalStateException("neo4j down");
+                }));
+        assertEquals("neo4j down", error.getMessage());
+
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("ok", cache.get("producers", () -> {
+            loads.incrementAndGet();
+            return "ok";
+        }));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void entriesExpireAfterTheTtl() throws Exception {
+        QueryCache cache = new QueryCache("test_ttl", 50);
+        assertEquals("first", cache.get("consumers", () -> "first"));
+        assertEquals("first", cache.get("consumers", () -> "second"));
+
+        Thread.sleep(80);
+        assertEquals("second", cache.get("consumers", () -> "second"));
+    }
+}
@@ -0,0 +1,63 @@
+package com.streamingplatform.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+class PostingsTest {
+
+    @Test
+    void roundTripsSmallAndLargeGaps() {
+        long[] ids = { 0, 1, 127, 128, 16_511, 1L << 40, Long.MAX_VALUE };
+        assertArrayEquals(ids, Postings.decode(Postings.encode(ids, ids.length)));
+        assertArrayEquals(new long[0], Postings.decode(Postings.encode(new long[0], 0)));
+    }
+
+    @Test
+    void encodesOnlyThePrefix() {
+        long[] ids = { 5, 9, 12, 40 };
+        assertArrayEquals(new long[] { 5, 9 }, Postings.decode(Postings.encode(ids, 2)));
+    }
+
+    @Test
+    void denseIdsTakeAboutOneBytePerId() {
+        long[] ids = new long[10_000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1_000_000 + i * 3L;
+        }
+        byte[] encoded = Postings.encode(ids, ids.length);
+        // Count and first id take a few bytes; every later gap is one
+        assertEquals(2 + 3 + (ids.length - 1), encoded.length);
+        assertArrayEquals(ids, Postings.decode(encoded));
+    }
+
+    @Test
+    void intersectAndUnionMatchSets() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            TreeSet<Long> a = new TreeSet<>();
+            TreeSet<Long> b = new TreeSet<>();
+            for (int i = 0; i < random.nextInt(200); i++) {
+                a.add((long) random.nextInt(500));
+            }
+            for (int i = 0; i < random.nextInt(200); i++) {
+                b.add((long) random.nextInt(500));
+            }
+            TreeSet<Long> both = new TreeSet<>(a);
+            both.retainAll(b);
+            TreeSet<Long> either = new TreeSet<>(a);
+            either.addAll(b);
+
+            assertArrayEquals(toArray(both), Postings.intersect(toArray(a), toArray(b)));
+            assertArrayEquals(toArray(either), Postings.union(toArray(a), toArray(b)));
+        }
+    }
+
+    private static long[] toArray(TreeSet<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,63 @@
+package com.streamingplatform.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SearchQueryTest {
+
+    @Test
+    void wordsAreTermsWithTheDefaultLimit() {
+        SearchQuery query = SearchQuery.parse("  Disk-Full  disk ");
+        assertEquals(List.of("disk", "full"), query.terms());
+        assertEquals(SearchQuery.DEFAULT_LIMIT, query.limit());
+        assertEquals(Long.MIN_VALUE, query.fromMs());
+        assertEquals(Long.MAX_VALUE, query.toMs());
+    }
+
+    @Test
+    void trailingNumbersAreTermsNotLimits() {
+        SearchQuery status = SearchQuery.parse("status 500");
+        assertEquals(List.of("status", "500"), status.terms());
+        assertEquals(SearchQuery.DEFAULT_LIMIT, status.limit());
+        assertEquals(List.of("node", "7"), SearchQuery.parse("node 7").terms());
+    }
+
+    @Test
+    void limitOnlyFromTheOption() {
+        SearchQuery query = SearchQuery.parse("disk full limit=5");
+        assertEquals(List.of("disk", "full"), query.terms());
+        assertEquals(5, query.limit());
+        for (String bad : new String[] { "limit=0", "limit=1001", "limit=five" }) {
+            assertThrows(IllegalArgumentException.class, () -> SearchQuery.parse("disk " + bad), bad);
+        }
+    }
+
+    @Test
+    void timeRange() {
+        SearchQuery range = SearchQuery.parse("timeout from=1000 to=2000");
+        assertEquals(1000, range.fromMs());
+        assertEquals(2000, range.toMs());
+
+        long before = System.currentTimeMillis();
+        SearchQuery since = SearchQuery.parse("timeout since=15m");
+        assertTrue(since.fromMs() >= before - 900_000 && since.fromMs() <= System.currentTimeMillis() - 900_000);
+    }
+
+    @Test
+    void sinceTakesTheSameValuesAsAFilter() {
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.parse("timeout since=1d"));
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.parse("timeout since="));
+    }
+
+    @Test
+    void optionsAloneAreNotAQuery() {
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.parse("limit=5"));
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.parse(null));
+    }
+}
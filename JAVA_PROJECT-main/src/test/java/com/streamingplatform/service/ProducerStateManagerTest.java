@@ -0,0 +1,71 @@
+package com.streamingplatform.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ProducerStateManagerTest {
+
+    @Test
+    void windowDropsRepeatedSequences() {
+        ProducerStateManager.SequenceWindow window = new ProducerStateManager.SequenceWindow();
+        for (long seq : new long[] { 0, 1, 2, 5 }) {
+            assertFalse(window.isDuplicate(seq));
+            window.mark(seq);
+        }
+        assertTrue(window.isDuplicate(2));
+        assertTrue(window.isDuplicate(5));
+        // Gaps below the highest are still accepted once, out of order
+        assertFalse(window.isDuplicate(3));
+        window.mark(3);
+        assertTrue(window.isDuplicate(3));
+        assertFalse(window.isDuplicate(4));
+    }
+
+    @Test
+    void windowTreatsSequencesBeyondItsSizeAsReplays() {
+        ProducerStateManager.SequenceWindow window = new ProducerStateManager.SequenceWindow();
+        window.mark(0);
+        window.mark(ProducerStateManager.WINDOW_SIZE);
+        assertTrue(window.isDuplicate(0));
+        assertFalse(window.isDuplicate(1));
+
+        // A jump past the window forgets every bit
+        window.mark(10 * ProducerStateManager.WINDOW_SIZE);
+        assertFalse(window.isDuplicate(10 * ProducerStateManager.WINDOW_SIZE - 1));
+        assertTrue(window.isDuplicate(10 * ProducerStateManager.WINDOW_SIZE));
+    }
+
+    @Test
+    void reinitFencesTheOlderEpoch() {
+        ProducerStateManager manager = new ProducerStateManager(60_000);
+        long first = manager.initProducer("p1");
+        long second = manager.initProducer("p1");
+        assertTrue(second > first);
+
+        assertNull(manager.window("p1", first, "Orders"));
+        assertEquals(ProducerStateManager.Status.FENCED, manager.rejection("p1", first));
+        assertNotNull(manager.window("p1", second, "Orders"));
+        assertEquals(ProducerStateManager.Status.UNKNOWN_PRODUCER, manager.rejection("p2", 0));
+    }
+
+    @Test
+    void expiredProducerIsUnknownAndOutrankedOnReturn() {
+        ProducerStateManager manager = new ProducerStateManager(1_000);
+        long epoch = manager.initProducer("p1");
+        manager.initProducer("p2");
+
+        assertEquals(0, manager.expire(System.currentTimeMillis()));
+        assertEquals(2, manager.expire(System.currentTimeMillis() + 2_000));
+        assertNull(manager.window("p1", epoch, "Orders"));
+        assertEquals(ProducerStateManager.Status.UNKNOWN_PRODUCER, manager.rejection("p1", epoch));
+
+        long again = manager.initProducer("p1");
+        assertTrue(again > epoch);
+        assertNotNull(manager.window("p1", again, "Orders"));
+    }
+}
@@ -0,0 +1,115 @@
+package com.streamingplatform.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.streamingplatform.persistence.DatabaseManager;
+import com.streamingplatform.service.RollupService.Bucket;
+import com.streamingplatform.service.RollupService.Resolution;
+
+class RollupServiceTest {
+
+    private static final long DAY = Resolution.DAY.millis;
+
+    private RollupService rollups;
+
+    @BeforeEach
+    void emptyTable() throws Exception {
+        DatabaseManager.initializeDatabase();
+        try (Statement stmt = DatabaseManager.getConnection().createStatement()) {
+            stmt.execute("DELETE FROM message_stats");
+        }
+        rollups = new RollupService();
+    }
+
+    @AfterEach
+    void stop() {
+        rollups.stop();
+    }
+
+    private static Map<String, Long> rowsPerResolution() throws Exception {
+        Map<String, Long> rows = new HashMap<>();
+        try (Connection conn = DatabaseManager.openConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT resolution, COUNT(*) FROM message_stats GROUP BY resolution")) {
+            while (rs.next()) {
+                rows.put(rs.getString(1), rs.getLong(2));
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    void countsPerMinuteAcrossFlushes() throws Exception {
+        long minute = Resolution.MINUTE.floor(System.currentTimeMillis());
+        rollups.record("Orders", "p1", 10, minute + 1_000);
+        rollups.record("Orders", "p1", 20, minute + 59_999);
+        rollups.flush();
+        rollups.record("Orders", "p1", 5, minute + 30_000);
+        rollups.record("Orders", null, 1, minute + 60_000);
+
+        // series() flushes what is still in memory
+        List<Bucket> series = rollups.series("Orders", null, minute, minute + 120_000, Resolution.MINUTE);
+        assertEquals(List.of(new Bucket(minute, 3, 35), new Bucket(minute + 60_000, 1, 1)), series);
+        assertEquals(List.of(new Bucket(minute, 3, 35)),
+                rollups.series("Orders", "p1", minute, minute + 120_000, Resolution.MINUTE));
+        assertEquals(Map.of("m", 2L), rowsPerResolution());
+    }
+
+    @Test
+    void compactionFoldsOldRowsWithoutChangingTotals() throws Exception {
+        // Noon, so each hour of data below fills exactly one hour bucket
+        long now = Resolution.DAY.floor(System.currentTimeMillis()) + 12 * 3_600_000L;
+        // 40 days, 2 days and 1 hour old, one message per minute for an hour each
+        for (long age : new long[] { 40 * DAY, 2 * DAY, 3_600_000L }) {
+            for (int m = 0; m < 60; m++) {
+                rollups.record("Orders", "p1", 100, now - age + m * 60_000L);
+            }
+        }
+        rollups.flush();
+        List<Bucket> before = rollups.series("Orders", null, 0, now + DAY, Resolution.DAY);
+
+        // 120 minute rows into two hour rows, then the 40-day-old hour row into a day row
+        assertEquals(121, rollups.compact(now));
+        assertEquals(0, rollups.compact(now));
+        assertEquals(before, rollups.series("Orders", null, 0, now + DAY, Resolution.DAY));
+
+        Map<String, Long> rows = rowsPerResolution();
+        assertEquals(60L, rows.get("m")); // The last hour stays per minute
+        assertEquals(1L, rows.get("h")); // 2 days old
+        assertEquals(1L, rows.get("d")); // 40 days old
+    }
+
+    @Test
+    void bucketsAreUtcAcrossADstChange() throws Exception {
+        TimeZone defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        try {
+            // 01:30 EDT, then 01:30 EST an hour later
+            long first = Instant.parse("2026-11-01T05:30:00Z").toEpochMilli();
+            long second = Instant.parse("2026-11-01T06:30:00Z").toEpochMilli();
+            rollups.record("Dst", "p1", 10, first);
+            rollups.record("Dst", "p1", 20, second);
+            rollups.flush();
+            rollups.compact(second + 2 * DAY);
+
+            assertEquals(List.of(new Bucket(Resolution.HOUR.floor(first), 1, 10),
+                    new Bucket(Resolution.HOUR.floor(second), 1, 20)),
+                    rollups.series("Dst", null, first - DAY, second + DAY, Resolution.HOUR));
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+}
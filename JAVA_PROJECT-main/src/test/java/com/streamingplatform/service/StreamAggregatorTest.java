@@ -0,0 +1,87 @@
+package com.streamingplatform.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.streamingplatform.service.StreamAggregator.ChangeSet;
+import com.streamingplatform.service.StreamAggregator.PairChange;
+import com.streamingplatform.service.StreamAggregator.TopicChange;
+
+class StreamAggregatorTest {
+
+    @Test
+    void firstChangeSetHoldsEverythingSoFar() {
+        StreamAggregator aggregator = new StreamAggregator();
+        aggregator.record("Orders", "p1");
+        aggregator.record("Orders", "p1");
+        aggregator.record("Orders", null);
+
+        ChangeSet changes = aggregator.newCursor("sync").changes();
+        assertEquals(1, changes.epoch());
+        assertEquals(1, changes.topics().size());
+        assertEquals(new TopicChange("Orders", 3, 3), changes.topics().get(0));
+        assertEquals(new PairChange("p1", "Orders", 2, 2), changes.pairs().get(0));
+        assertEquals(3, aggregator.getTotalCount());
+    }
+
+    @Test
+    void committedEntriesAreNotReturnedAgain() {
+        StreamAggregator aggregator = new StreamAggregator();
+        StreamAggregator.Cursor cursor = aggregator.newCursor("sync");
+        aggregator.record("Orders", "p1");
+        aggregator.record("Logs", "p2");
+        cursor.commit(cursor.changes());
+
+        assertTrue(cursor.changes().isEmpty());
+
+        aggregator.record("Orders", "p1");
+        ChangeSet changes = cursor.changes();
+        assertEquals(2, changes.epoch());
+        assertEquals(new TopicChange("Orders", 2, 1), changes.topics().get(0));
+        assertEquals(new PairChange("p1", "Orders", 2, 1), changes.pairs().get(0));
+        assertEquals(1, changes.pairs().size());
+    }
+
+    @Test
+    void uncommittedChangesAreReturnedAgainWithFresherTotals() {
+        StreamAggregator aggregator = new StreamAggregator();
+        StreamAggregator.Cursor cursor = aggregator.newCursor("sync");
+        aggregator.record("Orders", "p1");
+        cursor.changes(); // a failed sync: never committed
+
+        aggregator.record("Orders", "p1");
+        ChangeSet retry = cursor.changes();
+        assertEquals(1, retry.epoch());
+        assertEquals(new TopicChange("Orders", 2, 2), retry.topics().get(0));
+        cursor.commit(retry);
+        assertTrue(cursor.changes().isEmpty());
+    }
+
+    @Test
+    void incrementsAfterChangesComeWithTheNextSet() {
+        StreamAggregator aggregator = new StreamAggregator();
+        StreamAggregator.Cursor cursor = aggregator.newCursor("sync");
+        aggregator.record("Orders", "p1");
+        ChangeSet first = cursor.changes();
+        aggregator.record("Orders", "p1");
+        cursor.commit(first);
+
+        ChangeSet next = cursor.changes();
+        assertEquals(new TopicChange("Orders", 2, 1), next.topics().get(0));
+        assertEquals(new PairChange("p1", "Orders", 2, 1), next.pairs().get(0));
+    }
+
+    @Test
+    void cursorsAreIndependent() {
+        StreamAggregator aggregator = new StreamAggregator();
+        StreamAggregator.Cursor mysql = aggregator.newCursor("mysql");
+        StreamAggregator.Cursor neo4j = aggregator.newCursor("neo4j");
+        aggregator.record("Orders", "p1");
+        mysql.commit(mysql.changes());
+
+        assertTrue(mysql.changes().isEmpty());
+        assertEquals(new TopicChange("Orders", 1, 1), neo4j.changes().topics().get(0));
+    }
+}
@@ -0,0 +1,121 @@
+package com.streamingplatform.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.streamingplatform.persistence.CircuitBreaker;
+
+class SyncSchedulerTest {
+
+    private static final Pattern INTERVAL = Pattern.compile("every\\s+(\\d+) ms");
+    // Long enough that only runNow() runs the job
+    private static final long NEVER_MS = 3_600_000;
+
+    private final SyncScheduler scheduler = new SyncScheduler(1);
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdown();
+    }
+
+    private long interval(String name) {
+        String line = scheduler.status().stream().filter(l -> l.trim().startsWith(name + " ")).findFirst().orElseThrow();
+        Matcher m = INTERVAL.matcher(line);
+        assertTrue(m.find(), line);
+        return Long.parseLong(m.group(1));
+    }
+
+    @Test
+    void intervalHalvesWithWorkAndStretchesWhenIdle() {
+        AtomicLong changes = new AtomicLong(5);
+        SyncScheduler.ScheduledJob job = scheduler.schedule("test-adapt",
+                SyncScheduler.Policy.adaptive(NEVER_MS, 1000, 100, 4000), changes::get);
+        assertEquals(1000, interval("test-adapt"));
+
+        job.runNow();
+        assertEquals(500, interval("test-adapt"));
+        job.runNow();
+        job.runNow();
+        assertEquals(125, interval("test-adapt"));
+        job.runNow();
+        assertEquals(100, interval("test-adapt")); // Policy minimum
+
+        changes.set(0);
+        job.runNow();
+        assertEquals(150, interval("test-adapt"));
+        for (int i = 0; i < 20; i++) {
+            job.runNow();
+        }
+        assertEquals(4000, interval("test-adapt")); // Policy maximum
+    }
+
+    @Test
+    void failuresBackOffAndSuccessRecovers() {
+        AtomicInteger failing = new AtomicInteger(4);
+        SyncScheduler.ScheduledJob job = scheduler.schedule("test-backoff",
+                SyncScheduler.Policy.adaptive(NEVER_MS, 1000, 100, 2000), () -> {
+                    if (failing.getAndDecrement() > 0) {
+                        throw new Exception("connection refused");
+                    }
+                    return 1;
+                });
+
+        job.runNow();
+        assertEquals(2000, interval("test-backoff"));
+        job.runNow();
+        assertEquals(4000, interval("test-backoff")); // Backoff may pass the policy maximum...
+        job.runNow();
+        job.runNow();
+        assertEquals(8000, interval("test-backoff")); // ...up to 8x base
+        assertTrue(scheduler.status().get(0).contains("failures=4"));
+        assertTrue(scheduler.status().get(0).contains("(failing: connection refused)"));
+
+        job.runNow();
+        assertEquals(1000, interval("test-backoff")); // Halved from the clamped maximum
+        assertFalse(scheduler.status().get(0).contains("failing"));
+    }
+
+    @Test
+    void openCircuitResetsToTheBaseInterval() {
+        AtomicInteger calls = new AtomicInteger();
+        SyncScheduler.ScheduledJob job = scheduler.schedule("test-circuit",
+                SyncScheduler.Policy.adaptive(NEVER_MS, 1000, 100, 4000), () -> {
+                    if (calls.incrementAndGet() == 1) {
+                        throw new Exception("timeout");
+                    }
+                    throw new CircuitBreaker.OpenException("neo4j", 5000);
+                });
+
+        job.runNow();
+        assertEquals(2000, interval("test-circuit"));
+        job.runNow();
+        assertEquals(1000, interval("test-circuit"));
+    }
+
+    @Test
+    void jobIsReArmedAfterARunThrowsAnError() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch ranAgain = new CountDownLatch(2);
+        scheduler.schedule("test-error", SyncScheduler.Policy.fixed(0, 10), () -> {
+            if (runs.incrementAndGet() == 1) {
+                throw new AssertionError("driver bug");
+            }
+            ranAgain.countDown();
+            return 0;
+        });
+
+        assertTrue(ranAgain.await(5, TimeUnit.SECONDS), "job stopped after an Error, runs=" + runs.get());
+        assertTrue(scheduler.status().get(0).contains("failures=1"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.streamingplatform.sketch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class HyperLogLogTest {
+
+    private static void assertNear(long expected, long estimate, double tolerance) {
+        assertTrue(Math.abs(estimate - expected) <= expected * tolerance, expected + " estimated as " + estimate);
+    }
+
+    @Test
+    void countsASmallSetExactly() {
+        HyperLogLog hll = new HyperLogLog(14);
+        assertEquals(0, hll.estimate());
+        for (int i = 0; i < 3; i++) {
+            hll.add("producer-1");
+            hll.add("producer-2");
+        }
+        assertEquals(2, hll.estimate());
+    }
+
+    @Test
+    void estimatesLargeSetsWithinTheErrorBound() {
+        // Standard error at p = 14 is about 0.8%
+        HyperLogLog hll = new HyperLogLog(14);
+        for (int i = 0; i < 200_000; i++) {
+            hll.add("producer-" + i);
+        }
+        assertNear(200_000, hll.estimate(), 0.03);
+    }
+
+    @Test
+    void mergeIsTheUnion() {
+        HyperLogLog a = new HyperLogLog(12);
+        HyperLogLog b = new HyperLogLog(12);
+        for (int i = 0; i < 20_000; i++) {
+            a.add("p" + i);
+            b.add("p" + (i + 10_000));
+        }
+        a.merge(b);
+        assertNear(30_000, a.estimate(), 0.05);
+        assertThrows(IllegalArgumentException.class, () -> a.merge(new HyperLogLog(10)));
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        HyperLogLog hll = new HyperLogLog(10);
+        for (int i = 0; i < 5_000; i++) {
+            hll.add("p" + i);
+        }
+        HyperLogLog copy = HyperLogLog.fromBytes(hll.toBytes());
+        assertEquals(hll.getPrecision(), copy.getPrecision());
+        assertEquals(hll.estimate(), copy.estimate());
+    }
+}
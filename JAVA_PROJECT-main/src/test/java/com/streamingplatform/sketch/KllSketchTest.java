@@ -0,0 +1,74 @@
+package com.streamingplatform.sketch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class KllSketchTest {
+
+    // Rank error bound at k = 200 is under 1%; allow some slack for the random coin
+    private static final double RANK_TOLERANCE = 0.02;
+
+    private static void assertQuantile(KllSketch sketch, double q, long n) {
+        double value = sketch.quantile(q);
+        assertTrue(Math.abs(value / n - q) <= RANK_TOLERANCE, "q" + q + " = " + value);
+    }
+
+    @Test
+    void quantilesOfAUniformStream() {
+        KllSketch sketch = new KllSketch(200);
+        int n = 100_000;
+        for (int i = 1; i <= n; i++) {
+            // Interleaved so the input is not sorted
+            sketch.add((i * 7919L) % n + 1);
+        }
+        assertEquals(n, sketch.getCount());
+        assertEquals(1, sketch.getMin());
+        assertEquals(n, sketch.getMax());
+        assertQuantile(sketch, 0.5, n);
+        assertQuantile(sketch, 0.9, n);
+        assertQuantile(sketch, 0.99, n);
+        assertTrue(Math.abs(sketch.rank(n / 4.0) - 0.25) <= RANK_TOLERANCE);
+    }
+
+    @Test
+    void mergeMatchesOneSketchOverBothHalves() {
+        KllSketch low = new KllSketch(200);
+        KllSketch high = new KllSketch(200);
+        for (int i = 1; i <= 50_000; i++) {
+            low.add(i);
+            high.add(50_000 + i);
+        }
+        low.merge(high);
+        assertEquals(100_000, low.getCount());
+        assertEquals(100_000, low.getMax());
+        assertQuantile(low, 0.5, 100_000);
+        assertQuantile(low, 0.95, 100_000);
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        KllSketch sketch = new KllSketch(64);
+        for (int i = 0; i < 10_000; i++) {
+            sketch.add(i % 997);
+        }
+        KllSketch copy = KllSketch.fromBytes(sketch.toBytes());
+        assertEquals(sketch.getCount(), copy.getCount());
+        for (double q : new double[] { 0, 0.25, 0.5, 0.75, 1 }) {
+            assertEquals(sketch.quantile(q), copy.quantile(q));
+        }
+    }
+
+    @Test
+    void emptyAndInvalidInput() {
+        KllSketch sketch = new KllSketch(200);
+        assertTrue(Double.isNaN(sketch.quantile(0.5)));
+        sketch.add(Double.NaN);
+        assertEquals(0, sketch.getCount());
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.5));
+        assertThrows(IllegalArgumentException.class, () -> new KllSketch(4));
+        assertThrows(IllegalArgumentException.class, () -> KllSketch.fromBytes(new byte[] { 'H', 1 }));
+    }
+}
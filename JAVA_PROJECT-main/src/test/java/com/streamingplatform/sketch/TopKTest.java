@@ -0,0 +1,63 @@
+package com.streamingplatform.sketch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TopKTest {
+
+    @Test
+    void heavyHittersRiseAboveTheTail() {
+        TopK top = new TopK(3, 1024, 4);
+        for (int i = 0; i < 10_000; i++) {
+            top.add("tail-" + i);
+            if (i % 10 == 0) {
+                top.add("heavy-a", 5);
+            }
+            if (i % 20 == 0) {
+                top.add("heavy-b", 5);
+            }
+        }
+        List<TopK.Entry> entries = top.top(2);
+        assertEquals("heavy-a", entries.get(0).key());
+        assertEquals("heavy-b", entries.get(1).key());
+        // Count-Min only overestimates
+        assertTrue(entries.get(0).count() >= 5_000);
+        assertEquals(10_000 + 5_000 + 2_500, top.getTotal());
+    }
+
+    @Test
+    void countMinNeverUnderestimates() {
+        CountMinSketch counts = new CountMinSketch(64, 4);
+        for (int i = 0; i < 1_000; i++) {
+            counts.add("k" + (i % 100), i % 7 + 1);
+        }
+        for (int k = 0; k < 100; k++) {
+            long exact = 0;
+            for (int i = k; i < 1_000; i += 100) {
+                exact += i % 7 + 1;
+            }
+            assertTrue(counts.estimate("k" + k) >= exact);
+        }
+    }
+
+    @Test
+    void mergeAndBytesRoundTrip() {
+        TopK a = new TopK(2, 256, 4);
+        TopK b = new TopK(2, 256, 4);
+        a.add("Orders", 30);
+        a.add("Logs", 5);
+        b.add("Logs", 40);
+        b.add("Alerts", 1);
+        a.merge(b);
+        assertEquals("Logs", a.top(1).get(0).key());
+        assertTrue(a.estimate("Logs") >= 45);
+
+        TopK copy = TopK.fromBytes(a.toBytes());
+        assertEquals(a.top(2), copy.top(2));
+        assertEquals(a.getTotal(), copy.getTotal());
+    }
+}
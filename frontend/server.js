@@ -35,8 +35,53 @@ try {
 app.use(cors());
 app.use(express.json());
 
-// Helper function to run Neo4j queries
+// Read results are reused for this long; the dashboard polls every few seconds
+const QUERY_CACHE_TTL_MS = 5000;
+const WRITE_CYPHER = /\b(CREATE|MERGE|SET|DELETE|REMOVE)\b/i;
+
+// key (Cypher text + params) -> { records, expiresAt } or { promise, epoch }
+const queryCache = new Map();
+// Bumped by every write so reads started before it are not stored
+let queryCacheEpoch = 0;
+
+// Helper function to run Neo4j queries: reads are cached for QUERY_CACHE_TTL_MS
+// and concurrent identical reads share one query; writes clear the cache
 async function runQuery(cypher, params = {}) {
+    if (WRITE_CYPHER.test(cypher)) {
+        try {
+            return await executeQuery(cypher, params);
+        } finally {
+            queryCacheEpoch++;
+            queryCache.clear();
+        }
+    }
+
+    const key = cypher + '\u0000' + JSON.stringify(params);
+    const cached = queryCache.get(key);
+    if (cached) {
+        if (cached.promise) return cached.promise;
+        if (cached.expiresAt > Date.now()) return cached.records;
+        queryCache.delete(key);
+    }
+
+    const epoch = queryCacheEpoch;
+    const promise = executeQuery(cypher, params);
+    queryCache.set(key, { promise, epoch });
+    try {
+        const records = await promise;
+        if (epoch === queryCacheEpoch) {
+            queryCache.set(key, { records, expiresAt: Date.now() + QUERY_CACHE_TTL_MS });
+        }
+        return records;
+    } catch (error) {
+        // Failed queries are not cached
+        const entry = queryCache.get(key);
+        if (entry && entry.promise === promise) queryCache.delete(key);
+        throw error;
+    }
+}
+
+async function executeQuery(cypher, params) {
     const session = driver.session({ database: NEO4J_DATABASE });
     try {
         const result = await session.run(cypher, params);